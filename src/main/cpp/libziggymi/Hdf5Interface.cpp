@@ -111,20 +111,6 @@ Hdf5Interface* Hdf5Interface::Hdf5InterfaceForWriting(hid_t parentHdf5Id_p,
 	}
 
 
-	//	construct a property for deflation and chunking
-	hid_t deflateProperty;
-	long nElem = 1;
-	for (uint i=0 ; i<nDims ; i++) {
-		nElem *= dims[i];
-	}
-	if (nElem >= MIN_COMPRESSION_ELEMENTS && COMPRESSION_LEVEL > 0) {
-		deflateProperty = H5Pcreate(H5P_DATASET_CREATE);
-		H5Pset_chunk(deflateProperty, nDims, hdf5Interface->chunkSize(nDims, dims));
-		H5Pset_deflate(deflateProperty, COMPRESSION_LEVEL);
-	} else {
-		deflateProperty = H5Pcopy(H5P_DEFAULT);
-	}
-
 	//	If this is a scalar or array of string objects, construct a data type for var-length
 	//	strings and populate the appropriate attribute for the group
 	if (hdf5Interface->datatypeId == H5T_C_S1) {
@@ -142,50 +128,71 @@ Hdf5Interface* Hdf5Interface::Hdf5InterfaceForWriting(hid_t parentHdf5Id_p,
 		hdf5Interface->addMarkerAttribute(BOOLEAN_ARRAY_ATT_NAME);
 	}
 
+	//	construct a property for chunking and compression; variable-length strings are
+	//	stored in chunks as references
+	int elemSize = hdf5Interface->datatypeNeedsToBeClosed ? VARIABLE_LENGTH_ELEMENT_BYTES
+			: Hdf5Interface::typeSizes[hdf5Interface->datatypeId];
+	hid_t deflateProperty = datasetCreationProperty(nDims, dims, elemSize);
+
 	//	construct dataspace and dataset, including any compression desirements
 	hdf5Interface->dataspaceId = H5Screate_simple(nDims, dims, NULL);
 	hdf5Interface->datasetId = H5Dcreate(hdf5Interface->hdf5GroupId,
 			hdf5Interface->name.c_str(), hdf5Interface->datatypeId,
 			hdf5Interface->dataspaceId, H5P_DEFAULT, deflateProperty, H5P_DEFAULT);
+	H5Pclose(deflateProperty);
 
 	return hdf5Interface;
 }
 
-hsize_t* Hdf5Interface::chunkSize(hsize_t nDims, hsize_t* dims) {
+/**
+ * Returns the dataset creation property for an array, following the HDF5 storage policy that
+ * Ziggy passes in the environment: arrays with at least the minimum number of elements are
+ * compressed, with the shuffle filter if requested, and their chunks keep the trailing
+ * dimensions whole as far as the target chunk size allows. This matches the Java and Python
+ * writers. The caller must close the property.
+ */
+hid_t Hdf5Interface::datasetCreationProperty(hsize_t nDims, hsize_t* dims, int elemSize) {
 
-	hsize_t* cSize = new hsize_t[nDims];
+	long compressionLevel = environmentValue(COMPRESSION_LEVEL_ENV, DEFAULT_COMPRESSION_LEVEL);
+	long minElements = environmentValue(MIN_COMPRESSION_ELEMENTS_ENV,
+			DEFAULT_MIN_COMPRESSION_ELEMENTS);
+	long nElem = 1;
 	for (uint i=0 ; i<nDims ; i++) {
-		cSize[i] = dims[i];
+		nElem *= dims[i];
+	}
+	if (compressionLevel <= 0 || nElem <= 0 || nElem < minElements) {
+		return H5Pcopy(H5P_DEFAULT);
 	}
 
-	int elemSize = Hdf5Interface::typeSizes[datatypeId];
+	//	fill the chunk from the last dimension, which is contiguous in memory
+	long chunkElements = std::max(1L,
+			environmentValue(CHUNK_BYTES_ENV, DEFAULT_CHUNK_BYTES) / std::max(1, elemSize));
+	hsize_t* cSize = new hsize_t[nDims];
+	for (int i=nDims-1 ; i>=0 ; i--) {
+		cSize[i] = std::max(1L, std::min((long)dims[i], chunkElements));
+		chunkElements = std::max(1L, chunkElements / (long)cSize[i]);
+	}
 
-	//	determine size per row
-	for (uint iDim=0 ; iDim<nDims ; iDim++) {
-		long nElem = 1;
-		for (uint jDim=iDim+1 ; jDim<nDims ; jDim++) {
-			nElem *= dims[jDim];
-		}
+	hid_t deflateProperty = H5Pcreate(H5P_DATASET_CREATE);
+	H5Pset_chunk(deflateProperty, nDims, cSize);
+	delete[] cSize;
 
-		//	convert to bytes per "row"
-		long nBytesPerRow = nElem * elemSize;
-
-		//	determine the number of rows that can be accommodated within the desired max
-		//	number of bytes
-		long nRows = std::min((long)(MAX_BYTES_PER_HYPERSLAB / nBytesPerRow), (long)dims[iDim]);
-
-		//	if nRows is zero, it means that the # of bytes per row is too large, so we have
-		//	to perform the subdivision into hyperslabs at a higher dimension, and this dimension
-		//	we should do 1 per hyperslab; alternately, if nRows > 0, we are done with this
-		//	activity and can return
-		if (nRows == 0) {
-			cSize[iDim] = 1;
-		} else {
-			cSize[iDim] = nRows;
-			break;
-		}
+	//	the shuffle filter has to be added before the deflate filter that it helps
+	const char* shuffle = std::getenv(SHUFFLE_ENV);
+	if (shuffle == NULL || std::strcmp(shuffle, "false") != 0) {
+		H5Pset_shuffle(deflateProperty);
 	}
-	return cSize;
+	H5Pset_deflate(deflateProperty, std::min(compressionLevel, 9L));
+	return deflateProperty;
+}
+
+/**
+ * Returns the value of an integer environment variable, or the default value if the
+ * variable is not set.
+ */
+long Hdf5Interface::environmentValue(char* name, long defaultValue) {
+	const char* value = std::getenv(name);
+	return value == NULL ? defaultValue : std::strtol(value, NULL, 10);
 }
 
 /**
@@ -229,17 +236,19 @@ long* Hdf5Interface::getPersistableArrayDims() const {
 	return dims;
 }
 
+/**
+ * Reads a scalar string. The variable-length string datatype is shared by all reads, and the
+ * buffer that HDF5 allocates for the string is released once it has been copied.
+ */
 std::string Hdf5Interface::readString() {
-	char * readBuffer;
 	if (datasetId == -1) {
-		readBuffer = (char*)"";
-	} else {
-		hid_t memtype = H5Tcopy(H5T_C_S1);
-		H5Tset_size(memtype, H5T_VARIABLE);
-		H5Dread(datasetId, memtype, H5S_ALL, H5S_ALL, H5P_DEFAULT, &readBuffer);
-		H5Tclose(memtype);
+		return std::string();
 	}
-	std::string retval = readBuffer;
+	char* readBuffer = NULL;
+	hid_t memtype = variableLengthStringType();
+	H5Dread(datasetId, memtype, H5S_ALL, H5S_ALL, H5P_DEFAULT, &readBuffer);
+	std::string retval = readBuffer == NULL ? std::string() : std::string(readBuffer);
+	H5Dvlen_reclaim(memtype, dataspaceId, H5P_DEFAULT, &readBuffer);
 	return retval;
 }
 
@@ -264,22 +273,35 @@ int Hdf5Interface::getNDims() const {
 	return nDims;
 }
 
+/**
+ * Returns the number of elements in the dataset.
+ */
+hsize_t Hdf5Interface::getNumel() const {
+	hssize_t numel = H5Sget_simple_extent_npoints(dataspaceId);
+	return numel < 0 ? 0 : (hsize_t)numel;
+}
+
+/**
+ * Returns the datatype for variable-length strings in memory. It is created on first use and
+ * shared by every read, so it must not be closed.
+ */
+hid_t Hdf5Interface::variableLengthStringType() {
+	static const hid_t memtype = []() {
+		hid_t type = H5Tcopy(H5T_C_S1);
+		H5Tset_size(type, H5T_VARIABLE);
+		return type;
+	}();
+	return memtype;
+}
+
 /**
  * Casts a boolean vector to int8. This is necessary because HDF5 does not support
  * boolean data types, so they are transported from the worker to the application
  * and back as int8's.
  */
-std::vector<int8_t> Hdf5Interface::boolToInt8Vector(std::vector<bool> boolVector) {
-
-	if (boolVector.empty()) {
-		return std::vector<int8_t>();
-	}
-
+std::vector<int8_t> Hdf5Interface::boolToInt8Vector(const std::vector<bool>& boolVector) {
 	std::vector<int8_t> int8Vector(boolVector.size());
-	for (uint i=0 ; i<boolVector.size() ; i++) {
-		int8_t value = (int8_t)boolVector.at(i);
-		int8Vector.at(i) = value;
-	}
+	boolToInt8(boolVector, int8Vector.data());
 	return int8Vector;
 }
 
@@ -288,18 +310,36 @@ std::vector<int8_t> Hdf5Interface::boolToInt8Vector(std::vector<bool> boolVector
  * boolean data types, so they are transported from the worker to the application
  * and back as int8's.
  */
-std::vector<bool> Hdf5Interface::int8ToBoolVector(std::vector<int8_t> int8Vector) {
+std::vector<bool> Hdf5Interface::int8ToBoolVector(const std::vector<int8_t>& int8Vector) {
+	std::vector<bool> boolVector;
+	int8ToBool(int8Vector.data(), int8Vector.size(), boolVector);
+	return boolVector;
+}
 
-	if (int8Vector.empty()) {
-		return std::vector<bool>();
+/**
+ * Reads a boolean array, which HDF5 stores as int8, into a vector. The int8 values are read
+ * into a scratch buffer that is reused from one read to the next.
+ */
+void Hdf5Interface::readBoolVector(std::vector<bool>& contents) {
+	if (datasetId == -1) {
+		contents.clear();
+		return;
 	}
-
-	std::vector<bool> boolVector(int8Vector.size());
-	for (uint i=0 ; i<int8Vector.size() ; i++) {
-		bool value = (int8Vector.at(i) == (int8_t)1);
-		boolVector.at(i) = value;
+	int8Scratch.resize(getNumel());
+	if (!int8Scratch.empty()) {
+		readArray(H5T_NATIVE_INT8, int8Scratch.data());
 	}
-	return boolVector;
+	int8ToBool(int8Scratch.data(), int8Scratch.size(), contents);
+}
+
+/**
+ * Writes a boolean vector as int8, converting it into a scratch buffer that is reused from
+ * one write to the next.
+ */
+void Hdf5Interface::writeBoolVector(const std::vector<bool>& contents) {
+	int8Scratch.resize(contents.size());
+	boolToInt8(contents, int8Scratch.data());
+	writeArray(H5T_NATIVE_INT8, int8Scratch.data());
 }
 
 void Hdf5Interface::openAndReadHdf5Group(Persistable& obj, hid_t hdf5ParentGroupId, std::string name) {
@@ -361,50 +401,56 @@ void Hdf5Interface::addScalarInt32Attribute(char* attributeName, int32_t attribu
 }
 
 
+/**
+ * Reads a string array. The pointers that HDF5 returns are read into a scratch buffer that is
+ * reused from one read to the next, and the strings are released once they have been copied.
+ */
 std::vector<std::string> Hdf5Interface::readStringArray() {
 
 	if (datasetId == -1) {
 		return std::vector<std::string>();
 	}
 
-	//	determine the size of the return array
-	int nDims = this->getNDims();
-	hsize_t* dims = this->getDims();
-	hsize_t numel = 1;
-	for (int iDim=0 ; iDim<nDims ; iDim++) {
-		numel *= dims[iDim];
+	//	read the array of char*
+	hsize_t numel = this->getNumel();
+	stringScratch.assign(numel, NULL);
+	if (numel == 0) {
+		return std::vector<std::string>();
 	}
-
-	//	allocate the array of char*
-	char* charArray[numel];
-
-	//	read the array
-	//	define the data type and read in
-	hid_t hdf5Type = H5Tcopy(H5T_C_S1);
-	H5Tset_size(hdf5Type, H5T_VARIABLE);
-	H5Dread(datasetId, hdf5Type, H5S_ALL, H5S_ALL, H5P_DEFAULT, charArray);
+	hid_t memtype = variableLengthStringType();
+	H5Dread(datasetId, memtype, H5S_ALL, H5S_ALL, H5P_DEFAULT, stringScratch.data());
 
 	//	construct the string vector
-	std::vector<std::string> stringVector(charArray, charArray + numel);
+	std::vector<std::string> stringVector;
+	stringVector.reserve(numel);
+	for (hsize_t i=0 ; i<numel ; i++) {
+		const char* value = stringScratch[i];
+		stringVector.push_back(value == NULL ? std::string() : std::string(value));
+	}
+	H5Dvlen_reclaim(memtype, dataspaceId, H5P_DEFAULT, stringScratch.data());
 	return stringVector;
 
 }
 
-void Hdf5Interface::writeStringArray(std::vector<std::string> content) {
+/**
+ * Writes a string array. The pointers to the strings are gathered in a scratch buffer that is
+ * reused from one write to the next, rather than on the stack, which large arrays can exhaust.
+ */
+void Hdf5Interface::writeStringArray(const std::vector<std::string>& content) {
 
 	//	transfer the contents of the string vector to an array of char* objects
-	int nelem = content.size();
-	char* contentArray[nelem];
-	for (int i=0 ; i<nelem ; i++) {
-		contentArray[i] = const_cast<char*>(content.at(i).c_str());
+	size_t nelem = content.size();
+	stringScratch.resize(nelem);
+	for (size_t i=0 ; i<nelem ; i++) {
+		stringScratch[i] = const_cast<char*>(content[i].c_str());
 	}
 
 	//	write to HDF5
-	H5Dwrite(datasetId, datatypeId, H5S_ALL, H5S_ALL, H5P_DEFAULT, contentArray);
+	H5Dwrite(datasetId, datatypeId, H5S_ALL, H5S_ALL, H5P_DEFAULT, stringScratch.data());
 
 }
 
-void Hdf5Interface::writeStringVector(hsize_t* offset, std::vector<std::string> content) {
+void Hdf5Interface::writeStringVector(hsize_t* offset, const std::vector<std::string>& content) {
 
 	//	determine the size of the dataspace
 	int nDims = this->getNDims();
@@ -413,31 +459,30 @@ void Hdf5Interface::writeStringVector(hsize_t* offset, std::vector<std::string>
 	//	set the hyperslab parameters -- we are taking a slab that is 1 unit in each dimension
 	//	except for the last dimension, which is the size of the array in that dimension. For
 	//	example, if the data is 3 x 4 x 5, each block will be 1 x 1 x 5.
-	hsize_t stride[nDims];
-	hsize_t count[nDims];
-	hsize_t block[nDims];
-	for (int i=0 ; i<nDims-1 ; i++) {
-		stride[i] = 1;
-		count[i] = 1;
-		block[i] = 1;
-	}
-	stride[nDims-1] = 1;
-	count[nDims-1] = 1;
+	std::vector<hsize_t> stride(nDims, 1);
+	std::vector<hsize_t> count(nDims, 1);
+	std::vector<hsize_t> block(nDims, 1);
 	block[nDims-1] = dims[nDims-1];
+	int nElem = dims[nDims-1];
+	delete[] dims;
 
 	//	define the hyperslab and write it
-	hid_t memspace = H5Screate_simple(nDims, block, NULL);
-	H5Sselect_hyperslab(dataspaceId, H5S_SELECT_SET, offset, stride, count, block);
-	int nElem = dims[nDims-1];
+	hid_t memspace = H5Screate_simple(nDims, block.data(), NULL);
+	H5Sselect_hyperslab(dataspaceId, H5S_SELECT_SET, offset, stride.data(), count.data(),
+			block.data());
 
-	const char** contentArray = new const char*[nElem];
+	stringScratch.resize(nElem);
 	for (int i=0 ; i<nElem ; i++) {
-		contentArray[i] = content.at(i).c_str();
+		stringScratch[i] = const_cast<char*>(content[i].c_str());
 	}
-	H5Dwrite(datasetId, datatypeId, memspace, dataspaceId, H5P_DEFAULT, contentArray);
+	H5Dwrite(datasetId, datatypeId, memspace, dataspaceId, H5P_DEFAULT, stringScratch.data());
+	H5Sclose(memspace);
 
 }
 
+thread_local std::vector<int8_t> Hdf5Interface::int8Scratch;
+thread_local std::vector<char*> Hdf5Interface::stringScratch;
+
 std::map<hid_t, int> Hdf5Interface::typeSizes = {
 		{H5T_NATIVE_INT8, 1},
 		{H5T_NATIVE_INT16, 2},
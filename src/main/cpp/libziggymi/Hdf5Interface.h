@@ -16,6 +16,8 @@
 #include <iostream>
 #include <map>
 #include <algorithm>
+#include <cstdlib>
+#include <cstring>
 
 class Hdf5Interface {
 
@@ -46,29 +48,49 @@ public:
 			return NULL;
 		}
 
-		//	determine the size of the return array
-		int nDims = this->getNDims();
-		hsize_t* dims = this->getDims();
-		hsize_t numel = 1;
-		for (int iDim=0 ; iDim<nDims ; iDim++) {
-			numel *= dims[iDim];
+		//	allocate the array and read it from HDF5
+		T* returnArray = new T[this->getNumel()];
+		readArray(hdf5Type, returnArray);
+		return returnArray;
+
+	}
+
+	/**
+	 * Reads the dataset into a contiguous buffer supplied by the caller, which must hold
+	 * getNumel() elements. This avoids allocating an intermediate array.
+	 */
+	template <class T> void readArray(hid_t hdf5Type, T* buffer) {
+
+		if (datasetId == -1) {
+			return;
 		}
+		H5Dread(datasetId, hdf5Type, H5S_ALL, H5S_ALL, H5P_DEFAULT, buffer);
 
-		//	allocate the array
-		T* returnArray = new T[numel];
+	}
 
-		//	read the array from HDF5
-		H5Dread(datasetId, hdf5Type, H5S_ALL, H5S_ALL, H5P_DEFAULT, returnArray);
+	/**
+	 * Reads the dataset directly into a vector, which is resized to hold it. Booleans are
+	 * stored as int8, so vectors of bool are read with readBoolVector instead.
+	 */
+	template <class T> void readVector(hid_t hdf5Type, std::vector<T>& contents) {
 
-		return returnArray;
+		if (datasetId == -1) {
+			contents.clear();
+			return;
+		}
+		contents.resize(this->getNumel());
+		if (!contents.empty()) {
+			readArray(hdf5Type, contents.data());
+		}
 
 	}
 
+	void readBoolVector(std::vector<bool>& contents);
 
 	std::vector<std::string> readStringArray();
 
 
-	template <class T> void writeArray(hid_t hdf5Type, T* content) {
+	template <class T> void writeArray(hid_t hdf5Type, const T* content) {
 
 		if (datasetId == -1) {
 			return;
@@ -77,16 +99,57 @@ public:
 
 	}
 
-	void writeStringArray(std::vector<std::string> s);
+	/**
+	 * Writes a vector directly from its contiguous storage. Booleans are stored as int8, so
+	 * vectors of bool are written with writeBoolVector instead.
+	 */
+	template <class T> void writeVector(hid_t hdf5Type, const std::vector<T>& contents) {
+		writeArray(hdf5Type, contents.data());
+	}
+
+	void writeBoolVector(const std::vector<bool>& contents);
+
+	void writeStringArray(const std::vector<std::string>& s);
 
 	hsize_t* getDims() const;
 	int getNDims() const;
+	hsize_t getNumel() const;
 	long* getPersistableArrayDims() const;
 
 	hid_t get_hdf5GroupId() const {return this->hdf5GroupId ; }
-	void writeStringVector(hsize_t* offset, std::vector<std::string> content);
-	static std::vector<bool> int8ToBoolVector(std::vector<int8_t> int8Vector);
-	static std::vector<int8_t> boolToInt8Vector(std::vector<bool> boolVector);
+	void writeStringVector(hsize_t* offset, const std::vector<std::string>& content);
+	static std::vector<bool> int8ToBoolVector(const std::vector<int8_t>& int8Vector);
+	static std::vector<int8_t> boolToInt8Vector(const std::vector<bool>& boolVector);
+
+	/**
+	 * Casts booleans to int8 into a contiguous buffer, which must hold as many elements as
+	 * the boolean vector. This is the bulk form of boolToInt8Vector: it needs no
+	 * intermediate vector and no bounds checks.
+	 */
+	static void boolToInt8(const std::vector<bool>& boolVector, int8_t* int8Buffer) {
+		const size_t numel = boolVector.size();
+		std::vector<bool>::const_iterator value = boolVector.begin();
+		for (size_t i=0 ; i<numel ; i++, ++value) {
+			int8Buffer[i] = *value ? 1 : 0;
+		}
+	}
+
+	/**
+	 * Casts a contiguous buffer of int8 to booleans, which replace the contents of the
+	 * boolean vector. As in int8ToBoolVector, only a value of 1 is true. The vector is
+	 * rebuilt in one pass, so its storage is reused when it is already large enough.
+	 */
+	static void int8ToBool(const int8_t* int8Buffer, size_t numel,
+			std::vector<bool>& boolVector) {
+		boolVector.assign(numel, false);
+		std::vector<bool>::iterator value = boolVector.begin();
+		for (size_t i=0 ; i<numel ; i++, ++value) {
+			if (int8Buffer[i] == (int8_t)1) {
+				*value = true;
+			}
+		}
+	}
+
 	static void openAndReadHdf5Group(Persistable& obj, hid_t hdf5ParentGroupId, std::string groupName);
 	static void createAndWriteHdf5Group(const Persistable& obj, hid_t hdf5ParentGroupId,
 			std::string groupName, int32_t fieldOrder);
@@ -117,16 +180,30 @@ private:
 	constexpr static char* PARALLEL_ARRAY_ATT_NAME = (char *)"PARALLEL_ARRAY";
 	const static int32_t HDF5_PERSISTABLE_TYPE_INT = 9;
 
-	const static int MIN_COMPRESSION_ELEMENTS = 200;
-	const static uint COMPRESSION_LEVEL = 0;
-	const static int MAX_BYTES_PER_HYPERSLAB = 2000000000;
+	//	HDF5 storage policy defaults, used when Ziggy has not passed the policy of the
+	//	pipeline step in the environment
+	const static long DEFAULT_MIN_COMPRESSION_ELEMENTS = 200;
+	const static long DEFAULT_COMPRESSION_LEVEL = 0;
+	const static long DEFAULT_CHUNK_BYTES = 1024 * 1024;
+	const static int VARIABLE_LENGTH_ELEMENT_BYTES = 16;
+	constexpr static char* COMPRESSION_LEVEL_ENV = (char*)"ZIGGY_HDF5_COMPRESSION_LEVEL";
+	constexpr static char* SHUFFLE_ENV = (char*)"ZIGGY_HDF5_SHUFFLE";
+	constexpr static char* MIN_COMPRESSION_ELEMENTS_ENV = (char*)"ZIGGY_HDF5_MIN_COMPRESSION_ELEMENTS";
+	constexpr static char* CHUNK_BYTES_ENV = (char*)"ZIGGY_HDF5_CHUNK_BYTES";
 
 	static std::map<hid_t, int> typeSizes;
 
+	//	scratch buffers that are reused from one read or write to the next, rather than
+	//	allocated for each call; there is one set of buffers per thread
+	static thread_local std::vector<int8_t> int8Scratch;
+	static thread_local std::vector<char*> stringScratch;
+
 	Hdf5Interface(hid_t parentHdf5Id_p, std::string name_p, hid_t datatypeId_p);
 	void addMarkerAttribute(char* attributeName);
 	void addScalarInt32Attribute(char* attributeName, int32_t attributeValue);
-	hsize_t* chunkSize(hsize_t nDims, hsize_t* dims);
+	static long environmentValue(char* name, long defaultValue);
+	static hid_t datasetCreationProperty(hsize_t nDims, hsize_t* dims, int elemSize);
+	static hid_t variableLengthStringType();
 
 };
 
@@ -7,13 +7,10 @@ import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_ENUM;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_LONG;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_STRING;
-import static gov.nasa.ziggy.collections.ZiggyDataType.box1dArray;
 import static gov.nasa.ziggy.collections.ZiggyDataType.castBoxedNumericToUnboxedNumeric;
-import static gov.nasa.ziggy.collections.ZiggyDataType.fill1dArray;
 import static gov.nasa.ziggy.collections.ZiggyDataType.getDataType;
 import static gov.nasa.ziggy.collections.ZiggyDataType.getDataTypeFromClass;
 import static gov.nasa.ziggy.collections.ZiggyDataType.truncateClassName;
-import static gov.nasa.ziggy.collections.ZiggyDataType.unbox1dArray;
 
 import java.lang.reflect.Array;
 import java.lang.reflect.Field;
@@ -22,6 +19,8 @@ import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
 
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -171,17 +170,9 @@ public class ZiggyArrayUtils {
      * equivalents. Size and shape will match those of boxedObject.
      */
     public static Object unbox(Object boxedObject) {
-        long[] dimensions = getArraySize(boxedObject);
-        Object destinationArray = constructPrimitiveArray(dimensions.length, (int) dimensions[0],
-            getDataType(boxedObject));
-        Object[] destinationArray1 = dimensions.length > 1 ? (Object[]) destinationArray : null;
-        ArrayRecursionLevel nextLevel = (obj, i) -> destinationArray1[i] = unbox(obj);
-        ArrayRecursionLevel lowestLevel = (arrayObject, i) -> {
-            Object unboxedArray = unbox1dArray(arrayObject);
-            System.arraycopy(unboxedArray, 0, destinationArray, 0, (int) dimensions[0]);
-        };
-        arrayLevelRecursionMaster(boxedObject, nextLevel, lowestLevel);
-        return destinationArray;
+        ZiggyDataType dataType = getDataType(boxedObject);
+        return mapRows(boxedObject, constructArray(1, 0, dataType, false).getClass(),
+            row -> distinctArray(dataType.unboxArray(row), row));
     }
 
     /**
@@ -194,17 +185,9 @@ public class ZiggyArrayUtils {
      * returned array will match those of unboxedObject.
      */
     public static Object box(Object unboxedObject) {
-        long[] dimensions = getArraySize(unboxedObject);
-        Object destinationArray = constructBoxedArray(dimensions.length, (int) dimensions[0],
-            getDataType(unboxedObject));
-        Object[] destinationArray1 = dimensions.length > 1 ? (Object[]) destinationArray : null;
-        ArrayRecursionLevel nextLevel = (obj, i) -> destinationArray1[i] = box(obj);
-        ArrayRecursionLevel lowestLevel = (arrayObject, i) -> {
-            Object boxedArray = box1dArray(arrayObject);
-            System.arraycopy(boxedArray, 0, destinationArray, 0, (int) dimensions[0]);
-        };
-        arrayLevelRecursionMaster(unboxedObject, nextLevel, lowestLevel);
-        return destinationArray;
+        ZiggyDataType dataType = getDataType(unboxedObject);
+        return mapRows(unboxedObject, constructArray(1, 0, dataType, true).getClass(),
+            row -> distinctArray(dataType.boxArray(row), row));
     }
 
     /**
@@ -220,45 +203,44 @@ public class ZiggyArrayUtils {
      */
     public static Object castArray(Object sourceArray, Object castType) {
         ZiggyDataType hType = castDataType(castType);
-        long[] arraySize = getArraySize(sourceArray);
-        Object destinationArray = constructPrimitiveArray(arraySize.length, (int) arraySize[0],
-            hType);
-        Object[] destArray1 = arraySize.length > 1 ? (Object[]) destinationArray : null;
-        ArrayRecursionLevel nextLevel = (obj, i) -> destArray1[i] = castArray(obj, castType);
-        ArrayRecursionLevel lowestLevel = new ArrayRecursionLevel() {
-            // TODO Try to eliminate this SuppressWarnings annotation
-            @SuppressWarnings({ "unchecked", "rawtypes" })
-            @Override
-            public void apply(Object sourceArray1, int i) {
-                ZiggyDataType hType = castDataType(castType);
-                Object destinationArray1 = null;
-                ZiggyDataType sourceDataType = getDataType(sourceArray1);
-
-                // there are a few options here:
-                if (sourceDataType.isNumeric() && hType.equals(ZIGGY_BOOLEAN)) {
-                    destinationArray1 = castNumericToBoolean(sourceArray1);
-                }
-                if (sourceDataType.equals(ZIGGY_BOOLEAN) && hType.isNumeric()) {
-                    destinationArray1 = castBooleanToNumeric(sourceArray1, hType);
-                }
-                if (sourceDataType.equals(ZIGGY_ENUM) && hType.equals(ZIGGY_STRING)) {
-                    destinationArray1 = castEnumToString(sourceArray1);
-                }
-                if (sourceDataType.equals(ZIGGY_STRING) && hType.equals(ZIGGY_ENUM)) {
-                    destinationArray1 = castStringToEnum(sourceArray1, (Class) castType);
-                }
-                if (sourceDataType.isNumeric() && hType.isNumeric()) {
-                    destinationArray1 = castNumericToNumeric(sourceArray1, hType);
-                }
-                if (destinationArray1 == null) {
-                    throw new PipelineException("Unable to cast array from "
-                        + sourceDataType.getJavaClassName() + " to " + hType.getJavaClassName());
-                }
-                System.arraycopy(destinationArray1, 0, destinationArray, 0, (int) arraySize[0]);
-            }
-        };
-        arrayLevelRecursionMaster(sourceArray, nextLevel, lowestLevel);
-        return destinationArray;
+        return mapRows(sourceArray, constructArray(1, 0, hType, false).getClass(),
+            row -> distinctArray(castArray1d(row, hType, castType), row));
+    }
+
+    /**
+     * Casts a 1-d array of primitives to a different type.
+     *
+     * @param sourceArray1d 1-d array
+     * @param hType the type of the cast
+     * @param castType the castType argument of {@link #castArray(Object, Object)}
+     * @return the cast array, or the source array itself if no cast is needed
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    static Object castArray1d(Object sourceArray1d, ZiggyDataType hType, Object castType) {
+        Object destinationArray1d = null;
+        ZiggyDataType sourceDataType = getDataType(sourceArray1d);
+
+        // there are a few options here:
+        if (sourceDataType.isNumeric() && hType.equals(ZIGGY_BOOLEAN)) {
+            destinationArray1d = castNumericToBoolean(sourceArray1d);
+        }
+        if (sourceDataType.equals(ZIGGY_BOOLEAN) && hType.isNumeric()) {
+            destinationArray1d = castBooleanToNumeric(sourceArray1d, hType);
+        }
+        if (sourceDataType.equals(ZIGGY_ENUM) && hType.equals(ZIGGY_STRING)) {
+            destinationArray1d = castEnumToString(sourceArray1d);
+        }
+        if (sourceDataType.equals(ZIGGY_STRING) && hType.equals(ZIGGY_ENUM)) {
+            destinationArray1d = castStringToEnum(sourceArray1d, (Class) castType);
+        }
+        if (sourceDataType.isNumeric() && hType.isNumeric()) {
+            destinationArray1d = castNumericToNumeric(sourceArray1d, hType);
+        }
+        if (destinationArray1d == null) {
+            throw new PipelineException("Unable to cast array from "
+                + sourceDataType.getJavaClassName() + " to " + hType.getJavaClassName());
+        }
+        return destinationArray1d;
     }
 
     /**
@@ -355,13 +337,147 @@ public class ZiggyArrayUtils {
         if (ziggyDataType.equals(getDataType(sourceArray1d))) {
             return sourceArray1d;
         }
-        Number[] boxedSourceArray = (Number[]) box(sourceArray1d);
+        Object castArray = castPrimitiveNumericToNumeric(sourceArray1d, ziggyDataType);
+        if (castArray != null) {
+            return castArray;
+        }
+
+        // Arrays of boxed values are cast one value at a time.
+        Number[] boxedSourceArray = sourceArray1d instanceof Number[]
+            ? (Number[]) sourceArray1d
+            : (Number[]) box(sourceArray1d);
         Object destinationArray = Array.newInstance(ziggyDataType.getJavaClass(),
             boxedSourceArray.length);
         castBoxedNumericToUnboxedNumeric(boxedSourceArray, destinationArray);
         return destinationArray;
     }
 
+    /**
+     * Casts a 1-d array of a primitive numeric type to a different primitive numeric type without
+     * boxing its values. Integer types are read as longs and floating-point types as doubles; both
+     * widenings are exact, so each value is the same as if it had been cast directly.
+     *
+     * @param sourceArray1d 1-d array
+     * @param ziggyDataType numeric data type of the desired cast
+     * @return contents of sourceArray1d, cast to the type indicated by ziggyDataType, or null if
+     * sourceArray1d isn't an array of a primitive numeric type
+     */
+    static Object castPrimitiveNumericToNumeric(Object sourceArray1d,
+        ZiggyDataType ziggyDataType) {
+        long[] longs = integerArrayToLong(sourceArray1d);
+        double[] doubles = longs == null ? floatingPointArrayToDouble(sourceArray1d) : null;
+        if (longs == null && doubles == null) {
+            return null;
+        }
+        int length = longs != null ? longs.length : doubles.length;
+        switch (ziggyDataType) {
+            case ZIGGY_BYTE: {
+                byte[] destinationArray = new byte[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = longs != null ? (byte) longs[i] : (byte) doubles[i];
+                }
+                return destinationArray;
+            }
+            case ZIGGY_SHORT: {
+                short[] destinationArray = new short[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = longs != null ? (short) longs[i] : (short) doubles[i];
+                }
+                return destinationArray;
+            }
+            case ZIGGY_INT: {
+                int[] destinationArray = new int[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = longs != null ? (int) longs[i] : (int) doubles[i];
+                }
+                return destinationArray;
+            }
+            case ZIGGY_LONG: {
+                if (longs != null) {
+                    return longs;
+                }
+                long[] destinationArray = new long[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = (long) doubles[i];
+                }
+                return destinationArray;
+            }
+            case ZIGGY_FLOAT: {
+                float[] destinationArray = new float[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = longs != null ? (float) longs[i] : (float) doubles[i];
+                }
+                return destinationArray;
+            }
+            case ZIGGY_DOUBLE: {
+                if (doubles != null) {
+                    return doubles;
+                }
+                double[] destinationArray = new double[length];
+                for (int i = 0; i < length; i++) {
+                    destinationArray[i] = longs[i];
+                }
+                return destinationArray;
+            }
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Returns a new long array with the values of a byte, short, int, or long array, or null if the
+     * argument is some other kind of array. A long array is returned as a copy.
+     */
+    private static long[] integerArrayToLong(Object array1d) {
+        if (array1d instanceof long[]) {
+            return ((long[]) array1d).clone();
+        }
+        if (array1d instanceof int[]) {
+            int[] sourceArray = (int[]) array1d;
+            long[] longArray = new long[sourceArray.length];
+            for (int i = 0; i < sourceArray.length; i++) {
+                longArray[i] = sourceArray[i];
+            }
+            return longArray;
+        }
+        if (array1d instanceof short[]) {
+            short[] sourceArray = (short[]) array1d;
+            long[] longArray = new long[sourceArray.length];
+            for (int i = 0; i < sourceArray.length; i++) {
+                longArray[i] = sourceArray[i];
+            }
+            return longArray;
+        }
+        if (array1d instanceof byte[]) {
+            byte[] sourceArray = (byte[]) array1d;
+            long[] longArray = new long[sourceArray.length];
+            for (int i = 0; i < sourceArray.length; i++) {
+                longArray[i] = sourceArray[i];
+            }
+            return longArray;
+        }
+        return null;
+    }
+
+    /**
+     * Returns a new double array with the values of a float or double array, or null if the
+     * argument is some other kind of array. A double array is returned as a copy.
+     */
+    private static double[] floatingPointArrayToDouble(Object array1d) {
+        if (array1d instanceof double[]) {
+            return ((double[]) array1d).clone();
+        }
+        if (array1d instanceof float[]) {
+            float[] sourceArray = (float[]) array1d;
+            double[] doubleArray = new double[sourceArray.length];
+            for (int i = 0; i < sourceArray.length; i++) {
+                doubleArray[i] = sourceArray[i];
+            }
+            return doubleArray;
+        }
+        return null;
+    }
+
     /**
      * Construct a complete multi-dimensional array of a specified primitive type.
      *
@@ -602,12 +718,7 @@ public class ZiggyArrayUtils {
      * @param array Array to be populated.
      */
     static void populateWithTrue(Object array) {
-        ArrayRecursionLevel nextLevel = (obj, i) -> populateWithTrue(obj);
-        ArrayRecursionLevel lowestLevel = (array1, c) -> {
-            boolean[] bools = (boolean[]) array1;
-            Arrays.fill(bools, true);
-        };
-        arrayLevelRecursionMaster(array, nextLevel, lowestLevel);
+        forEachRow(array, row -> Arrays.fill((boolean[]) row, true));
     }
 
     /**
@@ -641,11 +752,8 @@ public class ZiggyArrayUtils {
      * @param fillValue Object that supplies the fill value.
      */
     static void fillRecursively(Object array, Object fillValue) {
-        ArrayRecursionLevel nextLevel = (array1, i) -> fillRecursively(array1, fillValue);
-        ArrayRecursionLevel lowestLevel = (array1, i) -> {
-            fill1dArray(array1, fillValue);
-        };
-        arrayLevelRecursionMaster(array, nextLevel, lowestLevel);
+        ZiggyDataType dataType = getDataType(array);
+        forEachRow(array, row -> dataType.fillArray(row, fillValue));
     }
 
     /**
@@ -684,28 +792,140 @@ public class ZiggyArrayUtils {
      * @return The value from the selected location, wrapped if the array is of primitive values.
      */
     public static Object getValue(Object array, int[] location) {
-        Object obj = null;
-        if (location.length > 1) {
-            Object[] objArray = (Object[]) array;
-            obj = getValue(objArray[location[0]],
-                ArrayUtils.subarray(location, 1, location.length));
-        } else {
-            obj = Array.get(array, location[0]);
+        Object array1d = array;
+        for (int i = 0; i < location.length - 1; i++) {
+            array1d = ((Object[]) array1d)[location[i]];
+        }
+        int index = location[location.length - 1];
+        if (array1d instanceof double[]) {
+            return ((double[]) array1d)[index];
+        }
+        if (array1d instanceof float[]) {
+            return ((float[]) array1d)[index];
+        }
+        if (array1d instanceof long[]) {
+            return ((long[]) array1d)[index];
         }
-        return obj;
+        if (array1d instanceof int[]) {
+            return ((int[]) array1d)[index];
+        }
+        if (array1d instanceof Object[]) {
+            return ((Object[]) array1d)[index];
+        }
+        return Array.get(array1d, index);
     }
 
+    /**
+     * Sets a selected value in a multi-dimensional array. The value is converted as it would be by
+     * {@link Array#set(Object, int, Object)}.
+     *
+     * @param array
+     * @param location int array that holds the desired location: for example, to set
+     * array[3][2][4], location should be {3, 2, 4}.
+     * @param value the value to set, wrapped if the array is of primitive values.
+     */
     public static void setValue(Object array, int[] location, Object value) {
-        long[] arraySize = getArraySize(array);
-        if (arraySize.length > 1) {
-            Object[] objArray = (Object[]) array;
-            setValue(objArray[location[0]], ArrayUtils.subarray(location, 1, location.length),
-                value);
+        Object array1d = array;
+        for (int i = 0; i < location.length - 1; i++) {
+            array1d = ((Object[]) array1d)[location[i]];
+        }
+        int index = location[location.length - 1];
+        if (array1d instanceof double[] && value instanceof Double) {
+            ((double[]) array1d)[index] = (Double) value;
+        } else if (array1d instanceof float[] && value instanceof Float) {
+            ((float[]) array1d)[index] = (Float) value;
+        } else if (array1d instanceof long[] && value instanceof Long) {
+            ((long[]) array1d)[index] = (Long) value;
+        } else if (array1d instanceof int[] && value instanceof Integer) {
+            ((int[]) array1d)[index] = (Integer) value;
         } else {
-            Array.set(array, location[0], value);
+            Array.set(array1d, index, value);
         }
     }
 
+    /**
+     * Returns the number of dimensions of an array, as given by its class. For example, 3 is
+     * returned for an int[][][].
+     */
+    static int dimensionCount(Object array) {
+        int dimensionCount = 0;
+        for (Class<?> clazz = array.getClass(); clazz.isArray(); clazz = clazz.getComponentType()) {
+            dimensionCount++;
+        }
+        return dimensionCount;
+    }
+
+    /**
+     * Applies an operation to each of the 1-d arrays at the lowest level of a multi-dimensional
+     * array. The array may be ragged.
+     */
+    static void forEachRow(Object array, Consumer<Object> rowOperation) {
+        forEachRow(array, dimensionCount(array), rowOperation);
+    }
+
+    private static void forEachRow(Object array, int dimensionCount,
+        Consumer<Object> rowOperation) {
+        if (dimensionCount <= 1) {
+            rowOperation.accept(array);
+            return;
+        }
+        for (Object subArray : (Object[]) array) {
+            forEachRow(subArray, dimensionCount - 1, rowOperation);
+        }
+    }
+
+    /**
+     * Builds an array of the same shape as a multi-dimensional array, in which each 1-d array at
+     * the lowest level is the result of a function applied to the corresponding 1-d array in the
+     * source. The array may be ragged. Unlike
+     * {@link #arrayLevelRecursionMaster(Object, ArrayRecursionLevel, ArrayRecursionLevel)}, this
+     * determines the classes of the arrays that it constructs once, rather than once per row.
+     *
+     * @param array the source array
+     * @param rowClass the class of the arrays that the function returns, for example float[].class
+     * @param rowFunction the function that is applied to each 1-d array
+     */
+    static Object mapRows(Object array, Class<?> rowClass, UnaryOperator<Object> rowFunction) {
+        int dimensionCount = dimensionCount(array);
+
+        // levelClasses[i] is the class of an array with i + 1 dimensions.
+        Class<?>[] levelClasses = new Class<?>[Math.max(dimensionCount, 1)];
+        levelClasses[0] = rowClass;
+        for (int i = 1; i < levelClasses.length; i++) {
+            levelClasses[i] = levelClasses[i - 1].arrayType();
+        }
+        return mapRows(array, dimensionCount, levelClasses, rowFunction);
+    }
+
+    private static Object mapRows(Object array, int dimensionCount, Class<?>[] levelClasses,
+        UnaryOperator<Object> rowFunction) {
+        if (dimensionCount <= 1) {
+            return rowFunction.apply(array);
+        }
+        Object[] sourceArray = (Object[]) array;
+        Object[] destinationArray = (Object[]) Array
+            .newInstance(levelClasses[dimensionCount - 2], sourceArray.length);
+        for (int i = 0; i < sourceArray.length; i++) {
+            destinationArray[i] = mapRows(sourceArray[i], dimensionCount - 1, levelClasses,
+                rowFunction);
+        }
+        return destinationArray;
+    }
+
+    /**
+     * Returns the result of an operation on a 1-d array, or a copy of the array if the operation
+     * returned the array itself, so that the result never shares storage with its source.
+     */
+    private static Object distinctArray(Object result, Object array1d) {
+        if (result != array1d) {
+            return result;
+        }
+        int length = Array.getLength(array1d);
+        Object copy = Array.newInstance(array1d.getClass().getComponentType(), length);
+        System.arraycopy(array1d, 0, copy, 0, length);
+        return copy;
+    }
+
     static void arrayLevelRecursionMaster(Object array, ArrayRecursionLevel nextLevel,
         ArrayRecursionLevel lowestLevel) {
         arrayLevelRecursionMaster(array, nextLevel, lowestLevel, 1);
@@ -763,6 +983,13 @@ public class ZiggyArrayUtils {
 
         Object newArray = Array.newInstance(componentType, originalArrayLength);
 
+        // Values that need no conversion are copied in bulk.
+        Class<?> srcComponentType = src.getClass().getComponentType();
+        if (srcComponentType == componentType || !srcComponentType.isPrimitive()
+            && componentType.isAssignableFrom(srcComponentType)) {
+            System.arraycopy(src, 0, newArray, 0, originalArrayLength);
+            return newArray;
+        }
         for (int i = 0; i < originalArrayLength; i++) {
             Array.set(newArray, i, Array.get(src, i));
         }
@@ -179,6 +179,17 @@ public abstract class AbstractCrud<U> implements AbstractCrudInterface<U> {
             .uniqueResult();
     }
 
+    /**
+     * Returns the unique result of the query, locking its row with the given lock mode until the
+     * end of the transaction.
+     */
+    protected <T, R> R uniqueResult(ZiggyQuery<T, R> query, LockModeType lockMode) {
+        return getSession()
+            .createQuery(query.constructSelectClause().constructWhereClause().getCriteriaQuery())
+            .setLockMode(lockMode)
+            .uniqueResult();
+    }
+
     @Override
     public <T, R> List<R> list(ZiggyQuery<T, R> query) {
         return getSession()
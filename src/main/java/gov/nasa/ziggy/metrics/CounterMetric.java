@@ -1,6 +1,9 @@
 package gov.nasa.ziggy.metrics;
 
+import java.io.DataOutput;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
 import java.util.concurrent.atomic.AtomicInteger;
 
 /**
@@ -111,6 +114,16 @@ public class CounterMetric extends Metric implements Serializable {
         } while (!count.compareAndSet(oldValue, oldValue + amount));
     }
 
+    /** Writes the state of this metric to a {@link MetricsFile}. */
+    void writeFields(DataOutput output) throws IOException {
+        output.writeInt(count.get());
+    }
+
+    /** Reads the state written by {@link #writeFields(DataOutput)} into a new metric. */
+    void readFields(ByteBuffer input) {
+        count.set(input.getInt());
+    }
+
     @Override
     protected void reset() {
         count.set(0);
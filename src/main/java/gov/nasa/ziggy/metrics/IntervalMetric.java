@@ -115,8 +115,6 @@ public class IntervalMetric extends ValueMetric implements Serializable {
     }
 
     /**
-     * Not synchronized because addValue() is
-     *
      * @param key
      */
     protected void stop(IntervalMetricKey key, long stopTime) {
@@ -124,13 +122,9 @@ public class IntervalMetric extends ValueMetric implements Serializable {
     }
 
     @Override
-    public synchronized ValueMetric makeCopy() {
+    public ValueMetric makeCopy() {
         IntervalMetric copy = new IntervalMetric(name);
-        copy.name = name;
-        copy.sum = sum;
-        copy.min = min;
-        copy.max = max;
-        copy.count = count;
+        copy.merge(this);
         return copy;
     }
 }
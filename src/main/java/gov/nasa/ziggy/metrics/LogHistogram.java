@@ -0,0 +1,237 @@
+package gov.nasa.ziggy.metrics;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of long values in logarithmically spaced buckets, from which percentiles can be
+ * estimated.
+ * <p>
+ * Small values are counted exactly. Larger values are counted in buckets that divide each power of
+ * two into {@value #SUB_BUCKET_COUNT} equal parts, so the width of a bucket is never more than
+ * 1/{@value #SUB_BUCKET_COUNT} of the values it holds and a percentile estimated from the middle of
+ * a bucket is within about 3% of the true value. The full range of long values needs
+ * {@value #BUCKET_COUNT} buckets. Values less than zero are counted as zero.
+ * <p>
+ * Recording a value is lock-free. Each bucket is a {@link LongAdder}, which spreads updates from
+ * concurrent threads over separate cells, and buckets are only allocated when a value first lands
+ * in them. Histograms are merged by adding the counts in their buckets, so histograms collected
+ * separately (in different threads or processes, for example) can be combined without losing
+ * precision. Counts and percentiles read while values are being recorded may not include the
+ * values being recorded.
+ */
+public class LogHistogram implements Serializable {
+
+    private static final long serialVersionUID = 20261019L;
+
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+    /** Receives the bounds and count of a bucket. */
+    @FunctionalInterface
+    public interface BucketConsumer {
+        void accept(long lowerBound, long upperBound, long count);
+    }
+
+    /** Bucket counts, or null for buckets that have never held a value. */
+    private transient AtomicReferenceArray<LongAdder> buckets = new AtomicReferenceArray<>(
+        BUCKET_COUNT);
+
+    public void recordValue(long value) {
+        int index = bucketIndex(value);
+        LongAdder bucket = buckets.get(index);
+        if (bucket == null) {
+            buckets.compareAndSet(index, null, new LongAdder());
+            bucket = buckets.get(index);
+        }
+        bucket.increment();
+    }
+
+    /** Returns the number of values recorded. */
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            count += bucketCount(i);
+        }
+        return count;
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the values recorded, or 0 if no values have
+     * been recorded.
+     *
+     * @param percentile the percentile, from 0 to 100
+     */
+    public long getPercentile(double percentile) {
+        if (percentile < 0 || percentile > 100) {
+            throw new IllegalArgumentException("Percentile " + percentile + " not in [0, 100]");
+        }
+        long[] counts = bucketCounts();
+        long count = Arrays.stream(counts).sum();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1L, (long) Math.ceil(percentile / 100 * count));
+        long valuesBelow = 0;
+        int index = 0;
+        for (; index < BUCKET_COUNT - 1; index++) {
+            valuesBelow += counts[index];
+            if (valuesBelow >= rank) {
+                break;
+            }
+        }
+        return bucketLowerBound(index) + (bucketUpperBound(index) - bucketLowerBound(index)) / 2;
+    }
+
+    /** Adds the counts of another histogram to this histogram. */
+    public void merge(LogHistogram other) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = other.bucketCount(i);
+            if (count > 0) {
+                LongAdder bucket = buckets.get(i);
+                if (bucket == null) {
+                    buckets.compareAndSet(i, null, new LongAdder());
+                    bucket = buckets.get(i);
+                }
+                bucket.add(count);
+            }
+        }
+    }
+
+    /** Passes the bounds and count of each non-empty bucket to the consumer, in order of value. */
+    public void forEachBucket(BucketConsumer consumer) {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            long count = bucketCount(i);
+            if (count > 0) {
+                consumer.accept(bucketLowerBound(i), bucketUpperBound(i), count);
+            }
+        }
+    }
+
+    public LogHistogram copy() {
+        LogHistogram copy = new LogHistogram();
+        copy.merge(this);
+        return copy;
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            LongAdder bucket = buckets.get(i);
+            if (bucket != null) {
+                bucket.reset();
+            }
+        }
+    }
+
+    private long bucketCount(int index) {
+        LongAdder bucket = buckets.get(index);
+        return bucket != null ? bucket.sum() : 0;
+    }
+
+    private long[] bucketCounts() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = bucketCount(i);
+        }
+        return counts;
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) Math.max(value, 0L);
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> exponent - SUB_BUCKET_BITS) & SUB_BUCKET_COUNT - 1;
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + subBucket;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long subBucket = index % SUB_BUCKET_COUNT;
+        return SUB_BUCKET_COUNT + subBucket << exponent - SUB_BUCKET_BITS;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        return bucketLowerBound(index) + (1L << exponent - SUB_BUCKET_BITS) - 1;
+    }
+
+    /** Writes the index and count of each non-empty bucket. */
+    public void writeBuckets(DataOutput output) throws IOException {
+        long[] counts = bucketCounts();
+        int nonEmptyBuckets = 0;
+        for (long count : counts) {
+            if (count > 0) {
+                nonEmptyBuckets++;
+            }
+        }
+        output.writeInt(nonEmptyBuckets);
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            if (counts[i] > 0) {
+                output.writeShort(i);
+                output.writeLong(counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the bucket counts written by {@link #writeBuckets(DataOutput)} into an empty histogram.
+     */
+    public void readBuckets(ByteBuffer input) {
+        int bucketsToRead = input.getInt();
+        for (int i = 0; i < bucketsToRead; i++) {
+            LongAdder bucket = new LongAdder();
+            int index = input.getShort();
+            bucket.add(input.getLong());
+            buckets.set(index, bucket);
+        }
+    }
+
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        output.defaultWriteObject();
+        writeBuckets(output);
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        input.defaultReadObject();
+        buckets = new AtomicReferenceArray<>(BUCKET_COUNT);
+        int bucketsToRead = input.readInt();
+        for (int i = 0; i < bucketsToRead; i++) {
+            LongAdder bucket = new LongAdder();
+            int index = input.readShort();
+            bucket.add(input.readLong());
+            buckets.set(index, bucket);
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bucketCounts());
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (obj == null || getClass() != obj.getClass()) {
+            return false;
+        }
+        LogHistogram other = (LogHistogram) obj;
+        return Arrays.equals(bucketCounts(), other.bucketCounts());
+    }
+}
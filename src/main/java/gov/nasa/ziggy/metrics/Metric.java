@@ -1,17 +1,15 @@
 package gov.nasa.ziggy.metrics;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.Serializable;
 import java.io.UncheckedIOException;
+import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -160,29 +158,17 @@ public abstract class Metric implements Serializable {
     public abstract void toLogString(StringBuilder bldr);
 
     /**
-     * Persist the current set of global metrics to a file using Java serialization.
+     * Persist the current set of global metrics to a {@link MetricsFile}.
      * <p>
      * Used to transfer metrics collected in a sub-process to the parent process.
      */
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
     public static void persist(String path) {
-        File file = new File(path);
-
-        if (file.isDirectory()) {
-            throw new IllegalArgumentException("Specified file is a directory: " + file);
-        }
-
-        try (ObjectOutputStream output = new ObjectOutputStream(
-            new BufferedOutputStream(new FileOutputStream(file)))) {
-            output.writeObject(globalMetrics);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Unable to write to file " + file.toString(), e);
-        }
+        MetricsFile.write(globalMetrics, Paths.get(path));
     }
 
     /**
-     * Load a set of metrics from a file using Java serialization. The loaded metrics are then
-     * merged with the current set of metrics.
+     * Load a set of metrics from a {@link MetricsFile}, or from a file written with Java
+     * serialization. The loaded metrics are then merged with the current set of metrics.
      * <p>
      * Used to transfer metrics collected in a sub-process to the parent process.
      */
@@ -193,7 +179,7 @@ public abstract class Metric implements Serializable {
             throw new IllegalArgumentException("Specified file is a directory: " + file);
         }
 
-        Map<String, Metric> metricsToMerge = loadMetricsFromSerializedFile(file);
+        Map<String, Metric> metricsToMerge = MetricsFile.read(file.toPath());
 
         for (String metricName : metricsToMerge.keySet()) {
             Metric metricToMerge = metricsToMerge.get(metricName);
@@ -225,7 +211,8 @@ public abstract class Metric implements Serializable {
     }
 
     /**
-     * Load a Metrics map from a serialized (*.ser) file.
+     * Load a Metrics map from a file written with Java serialization by earlier versions of Ziggy.
+     * Use {@link MetricsFile#read(java.nio.file.Path)}, which reads files in either format.
      *
      * @param file
      * @return
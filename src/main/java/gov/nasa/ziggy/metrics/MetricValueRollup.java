@@ -0,0 +1,200 @@
+package gov.nasa.ziggy.metrics;
+
+import java.util.Date;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.ManyToOne;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * The minimum, maximum, mean, and count of the {@link MetricValue}s of one metric type in one time
+ * bucket. The {@link MetricValue}s that the metrics reaper removes from the database are rolled up
+ * into buckets at each {@link Resolution}, so that the history of a metric is kept at a resolution
+ * that decreases with its age rather than lost: the reaper also removes the rollups of the finer
+ * resolutions once they are older than the {@link Resolution#getRetentionMillis() retention} of
+ * their resolution.
+ */
+@Entity
+@Table(name = "ziggy_MetricValueRollup", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "metricType_name", "resolution", "bucketStart" }) })
+public class MetricValueRollup {
+
+    /** The length of the time buckets of rollups. */
+    public enum Resolution {
+        MINUTE(60L * 1000, 7L * 24 * 60 * 60 * 1000),
+        HOUR(60L * 60 * 1000, 365L * 24 * 60 * 60 * 1000),
+        DAY(24L * 60 * 60 * 1000, Long.MAX_VALUE);
+
+        private final long bucketMillis;
+        private final long retentionMillis;
+
+        Resolution(long bucketMillis, long retentionMillis) {
+            this.bucketMillis = bucketMillis;
+            this.retentionMillis = retentionMillis;
+        }
+
+        public long getBucketMillis() {
+            return bucketMillis;
+        }
+
+        /**
+         * Returns how long the rollups at this resolution are kept, measured back from the latest
+         * rollup at this resolution. The rollups at the coarsest resolution are kept indefinitely.
+         */
+        public long getRetentionMillis() {
+            return retentionMillis;
+        }
+
+        /** Returns the finest resolution, whose rollups are made directly from metric values. */
+        public static Resolution finest() {
+            return MINUTE;
+        }
+
+        /** Returns the next coarser resolution, or null if this is the coarsest resolution. */
+        public Resolution coarser() {
+            return switch (this) {
+                case MINUTE -> HOUR;
+                case HOUR -> DAY;
+                case DAY -> null;
+            };
+        }
+
+        /** Returns the start of the bucket that contains the given time. */
+        public long bucketStart(long timeMillis) {
+            return Math.floorDiv(timeMillis, bucketMillis) * bucketMillis;
+        }
+
+        /**
+         * Returns the coarsest resolution that has at least the given number of buckets in a time
+         * range, or null if even the finest resolution has fewer buckets.
+         */
+        public static Resolution forPointCount(long rangeMillis, int pointCount) {
+            Resolution[] resolutions = values();
+            for (int i = resolutions.length - 1; i >= 0; i--) {
+                if (rangeMillis / resolutions[i].bucketMillis >= pointCount) {
+                    return resolutions[i];
+                }
+            }
+            return null;
+        }
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+        generator = "ziggy_MetricValueRollup_generator")
+    @SequenceGenerator(name = "ziggy_MetricValueRollup_generator", initialValue = 1,
+        sequenceName = "ziggy_MetricValueRollup_sequence", allocationSize = 1)
+    private Long id;
+
+    @ManyToOne
+    private MetricType metricType;
+
+    @Enumerated(EnumType.STRING)
+    private Resolution resolution;
+
+    private Date bucketStart;
+    private long valueCount;
+    private float minValue;
+    private float maxValue;
+    private double valueSum;
+
+    /**
+     * Default constructor for Hibernate use only.
+     */
+    MetricValueRollup() {
+    }
+
+    /**
+     * Creates an empty rollup for the bucket that contains the given time.
+     */
+    public MetricValueRollup(MetricType metricType, Resolution resolution, long timeMillis) {
+        this.metricType = metricType;
+        this.resolution = resolution;
+        bucketStart = new Date(resolution.bucketStart(timeMillis));
+    }
+
+    /**
+     * Creates a rollup of the bucket that contains the given time from the statistics of the
+     * values in the bucket.
+     */
+    MetricValueRollup(MetricType metricType, Resolution resolution, long timeMillis,
+        long valueCount, float minValue, float maxValue, double valueSum) {
+        this(metricType, resolution, timeMillis);
+        this.valueCount = valueCount;
+        this.minValue = minValue;
+        this.maxValue = maxValue;
+        this.valueSum = valueSum;
+    }
+
+    public void add(float value) {
+        minValue = valueCount == 0 ? value : Math.min(minValue, value);
+        maxValue = valueCount == 0 ? value : Math.max(maxValue, value);
+        valueSum += value;
+        valueCount++;
+    }
+
+    /** Adds the values of another rollup of the same bucket to this rollup. */
+    public void merge(MetricValueRollup other) {
+        if (other.valueCount == 0) {
+            return;
+        }
+        minValue = valueCount == 0 ? other.minValue : Math.min(minValue, other.minValue);
+        maxValue = valueCount == 0 ? other.maxValue : Math.max(maxValue, other.maxValue);
+        valueSum += other.valueSum;
+        valueCount += other.valueCount;
+    }
+
+    /**
+     * Returns a {@link MetricValue} with the mean of the values at the start of the bucket, for
+     * plotting rollups together with unrolled values.
+     */
+    public MetricValue toMetricValue() {
+        return new MetricValue("", metricType, bucketStart, (float) getMean());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public MetricType getMetricType() {
+        return metricType;
+    }
+
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    public Date getBucketStart() {
+        return bucketStart;
+    }
+
+    public long getCount() {
+        return valueCount;
+    }
+
+    public float getMin() {
+        return minValue;
+    }
+
+    public float getMax() {
+        return maxValue;
+    }
+
+    public double getMean() {
+        return valueCount > 0 ? valueSum / valueCount : Double.NaN;
+    }
+
+    @Override
+    public String toString() {
+        return "metricType=[" + metricType + "], resolution=[" + resolution + "], bucketStart=["
+            + bucketStart + "], count=[" + valueCount + "], min=[" + minValue + "], max=["
+            + maxValue + "], mean=[" + getMean() + "]";
+    }
+}
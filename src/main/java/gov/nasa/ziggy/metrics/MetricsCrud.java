@@ -1,21 +1,34 @@
 package gov.nasa.ziggy.metrics;
 
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
+import org.hibernate.query.criteria.HibernateCriteriaBuilder;
+import org.hibernate.query.sqm.TemporalUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nasa.ziggy.crud.AbstractCrud;
 import gov.nasa.ziggy.crud.ZiggyQuery;
+import gov.nasa.ziggy.metrics.MetricValueRollup.Resolution;
 import gov.nasa.ziggy.util.TimeRange;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.CriteriaDelete;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Path;
 import jakarta.persistence.criteria.Root;
 
 public class MetricsCrud extends AbstractCrud<MetricType> {
     private static final Logger log = LoggerFactory.getLogger(MetricsCrud.class);
 
+    private static final int ROLLUP_CHUNK_SIZE = 10000;
+
     public List<MetricType> retrieveAllMetricTypes() {
         return list(createZiggyQuery(MetricType.class));
     }
@@ -27,6 +40,62 @@ public class MetricsCrud extends AbstractCrud<MetricType> {
         return list(query);
     }
 
+    /**
+     * Returns {@link Resolution#MINUTE} rollups of the metric values in a time range, one for each
+     * minute that has values. The values are aggregated by the database, so only one row per minute
+     * is read. The rollups aren't persisted.
+     */
+    @SuppressWarnings("unchecked")
+    public List<MetricValueRollup> minuteRollups(MetricType metricType, Date start, Date end) {
+        ZiggyQuery<MetricValue, Object[]> query = createZiggyQuery(MetricValue.class,
+            Object[].class);
+        query.column(MetricValue_.timestamp).between(start, end);
+        query.column(MetricValue_.metricType).in(metricType);
+
+        // The database truncates timestamps in its time zone, which has the same minutes as UTC.
+        HibernateCriteriaBuilder builder = query.getBuilder();
+        Expression<LocalDateTime> minute = builder.truncate(
+            (Expression<LocalDateTime>) (Expression<?>) query.get(MetricValue_.timestamp),
+            TemporalUnit.MINUTE);
+        Path<Float> value = query.get(MetricValue_.value);
+        query.getCriteriaQuery()
+            .multiselect(minute, builder.count(value), builder.min(value), builder.max(value),
+                builder.sumAsDouble(value))
+            .groupBy(minute)
+            .orderBy(builder.asc(minute));
+
+        List<MetricValueRollup> rollups = new ArrayList<>();
+        for (Object[] row : list(query)) {
+            rollups.add(new MetricValueRollup(metricType, Resolution.MINUTE, epochMillis(row[0]),
+                (Long) row[1], (Float) row[2], (Float) row[3], (Double) row[4]));
+        }
+        return rollups;
+    }
+
+    private long epochMillis(Object timestamp) {
+        if (timestamp instanceof Date) {
+            return ((Date) timestamp).getTime();
+        }
+        return ((LocalDateTime) timestamp).atZone(ZoneId.systemDefault())
+            .toInstant()
+            .toEpochMilli();
+    }
+
+    public List<MetricValueRollup> metricValueRollups(MetricType metricType,
+        Resolution resolution, Date start, Date end) {
+        ZiggyQuery<MetricValueRollup, MetricValueRollup> query = createZiggyQuery(
+            MetricValueRollup.class);
+        query.column(MetricValueRollup_.bucketStart).between(start, end).ascendingOrder();
+        query.column(MetricValueRollup_.metricType).in(metricType);
+        query.column(MetricValueRollup_.resolution).in(resolution);
+        return list(query);
+    }
+
+    /**
+     * Returns the range of the timestamps of a metric's values, including those that have been
+     * rolled up, which are known to within the finest {@link Resolution} whose rollups haven't been
+     * reaped.
+     */
     public TimeRange getTimestampRange(MetricType metricType) {
         ZiggyQuery<MetricValue, Object[]> query = createZiggyQuery(MetricValue.class,
             Object[].class);
@@ -34,12 +103,75 @@ public class MetricsCrud extends AbstractCrud<MetricType> {
         query.column(MetricValue_.metricType).in(metricType);
         Object[] results = uniqueResult(query);
 
-        Date min = (Date) results[0];
-        Date max = (Date) results[1];
+        ZiggyQuery<MetricValueRollup, Date> rollupQuery = createZiggyQuery(
+            MetricValueRollup.class, Date.class);
+        rollupQuery.column(MetricValueRollup_.bucketStart).max();
+        rollupQuery.column(MetricValueRollup_.metricType).in(metricType);
+        rollupQuery.column(MetricValueRollup_.resolution).in(Resolution.finest());
+        Date latestRollup = uniqueResult(rollupQuery);
+
+        Map<Resolution, Date> earliestRollups = earliestRollups(metricType);
+        Date min = earliest((Date) results[0], earliestRollups
+            .get(coveringResolution(earliestRollups, Resolution.finest(), Long.MIN_VALUE)));
+        Date max = results[1] != null ? (Date) results[1] : latestRollup;
 
         return new TimeRange(min, max);
     }
 
+    /** Returns the start of the earliest rollup of a metric at each resolution that has any. */
+    public Map<Resolution, Date> earliestRollups(MetricType metricType) {
+        Map<Resolution, Date> earliestRollups = new HashMap<>();
+        for (Resolution resolution : Resolution.values()) {
+            ZiggyQuery<MetricValueRollup, Date> query = createZiggyQuery(MetricValueRollup.class,
+                Date.class);
+            query.column(MetricValueRollup_.bucketStart).min();
+            query.column(MetricValueRollup_.metricType).in(metricType);
+            query.column(MetricValueRollup_.resolution).in(resolution);
+            Date earliestRollup = uniqueResult(query);
+            if (earliestRollup != null) {
+                earliestRollups.put(resolution, earliestRollup);
+            }
+        }
+        return earliestRollups;
+    }
+
+    /**
+     * Returns the finest resolution, no finer than the given one, whose rollups cover a metric's
+     * history from the given time on. The rollups of a resolution cover all of the history unless
+     * the oldest of them have been reaped, in which case they start in a later bucket of the next
+     * coarser resolution than the rollups of that resolution do.
+     *
+     * @param earliestRollups the start of the earliest rollup of the metric at each resolution, as
+     * returned by {@link #earliestRollups(MetricType)}
+     */
+    static Resolution coveringResolution(Map<Resolution, Date> earliestRollups,
+        Resolution resolution, long timeMillis) {
+        Resolution coveringResolution = resolution;
+        while (coveringResolution.coarser() != null) {
+            Resolution coarser = coveringResolution.coarser();
+            Date earliestRollup = earliestRollups.get(coveringResolution);
+            Date earliestCoarserRollup = earliestRollups.get(coarser);
+            if (earliestRollup == null || earliestRollup.getTime() <= timeMillis
+                || earliestCoarserRollup != null && coarser
+                    .bucketStart(earliestRollup.getTime()) == earliestCoarserRollup.getTime()) {
+                return coveringResolution;
+            }
+            coveringResolution = coarser;
+        }
+        return coveringResolution;
+    }
+
+    private Date earliest(Date date, Date otherDate) {
+        if (date == null || otherDate != null && otherDate.before(date)) {
+            return otherDate;
+        }
+        return date;
+    }
+
+    /**
+     * Deletes the oldest metric values so that at most the given number remain, after rolling them
+     * up into {@link MetricValueRollup}s at each {@link Resolution}.
+     */
     public long deleteOldMetrics(int maxRows) {
         log.info("Preparing to delete old rows from PI_METRIC_VALUE, maxRows={}", maxRows);
 
@@ -58,6 +190,12 @@ public class MetricsCrud extends AbstractCrud<MetricType> {
 
                 long minId = retrieveMinimumId();
                 long idToDelete = minId + numRowsOverLimit - 1;
+                for (long chunkStart = minId; chunkStart <= idToDelete;
+                    chunkStart += ROLLUP_CHUNK_SIZE) {
+                    rollUpMetricValues(chunkStart,
+                        Math.min(chunkStart + ROLLUP_CHUNK_SIZE - 1, idToDelete));
+                }
+
                 CriteriaBuilder builder = createCriteriaBuilder();
                 CriteriaDelete<MetricValue> query = builder.createCriteriaDelete(MetricValue.class);
                 Root<MetricValue> root = query.from(MetricValue.class);
@@ -73,10 +211,98 @@ public class MetricsCrud extends AbstractCrud<MetricType> {
         } while (numRowsOverLimit > 0);
 
         log.info("Deleted a total of {} rows.", numUpdated);
+        if (numUpdated > 0) {
+            deleteExpiredRollups();
+        }
 
         return numUpdated;
     }
 
+    /**
+     * Adds the metric values with IDs in the given range to the rollups of their buckets, creating
+     * the rollups that don't exist yet.
+     */
+    private void rollUpMetricValues(long minId, long maxId) {
+        ZiggyQuery<MetricValue, MetricValue> query = createZiggyQuery(MetricValue.class);
+        query.column(MetricValue_.id).between(minId, maxId);
+        query.where(query.getBuilder().isNotNull(query.get(MetricValue_.metricType)));
+        List<MetricValue> metricValues = list(query);
+
+        for (Resolution resolution : Resolution.values()) {
+            // Map<metricType,Map<bucketStart,rollup>>
+            Map<MetricType, Map<Long, MetricValueRollup>> rollupsByType = new HashMap<>();
+            for (MetricValue metricValue : metricValues) {
+                long timestamp = metricValue.getTimestamp().getTime();
+                rollupsByType.computeIfAbsent(metricValue.getMetricType(), type -> new HashMap<>())
+                    .computeIfAbsent(resolution.bucketStart(timestamp),
+                        bucketStart -> new MetricValueRollup(metricValue.getMetricType(),
+                            resolution, timestamp))
+                    .add(metricValue.getValue());
+            }
+            for (Map.Entry<MetricType, Map<Long, MetricValueRollup>> rollups : rollupsByType
+                .entrySet()) {
+                mergeRollups(rollups.getKey(), resolution, rollups.getValue());
+            }
+        }
+        log.info("Rolled up {} rows (where {} <= id <= {})", metricValues.size(), minId, maxId);
+
+        // Keep the session from growing with each chunk.
+        flush();
+        clear();
+    }
+
+    /**
+     * Merges new rollups into the existing rollups of the same buckets, and persists the new
+     * rollups of buckets that have none.
+     */
+    private void mergeRollups(MetricType metricType, Resolution resolution,
+        Map<Long, MetricValueRollup> newRollupsByBucketStart) {
+        List<MetricValueRollup> existingRollups = metricValueRollups(metricType, resolution,
+            new Date(Collections.min(newRollupsByBucketStart.keySet())),
+            new Date(Collections.max(newRollupsByBucketStart.keySet())));
+        for (MetricValueRollup existingRollup : existingRollups) {
+            MetricValueRollup newRollup = newRollupsByBucketStart
+                .remove(existingRollup.getBucketStart().getTime());
+            if (newRollup != null) {
+                existingRollup.merge(newRollup);
+            }
+        }
+        persist(newRollupsByBucketStart.values());
+    }
+
+    /**
+     * Deletes the rollups that are older than the retention of their {@link Resolution}. The ages
+     * of the rollups are measured from the latest rollup at the same resolution, so that the
+     * rollups of a database that hasn't been written to for a while aren't lost.
+     */
+    private void deleteExpiredRollups() {
+        for (Resolution resolution : Resolution.values()) {
+            if (resolution.getRetentionMillis() == Long.MAX_VALUE) {
+                continue;
+            }
+            ZiggyQuery<MetricValueRollup, Date> latestQuery = createZiggyQuery(
+                MetricValueRollup.class, Date.class);
+            latestQuery.column(MetricValueRollup_.bucketStart).max();
+            latestQuery.column(MetricValueRollup_.resolution).in(resolution);
+            Date latestRollup = uniqueResult(latestQuery);
+            if (latestRollup == null) {
+                continue;
+            }
+            Date cutoff = new Date(latestRollup.getTime() - resolution.getRetentionMillis());
+
+            CriteriaBuilder builder = createCriteriaBuilder();
+            CriteriaDelete<MetricValueRollup> query = builder
+                .createCriteriaDelete(MetricValueRollup.class);
+            Root<MetricValueRollup> root = query.from(MetricValueRollup.class);
+            query.where(builder.equal(root.get(MetricValueRollup_.resolution), resolution),
+                builder.lessThan(root.get(MetricValueRollup_.bucketStart), cutoff));
+            int deletedCount = executeUpdate(query);
+
+            log.info("Deleted {} {} rollups (where bucketStart < {})", deletedCount, resolution,
+                cutoff);
+        }
+    }
+
     private long retrieveMetricValueRowCount() {
         ZiggyQuery<MetricValue, Long> query = createZiggyQuery(MetricValue.class, Long.class);
         query.select(query.getBuilder().count(query.getRoot()));
@@ -0,0 +1,222 @@
+package gov.nasa.ziggy.metrics;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectStreamConstants;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Reads and writes files of metrics in a compact binary format, which replaces the Java
+ * serialization of the metrics map that earlier versions of Ziggy used.
+ * <p>
+ * The file starts with a header that contains {@link #MAGIC}, {@link #VERSION}, and the number of
+ * metrics (int). Each metric follows as the length of its name in bytes (short), its name in UTF-8,
+ * its type (byte), the length of its fields in bytes (int), and its fields:
+ * <dl>
+ * <dt>{@link CounterMetric}</dt>
+ * <dd>The count (int).</dd>
+ * <dt>{@link ValueMetric} and {@link IntervalMetric}</dt>
+ * <dd>The minimum, maximum, count, and sum (longs), and the number of non-empty buckets in the
+ * {@link LogHistogram} (int) followed by the index (short) and count (long) of each.</dd>
+ * </dl>
+ * Since the length of each metric's fields is known, a reader that only wants some of the metrics
+ * skips over the rest without decoding them.
+ * <p>
+ * Files written with Java serialization can still be read, and can be converted to the binary
+ * format with {@link #convert(Path)}.
+ */
+public final class MetricsFile {
+
+    static final int MAGIC = 0x5A4D4554;
+    static final byte VERSION = 1;
+    private static final int HEADER_LENGTH = Integer.BYTES + 1 + Integer.BYTES;
+
+    private static final byte COUNTER_METRIC = 1;
+    private static final byte VALUE_METRIC = 2;
+    private static final byte INTERVAL_METRIC = 3;
+
+    private MetricsFile() {
+    }
+
+    /** Writes the given metrics to a file, replacing its contents. */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public static void write(Map<String, Metric> metrics, Path file) {
+        if (Files.isDirectory(file)) {
+            throw new IllegalArgumentException("Specified file is a directory: " + file);
+        }
+
+        // The map may be updated while it is written, so take the metrics from it only once.
+        List<Metric> metricsToWrite = new ArrayList<>(metrics.values());
+        try (DataOutputStream output = new DataOutputStream(
+            new BufferedOutputStream(Files.newOutputStream(file)))) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeInt(metricsToWrite.size());
+            ByteArrayOutputStream fieldBytes = new ByteArrayOutputStream(256);
+            DataOutputStream fieldOutput = new DataOutputStream(fieldBytes);
+            for (Metric metric : metricsToWrite) {
+                fieldBytes.reset();
+                writeFields(metric, fieldOutput);
+                byte[] name = metric.getName().getBytes(StandardCharsets.UTF_8);
+                output.writeShort(name.length);
+                output.write(name);
+                output.writeByte(type(metric));
+                output.writeInt(fieldBytes.size());
+                fieldBytes.writeTo(output);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write to file " + file, e);
+        }
+    }
+
+    /** Reads all the metrics in a file. */
+    public static Map<String, Metric> read(Path file) {
+        return read(file, metricName -> true);
+    }
+
+    /**
+     * Reads the metrics in a file whose names are accepted by the given filter. The other metrics
+     * are skipped without being decoded.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public static Map<String, Metric> read(Path file, Predicate<String> metricNameFilter) {
+        byte[] bytes;
+        try {
+            bytes = Files.readAllBytes(file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read from file " + file, e);
+        }
+        if (isSerialized(bytes)) {
+            Map<String, Metric> metrics = Metric.loadMetricsFromSerializedFile(file.toFile());
+            metrics.keySet().removeIf(metricName -> !metricNameFilter.test(metricName));
+            return metrics;
+        }
+
+        try {
+            ByteBuffer input = ByteBuffer.wrap(bytes);
+            if (bytes.length < HEADER_LENGTH || input.getInt() != MAGIC) {
+                throw new PipelineException(file + " is not a metrics file");
+            }
+            byte version = input.get();
+            if (version != VERSION) {
+                throw new PipelineException(
+                    "Unsupported metrics file version " + version + " in " + file);
+            }
+            int metricCount = input.getInt();
+            Map<String, Metric> metrics = new HashMap<>();
+            for (int i = 0; i < metricCount; i++) {
+                int nameLength = input.getShort() & 0xffff;
+                String metricName = new String(bytes, input.position(), nameLength,
+                    StandardCharsets.UTF_8);
+                input.position(input.position() + nameLength);
+                byte type = input.get();
+                int fieldsLength = input.getInt();
+                if (!metricNameFilter.test(metricName)) {
+                    input.position(input.position() + fieldsLength);
+                    continue;
+                }
+                metrics.put(metricName, readMetric(metricName, type, input, file));
+            }
+            return metrics;
+        } catch (BufferUnderflowException | IndexOutOfBoundsException
+            | IllegalArgumentException e) {
+            throw new PipelineException("Metrics file " + file + " is truncated", e);
+        }
+    }
+
+    /** Determines whether a file was written with Java serialization. */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public static boolean isSerialized(Path file) {
+        try (InputStream input = Files.newInputStream(file)) {
+            return isSerialized(input.readNBytes(Short.BYTES));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read from file " + file, e);
+        }
+    }
+
+    /**
+     * Converts a file written with Java serialization to the binary format. The file is replaced
+     * only when the conversion is complete, so that it is never left partly written.
+     *
+     * @return true if the file was converted, false if it was already in the binary format
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public static boolean convert(Path file) {
+        if (!isSerialized(file)) {
+            return false;
+        }
+        Map<String, Metric> metrics = Metric.loadMetricsFromSerializedFile(file.toFile());
+        Path convertedFile = file.resolveSibling(file.getFileName() + ".tmp");
+        write(metrics, convertedFile);
+        try {
+            Files.move(convertedFile, file, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to replace " + file, e);
+        }
+        return true;
+    }
+
+    private static boolean isSerialized(byte[] bytes) {
+        return bytes.length >= Short.BYTES && (short) ((bytes[0] & 0xff) << 8
+            | bytes[1] & 0xff) == ObjectStreamConstants.STREAM_MAGIC;
+    }
+
+    private static byte type(Metric metric) {
+        if (metric instanceof IntervalMetric) {
+            return INTERVAL_METRIC;
+        }
+        if (metric instanceof ValueMetric) {
+            return VALUE_METRIC;
+        }
+        if (metric instanceof CounterMetric) {
+            return COUNTER_METRIC;
+        }
+        throw new IllegalArgumentException(
+            "Unsupported metric type " + metric.getClass().getName());
+    }
+
+    private static void writeFields(Metric metric, DataOutputStream output) throws IOException {
+        if (metric instanceof ValueMetric valueMetric) {
+            valueMetric.writeFields(output);
+        } else {
+            ((CounterMetric) metric).writeFields(output);
+        }
+    }
+
+    private static Metric readMetric(String metricName, byte type, ByteBuffer input, Path file) {
+        switch (type) {
+            case COUNTER_METRIC -> {
+                CounterMetric metric = new CounterMetric(metricName);
+                metric.readFields(input);
+                return metric;
+            }
+            case VALUE_METRIC, INTERVAL_METRIC -> {
+                ValueMetric metric = type == INTERVAL_METRIC ? new IntervalMetric(metricName)
+                    : new ValueMetric(metricName);
+                metric.readFields(input);
+                return metric;
+            }
+            default -> throw new PipelineException(
+                "Unknown metric type " + type + " for " + metricName + " in " + file);
+        }
+    }
+}
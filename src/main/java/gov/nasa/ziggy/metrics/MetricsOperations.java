@@ -1,8 +1,13 @@
 package gov.nasa.ziggy.metrics;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
+import gov.nasa.ziggy.metrics.MetricValueRollup.Resolution;
 import gov.nasa.ziggy.services.database.DatabaseOperations;
 import gov.nasa.ziggy.util.TimeRange;
 
@@ -15,6 +20,9 @@ public class MetricsOperations extends DatabaseOperations {
 
     private MetricsCrud metricsCrud = new MetricsCrud();
 
+    /**
+     * Rolls up and deletes the oldest metric values so that at most the given number remain.
+     */
     public long deleteOldMetrics(int maxRows) {
         return performTransaction(() -> metricsCrud().deleteOldMetrics(maxRows));
     }
@@ -27,10 +35,85 @@ public class MetricsOperations extends DatabaseOperations {
         return performTransaction(() -> metricsCrud().metricValues(metricType, start, end));
     }
 
+    /**
+     * Returns the values of a metric in a time range at the coarsest {@link Resolution} that has at
+     * least the given number of buckets in the range. Each value is then the mean of the values in
+     * a bucket, which include both the values that have been rolled up and those that haven't; the
+     * latter are aggregated by the database. If no resolution has enough buckets, the values that
+     * haven't been rolled up are returned after the finest rollups of those that have.
+     * <p>
+     * If the rollups at the resolution have been reaped from the start of the range, the next
+     * coarser resolution whose rollups cover the range is used instead.
+     */
+    public List<MetricValue> metricValues(MetricType metricType, Date start, Date end,
+        int pointCount) {
+        Resolution pointCountResolution = Resolution
+            .forPointCount(end.getTime() - start.getTime(), pointCount);
+        return performTransaction(() -> {
+            Resolution resolution = pointCountResolution == null ? null
+                : MetricsCrud.coveringResolution(metricsCrud().earliestRollups(metricType),
+                    pointCountResolution, start.getTime());
+            if (resolution == null) {
+                return rollupsAndMetricValues(metricType, start, end);
+            }
+
+            // The rollups are copied so that the persisted rollups aren't changed. The minute
+            // rollups of the values that haven't been rolled up fall within the buckets of every
+            // resolution.
+            List<MetricValueRollup> rollups = new ArrayList<>(metricsCrud().metricValueRollups(
+                metricType, resolution, new Date(resolution.bucketStart(start.getTime())), end));
+            rollups.addAll(metricsCrud().minuteRollups(metricType, start, end));
+            Map<Long, MetricValueRollup> rollupsByBucketStart = new TreeMap<>();
+            for (MetricValueRollup rollup : rollups) {
+                long bucketStart = resolution.bucketStart(rollup.getBucketStart().getTime());
+                rollupsByBucketStart
+                    .computeIfAbsent(bucketStart,
+                        key -> new MetricValueRollup(metricType, resolution, bucketStart))
+                    .merge(rollup);
+            }
+            List<MetricValue> rv = new ArrayList<>(rollupsByBucketStart.size());
+            for (MetricValueRollup rollup : rollupsByBucketStart.values()) {
+                rv.add(rollup.toMetricValue());
+            }
+            return rv;
+        });
+    }
+
+    /**
+     * Returns the values of a metric in a time range that haven't been rolled up after the finest
+     * rollups that cover the range of those that have.
+     */
+    private List<MetricValue> rollupsAndMetricValues(MetricType metricType, Date start,
+        Date end) {
+        Resolution resolution = MetricsCrud.coveringResolution(
+            metricsCrud().earliestRollups(metricType), Resolution.finest(), start.getTime());
+        List<MetricValueRollup> rollups = metricsCrud().metricValueRollups(metricType, resolution,
+            new Date(resolution.bucketStart(start.getTime())), end);
+        List<MetricValue> metricValues = metricsCrud().metricValues(metricType, start, end);
+        List<MetricValue> rv = new ArrayList<>(rollups.size() + metricValues.size());
+        for (MetricValueRollup rollup : rollups) {
+            rv.add(rollup.toMetricValue());
+        }
+        rv.addAll(metricValues);
+        rv.sort(Comparator.comparing(MetricValue::getTimestamp));
+        return rv;
+    }
+
+    public List<MetricValueRollup> metricValueRollups(MetricType metricType,
+        Resolution resolution, Date start, Date end) {
+        return performTransaction(
+            () -> metricsCrud().metricValueRollups(metricType, resolution, start, end));
+    }
+
     public TimeRange timestampRange(MetricType type) {
         return performTransaction(() -> metricsCrud().getTimestampRange(type));
     }
 
+    /** For testing only. */
+    void persist(MetricType metricType) {
+        performTransaction(() -> metricsCrud().persist(metricType));
+    }
+
     /** For testing only. */
     void persist(MetricValue metricValue) {
         performTransaction(() -> metricsCrud().persist(metricValue));
@@ -0,0 +1,93 @@
+package gov.nasa.ziggy.metrics;
+
+/**
+ * The pipeline task, and optionally the subtask, on whose behalf the current thread is working.
+ * <p>
+ * A context is entered with {@link #enterTask(String)} or {@link #enterSubtask(String)} and left by
+ * closing the returned {@link Scope}, which restores the thread's previous context:
+ *
+ * <pre>
+ * try (ProfilingContext.Scope scope = ProfilingContext.enterTask(pipelineTask.taskBaseName())) {
+ *     // Work for the task
+ * }
+ * </pre>
+ *
+ * Each change of context is also recorded as a JFR event, which {@link TaskProfiler} uses to
+ * attribute its samples to tasks and subtasks. When no recording includes the event, recording it
+ * costs next to nothing.
+ */
+public final class ProfilingContext {
+
+    private static final ThreadLocal<ProfilingContext> currentContext = new ThreadLocal<>();
+
+    private final String taskName;
+    private final String subtaskName;
+
+    ProfilingContext(String taskName, String subtaskName) {
+        this.taskName = taskName;
+        this.subtaskName = subtaskName;
+    }
+
+    /** Returns the context of the current thread, or null if it isn't working on a task. */
+    public static ProfilingContext current() {
+        return currentContext.get();
+    }
+
+    /**
+     * Enters the context of a task, such as the task base name
+     * {@code <instanceId>-<taskId>-<pipelineStepName>}.
+     */
+    public static Scope enterTask(String taskName) {
+        return enter(new ProfilingContext(taskName, null));
+    }
+
+    /**
+     * Enters the context of a subtask of the current task.
+     *
+     * @throws IllegalStateException if the current thread isn't working on a task
+     */
+    public static Scope enterSubtask(String subtaskName) {
+        ProfilingContext taskContext = current();
+        if (taskContext == null) {
+            throw new IllegalStateException("No task context for subtask " + subtaskName);
+        }
+        return enter(new ProfilingContext(taskContext.taskName, subtaskName));
+    }
+
+    private static Scope enter(ProfilingContext context) {
+        ProfilingContext previousContext = current();
+        setCurrent(context);
+        return () -> setCurrent(previousContext);
+    }
+
+    private static void setCurrent(ProfilingContext context) {
+        currentContext.set(context);
+        ProfilingContextEvent event = new ProfilingContextEvent();
+        if (event.shouldCommit()) {
+            event.taskName = context != null ? context.taskName : null;
+            event.subtaskName = context != null ? context.subtaskName : null;
+            event.commit();
+        }
+    }
+
+    public String getTaskName() {
+        return taskName;
+    }
+
+    /** Returns the name of the subtask, or null if the context is a whole task. */
+    public String getSubtaskName() {
+        return subtaskName;
+    }
+
+    @Override
+    public String toString() {
+        return subtaskName != null ? taskName + "/" + subtaskName : taskName;
+    }
+
+    /** A context that has been entered, which is left when it is closed. */
+    @FunctionalInterface
+    public interface Scope extends AutoCloseable {
+        @Override
+        void close();
+    }
+}
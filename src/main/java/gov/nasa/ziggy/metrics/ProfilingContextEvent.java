@@ -0,0 +1,25 @@
+package gov.nasa.ziggy.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * JFR event that records that the {@link ProfilingContext} of its thread changed, so that
+ * {@link TaskProfiler} can attribute the execution samples of the thread that follow it.
+ */
+@Name(ProfilingContextEvent.NAME)
+@Label("Profiling Context")
+@Category("Ziggy")
+@StackTrace(false)
+class ProfilingContextEvent extends Event {
+    static final String NAME = "gov.nasa.ziggy.ProfilingContext";
+
+    @Label("Task")
+    String taskName;
+
+    @Label("Subtask")
+    String subtaskName;
+}
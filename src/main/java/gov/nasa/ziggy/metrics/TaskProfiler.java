@@ -0,0 +1,256 @@
+package gov.nasa.ziggy.metrics;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.configuration2.ImmutableConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.services.config.DirectoryProperties;
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.HostNameUtils;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
+import gov.nasa.ziggy.util.io.ZiggyFileUtils;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+/**
+ * Sampling profiler that attributes the samples of each thread to the pipeline task and subtask in
+ * its {@link ProfilingContext}.
+ * <p>
+ * The profiler streams the JFR execution samples of this JVM, which are taken at a fixed period
+ * without stopping the application's threads, together with the {@link ProfilingContextEvent}s
+ * that record each thread's context. Samples of threads that aren't working on a task are
+ * discarded. When the profiler stops, the samples of each task are written to a file in the task
+ * log directory in the collapsed stack format used by flame graph tools, in which each line is a
+ * stack, from the root frame to the leaf frame separated by semicolons, followed by the number of
+ * samples of that stack. The stacks of samples taken in a subtask start with the subtask's name.
+ * <p>
+ * The profiler is enabled by the {@link PropertyName#PROFILER_ENABLED} property. Its default sample
+ * period of 20 ms is the one in JFR's default configuration, which is designed to cost less than
+ * 1%.
+ */
+public class TaskProfiler {
+    private static final Logger log = LoggerFactory.getLogger(TaskProfiler.class);
+
+    public static final String PROFILE_FILE_EXTENSION = ".folded";
+    static final long DEFAULT_SAMPLE_MILLIS = 20;
+
+    private static final String EXECUTION_SAMPLE_EVENT = "jdk.ExecutionSample";
+    private static final Duration MAX_STREAM_AGE = Duration.ofMinutes(5);
+    private static final long STOP_TIMEOUT_MILLIS = 10_000;
+
+    /** Samples of stacks beyond this number per task are counted together. */
+    static final int MAX_STACKS_PER_TASK = 100_000;
+    static final String OTHER_STACKS = "[other stacks]";
+
+    private static TaskProfiler instance;
+
+    private final Path outputDir;
+    private final String fileSuffix;
+    private final Duration samplePeriod;
+
+    // These are used by the thread of the stream. The stack counts are also read by stop(), which
+    // normally waits for the stream to close first.
+    private final Map<Long, ProfilingContext> contextByThreadId = new HashMap<>();
+    private final Map<String, Map<String, long[]>> stackCountsByTask = new HashMap<>();
+    private final StringBuilder stack = new StringBuilder(1024);
+
+    private RecordingStream recordingStream;
+    private volatile CountDownLatch flushLatch;
+
+    /**
+     * @param outputDir the directory of the profile files
+     * @param fileSuffix the suffix that follows the task name in the names of the profile files,
+     * which distinguishes the files of different processes
+     */
+    public TaskProfiler(Path outputDir, String fileSuffix, Duration samplePeriod) {
+        this.outputDir = outputDir;
+        this.fileSuffix = fileSuffix;
+        this.samplePeriod = samplePeriod;
+    }
+
+    /**
+     * Starts the profiler of this process if {@link PropertyName#PROFILER_ENABLED} is true. Its
+     * profiles are written to the task log directory when the process exits. Contexts that are
+     * entered before the profiler starts are not seen by it.
+     */
+    public static synchronized void startIfEnabled() {
+        ImmutableConfiguration config = ZiggyConfiguration.getInstance();
+        if (instance != null
+            || !config.getBoolean(PropertyName.PROFILER_ENABLED.property(), false)) {
+            return;
+        }
+        long sampleMillis = config.getLong(PropertyName.PROFILER_SAMPLE_MILLIS.property(),
+            DEFAULT_SAMPLE_MILLIS);
+        instance = new TaskProfiler(DirectoryProperties.taskLogDir(),
+            "." + HostNameUtils.shortHostName() + "-" + ProcessHandle.current().pid(),
+            Duration.ofMillis(sampleMillis));
+        instance.start();
+        ZiggyShutdownHook.addShutdownHook(instance::stop);
+    }
+
+    /** Starts recording samples. */
+    public synchronized void start() {
+        if (recordingStream != null) {
+            return;
+        }
+        log.info("Starting task profiler with a sample period of {} ms", samplePeriod.toMillis());
+        recordingStream = new RecordingStream();
+        recordingStream.setMaxAge(MAX_STREAM_AGE);
+        recordingStream.enable(EXECUTION_SAMPLE_EVENT).withPeriod(samplePeriod);
+        recordingStream.enable(ProfilingContextEvent.class);
+        recordingStream.onEvent(ProfilingContextEvent.NAME, this::contextChanged);
+        recordingStream.onEvent(EXECUTION_SAMPLE_EVENT, this::addSample);
+        recordingStream.onFlush(this::flushed);
+        recordingStream.startAsync();
+    }
+
+    /**
+     * Stops recording samples and writes the profile of each task. The samples that have already
+     * been taken are waited for, as JFR delivers them about once a second.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    public void stop() {
+        RecordingStream streamToStop;
+        synchronized (this) {
+            streamToStop = recordingStream;
+            recordingStream = null;
+        }
+        if (streamToStop == null) {
+            return;
+        }
+
+        // A flush that ends after this point includes all of the samples taken before it. The
+        // first flush that is seen may have started earlier, so wait for two.
+        flushLatch = new CountDownLatch(2);
+        try {
+            if (!flushLatch.await(STOP_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)) {
+                log.warn("Timed out waiting for the last profiler samples");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        streamToStop.close();
+        try {
+            streamToStop.awaitTermination(Duration.ofMillis(STOP_TIMEOUT_MILLIS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (stackCountsByTask) {
+            for (Map.Entry<String, Map<String, long[]>> stackCounts : stackCountsByTask
+                .entrySet()) {
+                try {
+                    writeProfile(stackCounts.getKey(), stackCounts.getValue());
+                } catch (UncheckedIOException e) {
+                    log.warn("Unable to write profile of task {}", stackCounts.getKey(), e);
+                }
+            }
+        }
+    }
+
+    /** Returns the file in which the profile of the given task is written. */
+    public Path profileFile(String taskName) {
+        return outputDir.resolve(taskName + fileSuffix + PROFILE_FILE_EXTENSION);
+    }
+
+    private void flushed() {
+        CountDownLatch latch = flushLatch;
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    private void contextChanged(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        if (thread == null) {
+            return;
+        }
+        String taskName = event.getString("taskName");
+        if (taskName == null) {
+            contextByThreadId.remove(thread.getJavaThreadId());
+        } else {
+            contextByThreadId.put(thread.getJavaThreadId(),
+                new ProfilingContext(taskName, event.getString("subtaskName")));
+        }
+    }
+
+    private void addSample(RecordedEvent event) {
+        RecordedThread thread = event.getThread("sampledThread");
+        if (thread == null || event.getStackTrace() == null) {
+            return;
+        }
+        ProfilingContext context = contextByThreadId.get(thread.getJavaThreadId());
+        if (context == null) {
+            return;
+        }
+
+        stack.setLength(0);
+        if (context.getSubtaskName() != null) {
+            stack.append(context.getSubtaskName());
+        }
+        List<RecordedFrame> frames = event.getStackTrace().getFrames();
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            RecordedMethod method = frames.get(i).getMethod();
+            if (method == null) {
+                continue;
+            }
+            if (stack.length() > 0) {
+                stack.append(';');
+            }
+            stack.append(method.getType().getName()).append('.').append(method.getName());
+        }
+
+        synchronized (stackCountsByTask) {
+            Map<String, long[]> stackCounts = stackCountsByTask
+                .computeIfAbsent(context.getTaskName(), taskName -> new HashMap<>());
+            String stackString = stack.toString();
+            long[] count = stackCounts.get(stackString);
+            if (count == null) {
+                count = stackCounts.computeIfAbsent(
+                    stackCounts.size() < MAX_STACKS_PER_TASK ? stackString : OTHER_STACKS,
+                    key -> new long[1]);
+            }
+            count[0]++;
+        }
+    }
+
+    private void writeProfile(String taskName, Map<String, long[]> stackCounts) {
+        Path profileFile = profileFile(taskName);
+        log.info("Writing {} profiled stacks of task {} to {}", stackCounts.size(), taskName,
+            profileFile);
+        try {
+            Files.createDirectories(outputDir);
+            try (BufferedWriter writer = Files.newBufferedWriter(profileFile,
+                ZiggyFileUtils.ZIGGY_CHARSET)) {
+                for (Map.Entry<String, long[]> stackCount : new TreeMap<>(stackCounts)
+                    .entrySet()) {
+                    writer.write(stackCount.getKey());
+                    writer.write(' ');
+                    writer.write(Long.toString(stackCount.getValue()[0]));
+                    writer.newLine();
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write " + profileFile, e);
+        }
+    }
+}
@@ -1,62 +1,109 @@
 package gov.nasa.ziggy.metrics;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Implements a metric which represents an accumulator which can be incremented by an arbitrary
  * amount. Also tracks the the minimum and maximum values added and the count of values added,
- * allowing the computation of the average.
+ * allowing the computation of the average, and a {@link LogHistogram} of the values added, allowing
+ * the estimation of percentiles.
+ * <p>
+ * Values are added without locking so that threads that measure the same operations don't contend
+ * for the metric. The count and sum are {@link LongAdder}s, which spread concurrent updates over
+ * separate cells, and the minimum and maximum are only written when a new extreme is seen. As a
+ * result, the statistics read while values are being added may not all include the same values.
+ * <p>
+ * The serialized form is that of earlier versions of this class, in which the statistics were
+ * plain fields, with the histogram added. Metrics serialized by earlier versions can therefore
+ * still be deserialized, although their histograms are empty.
  *
  * @author Todd Klaus
  */
 public class ValueMetric extends Metric implements Serializable {
     private static final long serialVersionUID = 20230511L;
 
+    private static final ObjectStreamField[] serialPersistentFields = {
+        new ObjectStreamField("min", long.class), new ObjectStreamField("max", long.class),
+        new ObjectStreamField("count", int.class), new ObjectStreamField("sum", long.class),
+        new ObjectStreamField("histogram", LogHistogram.class) };
+
     public static final String VALUE_TYPE = "V";
 
-    protected long min = Long.MAX_VALUE;
-    protected long max = Long.MIN_VALUE;
-    protected int count = 0;
-    protected long sum = 0;
+    private transient AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+    private transient AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+    private transient LongAdder count = new LongAdder();
+    private transient LongAdder sum = new LongAdder();
+    private transient LogHistogram histogram = new LogHistogram();
 
-    public synchronized double getAverage() {
-        if (count > 0) {
-            return (double) sum / (double) count;
+    public double getAverage() {
+        long valueCount = count.sum();
+        if (valueCount > 0) {
+            return (double) sum.sum() / (double) valueCount;
         }
         return 0;
     }
 
-    public synchronized long getSum() {
-        return sum;
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public int getCount() {
+        return count.intValue();
+    }
+
+    public long getMax() {
+        return max.get() == Long.MIN_VALUE ? 0 : max.get();
     }
 
-    public synchronized int getCount() {
-        return count;
+    public long getMin() {
+        return min.get() == Long.MAX_VALUE ? 0 : min.get();
     }
 
-    public synchronized long getMax() {
-        return max == Long.MIN_VALUE ? 0 : max;
+    /**
+     * Returns an estimate of the given percentile of the values added, or 0 if no values have been
+     * added. The estimate is within about 3% of the true value, and never outside the range of the
+     * values added. The 100th percentile is the maximum value.
+     *
+     * @param percentile the percentile, from 0 to 100
+     */
+    public long getPercentile(double percentile) {
+        if (count.sum() == 0) {
+            return 0;
+        }
+        if (percentile == 100) {
+            return getMax();
+        }
+        return Math.min(Math.max(histogram.getPercentile(percentile), getMin()), getMax());
     }
 
-    public synchronized long getMin() {
-        return min == Long.MAX_VALUE ? 0 : min;
+    /** Returns a copy of the histogram of the values added. */
+    public LogHistogram getHistogram() {
+        return histogram.copy();
     }
 
     @Override
-    public synchronized void toLogString(StringBuilder bldr) {
+    public void toLogString(StringBuilder bldr) {
         bldr.append(name)
             .append(',')
             .append(VALUE_TYPE)
             .append(',')
-            .append(min)
+            .append(min.get())
             .append(',')
-            .append(max)
+            .append(max.get())
             .append(',')
             .append(getAverage())
             .append(',')
-            .append(count)
+            .append(count.intValue())
             .append(',')
-            .append(sum);
+            .append(sum.sum());
     }
 
     @Override
@@ -65,13 +112,13 @@ public class ValueMetric extends Metric implements Serializable {
         bldr.append("mean: ")
             .append(getAverage())
             .append(", min: ")
-            .append(min)
+            .append(min.get())
             .append(", max: ")
-            .append(max)
+            .append(max.get())
             .append(", count: ")
-            .append(count)
+            .append(count.intValue())
             .append(", sum: ")
-            .append(sum);
+            .append(sum.sum());
         return bldr.toString();
     }
 
@@ -106,67 +153,109 @@ public class ValueMetric extends Metric implements Serializable {
 
     ValueMetric(String name, long min, long max, int count, long sum) {
         this(name);
-        this.min = min;
-        this.max = max;
-        this.count = count;
-        this.sum = sum;
+        this.min.set(min);
+        this.max.set(max);
+        this.count.add(count);
+        this.sum.add(sum);
     }
 
     @Override
-    public synchronized ValueMetric makeCopy() {
+    public ValueMetric makeCopy() {
         ValueMetric copy = new ValueMetric(name);
-        copy.name = name;
-        copy.sum = sum;
-        copy.min = min;
-        copy.max = max;
-        copy.count = count;
+        copy.merge(this);
         return copy;
     }
 
-    protected synchronized void addValue(long value) {
-        if (value < min) {
-            min = value;
+    protected void addValue(long value) {
+        long currentMin = min.get();
+        while (value < currentMin && !min.compareAndSet(currentMin, value)) {
+            currentMin = min.get();
         }
-        if (value > max) {
-            max = value;
+        long currentMax = max.get();
+        while (value > currentMax && !max.compareAndSet(currentMax, value)) {
+            currentMax = max.get();
         }
-        count++;
-        sum += value;
+        count.increment();
+        sum.add(value);
+        histogram.recordValue(value);
     }
 
     @Override
-    public synchronized void merge(Metric other) {
+    public void merge(Metric other) {
         if (!(other instanceof ValueMetric)) {
             throw new IllegalArgumentException(
                 "Specified Metric is not a ValueMetric, type=" + other.getClass().getName());
         }
         ValueMetric otherVm = (ValueMetric) other;
-        count += otherVm.count;
-        sum += otherVm.sum;
-        max = Math.max(max, otherVm.max);
-        min = Math.min(min, otherVm.min);
+        count.add(otherVm.count.sum());
+        sum.add(otherVm.sum.sum());
+        max.accumulateAndGet(otherVm.max.get(), Math::max);
+        min.accumulateAndGet(otherVm.min.get(), Math::min);
+        histogram.merge(otherVm.histogram);
+    }
+
+    /** Writes the state of this metric to a {@link MetricsFile}. */
+    void writeFields(DataOutput output) throws IOException {
+        output.writeLong(min.get());
+        output.writeLong(max.get());
+        output.writeLong(count.sum());
+        output.writeLong(sum.sum());
+        histogram.writeBuckets(output);
+    }
+
+    /** Reads the state written by {@link #writeFields(DataOutput)} into a new metric. */
+    void readFields(ByteBuffer input) {
+        min.set(input.getLong());
+        max.set(input.getLong());
+        count.add(input.getLong());
+        sum.add(input.getLong());
+        histogram.readBuckets(input);
+    }
+
+    private void writeObject(ObjectOutputStream output) throws IOException {
+        ObjectOutputStream.PutField fields = output.putFields();
+        fields.put("min", min.get());
+        fields.put("max", max.get());
+        fields.put("count", count.intValue());
+        fields.put("sum", sum.sum());
+        fields.put("histogram", histogram);
+        output.writeFields();
+    }
+
+    private void readObject(ObjectInputStream input) throws IOException, ClassNotFoundException {
+        ObjectInputStream.GetField fields = input.readFields();
+        min = new AtomicLong(fields.get("min", Long.MAX_VALUE));
+        max = new AtomicLong(fields.get("max", Long.MIN_VALUE));
+        count = new LongAdder();
+        count.add(fields.get("count", 0));
+        sum = new LongAdder();
+        sum.add(fields.get("sum", 0L));
+        LogHistogram serializedHistogram = (LogHistogram) fields.get("histogram", null);
+        histogram = serializedHistogram != null ? serializedHistogram : new LogHistogram();
     }
 
     @Override
-    protected synchronized void reset() {
-        min = Long.MAX_VALUE;
-        max = Long.MIN_VALUE;
-        count = 0;
-        sum = 0;
+    protected void reset() {
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+        count.reset();
+        sum.reset();
+        histogram.reset();
     }
 
     @Override
-    public synchronized int hashCode() {
+    public int hashCode() {
         final int prime = 31;
         int result = super.hashCode();
-        result = prime * result + count;
-        result = prime * result + (int) (max ^ max >>> 32);
-        result = prime * result + (int) (min ^ min >>> 32);
-        return prime * result + (int) (sum ^ sum >>> 32);
+        result = prime * result + count.intValue();
+        result = prime * result + Long.hashCode(max.get());
+        result = prime * result + Long.hashCode(min.get());
+        result = prime * result + Long.hashCode(sum.sum());
+        return prime * result + histogram.hashCode();
     }
 
     @Override
-    public synchronized boolean equals(Object obj) {
+    public boolean equals(Object obj) {
         if (this == obj) {
             return true;
         }
@@ -174,9 +263,10 @@ public class ValueMetric extends Metric implements Serializable {
             return false;
         }
         final ValueMetric other = (ValueMetric) obj;
-        if (count != other.count || max != other.max || min != other.min || sum != other.sum) {
+        if (count.sum() != other.count.sum() || max.get() != other.max.get()
+            || min.get() != other.min.get() || sum.sum() != other.sum.sum()) {
             return false;
         }
-        return true;
+        return histogram.equals(other.histogram);
     }
 }
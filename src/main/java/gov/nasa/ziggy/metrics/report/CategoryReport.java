@@ -1,6 +1,5 @@
 package gov.nasa.ziggy.metrics.report;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.jfree.chart.JFreeChart;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,32 +17,36 @@ public class CategoryReport extends Report {
         this.isTime = isTime;
     }
 
-    public void generateReport(String pipelineStepName, DescriptiveStatistics stats,
+    public void generateReport(String pipelineStepName, StreamingStatistics stats,
         TopNList topTen) {
         String label = pipelineStepName + " : " + category;
 
-        HumanReadableStatistics histogramValues = null;
         String unitsLabel = "";
+        double divisor;
         Format f;
 
         if (isTime) {
-            histogramValues = millisToHumanReadable(stats);
-            unitsLabel = "Time (" + histogramValues.getUnit() + ")";
+            String units = millisUnits(stats.getMean());
+            divisor = millisDivisor(units);
+            unitsLabel = "Time (" + units + ")";
             f = new TimeMillisFormat();
         } else {
-            histogramValues = toHumanReadable(stats, "", 1024.0 * 1024.0);
+            divisor = 1024.0 * 1024.0;
             unitsLabel = "Size (MB)";
             f = new BytesFormat();
         }
 
-        JFreeChart histogram = generateHistogram(label, unitsLabel, "Tasks",
-            histogramValues.getValues(), 20);
+        JFreeChart histogram = generateHistogram(label, unitsLabel, "Tasks", stats, divisor, 20);
 
-        pdfRenderer.printChart(histogram, CHART3_WIDTH, CHART3_HEIGHT);
+        if (histogram != null) {
+            pdfRenderer.printChart(histogram, CHART3_WIDTH, CHART3_HEIGHT);
+        } else {
+            pdfRenderer.printText("Histogram: No data points available");
+        }
 
         pdfRenderer.printText(" ");
 
-        generateSummaryTable(label, stats, topTen, f);
+        generateSummaryTable(label, stats, stats::getPercentile, topTen, f);
 
         pdfRenderer.newPage();
     }
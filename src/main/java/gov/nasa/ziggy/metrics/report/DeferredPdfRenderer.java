@@ -0,0 +1,64 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import com.lowagie.text.Element;
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.PdfPTable;
+
+/**
+ * A {@link PdfRenderer} that collects the content of part of a document, such as the report of a
+ * pipeline instance node, so that the parts of the document can be generated in parallel and then
+ * written to the document in order with {@link #writeTo(PdfRenderer)}. Charts are rendered to
+ * images as they are printed, so that they are rendered in parallel as well; the images of charts
+ * printed to the cells of a table are added to the table when the content is written, so the table
+ * must be added to the document after its charts are printed.
+ */
+class DeferredPdfRenderer extends PdfRenderer {
+
+    private final List<Consumer<PdfRenderer>> content = new ArrayList<>();
+
+    DeferredPdfRenderer(boolean portrait) {
+        super(portrait);
+    }
+
+    /** Writes the collected content to the document of the given renderer. */
+    void writeTo(PdfRenderer pdfRenderer) {
+        for (Consumer<PdfRenderer> element : content) {
+            element.accept(pdfRenderer);
+        }
+    }
+
+    @Override
+    public void close() {
+        content.clear();
+    }
+
+    @Override
+    public void printImage(BufferedImage bufferedImage) {
+        content.add(pdfRenderer -> pdfRenderer.printImage(bufferedImage));
+    }
+
+    @Override
+    public void printImage(PdfPTable table, BufferedImage bufferedImage) {
+        content.add(pdfRenderer -> pdfRenderer.printImage(table, bufferedImage));
+    }
+
+    @Override
+    public void printText(String text, Font font) {
+        content.add(pdfRenderer -> pdfRenderer.printText(text, font));
+    }
+
+    @Override
+    public void newPage() {
+        content.add(PdfRenderer::newPage);
+    }
+
+    @Override
+    public void add(Element element) {
+        content.add(pdfRenderer -> pdfRenderer.add(element));
+    }
+}
@@ -1,12 +1,13 @@
 package gov.nasa.ziggy.metrics.report;
 
 import java.io.File;
-import java.io.FileFilter;
-import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
+import java.util.regex.Pattern;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.jfree.chart.ChartFactory;
@@ -17,19 +18,18 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.StandardXYBarPainter;
 import org.jfree.chart.renderer.xy.XYBarRenderer;
-import org.jfree.data.statistics.BoxAndWhiskerCalculator;
+import org.jfree.data.statistics.BoxAndWhiskerItem;
 import org.jfree.data.statistics.DefaultBoxAndWhiskerCategoryDataset;
-import org.jfree.data.statistics.HistogramDataset;
-import org.jfree.data.statistics.HistogramType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import gov.nasa.ziggy.metrics.IntervalMetric;
 import gov.nasa.ziggy.metrics.Metric;
 
 /**
  * This class walks a task file directory tree looking for metrics-0.ser files, reads them, and
- * generates a summary report of their contents.
+ * generates a summary report of their contents. The files are read and summarized by a
+ * {@link SubtaskMetricsAggregator}, which caches the summaries of complete tasks in the directory
+ * tree so that they are only read once.
  *
  * @author Todd Klaus
  */
@@ -42,7 +42,9 @@ public class InstanceMetricsReport {
     private static final int TOP_N_INSTANCE = 20;
     private static final int TOP_N_TASKS = 10;
 
-    private static final String METRICS_FILE_NAME = "metrics-0.ser";
+    private static final String METRICS_CACHE_FILE_NAME = "metrics-report-cache.ser";
+    private static final Pattern TASK_DIR_PATTERN = Pattern.compile("\\d+-\\d+-.+");
+    private static final double HOUR_MILLIS = 3600000.0;
 
     /**
      * Top-level directory that contains the task files. Assumes that this directory contains all of
@@ -65,10 +67,10 @@ public class InstanceMetricsReport {
 
     private final TopNList instanceTopNList = new TopNList(TOP_N_INSTANCE);
 
-    // Map<taskDirName,List<execTime>> - Complete list of exec times, by sky group
-    private final Map<String, List<Double>> subtaskExecTimesByTask = new HashMap<>();
+    // Map<taskDirName,execTimeStats> - Statistics of subtask exec times, by sky group
+    private final Map<String, StreamingStatistics> execTimesByTask = new LinkedHashMap<>();
 
-    private final List<Double> subtaskExecTimes = new ArrayList<>(200000);
+    private final StreamingStatistics execTimes = new StreamingStatistics();
 
     private PdfRenderer instancePdfRenderer;
     private PdfRenderer taskPdfRenderer;
@@ -100,7 +102,7 @@ public class InstanceMetricsReport {
         dumpTopTen(instancePdfRenderer, "Top " + TOP_N_INSTANCE + " for instance ",
             instanceTopNList);
 
-        JFreeChart histogram = generateHistogram("instance", subtaskExecTimes);
+        JFreeChart histogram = generateHistogram("instance", execTimes);
 
         if (histogram != null) {
 //            chart2Png(histogram,
@@ -121,62 +123,38 @@ public class InstanceMetricsReport {
 
     private void parseFiles() {
         File[] taskDirs = rootDirectory
-            .listFiles((FileFilter) f -> f.getName().contains("-matlab-") && f.isDirectory());
-
-        for (File taskDir : taskDirs) {
-            log.info("Processing {}", taskDir);
-
-            String taskDirName = taskDir.getName();
-            Map<String, Metric> taskMetrics = taskMetricsMap.get(taskDirName);
-            TopNList taskTopNList = new TopNList(TOP_N_TASKS);
-
-            if (taskMetrics == null) {
-                taskMetrics = new HashMap<>();
-                taskMetricsMap.put(taskDirName, taskMetrics);
+            .listFiles(f -> TASK_DIR_PATTERN.matcher(f.getName()).matches() && f.isDirectory());
+        if (taskDirs == null || taskDirs.length == 0) {
+            log.info("No task directories found");
+            return;
+        }
+        Arrays.sort(taskDirs, Comparator.comparing(File::getName));
+
+        SubtaskMetricsAggregator aggregator = new SubtaskMetricsAggregator(totalTimeMetricName,
+            TOP_N_INSTANCE, new File(rootDirectory, METRICS_CACHE_FILE_NAME));
+        for (Map.Entry<String, SubtaskMetricsSummary> taskSummary : aggregator
+            .aggregate(Arrays.asList(taskDirs))
+            .entrySet()) {
+            String taskDirName = taskSummary.getKey();
+            SubtaskMetricsSummary summary = taskSummary.getValue();
+
+            taskMetricsMap.put(taskDirName, summary.getMetrics());
+            for (Metric metric : summary.getMetrics().values()) {
+                merge(metric, instanceMetrics);
             }
+            instanceTopNList.addAll(summary.getTopN());
+            TopNList taskTopNList = new TopNList(TOP_N_TASKS);
+            taskTopNList.addAll(summary.getTopN());
 
-            File[] subtaskDirs = taskDir
-                .listFiles((FileFilter) pathname -> pathname.getName().startsWith("st-")
-                    && pathname.isDirectory());
-
-            if (subtaskDirs == null) {
-                log.info("No subtask directories found");
-                return;
-            }
-            log.info("Found {} subtask directories", subtaskDirs.length);
-
-            for (File subtaskDir : subtaskDirs) {
-                File subtaskMetricsFile = new File(subtaskDir, METRICS_FILE_NAME);
-
-                if (subtaskMetricsFile.exists()) {
-                    Map<String, Metric> subtaskMetrics = Metric
-                        .loadMetricsFromSerializedFile(subtaskMetricsFile);
-
-                    for (Metric metric : subtaskMetrics.values()) {
-                        // merge this metric into the instance metrics
-                        merge(metric, instanceMetrics);
-                        // merge this metric into the task metrics
-                        merge(metric, taskMetrics);
-
-                        if (metric.getName().equals(totalTimeMetricName)) {
-                            IntervalMetric totalTimeMetric = (IntervalMetric) metric;
-                            int execTime = (int) totalTimeMetric.getAverage();
-                            instanceTopNList.add(execTime,
-                                taskDirName + "/" + subtaskDir.getName());
-                            taskTopNList.add(execTime, taskDirName + "/" + subtaskDir.getName());
-                            addExecTime(taskDirName, totalTimeMetric.getAverage());
-                        }
-                    }
-                } else {
-                    log.warn("No metrics file found in {}", subtaskDir);
-                }
-            }
+            StreamingStatistics taskExecTimes = summary.getAverageStats()
+                .getOrDefault(totalTimeMetricName, new StreamingStatistics());
+            execTimesByTask.put(taskDirName, taskExecTimes);
+            execTimes.merge(taskExecTimes);
 
             log.info("Metrics for {}", taskDirName);
             dumpTopTen(taskPdfRenderer, "Top " + TOP_N_TASKS + " for task " + taskDirName,
                 taskTopNList);
 
-            List<Double> taskExecTimes = subtaskExecTimesByTask.get(taskDirName);
             JFreeChart histogram = generateHistogram(taskDirName, taskExecTimes);
 
             if (histogram != null) {
@@ -190,47 +168,15 @@ public class InstanceMetricsReport {
         }
     }
 
-    private void addExecTime(String taskDirName, double execTime) {
-        List<Double> timesForTask = subtaskExecTimesByTask.get(taskDirName);
-        if (timesForTask == null) {
-            timesForTask = new ArrayList<>(5000);
-            subtaskExecTimesByTask.put(taskDirName, timesForTask);
-        }
-
-        double timeHours = execTime / 1000.0 / 3600.0; // convert to hours
-        timesForTask.add(timeHours);
-        subtaskExecTimes.add(timeHours);
-    }
-
-    private double[] listToArray(List<Double> list) {
-        if (list == null || list.size() == 0) {
-            return new double[0];
-        }
-
-        double[] array = new double[list.size()];
-        int index = 0;
-
-        for (Double value : list) {
-            array[index++] = value;
-        }
-
-        return array;
-    }
-
-    private JFreeChart generateHistogram(String label, List<Double> execTimes) {
-        if (execTimes == null || execTimes.size() == 0) {
+    private JFreeChart generateHistogram(String label, StreamingStatistics execTimes) {
+        if (execTimes.getN() == 0) {
             return null;
         }
 
-        double[] values = listToArray(execTimes);
-
-        HistogramDataset dataset = new HistogramDataset();
-        dataset.setType(HistogramType.RELATIVE_FREQUENCY);
-        dataset.addSeries("execTime", values, NUM_BINS);
-
         JFreeChart chart = ChartFactory.createHistogram("Algorithm Run-time (" + label + ")",
-            "execTime (hours)", "Number of Subtasks", dataset, PlotOrientation.VERTICAL, true, true,
-            false);
+            "execTime (hours)", "Number of Subtasks",
+            Report.histogramDataset("execTime", execTimes, HOUR_MILLIS, NUM_BINS),
+            PlotOrientation.VERTICAL, true, true, false);
         XYPlot plot = (XYPlot) chart.getPlot();
         plot.setDomainPannable(true);
         plot.setRangePannable(true);
@@ -249,12 +195,17 @@ public class InstanceMetricsReport {
     private JFreeChart generateBoxAndWhiskers() {
         DefaultBoxAndWhiskerCategoryDataset dataset = new DefaultBoxAndWhiskerCategoryDataset();
 
-        Set<String> taskNames = subtaskExecTimesByTask.keySet();
-        for (String taskName : taskNames) {
+        for (Map.Entry<String, StreamingStatistics> taskExecTimes : execTimesByTask.entrySet()) {
+            String taskName = taskExecTimes.getKey();
             log.info("taskDirName={}", taskName);
-            List<Double> execTimesForTask = subtaskExecTimesByTask.get(taskName);
-            dataset.add(BoxAndWhiskerCalculator.calculateBoxAndWhiskerStatistics(execTimesForTask),
-                taskName, taskName);
+            StreamingStatistics stats = taskExecTimes.getValue();
+            if (stats.getN() == 0) {
+                continue;
+            }
+            dataset.add(new BoxAndWhiskerItem(stats.getMean() / HOUR_MILLIS,
+                stats.getPercentile(50) / HOUR_MILLIS, stats.getPercentile(25) / HOUR_MILLIS,
+                stats.getPercentile(75) / HOUR_MILLIS, stats.getMin() / HOUR_MILLIS,
+                stats.getMax() / HOUR_MILLIS, null, null, List.of()), taskName, taskName);
         }
 
         JFreeChart chart = ChartFactory.createBoxAndWhiskerChart(
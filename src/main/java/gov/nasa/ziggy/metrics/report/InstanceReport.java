@@ -3,7 +3,6 @@ package gov.nasa.ziggy.metrics.report;
 import java.util.List;
 
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,11 +10,8 @@ import com.lowagie.text.pdf.PdfPTable;
 
 import gov.nasa.ziggy.pipeline.definition.PipelineInstance;
 import gov.nasa.ziggy.pipeline.definition.PipelineInstanceNode;
-import gov.nasa.ziggy.pipeline.definition.PipelineTask;
-import gov.nasa.ziggy.pipeline.definition.PipelineTaskMetric;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDataOperations;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDisplayDataOperations;
-import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskOperations;
 import gov.nasa.ziggy.pipeline.step.PipelineCategories;
 import gov.nasa.ziggy.util.dispmod.InstancesDisplayModel;
 import gov.nasa.ziggy.util.dispmod.TaskSummaryDisplayModel;
@@ -23,7 +19,6 @@ import gov.nasa.ziggy.util.dispmod.TaskSummaryDisplayModel;
 public class InstanceReport extends Report {
     private static final Logger log = LoggerFactory.getLogger(InstanceReport.class);
 
-    private PipelineTaskOperations pipelineTaskOperations = new PipelineTaskOperations();
     private PipelineTaskDataOperations pipelineTaskDataOperations = new PipelineTaskDataOperations();
     private PipelineTaskDisplayDataOperations pipelineTaskDisplayDataOperations = new PipelineTaskDisplayDataOperations();
 
@@ -114,26 +109,17 @@ public class InstanceReport extends Report {
         BytesFormat bytesFormatter = new BytesFormat();
         BytesPerSecondFormat rateFormatter = new BytesPerSecondFormat();
 
-        DescriptiveStatistics sizeStats = new DescriptiveStatistics();
-        DescriptiveStatistics timeStats = new DescriptiveStatistics();
-
-        List<PipelineTask> tasks = pipelineTaskOperations().allPipelineTasks();
-
-        for (PipelineTask task : tasks) {
-            List<PipelineTaskMetric> taskMetrics = pipelineTaskDataOperations()
-                .pipelineTaskMetrics(task);
-
-            for (PipelineTaskMetric taskMetric : taskMetrics) {
-                if (taskMetric.getCategory().equals(sizeCategory)) {
-                    sizeStats.addValue(taskMetric.getValue());
-                } else if (taskMetric.getCategory().equals(timeCategory)) {
-                    timeStats.addValue(taskMetric.getValue());
-                }
+        double[] bytesAndMillisForNode = new double[2];
+        pipelineTaskDataOperations().forEachTaskMetric(node, (taskId, taskMetric) -> {
+            if (taskMetric.getCategory().equals(sizeCategory)) {
+                bytesAndMillisForNode[0] += taskMetric.getValue();
+            } else if (taskMetric.getCategory().equals(timeCategory)) {
+                bytesAndMillisForNode[1] += taskMetric.getValue();
             }
-        }
+        });
 
-        double bytesForNode = sizeStats.getSum();
-        double millisForNode = timeStats.getSum();
+        double bytesForNode = bytesAndMillisForNode[0];
+        double millisForNode = bytesAndMillisForNode[1];
 
         double bytesPerSecondForNode = bytesForNode / (millisForNode / 1000);
 
@@ -147,10 +133,6 @@ public class InstanceReport extends Report {
         addCell(transfersTable, rateFormatter.format(bytesPerSecondForNode));
     }
 
-    private PipelineTaskOperations pipelineTaskOperations() {
-        return pipelineTaskOperations;
-    }
-
     private PipelineTaskDataOperations pipelineTaskDataOperations() {
         return pipelineTaskDataOperations;
     }
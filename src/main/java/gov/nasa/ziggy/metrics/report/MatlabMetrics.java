@@ -1,174 +1,88 @@
 package gov.nasa.ziggy.metrics.report;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.Serializable;
-import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.regex.Pattern;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import gov.nasa.ziggy.metrics.IntervalMetric;
-import gov.nasa.ziggy.metrics.Metric;
-import gov.nasa.ziggy.pipeline.step.subtask.SubtaskDirectoryIterator;
-import gov.nasa.ziggy.util.AcceptableCatchBlock;
-import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
-import gov.nasa.ziggy.util.SpotBugsUtils;
 
+/**
+ * Collects the run time statistics of the algorithm for a pipeline step in a pipeline instance
+ * from the metrics files of its subtasks. The run time of the algorithm's controller and of each of
+ * the functions for which the algorithm records an {@link IntervalMetric} are averaged for each
+ * subtask, and the statistics are collected over the subtask averages.
+ * <p>
+ * The metrics files are read by a {@link SubtaskMetricsAggregator}, which reads the subtasks in
+ * parallel and caches the statistics of each task in the task files directory, so the statistics
+ * of tasks that are complete are only collected once.
+ */
 public class MatlabMetrics {
-    private static final Logger log = LoggerFactory.getLogger(MatlabMetrics.class);
 
-    private static final String MATLAB_METRICS_FILENAME = "metrics-0.ser";
     private static final String MATLAB_METRICS_CACHE_FILENAME = "metrics-cache.ser";
     private static final String MATLAB_CONTROLLER_EXEC_TIME_METRIC = "pipeline.module.executeAlgorithm.matlab.controller.execTime";
+    private static final int TOP_N = 10;
 
     private final File taskFilesDir;
     private final String pipelineStepName;
+    private final long instanceId;
 
     private boolean cacheResults = true;
+    private ExecutorService executor;
 
     private boolean parsed = false;
-    private DescriptiveStatistics totalTimeStats;
-    private HashMap<String, DescriptiveStatistics> functionStats;
+    private StreamingStatistics totalTimeStats;
+    private Map<String, StreamingStatistics> functionStats;
     private TopNList topTen;
 
-    public MatlabMetrics(File taskFilesDir, String pipelineStepName) {
+    public MatlabMetrics(File taskFilesDir, String pipelineStepName, long instanceId) {
         this.taskFilesDir = taskFilesDir;
         this.pipelineStepName = pipelineStepName;
+        this.instanceId = instanceId;
     }
 
-    private static final class CacheContents implements Serializable {
-        private static final long serialVersionUID = 20230511L;
-        public DescriptiveStatistics totalTime;
-        public HashMap<String, DescriptiveStatistics> function;
-        public TopNList topTen;
-    }
-
-    @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION",
-        justification = SpotBugsUtils.DESERIALIZATION_JUSTIFICATION)
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     public void parseFiles() {
-        File cacheFile = new File(taskFilesDir, MATLAB_METRICS_CACHE_FILENAME);
-        try {
-            if (!parsed) {
-                totalTimeStats = new DescriptiveStatistics();
-                functionStats = new HashMap<>();
-                topTen = new TopNList(10);
-
-                if (cacheFile.exists()) {
-                    log.info("Found cache file {}", cacheFile);
-                    try (ObjectInputStream ois = new ObjectInputStream(
-                        new BufferedInputStream(new FileInputStream(cacheFile)))) {
-                        CacheContents cacheContents = (CacheContents) ois.readObject();
-
-                        totalTimeStats = cacheContents.totalTime;
-                        functionStats = cacheContents.function;
-                        topTen = cacheContents.topTen;
-                    }
-                } else { // no cache
-                    log.info("No cache file found, parsing files");
-                    File[] taskDirs = taskFilesDir
-                        .listFiles((FileFilter) f -> f.getName().startsWith(pipelineStepName + "-")
-                            && f.isDirectory());
-
-                    for (File taskDir : taskDirs) {
-                        log.info("Processing {}", taskDir);
-
-                        SubtaskDirectoryIterator directoryIterator = new SubtaskDirectoryIterator(
-                            taskDir);
-
-                        if (directoryIterator.hasNext()) {
-                            log.info("Found {} subtask directories",
-                                directoryIterator.numSubtasks());
-                        } else {
-                            log.info("No subtask directories found");
-                        }
-
-                        while (directoryIterator.hasNext()) {
-                            File subtaskDir = directoryIterator.next().getSubtaskDir();
-
-                            log.debug("STM {}", subtaskDir);
-
-                            File subtaskMetricsFile = new File(subtaskDir, MATLAB_METRICS_FILENAME);
-
-                            if (subtaskMetricsFile.exists()) {
-                                Map<String, Metric> subtaskMetrics = Metric
-                                    .loadMetricsFromSerializedFile(subtaskMetricsFile);
-
-                                for (String metricName : subtaskMetrics.keySet()) {
-                                    if (!metricName.equals(MATLAB_CONTROLLER_EXEC_TIME_METRIC)) {
-                                        Metric metric = subtaskMetrics.get(metricName);
-
-                                        log.debug("STM {}={}", metricName, metric.toString());
-
-                                        DescriptiveStatistics metricStats = functionStats
-                                            .get(metricName);
-                                        if (metricStats == null) {
-                                            metricStats = new DescriptiveStatistics();
-                                            functionStats.put(metricName, metricStats);
-                                        }
-
-                                        IntervalMetric totalTimeMetric = (IntervalMetric) metric;
-                                        metricStats.addValue(totalTimeMetric.getAverage());
-                                    }
-                                }
-
-                                Metric metric = subtaskMetrics
-                                    .get(MATLAB_CONTROLLER_EXEC_TIME_METRIC);
-                                if (metric != null) {
-                                    String subtaskName = subtaskDir.getParentFile().getName() + "/"
-                                        + subtaskDir.getName();
-
-                                    IntervalMetric totalTimeMetric = (IntervalMetric) metric;
-                                    double mean = totalTimeMetric.getAverage();
-                                    totalTimeStats.addValue(mean);
-                                    topTen.add((long) mean, subtaskName);
-                                } else {
-                                    log.warn("No metric found with name {} in {}",
-                                        MATLAB_CONTROLLER_EXEC_TIME_METRIC, subtaskDir);
-                                }
-                            } else {
-                                log.warn("No metrics file found in {}", subtaskDir);
-                            }
-                        }
-                    }
-
-                    if (cacheResults) {
-                        try (ObjectOutputStream oos = new ObjectOutputStream(
-                            new BufferedOutputStream(new FileOutputStream(cacheFile)))) {
-                            CacheContents cache = new CacheContents();
-                            cache.totalTime = totalTimeStats;
-                            cache.function = functionStats;
-                            cache.topTen = topTen;
-
-                            oos.writeObject(cache);
-                            oos.flush();
-                        }
-                    }
+        if (parsed) {
+            return;
+        }
+        totalTimeStats = new StreamingStatistics();
+        functionStats = new HashMap<>();
+        topTen = new TopNList(TOP_N);
+
+        SubtaskMetricsAggregator aggregator = new SubtaskMetricsAggregator(
+            MATLAB_CONTROLLER_EXEC_TIME_METRIC, TOP_N,
+            new File(taskFilesDir, MATLAB_METRICS_CACHE_FILENAME));
+        aggregator.setCacheResults(cacheResults);
+        aggregator.setExecutor(executor);
+        for (SubtaskMetricsSummary summary : aggregator.aggregate(taskDirs()).values()) {
+            for (Map.Entry<String, StreamingStatistics> stats : summary.getAverageStats()
+                .entrySet()) {
+                if (stats.getKey().equals(MATLAB_CONTROLLER_EXEC_TIME_METRIC)) {
+                    totalTimeStats.merge(stats.getValue());
+                } else {
+                    functionStats.computeIfAbsent(stats.getKey(), name -> new StreamingStatistics())
+                        .merge(stats.getValue());
                 }
-                parsed = true;
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(
-                "IOException occurred accessing file " + cacheFile.toString(), e);
-        } catch (ClassNotFoundException e) {
-            // This exception can never occur. This class is the sole creator and consumer
-            // of the serialized object file, hence it is guaranteed that the class that is
-            // serialized is also the class that is retrieved.
-            throw new AssertionError(e);
+            topTen.addAll(summary.getTopN());
         }
+        parsed = true;
+    }
+
+    /** Returns the directories of the pipeline step's tasks in the instance, in name order. */
+    private List<File> taskDirs() {
+        Pattern taskDirPattern = Pattern.compile(
+            instanceId + "-\\d+-" + Pattern.quote(pipelineStepName.replace(" ", "_")));
+        File[] taskDirs = taskFilesDir
+            .listFiles(f -> taskDirPattern.matcher(f.getName()).matches() && f.isDirectory());
+        if (taskDirs == null) {
+            return List.of();
+        }
+        return Arrays.stream(taskDirs).sorted(Comparator.comparing(File::getName)).toList();
     }
 
     public boolean isCacheResults() {
@@ -179,11 +93,19 @@ public class MatlabMetrics {
         this.cacheResults = cacheResults;
     }
 
-    public DescriptiveStatistics getTotalTimeStats() {
+    /**
+     * Sets the thread pool in which the metrics files are read, for callers that collect the
+     * metrics of several pipeline steps at once.
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public StreamingStatistics getTotalTimeStats() {
         return totalTimeStats;
     }
 
-    public Map<String, DescriptiveStatistics> getFunctionStats() {
+    public Map<String, StreamingStatistics> getFunctionStats() {
         return functionStats;
     }
 
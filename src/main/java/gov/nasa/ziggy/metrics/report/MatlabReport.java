@@ -1,11 +1,11 @@
 package gov.nasa.ziggy.metrics.report;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.util.Map;
-import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.general.DefaultPieDataset;
 import org.slf4j.Logger;
@@ -16,13 +16,24 @@ public class MatlabReport extends Report {
     private final String pipelineStepName;
     private final File taskFilesDir;
     private final long instanceId;
+    private final ExecutorService executor;
 
     public MatlabReport(PdfRenderer pdfRenderer, File taskFilesDir, String pipelineStepName,
         long instanceId) {
+        this(pdfRenderer, taskFilesDir, pipelineStepName, instanceId, null);
+    }
+
+    /**
+     * @param executor the thread pool in which the metrics files are read, or null for a pool of
+     * the report's own
+     */
+    public MatlabReport(PdfRenderer pdfRenderer, File taskFilesDir, String pipelineStepName,
+        long instanceId, ExecutorService executor) {
         super(pdfRenderer);
         this.pipelineStepName = pipelineStepName;
         this.taskFilesDir = taskFilesDir;
         this.instanceId = instanceId;
+        this.executor = executor;
     }
 
     /**
@@ -35,12 +46,14 @@ public class MatlabReport extends Report {
     }
 
     private void generateExecTimeReport() {
-        MatlabMetrics matlabMetrics = new MatlabMetrics(taskFilesDir, pipelineStepName);
+        MatlabMetrics matlabMetrics = new MatlabMetrics(taskFilesDir, pipelineStepName,
+            instanceId);
+        matlabMetrics.setExecutor(executor);
         matlabMetrics.parseFiles();
 
-        DescriptiveStatistics matlabStats = matlabMetrics.getTotalTimeStats();
+        StreamingStatistics matlabStats = matlabMetrics.getTotalTimeStats();
 
-        Map<String, DescriptiveStatistics> matlabFunctionStats = matlabMetrics.getFunctionStats();
+        Map<String, StreamingStatistics> matlabFunctionStats = matlabMetrics.getFunctionStats();
 
         double totalTime = matlabStats.getSum();
         double otherTime = totalTime;
@@ -54,7 +67,7 @@ public class MatlabReport extends Report {
 
             log.info("Processing metric {}", label);
 
-            DescriptiveStatistics functionStats = matlabFunctionStats.get(metricName);
+            StreamingStatistics functionStats = matlabFunctionStats.get(metricName);
             double functionTime = functionStats.getSum();
             double fraction = functionTime / totalTime;
 
@@ -73,9 +86,9 @@ public class MatlabReport extends Report {
 
         pdfRenderer.newPage();
 
-        HumanReadableStatistics values = millisToHumanReadable(matlabStats);
+        String units = millisUnits(matlabStats.getMean());
         JFreeChart execHistogram = generateHistogram("MATLAB Controller Run Time",
-            "Time (" + values.getUnit() + ")", "Subtasks", values.getValues(), 100);
+            "Time (" + units + ")", "Subtasks", matlabStats, millisDivisor(units), 100);
 
         if (execHistogram != null) {
             pdfRenderer.printChart(execHistogram, CHART3_WIDTH, CHART3_HEIGHT);
@@ -85,37 +98,32 @@ public class MatlabReport extends Report {
 
         pdfRenderer.printText(" ");
 
-        generateSummaryTable("MATLAB Controller", matlabStats, matlabMetrics.getTopTen(),
-            new TimeMillisFormat());
+        generateSummaryTable("MATLAB Controller", matlabStats, matlabStats::getPercentile,
+            matlabMetrics.getTopTen(), new TimeMillisFormat());
 
         pdfRenderer.newPage();
     }
 
     private void generateMemoryReport() {
-        File[] taskDirs = taskFilesDir.listFiles(
-            (FileFilter) f -> f.getName().contains(pipelineStepName + "-") && f.isDirectory());
-
         DescriptiveStatistics memoryStats = new DescriptiveStatistics();
         TopNList topTen = new TopNList(10);
 
-        for (File taskDir : taskDirs) {
-            log.info("Processing {}", taskDir);
-
-            Memdrone memdrone = new Memdrone(pipelineStepName, instanceId);
-            Map<String, DescriptiveStatistics> taskStats = memdrone.statsByPid();
-            Map<String, String> pidMap = memdrone.subtasksByPid();
-
-            Set<String> pids = taskStats.keySet();
-            for (String pid : pids) {
-                String subtaskName = pidMap.get(pid);
-                if (subtaskName == null) {
-                    subtaskName = "?:" + pid;
-                }
-
-                double max = taskStats.get(pid).getMax();
-                memoryStats.addValue(max);
-                topTen.add((long) max, subtaskName);
+        // The memory usage of all of the step's tasks is recorded together, so the statistics are
+        // read once rather than once per task.
+        Memdrone memdrone = new Memdrone(pipelineStepName, instanceId);
+        Map<String, SummaryStatistics> taskStats = memdrone.statsByPid();
+        Map<String, String> pidMap = memdrone.subtasksByPid();
+
+        for (Map.Entry<String, SummaryStatistics> pidStats : taskStats.entrySet()) {
+            String pid = pidStats.getKey();
+            String subtaskName = pidMap.get(pid);
+            if (subtaskName == null) {
+                subtaskName = "?:" + pid;
             }
+
+            double max = pidStats.getValue().getMax();
+            memoryStats.addValue(max);
+            topTen.add((long) max, subtaskName);
         }
 
         JFreeChart memHistogram = generateHistogram("Peak Memory Usage", "Memory Usage (MB)",
@@ -1,74 +1,69 @@
 package gov.nasa.ziggy.metrics.report;
 
-import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FileFilter;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.Set;
-import java.util.regex.Matcher;
+import java.util.function.LongPredicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-import org.apache.commons.configuration2.ImmutableConfiguration;
-import org.apache.commons.exec.CommandLine;
-import org.apache.commons.exec.ExecuteWatchdog;
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.hibernate.engine.config.spi.ConfigurationService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 import gov.nasa.ziggy.services.config.DirectoryProperties;
 import gov.nasa.ziggy.services.config.PropertyName;
 import gov.nasa.ziggy.services.config.ZiggyConfiguration;
-import gov.nasa.ziggy.services.database.MatlabJavaInitialization;
-import gov.nasa.ziggy.services.process.ExternalProcess;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.HostNameUtils;
 import gov.nasa.ziggy.util.Iso8601Formatter;
-import gov.nasa.ziggy.util.SpotBugsUtils;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
 
 /**
  * Manages the generation and capture of memory usage statistics. A configuration property is used
  * to indicate whether such statistics are to be generated and captured. If so, they are stored in
- * text files in the log/memdrone directory under the pipeline results directory, with directories
- * for each pipeline node in each instance; the directories also have timestamps so that the most
- * recent directory can be identified.
+ * the log/memdrone directory under the pipeline results directory, with directories for each
+ * pipeline node in each instance; the directories also have timestamps so that the most recent
+ * directory can be identified.
  * <p>
- * Within a directory, memory statistics are stored in a text file, one per server / compute node.
- * The memory use of each process with the specified pipeline step name is determined using the ps
- * command at a user-specified interval. This is accomplished by running a shell script that
- * performs the ps command and appends it to the appropriate text file.
+ * Within a directory, memory statistics are stored in a binary time series file, one per server.
+ * The memory use of each algorithm process of the specified pipeline step is sampled at a
+ * user-specified interval by a {@link MemorySampler} running in the supervisor. The samples are
+ * aggregated for reports by streaming through the time series, so the samples never need to be
+ * held in memory or cached. Text logs written by the memdrone shell script that earlier versions
+ * of Ziggy used are still included in the statistics.
  *
  * @author PT
  */
 public class Memdrone {
     private static final Logger log = LoggerFactory.getLogger(Memdrone.class);
 
-    static final String MEMDRONE_STATS_CACHE_FILENAME = ".memdrone-stats-cache.ser";
-    static final String PID_MAP_CACHE_FILENAME = ".pid-map-cache.ser";
+    static final String MEMDRONE_FILENAME_PREFIX = "memdrone-";
+    static final String TIME_SERIES_FILENAME_SUFFIX = ".bin";
+    static final String TEXT_LOG_FILENAME_SUFFIX = ".txt";
+    private static final double SAMPLE_INTERVAL_SECONDS_DEFAULT = 60.0;
 
     /**
-     * Stores the relationship between the name root of a {@link Memdrone} instance and the
-     * {@link ExecuteWatchdog} associated with its running shell script. Must be static so that an
-     * instance of {@link Memdrone} other than the one that started the script is able to stop it.
+     * Stores the relationship between the name root of a {@link Memdrone} instance and its running
+     * {@link MemorySampler}. Must be static so that an instance of {@link Memdrone} other than the
+     * one that started the sampler is able to stop it.
      */
-    private static Map<String, ExecuteWatchdog> watchdogMap = new HashMap<>();
+    private static Map<String, MemorySampler> samplerByNameRoot = new HashMap<>();
+
+    /** Whether the shutdown hook that stops the running samplers has been added. */
+    private static boolean shutdownHookAdded;
 
     private final String binaryName;
     private final long instanceId;
@@ -92,6 +87,12 @@ public class Memdrone {
             .getBoolean(PropertyName.MEMDRONE_ENABLED.property(), false);
     }
 
+    /** Returns the interval between memory usage samples in milliseconds. */
+    static long sampleIntervalMillis() {
+        return Math.max(1L, Math.round(1000 * ZiggyConfiguration.getInstance()
+            .getDouble(PropertyName.MEMDRONE_SLEEP.property(), SAMPLE_INTERVAL_SECONDS_DEFAULT)));
+    }
+
     /**
      * Creates a new directory for the specified pipeline step name and instance ID. The directory
      * is created with the current time as its timestamp and is returned as a {@link Path} instance.
@@ -152,230 +153,153 @@ public class Memdrone {
     }
 
     /**
-     * Starts the shell script that acquires memory usage information. Before executing this, the
-     * user must create the directory for storing memory usage statistics.
+     * Starts sampling the memory usage of the algorithm processes for the pipeline step and
+     * instance, if they aren't already being sampled.
      */
     public void startMemdrone() {
-
-        ImmutableConfiguration config = ZiggyConfiguration.getInstance();
-        CommandLine commandLine = new CommandLine(
-            DirectoryProperties.ziggyBinDir().resolve("memdrone").toString());
-        commandLine.addArgument(binaryName);
-        commandLine.addArgument(config.getString(PropertyName.MEMDRONE_SLEEP.property(), "60"));
-        Path memdronePath = latestMemdronePath();
-        commandLine.addArgument(memdronePath.toString());
-        if (watchdogMap.containsKey(nameRoot)) {
-            log.info("Memdrone for pipeline step {}, instance {} already running", binaryName,
-                instanceId);
+        if (!MemorySampler.supported()) {
+            log.warn("Memory usage can't be sampled on this system, memdrone not started");
             return;
         }
+        synchronized (samplerByNameRoot) {
+            if (samplerByNameRoot.containsKey(nameRoot)) {
+                log.info("Memdrone for pipeline step {}, instance {} already running", binaryName,
+                    instanceId);
+                return;
+            }
 
-        log.info("Starting memdrone for pipeline step {} in instance {}", binaryName, instanceId);
-        ExternalProcess memdroneProcess = ExternalProcess.simpleExternalProcess(commandLine);
-        memdroneProcess.execute(false);
-        watchdogMap.put(nameRoot, memdroneProcess.getWatchdog());
+            log.info("Starting memdrone for pipeline step {} in instance {}", binaryName,
+                instanceId);
+            String host = HostNameUtils.shortHostName();
+            MemorySampler sampler = new MemorySampler(binaryName, instanceId,
+                latestMemdronePath()
+                    .resolve(MEMDRONE_FILENAME_PREFIX + host + TIME_SERIES_FILENAME_SUFFIX),
+                host);
+            sampler.start(sampleIntervalMillis());
+            samplerByNameRoot.put(nameRoot, sampler);
+            if (!shutdownHookAdded) {
+                ZiggyShutdownHook.addShutdownHook(() -> stopMemdrones(instanceId -> true));
+                shutdownHookAdded = true;
+            }
+        }
     }
 
     /**
-     * Stops the shell script that collects memory usage information.
+     * Stops sampling memory usage.
      */
     public void stopMemdrone() {
-        if (watchdogMap.containsKey(nameRoot)) {
+        MemorySampler sampler;
+        synchronized (samplerByNameRoot) {
+            sampler = samplerByNameRoot.remove(nameRoot);
+        }
+        if (sampler != null) {
             log.info("Stopping memdrone for pipeline step {} in instance {}", binaryName,
                 instanceId);
-            watchdogMap.get(nameRoot).destroyProcess();
+            sampler.stop();
             log.info("Memdrone stopped");
-            watchdogMap.remove(nameRoot);
         } else {
-            log.info("No memdrone script was running for pipeline step {} in instance {}",
-                binaryName, instanceId);
+            log.info("No memdrone was running for pipeline step {} in instance {}", binaryName,
+                instanceId);
         }
     }
 
     /**
-     * Collects the memory usage statistics for each process and returns as a {@link Map}. If the
-     * information has already been collected and serialized, it is deserialized and returned.
-     *
-     * @return a {@link Map} from process ID to memory usage time series
+     * Stops sampling memory usage for all the pipeline steps of the instances that match the given
+     * predicate.
      */
-    @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION",
-        justification = SpotBugsUtils.DESERIALIZATION_JUSTIFICATION)
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
-    public Map<String, DescriptiveStatistics> statsByPid() {
-        Path cacheFile = latestMemdronePath().resolve(MEMDRONE_STATS_CACHE_FILENAME);
-        Map<String, DescriptiveStatistics> taskStats = null;
-
-        if (Files.exists(cacheFile)) {
-            log.info("Using stats cache file");
-            try (ObjectInputStream ois = new ObjectInputStream(
-                new BufferedInputStream(new FileInputStream(cacheFile.toFile())))) {
-                @SuppressWarnings("unchecked")
-                Map<String, DescriptiveStatistics> obj = (Map<String, DescriptiveStatistics>) ois
-                    .readObject();
-                taskStats = obj;
-            } catch (IOException e) {
-                throw new UncheckedIOException(
-                    "IOException occurred reading from " + cacheFile.toString(), e);
-            } catch (ClassNotFoundException e) {
-                // This can never occur. This class both writes and reads the serialized
-                // Java object so the existence and use of the correct class is guaranteed.
-                throw new AssertionError(e);
-            }
-        } else { // no cache
-            log.info("Creating stats cache file");
-            taskStats = createStatsCache();
+    public static void stopMemdrones(LongPredicate instanceIdFilter) {
+        List<MemorySampler> samplers = new ArrayList<>();
+        synchronized (samplerByNameRoot) {
+            samplerByNameRoot.values().removeIf(sampler -> {
+                if (!instanceIdFilter.test(sampler.getInstanceId())) {
+                    return false;
+                }
+                samplers.add(sampler);
+                return true;
+            });
+        }
+        for (MemorySampler sampler : samplers) {
+            log.info("Stopping memdrone in instance {}", sampler.getInstanceId());
+            sampler.stop();
         }
-
-        return taskStats;
     }
 
-    /**
-     * Generates a {@link Map} between each process ID and the corresponding task/subtask. If the
-     * mapping has already been generated and serialized, it is deserialized and returned.
-     *
-     * @return {@link Map} from process ID to task information
-     */
-    @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION",
-        justification = SpotBugsUtils.DESERIALIZATION_JUSTIFICATION)
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
-    public Map<String, String> subtasksByPid() {
-        Path cacheFile = latestMemdronePath().resolve(PID_MAP_CACHE_FILENAME);
-        Map<String, String> pidToSubtask = null;
-
-        if (Files.exists(cacheFile)) {
-            log.info("Using PID cache file {}", cacheFile);
-            try (ObjectInputStream ois = new ObjectInputStream(
-                new BufferedInputStream(new FileInputStream(cacheFile.toFile())))) {
-                @SuppressWarnings("unchecked")
-                Map<String, String> obj = (Map<String, String>) ois.readObject();
-                pidToSubtask = obj;
-
-                log.debug("PID cache {}", obj);
-            } catch (IOException e) {
-                throw new UncheckedIOException(
-                    "IOException occurred reading from " + cacheFile.toString(), e);
-            } catch (ClassNotFoundException e) {
-                // This can never occur. The class used in the readObject() call is the
-                // same one used to write the file in the first place.
-                throw new AssertionError(e);
-            }
-        } else { // no cache
-            log.info("Creating PID cache file");
-            pidToSubtask = createPidMapCache();
+    /** Determines whether memory usage is being sampled for the pipeline step and instance. */
+    public boolean memdroneRunning() {
+        synchronized (samplerByNameRoot) {
+            return samplerByNameRoot.containsKey(nameRoot);
         }
-
-        return pidToSubtask;
     }
 
     /**
-     * Generates and serializes the {@link Map} between process ID and memory usage time series.
+     * Collects the memory usage statistics, in bytes, for each process and returns them as a
+     * {@link Map}. The keys are of the form {@code <host>:<pid>}.
+     *
+     * @return a {@link Map} from process ID to memory usage statistics
      */
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    public Map<String, DescriptiveStatistics> createStatsCache() {
-        Path latestMemdronePath = latestMemdronePath();
-        Path cacheFile = latestMemdronePath.resolve(MEMDRONE_STATS_CACHE_FILENAME);
-        Map<String, DescriptiveStatistics> taskStats = new HashMap<>();
-
-        File[] memdroneLogs = latestMemdronePath.toFile()
-            .listFiles((FileFilter) f -> f.getName().startsWith("memdrone-") && f.isFile());
-
-        if (memdroneLogs != null) {
-            log.info("Found {} memdrone-* files", memdroneLogs.length);
-
-            for (File memdroneLog : memdroneLogs) {
-                log.info("Processing {}", memdroneLog);
-
-                String filename = memdroneLog.getName();
-                String host = filename.substring(filename.indexOf("-") + 1, filename.indexOf("."));
-                MemdroneLog mLog = new MemdroneLog(memdroneLog);
-                Map<String, DescriptiveStatistics> contents = mLog.getLogContents();
-
-                Set<String> pids = contents.keySet();
-
-                for (String pid : pids) {
-                    taskStats.put(host + ":" + pid, contents.get(pid));
+    public Map<String, SummaryStatistics> statsByPid() {
+        Map<String, SummaryStatistics> taskStats = new HashMap<>();
+        readTimeSeries((host, timestampMillis, pid, rssKilobytes) -> taskStats
+            .computeIfAbsent(host + ":" + pid, key -> new SummaryStatistics())
+            .addValue(rssKilobytes * 1024.0));
+
+        for (File memdroneLog : memdroneFiles(TEXT_LOG_FILENAME_SUFFIX)) {
+            log.info("Processing {}", memdroneLog);
+            String filename = memdroneLog.getName();
+            String host = filename.substring(filename.indexOf("-") + 1, filename.indexOf("."));
+            for (Map.Entry<String, DescriptiveStatistics> pidStats : new MemdroneLog(memdroneLog)
+                .getLogContents()
+                .entrySet()) {
+                SummaryStatistics stats = taskStats
+                    .computeIfAbsent(host + ":" + pidStats.getKey(), key -> new SummaryStatistics());
+                for (double value : pidStats.getValue().getValues()) {
+                    stats.addValue(value);
                 }
             }
-
-            try (ObjectOutputStream oos = new ObjectOutputStream(
-                new BufferedOutputStream(new FileOutputStream(cacheFile.toFile())))) {
-                oos.writeObject(taskStats);
-                oos.flush();
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to write to file " + cacheFile.toString(),
-                    e);
-            }
         }
-
         return taskStats;
     }
 
     /**
-     * Generates and serializes the map between process ID and task/subtask.
+     * Returns the subtask that each process worked on, in the form
+     * {@code <task directory>/<subtask directory>}. The keys are of the form {@code <host>:<pid>}.
+     *
+     * @return {@link Map} from process ID to subtask
      */
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    public Map<String, String> createPidMapCache() {
-        Path cacheFile = latestMemdronePath().resolve(PID_MAP_CACHE_FILENAME);
+    public Map<String, String> subtasksByPid() {
         Map<String, String> pidToSubtask = new HashMap<>();
+        readTimeSeries(new MemoryTimeSeriesReader.Listener() {
+            @Override
+            public void process(String host, int pid, String subtask) {
+                pidToSubtask.put(host + ":" + pid, subtask);
+            }
 
-        log.info("cacheFile={}", cacheFile);
-
-        Pattern taskPattern = Pattern
-            .compile(binaryName + "-" + Long.toString(instanceId) + "-" + "\\d+");
-
-        // Find the task directories and loop over them.
-        File[] taskDirs = DirectoryProperties.taskDataDir()
-            .toFile()
-            .listFiles((FileFilter) f -> taskPattern.matcher(f.getName()).matches());
-        if (taskDirs != null) {
-            for (File taskDir : taskDirs) {
-                log.info("Processing task {}", taskDir.getName());
-                Matcher taskMatcher = taskPattern.matcher(taskDir.getName());
-                taskMatcher.matches();
-                String taskDirName = taskDir.getName();
-                taskDirName = taskDirName.substring(taskDirName.lastIndexOf("-") + 1);
-
-                // Find the subtask directories and loop over them.
-                File[] subtaskDirs = taskDir
-                    .listFiles((FileFilter) f -> f.getName().contains("st-") && f.isDirectory());
-                if (subtaskDirs != null) {
-                    for (File subtaskDir : subtaskDirs) {
-                        String subtaskId = taskDirName + "/" + subtaskDir.getName();
-                        log.debug("Processing subtaskId {}", subtaskId);
-
-                        // Get the contents of the PID filename and populate the map
-                        File pidsFile = new File(subtaskDir,
-                            MatlabJavaInitialization.MATLAB_PIDS_FILENAME);
-                        if (pidsFile.exists()) {
-                            String hostPid;
-                            try {
-                                hostPid = FileUtils.readFileToString(pidsFile,
-                                    MatlabJavaInitialization.PID_FILE_CHARSET);
-                            } catch (IOException e) {
-                                throw new UncheckedIOException(
-                                    "Unable to read from file " + pidsFile.toString(), e);
-                            }
+            @Override
+            public void sample(String host, long timestampMillis, int pid, long rssKilobytes) {
+            }
+        });
+        return pidToSubtask;
+    }
 
-                            pidToSubtask.put(hostPid, subtaskId);
-                        }
-                    }
-                }
+    /** Streams the records of all the time series in the latest directory to the listener. */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private void readTimeSeries(MemoryTimeSeriesReader.Listener listener) {
+        for (File timeSeriesFile : memdroneFiles(TIME_SERIES_FILENAME_SUFFIX)) {
+            log.info("Processing {}", timeSeriesFile);
+            try (MemoryTimeSeriesReader reader = new MemoryTimeSeriesReader(
+                timeSeriesFile.toPath())) {
+                reader.read(listener);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to read from file " + timeSeriesFile, e);
             }
         }
+    }
 
-        try (
-
-            ObjectOutputStream oos = new ObjectOutputStream(new BufferedOutputStream(
-                new FileOutputStream(cacheFile.toAbsolutePath().toString())))) {
-            oos.writeObject(pidToSubtask);
-            oos.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException("Unable to write to file " + cacheFile.toString(), e);
-        }
-        return pidToSubtask;
+    private List<File> memdroneFiles(String suffix) {
+        File[] files = latestMemdronePath().toFile()
+            .listFiles(f -> f.getName().startsWith(MEMDRONE_FILENAME_PREFIX)
+                && f.getName().endsWith(suffix) && f.isFile());
+        return files != null ? List.of(files) : List.of();
     }
 
     private Date date() {
@@ -0,0 +1,207 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.pipeline.step.subtask.SubtaskUtils;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+
+/**
+ * Samples the memory usage of the algorithm processes of a pipeline step and writes it to a
+ * {@link MemoryTimeSeriesWriter time series}.
+ * <p>
+ * The sampler runs in the JVM that launches the algorithms, and reads what it needs from the
+ * {@code /proc} file system rather than running {@code ps}. At each sample, it looks for
+ * descendants of the JVM whose working directory is a subtask directory of one of the step's tasks
+ * in the pipeline instance; those are the algorithm processes and any processes that they start.
+ * The working directory also identifies the subtask that each process is working on, which is
+ * recorded in the time series with the process ID. The resident set size of each process is read
+ * from {@code /proc/<pid>/status}.
+ * <p>
+ * Processes can exit at any point during a sample, so a process that disappears is simply left out
+ * of that sample. On systems without a {@code /proc} file system, no samples are taken.
+ */
+class MemorySampler {
+    private static final Logger log = LoggerFactory.getLogger(MemorySampler.class);
+
+    private static final Path PROC_PATH = Paths.get("/proc");
+    private static final String RSS_FIELD = "VmRSS:";
+
+    private final long instanceId;
+    private final Path timeSeriesFile;
+    private final String host;
+    private final Pattern taskDirPattern;
+
+    /** Subtask of each process as of its last sample, by process ID. */
+    private final Map<Integer, String> subtaskByPid = new HashMap<>();
+
+    private int[] pids = new int[16];
+    private int[] rssKilobytes = new int[16];
+    private MemoryTimeSeriesWriter writer;
+    private ScheduledThreadPoolExecutor executor;
+
+    public MemorySampler(String pipelineStepName, long instanceId, Path timeSeriesFile,
+        String host) {
+        this.instanceId = instanceId;
+        this.timeSeriesFile = timeSeriesFile;
+        this.host = host;
+        taskDirPattern = Pattern.compile(
+            instanceId + "-\\d+-" + Pattern.quote(pipelineStepName.replace(" ", "_")));
+    }
+
+    public long getInstanceId() {
+        return instanceId;
+    }
+
+    /** Determines whether memory usage can be sampled on this system. */
+    public static boolean supported() {
+        return Files.isDirectory(PROC_PATH.resolve("self"));
+    }
+
+    /** Starts sampling at the given interval. */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public synchronized void start(long intervalMillis) {
+        if (executor != null) {
+            return;
+        }
+        try {
+            writer = new MemoryTimeSeriesWriter(timeSeriesFile, host);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to open " + timeSeriesFile, e);
+        }
+        executor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "MemorySampler");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::sampleSafely, 0L, intervalMillis,
+            TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops sampling and closes the time series. */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    public void stop() {
+        ScheduledThreadPoolExecutor executorToStop;
+        synchronized (this) {
+            executorToStop = executor;
+            executor = null;
+        }
+        if (executorToStop == null) {
+            return;
+        }
+        executorToStop.shutdownNow();
+        try {
+            executorToStop.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                log.warn("Unable to close {}", timeSeriesFile, e);
+            }
+        }
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_IN_RUNNABLE)
+    private void sampleSafely() {
+        try {
+            sample();
+        } catch (Exception e) {
+            log.warn("Unable to sample memory usage", e);
+        }
+    }
+
+    /**
+     * Takes one sample of each algorithm process and writes it to the time series. Nothing is
+     * written if no algorithm processes are running.
+     */
+    synchronized void sample() throws IOException {
+        long timestampMillis = System.currentTimeMillis();
+        int sampleCount = 0;
+        for (ProcessHandle process : ProcessHandle.current().descendants().toList()) {
+            int pid = (int) process.pid();
+            String subtask = subtask(pid);
+            if (subtask == null) {
+                continue;
+            }
+            long rss = rssKilobytes(pid);
+            if (rss < 0) {
+                continue;
+            }
+            if (!subtask.equals(subtaskByPid.put(pid, subtask))) {
+                writer.writeProcess(pid, subtask);
+            }
+            if (sampleCount == pids.length) {
+                pids = Arrays.copyOf(pids, 2 * sampleCount);
+                rssKilobytes = Arrays.copyOf(rssKilobytes, 2 * sampleCount);
+            }
+            pids[sampleCount] = pid;
+            rssKilobytes[sampleCount++] = (int) rss;
+        }
+        if (sampleCount == 0) {
+            return;
+        }
+        writer.writeSamples(timestampMillis, pids, rssKilobytes, sampleCount);
+        writer.flush();
+    }
+
+    /**
+     * Returns the subtask that the given process is working on, in the form
+     * {@code <task directory>/<subtask directory>}, or null if the process isn't working on a
+     * subtask of this sampler's tasks.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private String subtask(int pid) {
+        Path workingDir;
+        try {
+            workingDir = Files.readSymbolicLink(procPath(pid).resolve("cwd"));
+        } catch (IOException | UnsupportedOperationException e) {
+            // The process has exited, or belongs to another user.
+            return null;
+        }
+        Path taskDir = workingDir.getParent();
+        if (workingDir.getFileName() == null || taskDir == null || taskDir.getFileName() == null
+            || !workingDir.getFileName().toString().matches(SubtaskUtils.SUBTASK_DIR_REGEXP)
+            || !taskDirPattern.matcher(taskDir.getFileName().toString()).matches()) {
+            return null;
+        }
+        return taskDir.getFileName() + "/" + workingDir.getFileName();
+    }
+
+    /** Returns the resident set size of the process in kilobytes, or -1 if it has exited. */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private long rssKilobytes(int pid) {
+        try {
+            for (String line : Files.readAllLines(procPath(pid).resolve("status"))) {
+                if (line.startsWith(RSS_FIELD)) {
+
+                    // For example, "VmRSS:     12345 kB".
+                    String rss = line.substring(RSS_FIELD.length()).trim();
+                    return Long.parseLong(rss.substring(0, rss.indexOf(' ')));
+                }
+            }
+        } catch (IOException e) {
+            // The process has exited.
+        }
+        return -1;
+    }
+
+    private Path procPath(int pid) {
+        return PROC_PATH.resolve(Integer.toString(pid));
+    }
+}
@@ -0,0 +1,98 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Streams the records of a memory usage time series written by {@link MemoryTimeSeriesWriter} to a
+ * {@link Listener}, so that the series can be aggregated without holding the samples in memory.
+ * <p>
+ * The series may still be growing while it is read, in which case reading stops at the end of the
+ * data written so far.
+ */
+class MemoryTimeSeriesReader implements Closeable {
+
+    /** Receives the records of a memory usage time series. */
+    interface Listener {
+
+        /** Called when a process is first seen working on a subtask. */
+        default void process(String host, int pid, String subtask) {
+        }
+
+        /** Called for each sample. */
+        void sample(String host, long timestampMillis, int pid, long rssKilobytes);
+    }
+
+    private final Path file;
+    private final DataInputStream input;
+    private final String host;
+
+    @AcceptableCatchBlock(rationale = Rationale.CLEANUP_BEFORE_EXIT)
+    public MemoryTimeSeriesReader(Path file) throws IOException {
+        this.file = file;
+        input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)));
+        try {
+            if (input.readInt() != MemoryTimeSeriesWriter.MAGIC) {
+                throw new PipelineException(file + " is not a memory usage time series");
+            }
+            byte version = input.readByte();
+            if (version != MemoryTimeSeriesWriter.VERSION) {
+                throw new PipelineException(
+                    "Unsupported memory usage time series version " + version + " in " + file);
+            }
+            host = input.readUTF();
+        } catch (IOException | PipelineException e) {
+            input.close();
+            throw e;
+        }
+    }
+
+    /** Returns the name of the host on which the samples were taken. */
+    public String getHost() {
+        return host;
+    }
+
+    /** Passes each record in the series to the given listener. */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    public void read(Listener listener) throws IOException {
+        try {
+            while (true) {
+                byte recordType = input.readByte();
+                switch (recordType) {
+                    case MemoryTimeSeriesWriter.PROCESS_RECORD -> {
+                        int pid = input.readInt();
+                        listener.process(host, pid, input.readUTF());
+                    }
+                    case MemoryTimeSeriesWriter.SAMPLES_RECORD -> readSamples(listener);
+                    default -> throw new PipelineException(
+                        "Unknown record type " + recordType + " in " + file);
+                }
+            }
+        } catch (EOFException e) {
+            // The end of the series, or of the records written so far.
+        }
+    }
+
+    private void readSamples(Listener listener) throws IOException {
+        long timestampMillis = input.readLong();
+        int count = input.readInt();
+        for (int i = 0; i < count; i++) {
+            int pid = input.readInt();
+            listener.sample(host, timestampMillis, pid, input.readInt());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
@@ -0,0 +1,80 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes the memory usage time series collected by {@link MemorySampler}.
+ * <p>
+ * The file starts with a header that contains {@link #MAGIC}, {@link #VERSION}, and the name of the
+ * host on which the samples were taken. A series of records follows, each of which starts with a
+ * byte that identifies its type:
+ * <dl>
+ * <dt>{@link #PROCESS_RECORD}</dt>
+ * <dd>A process ID (int) and the subtask that the process is working on (UTF string). Each process
+ * is recorded before its first sample, and again if its ID is reused by a process that is working
+ * on a different subtask.</dd>
+ * <dt>{@link #SAMPLES_RECORD}</dt>
+ * <dd>The time of the samples in milliseconds since the epoch (long), the number of samples (int),
+ * and the process ID (int) and resident set size in kilobytes (int) of each sample.</dd>
+ * </dl>
+ * A file that already exists is appended to, so sampling can be stopped and started again for the
+ * same pipeline instance. A sample therefore costs 8 bytes rather than the 40 or so bytes of a line
+ * of the memdrone text log.
+ */
+class MemoryTimeSeriesWriter implements Closeable {
+
+    static final int MAGIC = 0x5A4D454D;
+    static final byte VERSION = 1;
+    static final byte PROCESS_RECORD = 1;
+    static final byte SAMPLES_RECORD = 2;
+
+    private final DataOutputStream output;
+
+    public MemoryTimeSeriesWriter(Path file, String host) throws IOException {
+        boolean newFile = !Files.exists(file) || Files.size(file) == 0;
+        output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+            StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+        if (newFile) {
+            output.writeInt(MAGIC);
+            output.writeByte(VERSION);
+            output.writeUTF(host);
+        }
+    }
+
+    public void writeProcess(int pid, String subtask) throws IOException {
+        output.writeByte(PROCESS_RECORD);
+        output.writeInt(pid);
+        output.writeUTF(subtask);
+    }
+
+    /**
+     * Writes the samples taken at the given time. The process IDs and resident set sizes are given
+     * in parallel arrays, of which the first {@code count} elements are used.
+     */
+    public void writeSamples(long timestampMillis, int[] pids, int[] rssKilobytes, int count)
+        throws IOException {
+        output.writeByte(SAMPLES_RECORD);
+        output.writeLong(timestampMillis);
+        output.writeInt(count);
+        for (int i = 0; i < count; i++) {
+            output.writeInt(pids[i]);
+            output.writeInt(rssKilobytes[i]);
+        }
+    }
+
+    /** Writes buffered records to the file so that they can be read while sampling continues. */
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
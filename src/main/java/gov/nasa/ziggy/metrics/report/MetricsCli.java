@@ -35,12 +35,20 @@
 package gov.nasa.ziggy.metrics.report;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.Stream;
 
 import gov.nasa.ziggy.metrics.Metric;
 import gov.nasa.ziggy.metrics.MetricType;
+import gov.nasa.ziggy.metrics.MetricsFile;
 import gov.nasa.ziggy.metrics.MetricsOperations;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 import gov.nasa.ziggy.util.TimeRange;
 
 /**
@@ -50,6 +58,9 @@ import gov.nasa.ziggy.util.TimeRange;
  */
 public class MetricsCli {
 
+    /** Names of the metrics files written by algorithms, such as metrics-0.ser. */
+    private static final String METRICS_FILE_REGEXP = "metrics-\\d+\\.ser";
+
     private MetricsOperations metricsOperations = new MetricsOperations();
 
     public MetricsCli() {
@@ -63,6 +74,8 @@ public class MetricsCli {
             dumpMetricsFileCommand(args);
         } else if (command.equals("report") || command.equals("r")) {
             generateMetricsReportCommand(args);
+        } else if (command.equals("convert") || command.equals("c")) {
+            convertMetricsFilesCommand(args);
         } else {
             handleError("Unknown command: " + printCommandLine(args));
         }
@@ -96,13 +109,15 @@ public class MetricsCli {
     }
 
     private void dumpMetricsFileCommand(String[] args) {
-        if (args.length == 2) {
+        if (args.length == 2 || args.length == 3) {
             File file = new File(args[1]);
             if (!file.exists() || !file.isFile()) {
                 handleError("Specified file is not a regular file or does not exist: " + file);
             }
 
-            Map<String, Metric> metrics = Metric.loadMetricsFromSerializedFile(file);
+            String prefix = args.length == 3 ? args[2] : "";
+            Map<String, Metric> metrics = MetricsFile.read(file.toPath(),
+                metricName -> metricName.startsWith(prefix));
 
             System.out.println(file + " contains " + metrics.size() + " metrics.");
 
@@ -114,6 +129,35 @@ public class MetricsCli {
         }
     }
 
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private void convertMetricsFilesCommand(String[] args) {
+        if (args.length == 2) {
+            File dir = new File(args[1]);
+            if (!dir.exists() || !dir.isDirectory()) {
+                handleError("Specified file is not a directory or does not exist: " + dir);
+            }
+
+            List<Path> metricsFiles;
+            try (Stream<Path> paths = Files.walk(dir.toPath())) {
+                metricsFiles = paths
+                    .filter(p -> p.getFileName().toString().matches(METRICS_FILE_REGEXP))
+                    .filter(Files::isRegularFile)
+                    .toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to list files in " + dir, e);
+            }
+            int convertedCount = 0;
+            for (Path metricsFile : metricsFiles) {
+                if (MetricsFile.convert(metricsFile)) {
+                    convertedCount++;
+                }
+            }
+            System.out.println("Converted " + convertedCount + " metrics files.");
+        } else {
+            handleError("DIR must be specified");
+        }
+    }
+
     private void handleError(String message) {
         System.err.println(message);
         usage();
@@ -134,9 +178,12 @@ public class MetricsCli {
         System.out
             .println("    a[vailable] : display available types and time ranges for each type.");
         System.out.println(
-            "    d[ump] FILE : Dump the contents of a serialized metrics file (metrics.ser)");
+            "    d[ump] FILE [PREFIX] : Dump the contents of a metrics file (metrics.ser), or of");
+        System.out.println("      the metrics whose names start with PREFIX");
         System.out.println(
             "    r[eport] DIR : Generate an aggregate report (PDF) from a tree of metrics.ser files");
+        System.out.println(
+            "    c[onvert] DIR : Convert a tree of metrics-N.ser files from Java serialization");
     }
 
     public static void main(String[] args) {
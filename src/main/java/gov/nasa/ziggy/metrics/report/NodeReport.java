@@ -1,12 +1,13 @@
 package gov.nasa.ziggy.metrics.report;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.HashMap;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PriorityQueue;
 
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.jfree.chart.JFreeChart;
 import org.jfree.data.category.DefaultCategoryDataset;
 import org.slf4j.Logger;
@@ -19,15 +20,30 @@ import gov.nasa.ziggy.pipeline.definition.PipelineTask;
 import gov.nasa.ziggy.pipeline.definition.PipelineTaskMetric;
 import gov.nasa.ziggy.pipeline.definition.PipelineTaskMetric.Units;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDataOperations;
-import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskOperations;
 
+/**
+ * Reports the {@link PipelineTaskMetric}s of the tasks of a pipeline instance node.
+ * <p>
+ * The metrics are streamed from the database and reduced to a {@link StreamingStatistics} and a
+ * {@link TopNList} per category, and the tasks with the longest wall times are kept for the chart
+ * of the wall time of each task, so the memory needed doesn't grow with the number of tasks in the
+ * node.
+ */
 public class NodeReport extends Report {
     private static final Logger log = LoggerFactory.getLogger(NodeReport.class);
+
+    /** The largest number of tasks shown in the chart of the wall time of each task. */
+    static final int MAX_CHART_TASKS = 100;
+    private static final int TOP_N_LENGTH = 10;
+    private static final double MINUTE_MILLIS = 1000.0 * 60;
+
     private List<String> orderedCategoryNames;
-    private Map<String, DescriptiveStatistics> categoryStats;
+    private Map<String, StreamingStatistics> categoryStats;
     private Map<String, TopNList> categoryTopTen;
     private Map<String, Units> categoryUnits;
-    private PipelineTaskOperations pipelineTaskOperations = new PipelineTaskOperations();
+    private PriorityQueue<TaskTimes> longestTasks;
+    private TaskTimes currentTaskTimes;
+    private int timedTaskCount;
     private PipelineTaskDataOperations pipelineTaskDataOperations = new PipelineTaskDataOperations();
 
     public NodeReport(PdfRenderer pdfRenderer) {
@@ -38,78 +54,16 @@ public class NodeReport extends Report {
         String pipelineStepName = node.getPipelineStepName();
         pdfRenderer.printText("Pipeline Step: " + pipelineStepName, PdfRenderer.h1Font);
 
-        categoryStats = new HashMap<>();
-        categoryTopTen = new HashMap<>();
-
-        Map<String, List<PipelineTaskMetricValue>> categoryMetrics = new HashMap<>();
-        categoryUnits = new HashMap<>();
-
-        orderedCategoryNames = new LinkedList<>();
-
-        Map<PipelineTask, List<PipelineTaskMetric>> taskMetricsByTask = pipelineTaskDataOperations()
-            .taskMetricsByTask(node);
-
-        for (PipelineTask task : taskMetricsByTask.keySet()) {
-            for (PipelineTaskMetric taskMetric : taskMetricsByTask.get(task)) {
-                String category = taskMetric.getCategory();
-
-                categoryUnits.put(category, taskMetric.getUnits());
-
-                long value = taskMetric.getValue();
-
-                if (!orderedCategoryNames.contains(category)) {
-                    orderedCategoryNames.add(category);
-                }
-
-                DescriptiveStatistics stats = categoryStats.get(category);
-
-                if (stats == null) {
-                    stats = new DescriptiveStatistics();
-                    categoryStats.put(category, stats);
-                }
-
-                stats.addValue(value);
-
-                TopNList topTen = categoryTopTen.get(category);
-
-                if (topTen == null) {
-                    topTen = new TopNList(10);
-                    categoryTopTen.put(category, topTen);
-                }
-
-                topTen.add(value, "ID: " + task);
-
-                List<PipelineTaskMetricValue> valueList = categoryMetrics.get(category);
-
-                if (valueList == null) {
-                    valueList = new ArrayList<>(taskMetricsByTask.size());
-                    categoryMetrics.put(category, valueList);
-                }
-
-                valueList.add(new PipelineTaskMetricValue(task, value));
-            }
-        }
-
-        DefaultCategoryDataset categoryTaskDataset = new DefaultCategoryDataset();
+        collectMetrics(node);
 
         log.info("Summary report");
 
-        for (String category : orderedCategoryNames) {
-            log.info("Processing category {}", category);
-
-            if (categoryIsTime(category)) {
-                List<PipelineTaskMetricValue> values = categoryMetrics.get(category);
-                for (PipelineTaskMetricValue value : values) {
-                    Long taskId = value.getPipelineTask().getId();
-                    Long valueMillis = value.getMetricValue();
-                    double valueMins = valueMillis / (1000.0 * 60);
-                    categoryTaskDataset.addValue(valueMins, category, taskId);
-                }
-            }
+        String title = "Wall Time Breakdown by Task and Category";
+        if (timedTaskCount > MAX_CHART_TASKS) {
+            title += " (" + MAX_CHART_TASKS + " Longest of " + timedTaskCount + " Tasks)";
         }
-
-        JFreeChart stackedBar = generateStackedBarChart("Wall Time Breakdown by Task and Category",
-            "Tasks", "Time (mins)", categoryTaskDataset);
+        JFreeChart stackedBar = generateStackedBarChart(title, "Tasks", "Time (mins)",
+            chartDataset());
 
         pdfRenderer.printChart(stackedBar, CHART2_WIDTH, CHART2_HEIGHT);
 
@@ -133,7 +87,7 @@ public class NodeReport extends Report {
 
         for (String category : orderedCategoryNames) {
             if (categoryIsTime(category)) {
-                DescriptiveStatistics stats = categoryStats.get(category);
+                StreamingStatistics stats = categoryStats.get(category);
 
                 addCell(breakdownTable, category);
                 addCell(breakdownTable, formatValue(category, stats.getMean()));
@@ -148,6 +102,86 @@ public class NodeReport extends Report {
         pdfRenderer.add(breakdownTable);
     }
 
+    /** Reduces the metrics of the tasks of the given node to the statistics of the report. */
+    void collectMetrics(PipelineInstanceNode node) {
+        orderedCategoryNames = new ArrayList<>();
+        categoryStats = new HashMap<>();
+        categoryTopTen = new HashMap<>();
+        categoryUnits = new HashMap<>();
+        longestTasks = new PriorityQueue<>(MAX_CHART_TASKS + 1,
+            Comparator.comparingLong(TaskTimes::getTotalTime)
+                .thenComparing(TaskTimes::getTaskId, Comparator.reverseOrder()));
+        currentTaskTimes = null;
+        timedTaskCount = 0;
+
+        pipelineTaskDataOperations().forEachTaskMetric(node, this::addTaskMetric);
+        addTaskTimes(currentTaskTimes);
+    }
+
+    private void addTaskMetric(long taskId, PipelineTaskMetric taskMetric) {
+        String category = taskMetric.getCategory();
+        long value = taskMetric.getValue();
+
+        categoryUnits.put(category, taskMetric.getUnits());
+
+        StreamingStatistics stats = categoryStats.get(category);
+        if (stats == null) {
+            orderedCategoryNames.add(category);
+            stats = new StreamingStatistics();
+            categoryStats.put(category, stats);
+        }
+        stats.addValue(value);
+
+        categoryTopTen.computeIfAbsent(category, c -> new TopNList(TOP_N_LENGTH))
+            .add(value, "ID: " + taskId);
+
+        // The metrics arrive in order of task ID, so a task's times are complete when the metrics
+        // of the next task start.
+        if (taskMetric.getUnits() == Units.TIME) {
+            if (currentTaskTimes == null || currentTaskTimes.getTaskId() != taskId) {
+                addTaskTimes(currentTaskTimes);
+                currentTaskTimes = new TaskTimes(taskId);
+            }
+            currentTaskTimes.add(category, value);
+        }
+    }
+
+    private void addTaskTimes(TaskTimes taskTimes) {
+        if (taskTimes == null) {
+            return;
+        }
+        timedTaskCount++;
+        longestTasks.add(taskTimes);
+        if (longestTasks.size() > MAX_CHART_TASKS) {
+            longestTasks.poll();
+        }
+    }
+
+    /**
+     * Returns the time in each time category of the tasks in the wall time chart, which are the
+     * {@value #MAX_CHART_TASKS} tasks with the longest total time, in order of task ID.
+     */
+    DefaultCategoryDataset chartDataset() {
+        List<TaskTimes> chartTasks = new ArrayList<>(longestTasks);
+        chartTasks.sort(Comparator.comparingLong(TaskTimes::getTaskId));
+
+        DefaultCategoryDataset categoryTaskDataset = new DefaultCategoryDataset();
+        for (String category : orderedCategoryNames) {
+            if (!categoryIsTime(category)) {
+                continue;
+            }
+            log.info("Processing category {}", category);
+            for (TaskTimes taskTimes : chartTasks) {
+                Long valueMillis = taskTimes.getTimeByCategory().get(category);
+                if (valueMillis != null) {
+                    categoryTaskDataset.addValue(valueMillis / MINUTE_MILLIS, category,
+                        Long.valueOf(taskTimes.getTaskId()));
+                }
+            }
+        }
+        return categoryTaskDataset;
+    }
+
     protected String formatValue(String category, double value) {
         if (categoryIsTime(category)) {
             return formatTime((long) value);
@@ -165,7 +199,7 @@ public class NodeReport extends Report {
         return orderedCategoryNames;
     }
 
-    public Map<String, DescriptiveStatistics> getCategoryStats() {
+    public Map<String, StreamingStatistics> getCategoryStats() {
         return categoryStats;
     }
 
@@ -177,35 +211,38 @@ public class NodeReport extends Report {
         return categoryUnits;
     }
 
-    PipelineTaskOperations pipelineTaskOperations() {
-        return pipelineTaskOperations;
-    }
-
     PipelineTaskDataOperations pipelineTaskDataOperations() {
         return pipelineTaskDataOperations;
     }
 
     /**
-     * Container for the ID of a {@link PipelineTask} and a metric value.
-     *
-     * @author PT
+     * Container for the ID of a {@link PipelineTask} and its time in each time category.
      */
-    private static class PipelineTaskMetricValue {
+    private static class TaskTimes {
 
-        private final PipelineTask pipelineTask;
-        private final long metricValue;
+        private final long taskId;
+        private final Map<String, Long> timeByCategory = new LinkedHashMap<>();
+        private long totalTime;
+
+        public TaskTimes(long taskId) {
+            this.taskId = taskId;
+        }
+
+        public void add(String category, long timeMillis) {
+            timeByCategory.merge(category, timeMillis, Long::sum);
+            totalTime += timeMillis;
+        }
 
-        public PipelineTaskMetricValue(PipelineTask pipelineTask, long metricValue) {
-            this.pipelineTask = pipelineTask;
-            this.metricValue = metricValue;
+        public long getTaskId() {
+            return taskId;
         }
 
-        public PipelineTask getPipelineTask() {
-            return pipelineTask;
+        public Map<String, Long> getTimeByCategory() {
+            return timeByCategory;
         }
 
-        public long getMetricValue() {
-            return metricValue;
+        public long getTotalTime() {
+            return totalTime;
         }
     }
 }
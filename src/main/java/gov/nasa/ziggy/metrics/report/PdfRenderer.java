@@ -68,6 +68,15 @@ public class PdfRenderer {
         }
     }
 
+    /**
+     * Creates a renderer without a document, for subclasses that collect content to be written to
+     * the document of another renderer.
+     */
+    protected PdfRenderer(boolean portrait) {
+        this.portrait = portrait;
+        pdfWriter = null;
+    }
+
     public void close() {
         // release resources
         pdfDocument.close();
@@ -78,9 +87,15 @@ public class PdfRenderer {
     /**
      * Render the chart to the document.
      */
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
     public void printChart(JFreeChart chart, int width, int height) {
-        BufferedImage bufferedImage = chart.createBufferedImage(width, height);
+        printImage(chart.createBufferedImage(width, height));
+    }
+
+    /**
+     * Render an image, such as a chart that has already been rendered, to the document.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public void printImage(BufferedImage bufferedImage) {
         Image image;
         try {
             image = Image.getInstance(pdfWriter, bufferedImage, 1.0f);
@@ -93,9 +108,16 @@ public class PdfRenderer {
     /**
      * Render the chart to the next cell of the specified {@link PdfPTable}
      */
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
     public void printChart(PdfPTable table, JFreeChart chart, int width, int height) {
-        BufferedImage bufferedImage = chart.createBufferedImage(width, height);
+        printImage(table, chart.createBufferedImage(width, height));
+    }
+
+    /**
+     * Render an image, such as a chart that has already been rendered, to the next cell of the
+     * specified {@link PdfPTable}.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public void printImage(PdfPTable table, BufferedImage bufferedImage) {
         Image image;
         try {
             image = Image.getInstance(pdfWriter, bufferedImage, 1.0f);
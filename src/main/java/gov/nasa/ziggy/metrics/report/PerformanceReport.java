@@ -39,8 +39,13 @@ import java.io.IOException;
 import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.CommandLineParser;
@@ -48,7 +53,6 @@ import org.apache.commons.cli.DefaultParser;
 import org.apache.commons.cli.HelpFormatter;
 import org.apache.commons.cli.Options;
 import org.apache.commons.cli.ParseException;
-import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -124,9 +128,7 @@ public class PerformanceReport {
         } else {
             pdfRenderer.newPage();
 
-            for (PipelineInstanceNode node : nodesToProcess) {
-                generateNodeReport(pdfRenderer, node);
-            }
+            generateNodeReports(pdfRenderer, nodesToProcess);
         }
 
         pdfRenderer.newPage();
@@ -154,7 +156,43 @@ public class PerformanceReport {
         return instanceNodes.subList(startNode, endNode + 1);
     }
 
-    private void generateNodeReport(PdfRenderer pdfRenderer, PipelineInstanceNode node) {
+    /**
+     * Generates the reports of the nodes in parallel, each in its own {@link DeferredPdfRenderer},
+     * and writes them to the document in order as they complete. The node reports share one pool
+     * for reading the subtask metrics files, so the number of threads reading files doesn't grow
+     * with the number of nodes.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private void generateNodeReports(PdfRenderer pdfRenderer, List<PipelineInstanceNode> nodes) {
+        int processorCount = Runtime.getRuntime().availableProcessors();
+        ExecutorService threadPool = Executors
+            .newFixedThreadPool(Math.min(nodes.size(), processorCount));
+        ExecutorService metricsThreadPool = Executors.newFixedThreadPool(processorCount);
+        try {
+            List<Future<DeferredPdfRenderer>> nodeReports = new ArrayList<>();
+            for (PipelineInstanceNode node : nodes) {
+                nodeReports.add(threadPool.submit(() -> {
+                    DeferredPdfRenderer nodePdfRenderer = new DeferredPdfRenderer(
+                        pdfRenderer.isPortrait());
+                    generateNodeReport(nodePdfRenderer, node, metricsThreadPool);
+                    return nodePdfRenderer;
+                }));
+            }
+            for (Future<DeferredPdfRenderer> nodeReport : nodeReports) {
+                DeferredPdfRenderer nodePdfRenderer = nodeReport.get();
+                nodePdfRenderer.writeTo(pdfRenderer);
+                nodePdfRenderer.close();
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new PipelineException("Exception occurred generating node reports", e);
+        } finally {
+            threadPool.shutdownNow();
+            metricsThreadPool.shutdownNow();
+        }
+    }
+
+    private void generateNodeReport(PdfRenderer pdfRenderer, PipelineInstanceNode node,
+        ExecutorService metricsThreadPool) {
         String pipelineStepName = node.getPipelineStepName();
 
         NodeReport nodeReport = new NodeReport(pdfRenderer);
@@ -165,7 +203,7 @@ public class PerformanceReport {
         if (taskFilesDir != null) {
             // generate matlab report
             MatlabReport matlabReport = new MatlabReport(pdfRenderer, taskFilesDir,
-                pipelineStepName, instanceId);
+                pipelineStepName, instanceId, metricsThreadPool);
             matlabReport.generateReport();
         } else {
             pdfRenderer.printText(
@@ -178,7 +216,7 @@ public class PerformanceReport {
         log.info("Category report");
 
         List<String> orderedCategoryNames = nodeReport.getOrderedCategoryNames();
-        Map<String, DescriptiveStatistics> categoryStats = nodeReport.getCategoryStats();
+        Map<String, StreamingStatistics> categoryStats = nodeReport.getCategoryStats();
         Map<String, TopNList> topTen = nodeReport.getCategoryTopTen();
 
         for (String category : orderedCategoryNames) {
@@ -2,9 +2,11 @@ package gov.nasa.ziggy.metrics.report;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.DoubleUnaryOperator;
 
 import org.apache.commons.lang3.time.DurationFormatUtils;
 import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
 import org.jfree.chart.ChartFactory;
 import org.jfree.chart.JFreeChart;
 import org.jfree.chart.axis.NumberAxis;
@@ -22,6 +24,9 @@ import org.jfree.data.category.CategoryDataset;
 import org.jfree.data.general.PieDataset;
 import org.jfree.data.statistics.HistogramDataset;
 import org.jfree.data.statistics.HistogramType;
+import org.jfree.data.statistics.SimpleHistogramBin;
+import org.jfree.data.statistics.SimpleHistogramDataset;
+import org.jfree.data.xy.IntervalXYDataset;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -54,6 +59,9 @@ public abstract class Report {
     protected static final int CHART3_HEIGHT = 400;
     protected static final int CHART3_WIDTH = 700;
 
+    private static final long MINUTE_MILLIS = 60000; // 60,000 = 1m
+    private static final long HOUR_MILLIS = 3600000; // 3,600,000 = 1h
+
     protected PdfRenderer pdfRenderer;
 
     public Report(PdfRenderer pdfRenderer) {
@@ -109,23 +117,28 @@ public abstract class Report {
     }
 
     protected HumanReadableStatistics millisToHumanReadable(DescriptiveStatistics stats) {
-        double mean = stats.getMean();
-
-        long MINUTE = 60000; // 60,000 = 1m
-        long HOUR = 3600000; // 3,600,000 = 1h
-
-        String units = "s";
-        long divisor = 1000;
+        String units = millisUnits(stats.getMean());
+        return toHumanReadable(stats, units, millisDivisor(units));
+    }
 
-        if (mean > HOUR) {
-            units = "h";
-            divisor = HOUR;
-        } else if (mean > MINUTE) {
-            units = "m";
-            divisor = MINUTE;
+    /** Returns the units in which to show times with the given mean: s, m, or h. */
+    protected String millisUnits(double meanMillis) {
+        if (meanMillis > HOUR_MILLIS) {
+            return "h";
+        }
+        if (meanMillis > MINUTE_MILLIS) {
+            return "m";
         }
+        return "s";
+    }
 
-        return toHumanReadable(stats, units, divisor);
+    /** Returns the number of milliseconds in the given units. */
+    protected long millisDivisor(String units) {
+        return switch (units) {
+            case "h" -> HOUR_MILLIS;
+            case "m" -> MINUTE_MILLIS;
+            default -> 1000;
+        };
     }
 
     protected HumanReadableStatistics toHumanReadable(DescriptiveStatistics stats, String units,
@@ -177,6 +190,15 @@ public abstract class Report {
 
     protected void generateSummaryTable(String label, DescriptiveStatistics stats, TopNList topTen,
         Format f) {
+        generateSummaryTable(label, stats, stats::getPercentile, topTen, f);
+    }
+
+    /**
+     * Generates a summary table for statistics other than {@link DescriptiveStatistics}, such as
+     * {@link StreamingStatistics}, whose percentiles are provided by the given function.
+     */
+    protected void generateSummaryTable(String label, StatisticalSummary stats,
+        DoubleUnaryOperator percentile, TopNList topTen, Format f) {
         log.info("Generating report for {}", label);
 
         PdfPTable layoutTable = new PdfPTable(2);
@@ -186,7 +208,7 @@ public abstract class Report {
         addCell(statsTable, f.format(stats.getMean()));
 
         addCell(statsTable, "Median", true);
-        addCell(statsTable, f.format(stats.getPercentile(50)));
+        addCell(statsTable, f.format(percentile.applyAsDouble(50)));
 
         addCell(statsTable, "Min", true);
         addCell(statsTable, f.format(stats.getMin()));
@@ -201,7 +223,7 @@ public abstract class Report {
         addCell(statsTable, f.format(stats.getStandardDeviation()));
 
         addCell(statsTable, "90%", true);
-        addCell(statsTable, f.format(stats.getPercentile(90)));
+        addCell(statsTable, f.format(percentile.applyAsDouble(90)));
 
         addCell(statsTable, "N", true);
         addCell(statsTable, String.format("%d", stats.getN()));
@@ -229,6 +251,51 @@ public abstract class Report {
         dataset.setType(HistogramType.FREQUENCY);
         dataset.addSeries(yCaption, valuesArray, numBins);
 
+        return histogramChart(title, xCaption, yCaption, dataset);
+    }
+
+    /**
+     * Generates a histogram of the values summarized by the given statistics, or returns null if
+     * there are no values.
+     *
+     * @param divisor the values are divided by the divisor to convert them to the units of the x
+     * axis
+     */
+    protected JFreeChart generateHistogram(String title, String xCaption, String yCaption,
+        StreamingStatistics stats, double divisor, int numBins) {
+        if (stats.getN() == 0) {
+            return null;
+        }
+        return histogramChart(title, xCaption, yCaption,
+            histogramDataset(yCaption, stats, divisor, numBins));
+    }
+
+    /**
+     * Returns a dataset for a histogram of the values summarized by the given statistics, with
+     * equal bins between the minimum and maximum value.
+     */
+    static IntervalXYDataset histogramDataset(String seriesKey, StreamingStatistics stats,
+        double divisor, int numBins) {
+        SimpleHistogramDataset dataset = new SimpleHistogramDataset(seriesKey);
+        dataset.setAdjustForBinSize(false);
+        if (stats.getN() == 0) {
+            return dataset;
+        }
+        double lowerBound = stats.getMin() / divisor;
+        double range = (stats.getMax() - stats.getMin()) / divisor;
+        double binWidth = (range > 0 ? range : 1.0) / numBins;
+        long[] binCounts = stats.binCounts(numBins);
+        for (int i = 0; i < numBins; i++) {
+            SimpleHistogramBin bin = new SimpleHistogramBin(lowerBound + i * binWidth,
+                lowerBound + (i + 1) * binWidth, true, i == numBins - 1);
+            bin.setItemCount((int) binCounts[i]);
+            dataset.addBin(bin);
+        }
+        return dataset;
+    }
+
+    private JFreeChart histogramChart(String title, String xCaption, String yCaption,
+        IntervalXYDataset dataset) {
         JFreeChart chart = ChartFactory.createHistogram(title, xCaption, yCaption, dataset,
             PlotOrientation.VERTICAL, true, true, false);
         XYPlot plot = (XYPlot) chart.getPlot();
@@ -0,0 +1,218 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.apache.commons.math3.stat.descriptive.StatisticalSummary;
+
+import gov.nasa.ziggy.metrics.LogHistogram;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Summary statistics of a stream of values, which take the same small amount of memory however
+ * many values are added, and which can be merged with the statistics of other streams.
+ * <p>
+ * Unlike {@link DescriptiveStatistics}, the values themselves are not kept. The mean and variance
+ * are updated as each value is added, and are combined exactly when statistics are merged.
+ * Percentiles are estimated from a {@link LogHistogram} of the values rounded to the nearest
+ * integer, so they are within about 3% of the true value for values of more than a few units, such
+ * as times in milliseconds or sizes in bytes. As with {@link DescriptiveStatistics}, the statistics
+ * of an empty stream are NaN, other than the count and sum.
+ * <p>
+ * This class is not thread-safe. Statistics collected in different threads are combined with
+ * {@link #merge(StreamingStatistics)}.
+ * <p>
+ * Statistics that are stored, in the database for example, are written with {@link #toBytes()}
+ * rather than with Java serialization, so they can still be read when this class changes.
+ */
+public class StreamingStatistics implements StatisticalSummary, Serializable {
+    private static final long serialVersionUID = 20261019L;
+
+    static final byte ENCODING_VERSION = 1;
+
+    private long n;
+    private double mean;
+    private double sumOfSquaredDeviations;
+    private double sum;
+    private double min = Double.NaN;
+    private double max = Double.NaN;
+    private final LogHistogram histogram = new LogHistogram();
+
+    public void addValue(double value) {
+        n++;
+        double deviation = value - mean;
+        mean += deviation / n;
+        sumOfSquaredDeviations += deviation * (value - mean);
+        sum += value;
+        min = n == 1 ? value : Math.min(min, value);
+        max = n == 1 ? value : Math.max(max, value);
+        histogram.recordValue(Math.round(value));
+    }
+
+    /** Adds the values of another stream to these statistics. */
+    public void merge(StreamingStatistics other) {
+        if (other.n == 0) {
+            return;
+        }
+        if (n == 0) {
+            mean = other.mean;
+            sumOfSquaredDeviations = other.sumOfSquaredDeviations;
+            min = other.min;
+            max = other.max;
+        } else {
+            long totalN = n + other.n;
+            double deviation = other.mean - mean;
+            mean += deviation * other.n / totalN;
+            sumOfSquaredDeviations += other.sumOfSquaredDeviations
+                + deviation * deviation * n * other.n / totalN;
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        n += other.n;
+        sum += other.sum;
+        histogram.merge(other.histogram);
+    }
+
+    @Override
+    public long getN() {
+        return n;
+    }
+
+    @Override
+    public double getMean() {
+        return n > 0 ? mean : Double.NaN;
+    }
+
+    /** Returns the sample variance, which is 0 for a single value. */
+    @Override
+    public double getVariance() {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        return n > 1 ? sumOfSquaredDeviations / (n - 1) : 0;
+    }
+
+    @Override
+    public double getStandardDeviation() {
+        return Math.sqrt(getVariance());
+    }
+
+    @Override
+    public double getMax() {
+        return max;
+    }
+
+    @Override
+    public double getMin() {
+        return min;
+    }
+
+    @Override
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns an estimate of the given percentile of the values, which is never outside the range
+     * of the values. The 100th percentile is the maximum value.
+     *
+     * @param percentile the percentile, from 0 to 100
+     */
+    public double getPercentile(double percentile) {
+        if (n == 0) {
+            return Double.NaN;
+        }
+        if (percentile == 100) {
+            return max;
+        }
+        return Math.min(Math.max(histogram.getPercentile(percentile), min), max);
+    }
+
+    /**
+     * Returns the number of values in each of the given number of equal bins between the minimum
+     * and maximum value, for histogram charts. Each value is counted in the bin that contains the
+     * middle of its {@link LogHistogram} bucket, so the counts are approximate when the bins are
+     * narrower than the buckets.
+     */
+    public long[] binCounts(int binCount) {
+        long[] counts = new long[binCount];
+        if (n == 0) {
+            return counts;
+        }
+        double binWidth = (max - min) / binCount;
+        histogram.forEachBucket((lowerBound, upperBound, count) -> {
+            double value = Math.min(Math.max(lowerBound + (upperBound - lowerBound) / 2.0, min),
+                max);
+            int bin = binWidth > 0 ? (int) Math.min(binCount - 1, (value - min) / binWidth) : 0;
+            counts[bin] += count;
+        });
+        return counts;
+    }
+
+    /**
+     * Encodes the statistics as {@link #ENCODING_VERSION} (byte), the count (long), the mean, sum
+     * of squared deviations, sum, minimum, and maximum (doubles), and the number of non-empty
+     * buckets in the {@link LogHistogram} (int) followed by the index (short) and count (long) of
+     * each.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+    public byte[] toBytes() {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            output.writeByte(ENCODING_VERSION);
+            output.writeLong(n);
+            output.writeDouble(mean);
+            output.writeDouble(sumOfSquaredDeviations);
+            output.writeDouble(sum);
+            output.writeDouble(min);
+            output.writeDouble(max);
+            histogram.writeBuckets(output);
+        } catch (IOException e) {
+            // Writing to a byte array never fails.
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Decodes statistics encoded by {@link #toBytes()}.
+     *
+     * @throws PipelineException if the bytes are truncated or were encoded by an unsupported
+     * version
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    public static StreamingStatistics fromBytes(byte[] bytes) {
+        try {
+            ByteBuffer input = ByteBuffer.wrap(bytes);
+            byte version = input.get();
+            if (version != ENCODING_VERSION) {
+                throw new PipelineException("Unsupported statistics encoding version " + version);
+            }
+            StreamingStatistics statistics = new StreamingStatistics();
+            statistics.n = input.getLong();
+            statistics.mean = input.getDouble();
+            statistics.sumOfSquaredDeviations = input.getDouble();
+            statistics.sum = input.getDouble();
+            statistics.min = input.getDouble();
+            statistics.max = input.getDouble();
+            statistics.histogram.readBuckets(input);
+            return statistics;
+        } catch (BufferUnderflowException e) {
+            throw new PipelineException("Encoded statistics are truncated", e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "n: " + n + ", mean: " + getMean() + ", min: " + min + ", max: " + max
+            + ", std dev: " + getStandardDeviation();
+    }
+}
@@ -0,0 +1,23 @@
+package gov.nasa.ziggy.metrics.report;
+
+import jakarta.persistence.AttributeConverter;
+import jakarta.persistence.Converter;
+
+/**
+ * Stores {@link StreamingStatistics} in a database column in the encoding of
+ * {@link StreamingStatistics#toBytes()}.
+ */
+@Converter
+public class StreamingStatisticsConverter
+    implements AttributeConverter<StreamingStatistics, byte[]> {
+
+    @Override
+    public byte[] convertToDatabaseColumn(StreamingStatistics statistics) {
+        return statistics != null ? statistics.toBytes() : null;
+    }
+
+    @Override
+    public StreamingStatistics convertToEntityAttribute(byte[] bytes) {
+        return bytes != null ? StreamingStatistics.fromBytes(bytes) : null;
+    }
+}
@@ -0,0 +1,253 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+import gov.nasa.ziggy.metrics.MetricsFile;
+import gov.nasa.ziggy.pipeline.step.subtask.SubtaskDirectoryIterator;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
+import gov.nasa.ziggy.util.SpotBugsUtils;
+
+/**
+ * Reduces the metrics files of the subtasks in task directories to one
+ * {@link SubtaskMetricsSummary} per task directory.
+ * <p>
+ * The subtasks of each task are divided into batches, which are read and summarized in parallel
+ * by a thread per processor; the batch summaries of each task are then merged. Only the summaries
+ * are kept, so the memory needed doesn't grow with the number of subtasks. Aggregators that run at
+ * the same time can share one thread pool with {@link #setExecutor(ExecutorService)}.
+ * <p>
+ * The summaries of tasks whose subtasks all have metrics files are cached by task directory name,
+ * and the cache is updated each time the aggregator runs. Tasks that are in the cache aren't read
+ * again, so when a report is generated again for a growing instance, only its new tasks, and those
+ * that were still running, are read. Aggregators that share a cache file update it one at a time,
+ * each merging its summaries with those already in the file.
+ */
+class SubtaskMetricsAggregator {
+    private static final Logger log = LoggerFactory.getLogger(SubtaskMetricsAggregator.class);
+
+    static final String METRICS_FILE_NAME = "metrics-0.ser";
+    private static final int SUBTASKS_PER_BATCH = 100;
+
+    /** Locks that serialize the updates of each cache file within this JVM. */
+    private static final Map<Path, Object> CACHE_LOCKS = new ConcurrentHashMap<>();
+
+    private final String topNMetricName;
+    private final int topNLength;
+    private final File cacheFile;
+    private boolean cacheResults = true;
+    private ExecutorService executor;
+
+    /**
+     * @param topNMetricName the metric whose subtask averages are listed in the summaries' top N
+     * lists
+     * @param topNLength the length of the top N lists
+     * @param cacheFile the file in which summaries are cached
+     */
+    SubtaskMetricsAggregator(String topNMetricName, int topNLength, File cacheFile) {
+        this.topNMetricName = topNMetricName;
+        this.topNLength = topNLength;
+        this.cacheFile = cacheFile;
+    }
+
+    /** Sets whether new summaries are written to the cache. */
+    void setCacheResults(boolean cacheResults) {
+        this.cacheResults = cacheResults;
+    }
+
+    /**
+     * Sets the thread pool in which the subtasks are read. The pool isn't shut down by the
+     * aggregator. If no pool is set, the aggregator uses a pool of its own with a thread per
+     * processor.
+     */
+    void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the summary of each task directory, by task directory name, in the order of the
+     * given directories.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    Map<String, SubtaskMetricsSummary> aggregate(List<File> taskDirs) {
+        Map<String, SubtaskMetricsSummary> cachedSummaries = readCache();
+        Map<String, SubtaskMetricsSummary> summaries = new LinkedHashMap<>();
+        boolean cacheUpdated = false;
+
+        ExecutorService threadPool = executor != null ? executor
+            : Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<SubtaskMetricsSummary>> allBatches = new ArrayList<>();
+        try {
+            Map<File, List<Future<SubtaskMetricsSummary>>> batchesByTaskDir = new LinkedHashMap<>();
+            for (File taskDir : taskDirs) {
+                if (cachedSummaries.containsKey(taskDir.getName())) {
+                    continue;
+                }
+                List<Future<SubtaskMetricsSummary>> batches = new ArrayList<>();
+                List<File> subtaskDirs = subtaskDirs(taskDir);
+                log.info("Found {} subtask directories in {}", subtaskDirs.size(), taskDir);
+                for (int i = 0; i < subtaskDirs.size(); i += SUBTASKS_PER_BATCH) {
+                    List<File> batch = subtaskDirs.subList(i,
+                        Math.min(i + SUBTASKS_PER_BATCH, subtaskDirs.size()));
+                    batches.add(threadPool.submit(() -> summarize(batch)));
+                }
+                batchesByTaskDir.put(taskDir, batches);
+                allBatches.addAll(batches);
+            }
+
+            for (File taskDir : taskDirs) {
+                SubtaskMetricsSummary summary = cachedSummaries.get(taskDir.getName());
+                if (summary == null) {
+                    summary = new SubtaskMetricsSummary(topNMetricName, topNLength);
+                    for (Future<SubtaskMetricsSummary> batch : batchesByTaskDir.get(taskDir)) {
+                        summary.merge(batch.get());
+                    }
+                    if (summary.getMissingMetricsCount() > 0) {
+                        log.warn("{} of {} subtasks in {} have no metrics file",
+                            summary.getMissingMetricsCount(), summary.getSubtaskCount(), taskDir);
+                    } else if (summary.getSubtaskCount() > 0) {
+                        cachedSummaries.put(taskDir.getName(), summary);
+                        cacheUpdated = true;
+                    }
+                }
+                summaries.put(taskDir.getName(), summary);
+            }
+        } catch (InterruptedException | ExecutionException e) {
+            throw new PipelineException("Exception occurred waiting for metrics summaries", e);
+        } finally {
+            if (threadPool == executor) {
+                allBatches.forEach(batch -> batch.cancel(true));
+            } else {
+                threadPool.shutdownNow();
+            }
+        }
+
+        if (cacheResults && cacheUpdated) {
+            updateCache(cachedSummaries);
+        }
+        return summaries;
+    }
+
+    private List<File> subtaskDirs(File taskDir) {
+        List<File> subtaskDirs = new ArrayList<>();
+        SubtaskDirectoryIterator directoryIterator = new SubtaskDirectoryIterator(taskDir);
+        while (directoryIterator.hasNext()) {
+            subtaskDirs.add(directoryIterator.next().getSubtaskDir());
+        }
+        return subtaskDirs;
+    }
+
+    private SubtaskMetricsSummary summarize(List<File> subtaskDirs) {
+        SubtaskMetricsSummary summary = new SubtaskMetricsSummary(topNMetricName, topNLength);
+        for (File subtaskDir : subtaskDirs) {
+            File metricsFile = new File(subtaskDir, METRICS_FILE_NAME);
+            summary.addSubtask(subtaskDir.getParentFile().getName() + "/" + subtaskDir.getName(),
+                metricsFile.exists() ? MetricsFile.read(metricsFile.toPath()) : null);
+        }
+        return summary;
+    }
+
+    /**
+     * Returns the cached summaries that were collected for this aggregator's top N list. A cache
+     * that can't be read, such as one written by an earlier version of Ziggy, is ignored.
+     */
+    private Map<String, SubtaskMetricsSummary> readCache() {
+        Map<String, SubtaskMetricsSummary> cachedSummaries;
+        synchronized (cacheLock()) {
+            cachedSummaries = readCacheFile();
+        }
+        cachedSummaries.values()
+            .removeIf(summary -> !summary.hasTopN(topNMetricName, topNLength));
+        return cachedSummaries;
+    }
+
+    /**
+     * Adds the given summaries to those in the cache file. The file is read again while the lock
+     * is held, so summaries written by other aggregators since this one read it aren't lost.
+     */
+    private void updateCache(Map<String, SubtaskMetricsSummary> summaries) {
+        synchronized (cacheLock()) {
+            Map<String, SubtaskMetricsSummary> cachedSummaries = readCacheFile();
+            cachedSummaries.putAll(summaries);
+            writeCacheFile(cachedSummaries);
+        }
+    }
+
+    private Object cacheLock() {
+        return CACHE_LOCKS.computeIfAbsent(cacheFile.toPath().toAbsolutePath().normalize(),
+            path -> new Object());
+    }
+
+    @SuppressWarnings("unchecked")
+    @SuppressFBWarnings(value = "OBJECT_DESERIALIZATION",
+        justification = SpotBugsUtils.DESERIALIZATION_JUSTIFICATION)
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private Map<String, SubtaskMetricsSummary> readCacheFile() {
+        Map<String, SubtaskMetricsSummary> cachedSummaries = new HashMap<>();
+        if (!cacheFile.exists()) {
+            return cachedSummaries;
+        }
+        log.info("Found cache file {}", cacheFile);
+        try (ObjectInputStream input = new ObjectInputStream(
+            new BufferedInputStream(Files.newInputStream(cacheFile.toPath())))) {
+            cachedSummaries.putAll((Map<String, SubtaskMetricsSummary>) input.readObject());
+        } catch (IOException | ClassNotFoundException | ClassCastException e) {
+            log.warn("Unable to read cache file {}, ignoring it", cacheFile, e);
+        }
+        return cachedSummaries;
+    }
+
+    /**
+     * Writes the cache to a temporary file of its own first, so that the cache file is never left
+     * partly written, even if another process is writing it too.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private void writeCacheFile(Map<String, SubtaskMetricsSummary> cachedSummaries) {
+        Path cachePath = cacheFile.toPath().toAbsolutePath();
+        Path tmpFile = null;
+        try {
+            tmpFile = Files.createTempFile(cachePath.getParent(), cacheFile.getName(), ".tmp");
+            try (ObjectOutputStream output = new ObjectOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(tmpFile)))) {
+                output.writeObject(cachedSummaries);
+            }
+            Files.move(tmpFile, cachePath, StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to write cache file " + cacheFile, e);
+        } finally {
+            if (tmpFile != null) {
+                try {
+                    Files.deleteIfExists(tmpFile);
+                } catch (IOException e) {
+                    log.warn("Unable to delete {}", tmpFile, e);
+                }
+            }
+        }
+    }
+}
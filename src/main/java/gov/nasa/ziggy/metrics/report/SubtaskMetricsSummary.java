@@ -0,0 +1,117 @@
+package gov.nasa.ziggy.metrics.report;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+import gov.nasa.ziggy.metrics.Metric;
+import gov.nasa.ziggy.metrics.ValueMetric;
+
+/**
+ * Summary of the metrics of a group of subtasks, such as the subtasks of a task, collected by
+ * {@link SubtaskMetricsAggregator}.
+ * <p>
+ * The summary contains the rollup of each metric over the subtasks, the {@link StreamingStatistics}
+ * over the subtasks of the average of each {@link ValueMetric}, and the subtasks with the highest
+ * average of one chosen metric. It takes the same amount of memory however many subtasks it
+ * summarizes, and the summaries of different groups of subtasks can be merged, so it can be
+ * collected in parallel and cached.
+ */
+class SubtaskMetricsSummary implements Serializable {
+    private static final long serialVersionUID = 20261019L;
+
+    private final String topNMetricName;
+    private final int topNLength;
+    private final Map<String, Metric> metrics = new HashMap<>();
+    private final Map<String, StreamingStatistics> averageStats = new HashMap<>();
+    private final TopNList topN;
+    private int subtaskCount;
+    private int missingMetricsCount;
+
+    SubtaskMetricsSummary(String topNMetricName, int topNLength) {
+        this.topNMetricName = topNMetricName;
+        this.topNLength = topNLength;
+        topN = new TopNList(topNLength);
+    }
+
+    /**
+     * Adds the metrics of a subtask to the summary.
+     *
+     * @param subtaskName the name of the subtask for the top N list, such as
+     * {@code <task directory>/<subtask directory>}
+     * @param subtaskMetrics the subtask's metrics by name, or null if the subtask has no metrics
+     */
+    void addSubtask(String subtaskName, Map<String, Metric> subtaskMetrics) {
+        subtaskCount++;
+        if (subtaskMetrics == null) {
+            missingMetricsCount++;
+            return;
+        }
+        for (Metric metric : subtaskMetrics.values()) {
+            Metric rollup = metrics.get(metric.getName());
+            if (rollup == null) {
+                metrics.put(metric.getName(), metric.makeCopy());
+            } else {
+                rollup.merge(metric);
+            }
+            if (metric instanceof ValueMetric valueMetric) {
+                averageStats.computeIfAbsent(metric.getName(), name -> new StreamingStatistics())
+                    .addValue(valueMetric.getAverage());
+                if (metric.getName().equals(topNMetricName)) {
+                    topN.add((long) valueMetric.getAverage(), subtaskName);
+                }
+            }
+        }
+    }
+
+    /** Adds the subtasks of another summary to this summary. */
+    void merge(SubtaskMetricsSummary other) {
+        for (Metric metric : other.metrics.values()) {
+            Metric rollup = metrics.get(metric.getName());
+            if (rollup == null) {
+                metrics.put(metric.getName(), metric.makeCopy());
+            } else {
+                rollup.merge(metric);
+            }
+        }
+        for (Map.Entry<String, StreamingStatistics> stats : other.averageStats.entrySet()) {
+            averageStats.computeIfAbsent(stats.getKey(), name -> new StreamingStatistics())
+                .merge(stats.getValue());
+        }
+        topN.addAll(other.topN);
+        subtaskCount += other.subtaskCount;
+        missingMetricsCount += other.missingMetricsCount;
+    }
+
+    /** Determines whether the summary was collected for the given top N metric and length. */
+    boolean hasTopN(String topNMetricName, int topNLength) {
+        return this.topNMetricName.equals(topNMetricName) && this.topNLength == topNLength;
+    }
+
+    /** Returns the rollup of each metric over the subtasks, by metric name. */
+    Map<String, Metric> getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Returns the statistics over the subtasks of the average of each {@link ValueMetric}, by
+     * metric name.
+     */
+    Map<String, StreamingStatistics> getAverageStats() {
+        return averageStats;
+    }
+
+    /** Returns the subtasks with the highest average of the top N metric. */
+    TopNList getTopN() {
+        return topN;
+    }
+
+    int getSubtaskCount() {
+        return subtaskCount;
+    }
+
+    /** Returns the number of subtasks that have no metrics. */
+    int getMissingMetricsCount() {
+        return missingMetricsCount;
+    }
+}
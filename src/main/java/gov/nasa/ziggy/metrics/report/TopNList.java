@@ -1,60 +1,66 @@
 package gov.nasa.ziggy.metrics.report;
 
 import java.io.Serializable;
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.PriorityQueue;
 
 /**
  * This class manages an ordered, fixed-length list (list will contain up to but no more than N
  * items) of Comparables
+ * <p>
+ * The items are kept in a heap with the smallest at its head, so adding an item takes a time
+ * proportional to log N, and an item that is no larger than the smallest of a full list is
+ * rejected with a single comparison.
  *
  * @author Todd Klaus
  */
 public class TopNList implements Serializable {
-    private static final long serialVersionUID = 20230511L;
+    private static final long serialVersionUID = 20261019L;
 
     private int listMaxLength = 0;
-    private final LinkedList<TopNListElement> list = new LinkedList<>();
+    private final PriorityQueue<TopNListElement> heap = new PriorityQueue<>(
+        new ValueComparator());
 
     public TopNList(int listMaxLength) {
         this.listMaxLength = listMaxLength;
     }
 
     public void add(long value, String label) {
-        TopNListElement element = new TopNListElement(value, label);
-
-        if (list.isEmpty()) {
-            list.add(element);
-            return;
-        }
-
-        int currentIndex = list.size() - 1;
-        boolean added = false;
-
-        for (int i = currentIndex; i >= 0; i--) {
-            if (element.getValue() < list.get(i).getValue()) {
-                list.add(i + 1, element);
-                added = true;
-                break;
-            }
-        }
-
-        if (!added) {
-            // belongs at the top of the list
-            list.add(0, element);
+        if (heap.size() < listMaxLength) {
+            heap.add(new TopNListElement(value, label));
+        } else if (listMaxLength > 0 && value > heap.peek().getValue()) {
+            heap.poll();
+            heap.add(new TopNListElement(value, label));
         }
+    }
 
-        if (list.size() > listMaxLength) {
-            list.removeLast();
+    /** Adds the elements of another list, such as one collected from other tasks. */
+    public void addAll(TopNList other) {
+        for (TopNListElement element : other.heap) {
+            add(element.getValue(), element.getLabel());
         }
     }
 
+    /** Returns the elements from the largest to the smallest. */
     public List<TopNListElement> getList() {
+        List<TopNListElement> list = new ArrayList<>(heap);
+        list.sort(new ValueComparator().reversed());
         return list;
     }
 
     @Override
     public String toString() {
-        return list.toString();
+        return getList().toString();
+    }
+
+    private static class ValueComparator implements Comparator<TopNListElement>, Serializable {
+        private static final long serialVersionUID = 20261019L;
+
+        @Override
+        public int compare(TopNListElement element, TopNListElement otherElement) {
+            return Long.compare(element.getValue(), otherElement.getValue());
+        }
     }
 }
@@ -1,5 +1,6 @@
 package gov.nasa.ziggy.pipeline.definition;
 
+import java.util.Date;
 import java.util.Objects;
 
 import gov.nasa.ziggy.ui.ZiggyGuiConsole;
@@ -12,6 +13,10 @@ import jakarta.persistence.Embeddable;
  * <li>The job identification number.
  * <li>The estimated cost of the job (in SBUs or actual money).
  * <li>Whether the job has finished.
+ * <li>The queue and architecture of the job, and the times at which it was submitted, started,
+ * and ended, as far as the batch system has reported them.
+ * <li>Whether its queue wait and run times have been added to the job time statistics of its remote
+ * environment, so that they are only added once.
  * </ol>
  * <p>
  * Note that the {@link #hashCode()} and {@link #equals(Object)} methods are written in terms of
@@ -33,6 +38,12 @@ public class RemoteJob implements Comparable<RemoteJob> {
     private boolean finished;
     private String remoteEnvironmentName;
     private double costFactor;
+    private String queueName;
+    private String architectureName;
+    private Date submitTime;
+    private Date startTime;
+    private Date endTime;
+    private boolean timesRecorded;
 
     public RemoteJob() {
     }
@@ -91,6 +102,54 @@ public class RemoteJob implements Comparable<RemoteJob> {
         this.costFactor = costFactor;
     }
 
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public void setQueueName(String queueName) {
+        this.queueName = queueName;
+    }
+
+    public String getArchitectureName() {
+        return architectureName;
+    }
+
+    public void setArchitectureName(String architectureName) {
+        this.architectureName = architectureName;
+    }
+
+    public Date getSubmitTime() {
+        return submitTime;
+    }
+
+    public void setSubmitTime(Date submitTime) {
+        this.submitTime = submitTime;
+    }
+
+    public Date getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Date startTime) {
+        this.startTime = startTime;
+    }
+
+    public Date getEndTime() {
+        return endTime;
+    }
+
+    public void setEndTime(Date endTime) {
+        this.endTime = endTime;
+    }
+
+    public boolean isTimesRecorded() {
+        return timesRecorded;
+    }
+
+    public void setTimesRecorded(boolean timesRecorded) {
+        this.timesRecorded = timesRecorded;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(jobId);
@@ -22,6 +22,7 @@ import gov.nasa.ziggy.pipeline.definition.PipelineTask_;
 import gov.nasa.ziggy.pipeline.definition.ProcessingStep;
 import gov.nasa.ziggy.pipeline.definition.RemoteJob;
 import gov.nasa.ziggy.pipeline.definition.TaskExecutionLog;
+import jakarta.persistence.LockModeType;
 import jakarta.persistence.metamodel.SingularAttribute;
 
 public class PipelineTaskDataCrud extends AbstractCrud<PipelineTaskData> {
@@ -71,6 +72,19 @@ public class PipelineTaskDataCrud extends AbstractCrud<PipelineTaskData> {
         return pipelineTaskData;
     }
 
+    /**
+     * Retrieves the {@link PipelineTaskData} of a task and locks it until the end of the
+     * transaction, so that concurrent updates of the task's data are applied one after the other.
+     * For use by PipelineTaskDataOperations only.
+     */
+    PipelineTaskData retrievePipelineTaskDataForUpdate(PipelineTask pipelineTask) {
+        PipelineTaskData pipelineTaskData = uniqueResult(
+            createZiggyQuery(PipelineTaskData.class).column(PipelineTaskData_.pipelineTaskId)
+                .in(pipelineTask.getId()),
+            LockModeType.PESSIMISTIC_WRITE);
+        return pipelineTaskData != null ? pipelineTaskData : retrievePipelineTaskData(pipelineTask);
+    }
+
     ProcessingStep retrieveProcessingStep(PipelineTask pipelineTask) {
         return retrievePipelineTaskData(pipelineTask).getProcessingStep();
     }
@@ -205,6 +219,21 @@ public class PipelineTaskDataCrud extends AbstractCrud<PipelineTaskData> {
             .select());
     }
 
+    /**
+     * Returns the metrics of the given tasks in order of task ID. Each element is an array that
+     * contains the task ID and one {@link PipelineTaskMetric} of the task.
+     */
+    public List<Object[]> retrievePipelineTaskMetrics(Collection<Long> pipelineTaskIds) {
+        ZiggyQuery<PipelineTaskData, Object[]> query = createZiggyQuery(PipelineTaskData.class,
+            Object[].class);
+        query.column(PipelineTaskData_.pipelineTaskId)
+            .in(pipelineTaskIds)
+            .ascendingOrder()
+            .select();
+        query.column(PipelineTaskData_.pipelineTaskMetrics).select();
+        return list(query);
+    }
+
     public List<TaskExecutionLog> retrieveTaskExecutionLogs(PipelineTask pipelineTask) {
         return list(createZiggyQuery(PipelineTaskData.class, TaskExecutionLog.class)
             .column(PipelineTaskData_.pipelineTaskId)
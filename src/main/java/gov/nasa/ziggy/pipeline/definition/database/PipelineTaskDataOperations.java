@@ -1,17 +1,25 @@
 package gov.nasa.ziggy.pipeline.definition.database;
 
 import java.text.MessageFormat;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+import org.hibernate.exception.ConstraintViolationException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.collect.Lists;
+
 import gov.nasa.ziggy.pipeline.definition.ExecutionClock;
 import gov.nasa.ziggy.pipeline.definition.PipelineInstance;
 import gov.nasa.ziggy.pipeline.definition.PipelineInstance.State;
@@ -33,6 +41,9 @@ import gov.nasa.ziggy.pipeline.step.remote.batch.SupportedBatchSystem;
 import gov.nasa.ziggy.services.database.DatabaseOperations;
 import gov.nasa.ziggy.services.messages.PipelineInstanceFinishedMessage;
 import gov.nasa.ziggy.services.messaging.ZiggyMessenger;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
 
 /**
  * {@link DatabaseOperations} class to access fields from the {@link PipelineTaskData} table.
@@ -54,6 +65,9 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
      */
     private static final String LOG_FILENAME_FORMAT = "{0}.{1}-{2}.log";
 
+    /** The number of tasks whose metrics are retrieved by each query of forEachTaskMetric. */
+    static final int TASK_METRICS_CHUNK_SIZE = 1000;
+
     private final PipelineTaskCrud pipelineTaskCrud = new PipelineTaskCrud();
     private final PipelineTaskDataCrud pipelineTaskDataCrud = new PipelineTaskDataCrud();
     private final PipelineTaskDisplayDataOperations pipelineTaskDisplayDataOperations = new PipelineTaskDisplayDataOperations();
@@ -428,6 +442,26 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
         });
     }
 
+    /**
+     * Passes each metric of each task in a node to the given consumer, with the ID of its task, in
+     * order of task ID. The metrics are retrieved {@value #TASK_METRICS_CHUNK_SIZE} tasks at a
+     * time, each chunk in its own transaction, so the memory needed doesn't grow with the number of
+     * tasks in the node.
+     */
+    public void forEachTaskMetric(PipelineInstanceNode node,
+        BiConsumer<Long, PipelineTaskMetric> consumer) {
+        List<Long> taskIds = new ArrayList<>(
+            performTransaction(() -> pipelineTaskCrud().taskIdsForPipelineInstanceNode(node)));
+        Collections.sort(taskIds);
+        for (List<Long> chunk : Lists.partition(taskIds, TASK_METRICS_CHUNK_SIZE)) {
+            List<Object[]> taskMetrics = performTransaction(
+                () -> pipelineTaskDataCrud().retrievePipelineTaskMetrics(chunk));
+            for (Object[] taskMetric : taskMetrics) {
+                consumer.accept((Long) taskMetric[0], (PipelineTaskMetric) taskMetric[1]);
+            }
+        }
+    }
+
     public void updatePipelineTaskMetrics(PipelineTask pipelineTask,
         List<PipelineTaskMetric> pipelineTaskMetrics) {
         performTransaction(() -> {
@@ -490,8 +524,16 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
     public void updateJobs(PipelineInstance pipelineInstance) {
         List<PipelineTask> tasks = performTransaction(
             () -> pipelineTaskCrud().retrieveTasksForInstance(pipelineInstance));
+
+        // Get the status of the jobs for all tasks from the batch system at once.
+        Map<PipelineTask, Set<RemoteJob>> remoteJobsByTask = new HashMap<>();
+        for (PipelineTask task : tasks) {
+            remoteJobsByTask.put(task, remoteJobs(task));
+        }
+        updateJobStatus(
+            remoteJobsByTask.values().stream().flatMap(Set::stream).collect(Collectors.toList()));
         for (PipelineTask task : tasks) {
-            updateJobs(task);
+            updateJobs(task, remoteJobsByTask.get(task), false);
         }
     }
 
@@ -510,6 +552,13 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
      */
     public void updateJobs(PipelineTask pipelineTask, boolean markJobsCompleted) {
         Set<RemoteJob> remoteJobs = remoteJobs(pipelineTask);
+        updateJobStatus(remoteJobs);
+        updateJobs(pipelineTask, remoteJobs, markJobsCompleted);
+    }
+
+    private void updateJobs(PipelineTask pipelineTask, Set<RemoteJob> remoteJobs,
+        boolean markJobsCompleted) {
+        List<RemoteJob> finishedJobs = new ArrayList<>();
         for (RemoteJob job : remoteJobs) {
             if (job.isFinished()) {
                 continue;
@@ -520,18 +569,42 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
                     "Remote environment " + job.getRemoteEnvironmentName() + "not supported");
             }
             job.setCostEstimate(batchManager.getUpdatedCostEstimate(job));
+            batchManager.updateJobTimes(job);
 
             // Is the job finished?
             if (markJobsCompleted ? true : batchManager.isFinished(job)) {
                 log.info("Job {} marked as finished", job.getJobId());
                 job.setFinished(true);
+                finishedJobs.add(job);
                 log.info("Job {} cost estimate is {}", job.getJobId(), job.getCostEstimate());
             } else {
                 log.info("Incomplete job {} running cost estimate is {}", job.getJobId(),
                     job.getCostEstimate());
             }
         }
-        updateRemoteJobs(pipelineTask, remoteJobs);
+        updateRemoteJobs(pipelineTask, remoteJobs, finishedJobs);
+    }
+
+    /**
+     * Obtains the status of all unfinished jobs from their batch systems with one query per batch
+     * system rather than one query per job.
+     */
+    private void updateJobStatus(Collection<RemoteJob> remoteJobs) {
+        Map<BatchManager<?>, List<RemoteJob>> unfinishedJobsByBatchManager = new HashMap<>();
+        for (RemoteJob job : remoteJobs) {
+            if (job.isFinished()) {
+                continue;
+            }
+            BatchManager<?> batchManager = batchManager(job);
+            if (batchManager != null) {
+                unfinishedJobsByBatchManager.computeIfAbsent(batchManager, b -> new ArrayList<>())
+                    .add(job);
+            }
+        }
+        for (Map.Entry<BatchManager<?>, List<RemoteJob>> entry : unfinishedJobsByBatchManager
+            .entrySet()) {
+            entry.getKey().updateJobStatus(entry.getValue());
+        }
     }
 
     /**
@@ -554,20 +627,62 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
         performTransaction(() -> {
             remoteJob.setFinished(true);
             PipelineTaskData pipelineTaskData = pipelineTaskDataCrud()
-                .retrievePipelineTaskData(pipelineTask);
+                .retrievePipelineTaskDataForUpdate(pipelineTask);
+            remoteJob.setTimesRecorded(timesRecorded(pipelineTaskData).contains(remoteJob));
             pipelineTaskData.getRemoteJobs().remove(remoteJob);
             pipelineTaskData.getRemoteJobs().add(remoteJob);
         });
     }
 
     void updateRemoteJobs(PipelineTask pipelineTask, Set<RemoteJob> remoteJobs) {
+        updateRemoteJobs(pipelineTask, remoteJobs, List.of());
+    }
+
+    /**
+     * Replaces the remote jobs of a task and adds the times of the given newly finished jobs to the
+     * job time statistics of their remote environments.
+     * <p>
+     * Both are updated in one transaction with the task's data locked, and whether the times of
+     * each job have been recorded is taken from the database rather than from the given jobs, so
+     * each job is counted once even when the supervisor and the console update the jobs of a task
+     * at the same time. If another transaction creates the statistics of one of the jobs' queues
+     * and architectures first, the update is retried with the statistics that transaction created.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private void updateRemoteJobs(PipelineTask pipelineTask, Set<RemoteJob> remoteJobs,
+        Collection<RemoteJob> finishedJobs) {
+        try {
+            updateRemoteJobsAndJobTimes(pipelineTask, remoteJobs, finishedJobs);
+        } catch (PipelineException e) {
+            if (ExceptionUtils.indexOfType(e, ConstraintViolationException.class) < 0) {
+                throw e;
+            }
+            log.debug("Job time statistics created concurrently, retrying update of jobs", e);
+            updateRemoteJobsAndJobTimes(pipelineTask, remoteJobs, finishedJobs);
+        }
+    }
+
+    private void updateRemoteJobsAndJobTimes(PipelineTask pipelineTask,
+        Set<RemoteJob> remoteJobs, Collection<RemoteJob> finishedJobs) {
         performTransaction(() -> {
             PipelineTaskData pipelineTaskData = pipelineTaskDataCrud()
-                .retrievePipelineTaskData(pipelineTask);
+                .retrievePipelineTaskDataForUpdate(pipelineTask);
+            Set<RemoteJob> timesRecorded = timesRecorded(pipelineTaskData);
+            for (RemoteJob job : remoteJobs) {
+                job.setTimesRecorded(timesRecorded.contains(job));
+            }
+            remoteEnvironmentOperations().addJobTimes(finishedJobs);
             pipelineTaskData.setRemoteJobs(remoteJobs);
         });
     }
 
+    private Set<RemoteJob> timesRecorded(PipelineTaskData pipelineTaskData) {
+        return pipelineTaskData.getRemoteJobs()
+            .stream()
+            .filter(RemoteJob::isTimesRecorded)
+            .collect(Collectors.toSet());
+    }
+
     public long startTimestamp(PipelineTask pipelineTask) {
         return performTransaction(() -> pipelineTaskDataCrud().retrieveExecutionClock(pipelineTask)
             .getStartProcessingTime());
@@ -580,6 +695,10 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
         });
     }
 
+    RemoteEnvironmentOperations remoteEnvironmentOperations() {
+        return remoteEnvironmentOperations;
+    }
+
     PipelineTaskCrud pipelineTaskCrud() {
         return pipelineTaskCrud;
     }
@@ -602,7 +721,7 @@ public class PipelineTaskDataOperations extends DatabaseOperations {
 
     BatchManager<?> batchManager(RemoteJob remoteJob) {
         if (remoteEnvironmentByName == null) {
-            remoteEnvironmentByName = remoteEnvironmentOperations.remoteEnvironmentByName();
+            remoteEnvironmentByName = remoteEnvironmentOperations().remoteEnvironmentByName();
         }
         SupportedBatchSystem batchSystem = remoteEnvironmentByName
             .get(remoteJob.getRemoteEnvironmentName())
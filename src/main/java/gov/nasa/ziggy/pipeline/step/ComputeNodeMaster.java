@@ -53,6 +53,8 @@ import org.slf4j.LoggerFactory;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
+import gov.nasa.ziggy.metrics.ProfilingContext;
+import gov.nasa.ziggy.metrics.TaskProfiler;
 import gov.nasa.ziggy.pipeline.step.AlgorithmStateFiles.AlgorithmState;
 import gov.nasa.ziggy.pipeline.step.remote.batch.SupportedBatchSystem;
 import gov.nasa.ziggy.pipeline.step.subtask.SubtaskMaster;
@@ -327,6 +329,9 @@ public class ComputeNodeMaster {
 
         String workingDir = args[0];
         ZiggyLog.endConsoleLogging();
+        // The process works on one task, until it exits.
+        TaskProfiler.startIfEnabled();
+        ProfilingContext.enterTask(new File(workingDir).getName());
         ComputeNodeMaster computeNodeMaster = null;
 
         // Startup: constructor and initialization
@@ -1,12 +1,10 @@
 package gov.nasa.ziggy.pipeline.step.hdf5;
 
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BYTE;
-import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_PERSISTABLE;
 import static gov.nasa.ziggy.collections.ZiggyDataType.get1dArrayMember;
 import static gov.nasa.ziggy.collections.ZiggyDataType.getDataType;
 import static gov.nasa.ziggy.collections.ZiggyDataType.set1dArrayMember;
-import static gov.nasa.ziggy.collections.ZiggyDataType.truncateClassName;
 import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
 
 import java.lang.reflect.Field;
@@ -52,6 +50,9 @@ public abstract class AbstractHdf5Array {
     protected boolean allowMissingFields = false;
     protected boolean missingFieldsDetected = false;
     protected boolean createGroupsForMissingFields = false;
+    protected Hdf5StoragePolicy storagePolicy = Hdf5StoragePolicy.UNCOMPRESSED;
+    protected Hdf5Session session = Hdf5Session.shared();
+    protected Hdf5ReadScope readScope = Hdf5ReadScope.ALL;
 
     /**
      * Factory method that returns a correct, instantiated object for the object provided as an
@@ -298,16 +299,12 @@ public abstract class AbstractHdf5Array {
      * @param clazz Class of the object or field
      * @return Specific Enum or Persistable class
      */
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     Class<?> getClassForEnumOrPersistable(Class<?> clazz) {
-        String className = clazz.getName();
-        try {
-            return Class.forName(truncateClassName(className));
-        } catch (ClassNotFoundException e) {
-            // This can never occur. By construction, the name used in the forName() call
-            // comes from the getName() of a class that's available.
-            throw new AssertionError(e);
+        Class<?> componentClass = clazz;
+        while (componentClass.isArray()) {
+            componentClass = componentClass.getComponentType();
         }
+        return componentClass;
     }
 
     /**
@@ -364,6 +361,18 @@ public abstract class AbstractHdf5Array {
         set1dArrayMember(arrayMember, array, (int) location);
     }
 
+    /**
+     * Returns the one-dimensional array that holds the member of a multi-dimensional array at the
+     * given location, so for example for location {3, 4, 5}, array[3][4] is returned.
+     */
+    static Object lowestLevelArray(Object array, long[] location) {
+        Object arrayCurrentLevel = array;
+        for (int i = 0; i < location.length - 1; i++) {
+            arrayCurrentLevel = ((Object[]) arrayCurrentLevel)[(int) location[i]];
+        }
+        return arrayCurrentLevel;
+    }
+
     /**
      * Return a member from a multi-dimensional array.
      *
@@ -428,13 +437,7 @@ public abstract class AbstractHdf5Array {
      * Writes the field order attribute into a group.
      */
     protected void writeFieldOrderAttribute(long groupId, int fieldOrder) {
-
-        long orderAttributeSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-        long orderAttributeId = H5.H5Acreate(groupId, Hdf5AlgorithmInterface.FIELD_ORDER_ATT_NAME,
-            ZIGGY_INT.getHdf5Type(), orderAttributeSpace, H5P_DEFAULT, H5P_DEFAULT);
-        H5.H5Awrite(orderAttributeId, ZIGGY_INT.getHdf5Type(), new int[] { fieldOrder });
-        H5.H5Aclose(orderAttributeId);
-        H5.H5Sclose(orderAttributeSpace);
+        session.writeIntAttribute(groupId, Hdf5AlgorithmInterface.FIELD_ORDER_ATT_NAME, fieldOrder);
     }
 
     /**
@@ -519,6 +522,30 @@ public abstract class AbstractHdf5Array {
         this.createGroupsForMissingFields = createGroupsForMissingFields;
     }
 
+    public Hdf5StoragePolicy getStoragePolicy() {
+        return storagePolicy;
+    }
+
+    public void setStoragePolicy(Hdf5StoragePolicy storagePolicy) {
+        this.storagePolicy = storagePolicy;
+    }
+
+    public Hdf5Session getSession() {
+        return session;
+    }
+
+    public void setSession(Hdf5Session session) {
+        this.session = session;
+    }
+
+    Hdf5ReadScope getReadScope() {
+        return readScope;
+    }
+
+    void setReadScope(Hdf5ReadScope readScope) {
+        this.readScope = readScope;
+    }
+
     public boolean isScalar() {
         return scalar;
     }
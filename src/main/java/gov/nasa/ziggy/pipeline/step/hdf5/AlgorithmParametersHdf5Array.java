@@ -1,6 +1,5 @@
 package gov.nasa.ziggy.pipeline.step.hdf5;
 
-import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BYTE;
 import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
 
 import java.lang.reflect.Field;
@@ -159,20 +158,17 @@ public class AlgorithmParametersHdf5Array extends AbstractHdf5Array {
         Object parValue = parameter.getValue();
         AbstractHdf5Array parArray = AbstractHdf5Array.newInstance(parValue);
         parArray.setCreateGroupsForMissingFields(createGroupsForMissingFields);
+        parArray.setStoragePolicy(storagePolicy);
+        parArray.setSession(session);
         parArray.setFieldName(parName);
         long typedParGroupId = H5.H5Gcreate(parametersInstanceGroupId, parName, H5P_DEFAULT,
             H5P_DEFAULT, H5P_DEFAULT);
         subGroupIds.addAll(parArray.write(typedParGroupId, parName));
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(typedParGroupId, parArray.getDataTypeToSave(),
-            parName);
-        writeFieldOrderAttribute(typedParGroupId, parameterGroupCounter);
+        session.writeFieldAttributes(typedParGroupId, parameterGroupCounter,
+            parArray.getDataTypeToSave());
         if (parameter.isScalar()) {
-            long scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-            long scalarParameterAttribute = H5.H5Acreate(typedParGroupId,
-                Hdf5AlgorithmInterface.SCALAR_PARAMETER_ATT_NAME, ZIGGY_BYTE.getHdf5Type(),
-                scalarSpace, H5P_DEFAULT, H5P_DEFAULT);
-            H5.H5Aclose(scalarParameterAttribute);
-            H5.H5Sclose(scalarSpace);
+            session.writeMarkerAttribute(typedParGroupId,
+                Hdf5AlgorithmInterface.SCALAR_PARAMETER_ATT_NAME);
         }
         H5.H5Gclose(typedParGroupId);
         subGroupIds.add(typedParGroupId);
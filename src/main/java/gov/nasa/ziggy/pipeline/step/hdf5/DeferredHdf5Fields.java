@@ -0,0 +1,117 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldPlan;
+import gov.nasa.ziggy.util.io.Persistable;
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+/**
+ * The large arrays of a Persistable object that
+ * {@link Hdf5AlgorithmInterface#readFileDeferringArrays(File, Persistable, boolean, long)} left
+ * unread. Until it is loaded, each field keeps the value that it had before the read. A field is
+ * loaded from the file on demand with {@link #load(String)}, which lets a caller that needs only a
+ * few of the large arrays in a file avoid reading, and holding, the rest. A field of a file that
+ * shares fields with another file is loaded from whichever file holds it.
+ * <p>
+ * Only arrays in the fields of single objects are deferred; arrays in the objects of an array or
+ * list of objects are read with them. Each field is named by its dot-separated path of field names
+ * from the top-level object, for example {@code diagnostics.centroids}. The file must not be
+ * changed or removed before the fields that are needed are loaded.
+ */
+public class DeferredHdf5Fields {
+
+    private final File file;
+    private final long minDeferredElements;
+    private final Map<String, DeferredField> deferredFields = new LinkedHashMap<>();
+    private boolean missingFieldsDetected;
+
+    DeferredHdf5Fields(File file, long minDeferredElements) {
+        checkArgument(minDeferredElements > 0, "Minimum deferred elements %s is not positive",
+            minDeferredElements);
+        this.file = file;
+        this.minDeferredElements = minDeferredElements;
+    }
+
+    /** Returns the paths of the fields that are deferred and not yet loaded, in file order. */
+    public Set<String> getFieldPaths() {
+        return Collections.unmodifiableSet(deferredFields.keySet());
+    }
+
+    public boolean isDeferred(String fieldPath) {
+        return deferredFields.containsKey(fieldPath);
+    }
+
+    /**
+     * Reads a deferred field from the file into its object.
+     *
+     * @param fieldPath the path of the field
+     * @throws IllegalArgumentException if the field isn't deferred, or has already been loaded
+     */
+    public void load(String fieldPath) {
+        DeferredField deferredField = deferredFields.get(fieldPath);
+        checkArgument(deferredField != null, "Field %s is not deferred", fieldPath);
+        File fieldFile = Hdf5AlgorithmInterface.fileHoldingField(file, fieldPath.split("\\.")[0]);
+        long fileId = H5.H5Fopen(fieldFile.getAbsolutePath(), HDF5Constants.H5F_ACC_RDONLY,
+            H5P_DEFAULT);
+        try {
+            long fieldGroupId = H5.H5Gopen(fileId, fieldPath.replace('.', '/'), H5P_DEFAULT);
+            AbstractHdf5Array hdf5Array = deferredField.field.newHdf5Array();
+            hdf5Array.read(fieldGroupId);
+            H5.H5Gclose(fieldGroupId);
+            deferredField.field.set(deferredField.object, hdf5Array.toJava());
+        } finally {
+            Hdf5AlgorithmInterface.testForUnclosedHdf5Objects(fileId);
+            H5.H5Fclose(fileId);
+        }
+        deferredFields.remove(fieldPath);
+    }
+
+    /** Reads every deferred field that is not yet loaded. */
+    public void loadAll() {
+        for (String fieldPath : new ArrayList<>(deferredFields.keySet())) {
+            load(fieldPath);
+        }
+    }
+
+    /**
+     * Determines whether a field that the read expected was missing from the file, as returned by
+     * {@link Hdf5AlgorithmInterface#readFile(File, Persistable, boolean)}.
+     */
+    public boolean isMissingFieldsDetected() {
+        return missingFieldsDetected;
+    }
+
+    void setMissingFieldsDetected(boolean missingFieldsDetected) {
+        this.missingFieldsDetected = missingFieldsDetected;
+    }
+
+    long getMinDeferredElements() {
+        return minDeferredElements;
+    }
+
+    void add(String fieldPath, Object object, FieldPlan field) {
+        deferredFields.put(fieldPath, new DeferredField(object, field));
+    }
+
+    /** A field that is deferred, and the object that it belongs to. */
+    private static class DeferredField {
+
+        private final Object object;
+        private final FieldPlan field;
+
+        DeferredField(Object object, FieldPlan field) {
+            this.object = object;
+            this.field = field;
+        }
+    }
+}
@@ -1,19 +1,18 @@
 package gov.nasa.ziggy.pipeline.step.hdf5;
 
-import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
+import static com.google.common.base.Preconditions.checkArgument;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_LONG;
-import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_PERSISTABLE;
-import static gov.nasa.ziggy.collections.ZiggyDataType.getDataType;
 import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
 
 import java.io.File;
-import java.lang.reflect.Field;
-import java.util.List;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nasa.ziggy.collections.ZiggyDataType;
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldPlan;
 import gov.nasa.ziggy.util.io.Persistable;
 import hdf.hdf5lib.H5;
 import hdf.hdf5lib.HDF5Constants;
@@ -32,17 +31,14 @@ import hdf.hdf5lib.HDF5Constants;
  * <li>Persistable objects;
  * <li>Arrays or lists of Persistable objects.
  * </ul>
+ * <p>
+ * Whether arrays are chunked and compressed is determined by a {@link Hdf5StoragePolicy}. The HDF5
+ * handles that every file needs are reused from one file to the next through a {@link Hdf5Session}.
  *
  * @author PT
  */
 public class Hdf5AlgorithmInterface {
 
-    // writing the methods as class methods, just in case it proves useful to have
-    // configuration parameters that affect the way that files are written or read
-
-    private static final int COMPRESSION_LEVEL = 0;
-    private static final int MIN_COMPRESSION_ELEMENTS = 200;
-
     // max number of bytes that should be read or written in any HDF5 hyperslab
     // to avoid the 2^31 - 8 byte limit (yes, that's a byte limit, not an element
     // limit) -- set to 2 billion here
@@ -67,6 +63,33 @@ public class Hdf5AlgorithmInterface {
     public static final String PARAMETER_SET_ALGORITHM_INTERFACE_NAME_ATT_NAME = "ALGORITHM_INTERFACE_NAME";
     public static final String SCALAR_PARAMETER_ATT_NAME = "SCALAR_PARAMETER_ATT_NAME";
 
+    // marks a file that holds only some of the fields of its object; the other fields are in
+    // the file of the same name in the parent directory
+    public static final String SHARED_FIELDS_ATT_NAME = "SHARED_FIELDS_IN_PARENT_DIRECTORY";
+
+    private final Hdf5StoragePolicy storagePolicy;
+    private final Hdf5Session session;
+
+    /** Creates an interface that writes arrays with the default {@link Hdf5StoragePolicy}. */
+    public Hdf5AlgorithmInterface() {
+        this(Hdf5StoragePolicy.defaultPolicy());
+    }
+
+    /** Creates an interface that writes arrays with the given {@link Hdf5StoragePolicy}. */
+    public Hdf5AlgorithmInterface(Hdf5StoragePolicy storagePolicy) {
+        this(storagePolicy, Hdf5Session.shared());
+    }
+
+    /**
+     * Creates an interface that writes arrays with the given {@link Hdf5StoragePolicy}, and that
+     * reuses the HDF5 handles of the given {@link Hdf5Session} rather than those of the session
+     * that is shared by the JVM.
+     */
+    public Hdf5AlgorithmInterface(Hdf5StoragePolicy storagePolicy, Hdf5Session session) {
+        this.storagePolicy = storagePolicy;
+        this.session = session;
+    }
+
     /**
      * Writes an object that implements the Persistable interface to an HDF5 file.
      *
@@ -74,19 +97,69 @@ public class Hdf5AlgorithmInterface {
      * @param dataObject Persistable object
      */
     public void writeFile(File file, Persistable dataObject, boolean createGroupsForMissingFields) {
-        // limit the interface to use of HDF5 1.8 functionality, so that hopefully
-        // MATLAB can read files written from here
-        H5.H5Pset_libver_bounds(HDF5Constants.H5P_FILE_ACCESS_DEFAULT, HDF5Constants.H5F_LIBVER_V18,
-            HDF5Constants.H5F_LIBVER_V18);
+        writeFile(file, dataObject, createGroupsForMissingFields, null);
+    }
+
+    /**
+     * Writes selected fields of an object that implements the Persistable interface to an HDF5
+     * file, and marks the file as sharing its other fields. These are in the file of the same name
+     * in the parent directory, which the caller writes with
+     * {@link #writeFile(File, Persistable, boolean)}. Many files can share the fields of one file
+     * in this way, which is much smaller and faster than writing the same fields to each of them.
+     * The readers in each language read the shared file first and then the fields in this file, so
+     * each field has the value it has in this file if it is here, and in the shared file if not.
+     *
+     * @param file desired destination file
+     * @param dataObject Persistable object
+     * @param fieldNames the names of the fields of the object that aren't shared
+     * @throws IllegalArgumentException if a name doesn't name a stored field
+     */
+    public void writeFileWithSharedFields(File file, Persistable dataObject,
+        boolean createGroupsForMissingFields, Set<String> fieldNames) {
+        PersistableClassPlan classPlan = PersistableClassPlan.of(dataObject.getClass());
+        for (String fieldName : fieldNames) {
+            checkArgument(classPlan.getFieldPlan(fieldName) != null,
+                "Field %s is not stored in class %s", fieldName, dataObject.getClass().getName());
+        }
+        writeFile(file, dataObject, createGroupsForMissingFields, fieldNames);
+    }
+
+    private void writeFile(File file, Persistable dataObject,
+        boolean createGroupsForMissingFields, Set<String> fieldNames) {
+        // the session's file access property list limits the interface to use of HDF5 1.8
+        // functionality, so that hopefully MATLAB can read files written from here
         long fileId = H5.H5Fcreate(file.getAbsolutePath(), HDF5Constants.H5F_ACC_TRUNC, H5P_DEFAULT,
-            H5P_DEFAULT);
+            session.fileAccessProperty());
         AbstractHdf5Array hdf5Array = AbstractHdf5Array.newInstance(dataObject);
         hdf5Array.setCreateGroupsForMissingFields(createGroupsForMissingFields);
+        hdf5Array.setStoragePolicy(storagePolicy);
+        hdf5Array.setSession(session);
+        if (fieldNames != null) {
+            session.writeMarkerAttribute(fileId, SHARED_FIELDS_ATT_NAME);
+            ((PersistableHdf5Array) hdf5Array).setWrittenFieldNames(fieldNames);
+        }
         hdf5Array.write(fileId, "/");
         testForUnclosedHdf5Objects(fileId);
         H5.H5Fclose(fileId);
     }
 
+    /** Returns the file that holds the fields that a file shares with other files. */
+    static File sharedFieldsFile(File file) {
+        return new File(file.getAbsoluteFile().getParentFile().getParentFile(), file.getName());
+    }
+
+    /**
+     * Returns the file that holds a field of the top-level object: the file itself, or the file it
+     * shares fields with if the field is one of those.
+     */
+    static File fileHoldingField(File file, String fieldName) {
+        long fileId = H5.H5Fopen(file.getAbsolutePath(), HDF5Constants.H5F_ACC_RDONLY, H5P_DEFAULT);
+        boolean sharedField = H5.H5Aexists(fileId, SHARED_FIELDS_ATT_NAME)
+            && !H5.H5Lexists(fileId, fieldName, H5P_DEFAULT);
+        H5.H5Fclose(fileId);
+        return sharedField ? sharedFieldsFile(file) : file;
+    }
+
     /**
      * Tests to determine whether there are any open HDF5 objects in a selected file.
      *
@@ -107,57 +180,18 @@ public class Hdf5AlgorithmInterface {
         }
     }
 
-    public static boolean allFieldsParallelizable(List<Field> fields) {
-        boolean allPrimitiveScalar = true;
-        for (Field field : fields) {
-            Class<?> clazz = field.getType();
-            boolean condition1 = getDataType(field) != ZIGGY_PERSISTABLE;
-            boolean condition2 = !clazz.isArray();
-            boolean condition3 = !List.class.isAssignableFrom(clazz);
-            allPrimitiveScalar = allPrimitiveScalar && condition1 && condition2 && condition3;
-        }
-        return allPrimitiveScalar;
-    }
-
-    /**
-     * Construct an HDF5 property for deflation and chunking
-     *
-     * @param elementCount number of array elements, if > MIN_COMPRESSION_ELEMENTS then compression
-     * will be applied
-     * @param chunkSize size of the desired array chunks in HDF5, if null no chunking will be
-     * applied
-     * @return ID for the resulting HDF5 property
-     */
-    @SuppressWarnings("unused")
-    static long chunkAndDeflateProperty(long elementCount, long[] chunkSize) {
-        long deflateProperty;
-        // TODO Eliminate dead code, or make COMPRESSION_LEVEL a variable
-        if (elementCount > MIN_COMPRESSION_ELEMENTS && COMPRESSION_LEVEL > 0) {
-            deflateProperty = H5.H5Pcreate(HDF5Constants.H5P_DATASET_CREATE);
-            H5.H5Pset_chunk(deflateProperty, chunkSize.length, chunkSize);
-            H5.H5Pset_deflate(deflateProperty, COMPRESSION_LEVEL);
-        } else {
-            deflateProperty = H5.H5Pcopy(HDF5Constants.H5P_DEFAULT);
-        }
-        return deflateProperty;
-    }
-
     /**
      * Add an attribute to a group that contains the data type stored in the group
      *
+     * @param session the session whose handles are used to write the attribute
      * @param fieldGroupId Identifier for the group
      * @param ziggyDataType Data type to be written to the group
      * @param fieldName Name of the field
      */
-    static void writeDataTypeAttribute(long fieldGroupId, ZiggyDataType ziggyDataType,
-        String fieldName) {
-        long dataTypeAttributeSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-        long dataTypeAttributeId = H5.H5Acreate(fieldGroupId, FIELD_DATA_TYPE_ATT_NAME,
-            ZIGGY_INT.getHdf5Type(), dataTypeAttributeSpace, H5P_DEFAULT, H5P_DEFAULT);
-        H5.H5Awrite(dataTypeAttributeId, ZIGGY_INT.getHdf5Type(),
-            new int[] { ziggyDataType.getAttributeTypeInt() });
-        H5.H5Aclose(dataTypeAttributeId);
-        H5.H5Sclose(dataTypeAttributeSpace);
+    static void writeDataTypeAttribute(Hdf5Session session, long fieldGroupId,
+        ZiggyDataType ziggyDataType, String fieldName) {
+        session.writeIntAttribute(fieldGroupId, FIELD_DATA_TYPE_ATT_NAME,
+            ziggyDataType.getAttributeTypeInt());
     }
 
     static String getFieldName(String fieldName, long[] arrayLocation) {
@@ -180,14 +214,78 @@ public class Hdf5AlgorithmInterface {
      * overwritten with the contents of the HDF5 file.
      */
     public boolean readFile(File file, Persistable dataObject, boolean allowMissingFields) {
+        return readFile(file, dataObject, allowMissingFields, Hdf5ReadScope.ALL);
+    }
+
+    /**
+     * Reads selected fields of an object that implements the Persistable interface from an HDF5
+     * file. The groups and datasets of the fields that aren't selected are never opened, and the
+     * fields keep the values that they had before the read.
+     *
+     * @param file desired source file
+     * @param dataObject Persistable object
+     * @param fieldPaths dot-separated paths of field names from the top-level object, for example
+     * {@code diagnostics.centroids}. A path selects the field it names and everything below it.
+     * @return true if a selected field was missing from the file
+     * @throws IllegalArgumentException if a path doesn't name a stored field
+     */
+    public boolean readFile(File file, Persistable dataObject, boolean allowMissingFields,
+        Set<String> fieldPaths) {
+        return readFile(file, dataObject, allowMissingFields,
+            Hdf5ReadScope.of(dataObject.getClass(), fieldPaths, null));
+    }
+
+    /**
+     * Reads an HDF5 file into an object that implements the Persistable interface, except for the
+     * arrays in fields of single objects that have at least the given number of elements. These are
+     * left unread, and can be read later, as needed, from the returned {@link DeferredHdf5Fields}.
+     *
+     * @param file desired source file
+     * @param dataObject Persistable object
+     * @param minDeferredElements the number of elements in the smallest array that is deferred
+     * @return the fields that were deferred
+     */
+    public DeferredHdf5Fields readFileDeferringArrays(File file, Persistable dataObject,
+        boolean allowMissingFields, long minDeferredElements) {
+        DeferredHdf5Fields deferredFields = new DeferredHdf5Fields(file, minDeferredElements);
+        deferredFields.setMissingFieldsDetected(readFile(file, dataObject, allowMissingFields,
+            Hdf5ReadScope.of(dataObject.getClass(), null, deferredFields)));
+        return deferredFields;
+    }
+
+    private boolean readFile(File file, Persistable dataObject, boolean allowMissingFields,
+        Hdf5ReadScope readScope) {
         long fileId = H5.H5Fopen(file.getAbsolutePath(), HDF5Constants.H5F_ACC_RDONLY, H5P_DEFAULT);
+
+        // If the file shares fields with another file, read those first, unless this file holds
+        // every field that the read selects, and then only the fields that this file holds
+        boolean missingFieldsDetected = false;
+        if (H5.H5Aexists(fileId, SHARED_FIELDS_ATT_NAME)) {
+            Set<String> heldFieldNames = heldFieldNames(fileId, dataObject.getClass());
+            if (!readScope.selectsOnly(heldFieldNames)) {
+                missingFieldsDetected = readFile(sharedFieldsFile(file), dataObject,
+                    allowMissingFields, readScope);
+            }
+            readScope = readScope.restrictedTo(heldFieldNames);
+        }
         AbstractHdf5Array hdf5Array = AbstractHdf5Array.newInstance(dataObject);
         hdf5Array.setAllowMissingFields(allowMissingFields);
+        hdf5Array.setReadScope(readScope);
         hdf5Array.read(fileId);
         testForUnclosedHdf5Objects(fileId);
         H5.H5Fclose(fileId);
-        hdf5Array.isMissingFieldsDetected();
-        return hdf5Array.isMissingFieldsDetected();
+        return missingFieldsDetected || hdf5Array.isMissingFieldsDetected();
+    }
+
+    /** Returns the names of the fields of the top-level object that a file holds. */
+    private static Set<String> heldFieldNames(long fileId, Class<?> clazz) {
+        Set<String> fieldNames = new HashSet<>();
+        for (FieldPlan field : PersistableClassPlan.of(clazz).getFieldPlans()) {
+            if (H5.H5Lexists(fileId, field.getName(), H5P_DEFAULT)) {
+                fieldNames.add(field.getName());
+            }
+        }
+        return fieldNames;
     }
 
     static ZiggyDataType readDataTypeAttribute(long fieldGroupId, String fieldName) {
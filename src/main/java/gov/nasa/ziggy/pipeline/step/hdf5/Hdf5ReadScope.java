@@ -0,0 +1,165 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldKind;
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldPlan;
+
+/**
+ * Which fields of a Persistable object are read from HDF5, and which large arrays are deferred
+ * rather than read. Each object that is read has its own scope, which knows the path of the object
+ * from the top-level object.
+ * <p>
+ * Fields are selected by dot-separated paths of field names from the top-level object, for example
+ * {@code diagnostics.centroids}. A path selects the field it names and everything below it, and the
+ * fields along the path are read only as far as needed to reach it. Fields that aren't selected
+ * aren't opened, and keep the values that they had before the read. The elements of an array or
+ * list of objects share the path of the field that holds them.
+ */
+final class Hdf5ReadScope {
+
+    /** Reads every field, and defers none. */
+    static final Hdf5ReadScope ALL = new Hdf5ReadScope("", null, null);
+
+    private final String path;
+    private final Set<String> fieldPaths;
+    private final DeferredHdf5Fields deferredFields;
+
+    private Hdf5ReadScope(String path, Set<String> fieldPaths, DeferredHdf5Fields deferredFields) {
+        this.path = path;
+        this.fieldPaths = fieldPaths;
+        this.deferredFields = deferredFields;
+    }
+
+    /**
+     * Returns the scope of a top-level object.
+     *
+     * @param clazz the class of the top-level object
+     * @param fieldPaths the paths of the fields to read, or null to read every field
+     * @param deferredFields receives the arrays that are deferred, or null to defer none
+     * @throws IllegalArgumentException if a path doesn't name a stored field
+     */
+    static Hdf5ReadScope of(Class<?> clazz, Set<String> fieldPaths,
+        DeferredHdf5Fields deferredFields) {
+        if (fieldPaths != null) {
+            for (String fieldPath : fieldPaths) {
+                checkFieldPath(clazz, fieldPath);
+            }
+            fieldPaths = Collections.unmodifiableSet(new HashSet<>(fieldPaths));
+        }
+        return new Hdf5ReadScope("", fieldPaths, deferredFields);
+    }
+
+    private static void checkFieldPath(Class<?> clazz, String fieldPath) {
+        Class<?> objectClass = clazz;
+        String[] fieldNames = fieldPath.split("\\.", -1);
+        for (int i = 0; i < fieldNames.length; i++) {
+            FieldPlan field = PersistableClassPlan.of(objectClass).getFieldPlan(fieldNames[i]);
+            if (field == null) {
+                throw new IllegalArgumentException("Field path " + fieldPath + " names no field "
+                    + fieldNames[i] + " in class " + objectClass.getName());
+            }
+            if (i < fieldNames.length - 1 && field.getKind() != FieldKind.PERSISTABLE) {
+                throw new IllegalArgumentException("Field path " + fieldPath
+                    + " continues past field " + fieldNames[i] + ", which holds no objects");
+            }
+            objectClass = field.getElementClass();
+        }
+    }
+
+    /**
+     * Returns the scope of a top-level object that is read from a file that holds only some of its
+     * fields. The scope selects no fields other than those.
+     *
+     * @param fieldNames the names of the fields of the top-level object that the file holds
+     */
+    Hdf5ReadScope restrictedTo(Set<String> fieldNames) {
+        Set<String> restrictedPaths = new HashSet<>();
+        for (String fieldName : fieldNames) {
+            if (fieldPaths == null) {
+                restrictedPaths.add(fieldName);
+                continue;
+            }
+            for (String selectedPath : fieldPaths) {
+                if (selectedPath.equals(fieldName) || selectedPath.startsWith(fieldName + ".")) {
+                    restrictedPaths.add(selectedPath);
+                }
+            }
+        }
+        return new Hdf5ReadScope(path, Collections.unmodifiableSet(restrictedPaths),
+            deferredFields);
+    }
+
+    /**
+     * Determines whether the scope of a top-level object selects only fields below the given
+     * fields, so that a file that holds those fields holds everything the read needs.
+     */
+    boolean selectsOnly(Set<String> fieldNames) {
+        if (fieldPaths == null) {
+            return false;
+        }
+        for (String selectedPath : fieldPaths) {
+            if (!fieldNames.contains(selectedPath.split("\\.", 2)[0])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Determines whether a field of the object is read. */
+    boolean includes(String fieldName) {
+        if (fieldPaths == null) {
+            return true;
+        }
+        String fieldPath = fieldPath(fieldName);
+        String parentPath = fieldPath + ".";
+        for (String selectedPath : fieldPaths) {
+            if (selectedPath.equals(fieldPath) || selectedPath.startsWith(parentPath)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the scope of the object or objects in a field of the object. */
+    Hdf5ReadScope child(String fieldName) {
+        String fieldPath = fieldPath(fieldName);
+        Set<String> childFieldPaths = fieldPaths;
+        if (fieldPaths != null && fieldPaths.contains(fieldPath)) {
+            childFieldPaths = null;
+        }
+        return new Hdf5ReadScope(fieldPath, childFieldPaths, deferredFields);
+    }
+
+    /**
+     * Returns the scope of the elements of an array or list of objects. Arrays in these objects
+     * are never deferred, since they have no path of their own.
+     */
+    Hdf5ReadScope elements() {
+        return deferredFields == null ? this : new Hdf5ReadScope(path, fieldPaths, null);
+    }
+
+    /**
+     * Determines whether the array in a field of the object is deferred rather than read.
+     *
+     * @param field the field
+     * @param fieldGroupId the group of the field
+     */
+    boolean defers(FieldPlan field, long fieldGroupId) {
+        return deferredFields != null && field.getKind() == FieldKind.PRIMITIVE_ARRAY
+            && PrimitiveHdf5Array.datasetElementCount(fieldGroupId,
+                field.getName()) >= deferredFields.getMinDeferredElements();
+    }
+
+    /** Records that the array in a field of an object is deferred. */
+    void defer(Object object, FieldPlan field) {
+        deferredFields.add(fieldPath(field.getName()), object, field);
+    }
+
+    /** Returns the path of a field of the object. */
+    String fieldPath(String fieldName) {
+        return path.isEmpty() ? fieldName : path + "." + fieldName;
+    }
+}
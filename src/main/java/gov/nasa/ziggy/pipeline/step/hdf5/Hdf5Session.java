@@ -0,0 +1,208 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BYTE;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_STRING;
+import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import gov.nasa.ziggy.collections.ZiggyDataType;
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+/**
+ * HDF5 handles that are set up once and then reused for every file that is written, rather than
+ * created and closed again for each file, dataset, and attribute. These are the file access
+ * property list, the scalar dataspace that every marker and integer attribute is written with, the
+ * variable-length string datatype, and the dataset creation property lists of compressed arrays,
+ * one for each chunk shape. When a single JVM writes the inputs of thousands of subtasks, this
+ * saves the native calls that would otherwise set up and tear down the same handles in every file.
+ * <p>
+ * None of these handles belong to a file, so they don't count as unclosed objects when a file is
+ * checked with {@link Hdf5AlgorithmInterface#testForUnclosedHdf5Objects(long)}.
+ * <p>
+ * Each handle is created on first use. By default, {@link Hdf5AlgorithmInterface} uses a session
+ * that is shared by the whole JVM and is never closed; its handles are released when the HDF5
+ * library shuts down. A caller that wants to release the handles sooner can create its own session
+ * and close it when it is done. A session must not be closed while a file is being written with it.
+ */
+public final class Hdf5Session implements AutoCloseable {
+
+    /** The number of dataset creation property lists that are kept before the oldest is closed. */
+    static final int MAX_DATASET_CREATION_PROPERTIES = 64;
+
+    private static final long NO_HANDLE = -1L;
+    private static final Hdf5Session SHARED = new Hdf5Session();
+
+    private long fileAccessProperty = NO_HANDLE;
+    private long scalarSpace = NO_HANDLE;
+    private long variableLengthStringType = NO_HANDLE;
+    private final Map<List<Long>, Long> datasetCreationProperties = new LinkedHashMap<>(16, 0.75F,
+        true) {
+        private static final long serialVersionUID = 20261019L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<List<Long>, Long> eldest) {
+            if (size() > MAX_DATASET_CREATION_PROPERTIES) {
+                H5.H5Pclose(eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+    };
+    private final int[] intAttributeValue = new int[1];
+    private boolean closed;
+
+    /** Returns the session that is shared by the whole JVM. */
+    static Hdf5Session shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the file access property list for new files. This limits the files to HDF5 1.8
+     * functionality, so that hopefully MATLAB can read them.
+     */
+    synchronized long fileAccessProperty() {
+        checkOpen();
+        if (fileAccessProperty == NO_HANDLE) {
+            long property = H5.H5Pcreate(HDF5Constants.H5P_FILE_ACCESS);
+            H5.H5Pset_libver_bounds(property, HDF5Constants.H5F_LIBVER_V18,
+                HDF5Constants.H5F_LIBVER_V18);
+            fileAccessProperty = property;
+        }
+        return fileAccessProperty;
+    }
+
+    /** Returns the variable-length string datatype. The caller must not close it. */
+    synchronized long variableLengthStringType() {
+        checkOpen();
+        if (variableLengthStringType == NO_HANDLE) {
+            long dataType = H5.H5Tcopy(ZIGGY_STRING.getHdf5Type());
+            H5.H5Tset_size(dataType, HDF5Constants.H5T_VARIABLE);
+            variableLengthStringType = dataType;
+        }
+        return variableLengthStringType;
+    }
+
+    private long scalarSpace() {
+        if (scalarSpace == NO_HANDLE) {
+            scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
+        }
+        return scalarSpace;
+    }
+
+    /**
+     * Creates a dataset with the chunking and compression that a storage policy gives the array.
+     * The dataset creation property list is reused for every array that has the same chunk shape.
+     *
+     * @param groupId the group to create the dataset in
+     * @param datasetName the name of the dataset
+     * @param dataType the HDF5 datatype of the dataset
+     * @param dataSpace the dataspace of the dataset
+     * @param dimensions the dimensions of the array
+     * @param storagePolicy the storage policy
+     * @param elementSizeBytes the size of an array element in bytes
+     * @return the identifier of the dataset, which the caller must close
+     */
+    synchronized long createDataset(long groupId, String datasetName, long dataType,
+        long dataSpace, long[] dimensions, Hdf5StoragePolicy storagePolicy,
+        int elementSizeBytes) {
+        checkOpen();
+        return H5.H5Dcreate(groupId, datasetName, dataType, dataSpace, H5P_DEFAULT,
+            datasetCreationProperty(storagePolicy, dimensions, elementSizeBytes), H5P_DEFAULT);
+    }
+
+    private long datasetCreationProperty(Hdf5StoragePolicy storagePolicy, long[] dimensions,
+        int elementSizeBytes) {
+        long elementCount = 1;
+        for (long dimension : dimensions) {
+            elementCount *= dimension;
+        }
+        if (!storagePolicy.compress(elementCount)) {
+            return H5P_DEFAULT;
+        }
+        List<Long> key = new ArrayList<>(dimensions.length + 2);
+        key.add((long) storagePolicy.getCompressionLevel());
+        key.add(storagePolicy.isShuffle() ? 1L : 0L);
+        for (long chunkDimension : storagePolicy.chunkShape(dimensions, elementSizeBytes)) {
+            key.add(chunkDimension);
+        }
+        Long property = datasetCreationProperties.get(key);
+        if (property == null) {
+            property = storagePolicy.datasetCreationProperty(dimensions, elementSizeBytes);
+            datasetCreationProperties.put(key, property);
+        }
+        return property;
+    }
+
+    /** Writes a scalar integer attribute. */
+    synchronized void writeIntAttribute(long objectId, String attributeName, int value) {
+        checkOpen();
+        long attributeId = H5.H5Acreate(objectId, attributeName, ZIGGY_INT.getHdf5Type(),
+            scalarSpace(), H5P_DEFAULT, H5P_DEFAULT);
+        intAttributeValue[0] = value;
+        H5.H5Awrite(attributeId, ZIGGY_INT.getHdf5Type(), intAttributeValue);
+        H5.H5Aclose(attributeId);
+    }
+
+    /** Writes an attribute that has no value; its presence alone tells readers something. */
+    synchronized void writeMarkerAttribute(long objectId, String attributeName) {
+        checkOpen();
+        H5.H5Aclose(H5.H5Acreate(objectId, attributeName, ZIGGY_BYTE.getHdf5Type(), scalarSpace(),
+            H5P_DEFAULT, H5P_DEFAULT));
+    }
+
+    /**
+     * Writes the field order and data type attributes that every field group gets, one after the
+     * other with the same dataspace and buffer.
+     */
+    synchronized void writeFieldAttributes(long fieldGroupId, int fieldOrder,
+        ZiggyDataType ziggyDataType) {
+        writeIntAttribute(fieldGroupId, Hdf5AlgorithmInterface.FIELD_ORDER_ATT_NAME, fieldOrder);
+        writeIntAttribute(fieldGroupId, Hdf5AlgorithmInterface.FIELD_DATA_TYPE_ATT_NAME,
+            ziggyDataType.getAttributeTypeInt());
+    }
+
+    synchronized boolean isClosed() {
+        return closed;
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("HDF5 session is closed");
+        }
+    }
+
+    /**
+     * Closes the handles of the session.
+     *
+     * @throws IllegalStateException if this is the shared session, which can't be closed
+     */
+    @Override
+    public synchronized void close() {
+        if (this == SHARED) {
+            throw new IllegalStateException("Shared HDF5 session can't be closed");
+        }
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (long property : datasetCreationProperties.values()) {
+            H5.H5Pclose(property);
+        }
+        datasetCreationProperties.clear();
+        if (fileAccessProperty != NO_HANDLE) {
+            H5.H5Pclose(fileAccessProperty);
+        }
+        if (variableLengthStringType != NO_HANDLE) {
+            H5.H5Tclose(variableLengthStringType);
+        }
+        if (scalarSpace != NO_HANDLE) {
+            H5.H5Sclose(scalarSpace);
+        }
+    }
+}
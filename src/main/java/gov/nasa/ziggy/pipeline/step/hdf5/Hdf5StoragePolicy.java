@@ -0,0 +1,185 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.configuration2.ImmutableConfiguration;
+
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+/**
+ * How the arrays in the HDF5 files of a pipeline step are stored: the deflate (gzip) level, whether
+ * the shuffle filter is applied before deflation, the smallest array that is compressed, and the
+ * target size of a chunk.
+ * <p>
+ * Compression requires chunked storage. The chunks of an array keep its trailing dimensions, which
+ * are contiguous in memory, whole as far as the target size allows, and divide its leading
+ * dimensions, so that writing or reading the array in order visits each chunk once. Arrays that
+ * aren't compressed are stored contiguously, as before.
+ * <p>
+ * The policy of a pipeline step is read from the {@code ziggy.pipeline.hdf5} properties. Each of
+ * these can be given for a single step by appending the name of the step to the property name, for
+ * example {@code ziggy.pipeline.hdf5.compressionLevel.pa}. The policy is passed to algorithms in
+ * the environment variables returned by {@link #environment()}, which the HDF5 writers in the
+ * Python ziggytools package and the C++ libziggymi library use, so that the files written by the
+ * algorithms are stored the same way as the files written by Ziggy.
+ */
+public class Hdf5StoragePolicy {
+
+    public static final int DEFAULT_COMPRESSION_LEVEL = 0;
+    public static final boolean DEFAULT_SHUFFLE = true;
+    public static final long DEFAULT_MIN_COMPRESSION_ELEMENTS = 200;
+    public static final long DEFAULT_CHUNK_BYTES = 1024 * 1024;
+
+    /** Stores every array contiguously, without compression. */
+    public static final Hdf5StoragePolicy UNCOMPRESSED = new Hdf5StoragePolicy(0, DEFAULT_SHUFFLE,
+        DEFAULT_MIN_COMPRESSION_ELEMENTS, DEFAULT_CHUNK_BYTES);
+
+    public static final String COMPRESSION_LEVEL_ENV = "ZIGGY_HDF5_COMPRESSION_LEVEL";
+    public static final String SHUFFLE_ENV = "ZIGGY_HDF5_SHUFFLE";
+    public static final String MIN_COMPRESSION_ELEMENTS_ENV = "ZIGGY_HDF5_MIN_COMPRESSION_ELEMENTS";
+    public static final String CHUNK_BYTES_ENV = "ZIGGY_HDF5_CHUNK_BYTES";
+
+    /** The size in a chunk of a variable-length string, which is stored as a reference. */
+    static final int VARIABLE_LENGTH_ELEMENT_BYTES = 16;
+
+    private static final int MAX_COMPRESSION_LEVEL = 9;
+
+    private final int compressionLevel;
+    private final boolean shuffle;
+    private final long minCompressionElements;
+    private final long chunkBytes;
+
+    /**
+     * @param compressionLevel the deflate level, from 0 (no compression) to 9
+     * @param shuffle whether the shuffle filter is applied to compressed arrays
+     * @param minCompressionElements the number of elements in the smallest array that is
+     * compressed
+     * @param chunkBytes the target size of a chunk of a compressed array
+     * @throws IllegalArgumentException if the compression level isn't from 0 to 9 or the chunk
+     * size isn't positive
+     */
+    public Hdf5StoragePolicy(int compressionLevel, boolean shuffle, long minCompressionElements,
+        long chunkBytes) {
+        if (compressionLevel < 0 || compressionLevel > MAX_COMPRESSION_LEVEL) {
+            throw new IllegalArgumentException(
+                "Compression level " + compressionLevel + " is not from 0 to 9");
+        }
+        if (chunkBytes <= 0) {
+            throw new IllegalArgumentException("Chunk size " + chunkBytes + " is not positive");
+        }
+        this.compressionLevel = compressionLevel;
+        this.shuffle = shuffle;
+        this.minCompressionElements = minCompressionElements;
+        this.chunkBytes = chunkBytes;
+    }
+
+    /** Returns the policy given by the properties that don't name a pipeline step. */
+    public static Hdf5StoragePolicy defaultPolicy() {
+        return forPipelineStep(null);
+    }
+
+    /**
+     * Returns the policy of the given pipeline step. Properties that aren't given for the step are
+     * taken from the properties that don't name a step.
+     */
+    public static Hdf5StoragePolicy forPipelineStep(String pipelineStepName) {
+        ImmutableConfiguration config = ZiggyConfiguration.getInstance();
+        return new Hdf5StoragePolicy(
+            config.getInt(stepProperty(PropertyName.HDF5_COMPRESSION_LEVEL, pipelineStepName),
+                config.getInt(PropertyName.HDF5_COMPRESSION_LEVEL.property(),
+                    DEFAULT_COMPRESSION_LEVEL)),
+            config.getBoolean(stepProperty(PropertyName.HDF5_SHUFFLE, pipelineStepName),
+                config.getBoolean(PropertyName.HDF5_SHUFFLE.property(), DEFAULT_SHUFFLE)),
+            config.getLong(
+                stepProperty(PropertyName.HDF5_MIN_COMPRESSION_ELEMENTS, pipelineStepName),
+                config.getLong(PropertyName.HDF5_MIN_COMPRESSION_ELEMENTS.property(),
+                    DEFAULT_MIN_COMPRESSION_ELEMENTS)),
+            config.getLong(stepProperty(PropertyName.HDF5_CHUNK_BYTES, pipelineStepName),
+                config.getLong(PropertyName.HDF5_CHUNK_BYTES.property(), DEFAULT_CHUNK_BYTES)));
+    }
+
+    private static String stepProperty(PropertyName propertyName, String pipelineStepName) {
+        return pipelineStepName == null ? propertyName.property()
+            : propertyName.property() + "." + pipelineStepName;
+    }
+
+    /** Determines whether an array with the given number of elements is compressed. */
+    public boolean compress(long elementCount) {
+        return compressionLevel > 0 && elementCount > 0 && elementCount >= minCompressionElements;
+    }
+
+    /**
+     * Returns the shape of the chunks of an array. The trailing dimensions are kept whole as far as
+     * the target chunk size allows, and each dimension of a chunk has at least one element.
+     */
+    public long[] chunkShape(long[] dimensions, int elementSizeBytes) {
+        long[] chunkShape = new long[dimensions.length];
+        long chunkElements = Math.max(1, chunkBytes / Math.max(1, elementSizeBytes));
+        for (int i = dimensions.length - 1; i >= 0; i--) {
+            chunkShape[i] = Math.max(1, Math.min(dimensions[i], chunkElements));
+            chunkElements = Math.max(1, chunkElements / chunkShape[i]);
+        }
+        return chunkShape;
+    }
+
+    /**
+     * Returns the HDF5 dataset creation property list for an array. The caller must close it with
+     * {@link H5#H5Pclose(long)}.
+     */
+    long datasetCreationProperty(long[] dimensions, int elementSizeBytes) {
+        long elementCount = 1;
+        for (long dimension : dimensions) {
+            elementCount *= dimension;
+        }
+        if (!compress(elementCount)) {
+            return H5.H5Pcopy(HDF5Constants.H5P_DEFAULT);
+        }
+        long property = H5.H5Pcreate(HDF5Constants.H5P_DATASET_CREATE);
+        H5.H5Pset_chunk(property, dimensions.length, chunkShape(dimensions, elementSizeBytes));
+
+        // The shuffle filter must precede the deflate filter, as filters are applied in the
+        // order in which they are added.
+        if (shuffle) {
+            H5.H5Pset_shuffle(property);
+        }
+        H5.H5Pset_deflate(property, compressionLevel);
+        return property;
+    }
+
+    /** Returns the environment variables that pass this policy to algorithms. */
+    public Map<String, String> environment() {
+        Map<String, String> environment = new HashMap<>();
+        environment.put(COMPRESSION_LEVEL_ENV, Integer.toString(compressionLevel));
+        environment.put(SHUFFLE_ENV, Boolean.toString(shuffle));
+        environment.put(MIN_COMPRESSION_ELEMENTS_ENV, Long.toString(minCompressionElements));
+        environment.put(CHUNK_BYTES_ENV, Long.toString(chunkBytes));
+        return environment;
+    }
+
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    public boolean isShuffle() {
+        return shuffle;
+    }
+
+    public long getMinCompressionElements() {
+        return minCompressionElements;
+    }
+
+    public long getChunkBytes() {
+        return chunkBytes;
+    }
+
+    @Override
+    public String toString() {
+        return "compressionLevel=[" + compressionLevel + "], shuffle=[" + shuffle
+            + "], minCompressionElements=[" + minCompressionElements + "], chunkBytes=["
+            + chunkBytes + "]";
+    }
+}
@@ -0,0 +1,157 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Overlaps the conversion of an array of Persistable objects to and from parallel arrays, one per
+ * field, with the HDF5 I/O of those arrays.
+ * <p>
+ * The HDF5 library isn't thread-safe, so every HDF5 call is made on the calling thread, one field
+ * at a time and in field order. The conversions don't touch HDF5, and run on worker threads. When
+ * writing, the workers gather the values of the next fields into their parallel arrays while the
+ * calling thread writes the arrays that are finished. When reading, the calling thread reads the
+ * next fields while the workers copy the values of the fields already read into the objects. No
+ * more fields than there are workers are in flight at once, which bounds the memory taken by
+ * parallel arrays that are waiting to be written or copied.
+ * <p>
+ * The number of workers is given by the {@code ziggy.pipeline.hdf5.parallelArrayThreads}
+ * property. With a single worker, everything runs on the calling thread. The worker threads are
+ * shared by all pipelines and are discarded when they have been idle for a while.
+ */
+final class ParallelArrayPipeline {
+
+    static final int DEFAULT_WORKER_COUNT = Math.min(4,
+        Runtime.getRuntime().availableProcessors());
+
+    private static final ExecutorService WORKERS = Executors.newCachedThreadPool(
+        new ThreadFactoryBuilder().setNameFormat("ParallelArray-%d").setDaemon(true).build());
+
+    private final int workerCount;
+
+    ParallelArrayPipeline(int workerCount) {
+        checkArgument(workerCount > 0, "Worker count %s is not positive", workerCount);
+        this.workerCount = workerCount;
+    }
+
+    /** Returns a pipeline with the number of workers given by the configuration. */
+    static ParallelArrayPipeline fromConfiguration() {
+        return new ParallelArrayPipeline(ZiggyConfiguration.getInstance()
+            .getInt(PropertyName.HDF5_PARALLEL_ARRAY_THREADS.property(), DEFAULT_WORKER_COUNT));
+    }
+
+    int getWorkerCount() {
+        return workerCount;
+    }
+
+    /**
+     * Gathers the parallel arrays of the fields on the workers and writes them on the calling
+     * thread, in field order.
+     *
+     * @param fieldCount the number of fields
+     * @param gather returns the parallel array of the field with the given index; this must not
+     * call HDF5
+     * @param write writes the parallel array of the field with the given index
+     */
+    <T> void gatherAndWrite(int fieldCount, IntFunction<T> gather, ObjIntConsumer<T> write) {
+        if (workerCount == 1) {
+            for (int i = 0; i < fieldCount; i++) {
+                write.accept(gather.apply(i), i);
+            }
+            return;
+        }
+        Deque<Future<T>> gathered = new ArrayDeque<>();
+        int nextField = 0;
+        try {
+            for (int i = 0; i < fieldCount; i++) {
+                while (nextField < fieldCount && nextField < i + workerCount) {
+                    int field = nextField++;
+                    gathered.add(WORKERS.submit(() -> gather.apply(field)));
+                }
+                write.accept(result(gathered.remove()), i);
+            }
+        } finally {
+            cancel(gathered);
+        }
+    }
+
+    /**
+     * Reads the parallel arrays of the fields on the calling thread, in field order, and scatters
+     * them on the workers.
+     *
+     * @param fieldCount the number of fields
+     * @param read reads the parallel array of the field with the given index
+     * @param scatter copies the values of the parallel array of the field with the given index to
+     * the objects; this must not call HDF5, and the fields may be scattered in any order
+     */
+    <T> void readAndScatter(int fieldCount, IntFunction<T> read, ObjIntConsumer<T> scatter) {
+        if (workerCount == 1) {
+            for (int i = 0; i < fieldCount; i++) {
+                scatter.accept(read.apply(i), i);
+            }
+            return;
+        }
+        Deque<Future<?>> scattered = new ArrayDeque<>();
+        try {
+            for (int i = 0; i < fieldCount; i++) {
+                if (scattered.size() == workerCount) {
+                    result(scattered.remove());
+                }
+                T parallelArray = read.apply(i);
+                int field = i;
+                scattered.add(WORKERS.submit(() -> scatter.accept(parallelArray, field)));
+            }
+            while (!scattered.isEmpty()) {
+                result(scattered.remove());
+            }
+        } finally {
+            cancel(scattered);
+        }
+    }
+
+    /**
+     * Returns the result of a task, and rethrows the exception that the task threw, if any.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private static <T> T result(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new PipelineException("Unable to convert parallel array", cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new PipelineException("Interrupted while converting parallel arrays", e);
+        }
+    }
+
+    /** Cancels the tasks that are still in flight after an exception. */
+    private static void cancel(Deque<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+}
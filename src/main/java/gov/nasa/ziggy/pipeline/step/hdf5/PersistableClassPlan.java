@@ -0,0 +1,282 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_PERSISTABLE;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import gov.nasa.ziggy.collections.ZiggyDataType;
+import gov.nasa.ziggy.pipeline.step.AlgorithmParameters;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.ReflectionUtils;
+
+/**
+ * How the objects of a class are written to and read from HDF5: the fields that are stored, how
+ * each is stored, and method handles that get and set them and construct new instances of the
+ * class.
+ * <p>
+ * Looking up the fields of a class, making them accessible, and classifying them take much longer
+ * than getting or setting a field, and an array of objects would otherwise repeat them for every
+ * member of the array. The plan of a class is built the first time that it is needed, and is
+ * shared by every instance of the class and every file.
+ */
+final class PersistableClassPlan {
+
+    /** How a field is stored in HDF5. */
+    enum FieldKind {
+
+        /**
+         * A primitive, boxed primitive, String, or enum that is not in an array or list. An array
+         * of objects whose fields are all of this kind is stored as parallel arrays, one per field.
+         */
+        PRIMITIVE_SCALAR,
+
+        /** An array or list of primitives, boxed primitives, Strings, or enums. */
+        PRIMITIVE_ARRAY,
+
+        /** An object, array, or list of objects that implement Persistable. */
+        PERSISTABLE,
+
+        /** An instance of {@link AlgorithmParameters}. */
+        ALGORITHM_PARAMETERS;
+    }
+
+    private static final ClassValue<PersistableClassPlan> PLANS = new ClassValue<>() {
+        @Override
+        protected PersistableClassPlan computeValue(Class<?> clazz) {
+            return new PersistableClassPlan(clazz);
+        }
+    };
+
+    private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class,
+        Object.class);
+    private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class,
+        Object.class);
+    private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class);
+
+    private final Class<?> clazz;
+    private final List<FieldPlan> fieldPlans;
+    private final boolean allFieldsPrimitiveScalar;
+    private final MethodHandle constructor;
+
+    private PersistableClassPlan(Class<?> clazz) {
+        this.clazz = clazz;
+        List<FieldPlan> fieldPlans = new ArrayList<>();
+        boolean allFieldsPrimitiveScalar = true;
+        for (Field field : ReflectionUtils.getAllFields(clazz, false)) {
+            FieldPlan fieldPlan = new FieldPlan(field);
+            fieldPlans.add(fieldPlan);
+            allFieldsPrimitiveScalar = allFieldsPrimitiveScalar
+                && fieldPlan.getKind() == FieldKind.PRIMITIVE_SCALAR;
+        }
+        this.fieldPlans = Collections.unmodifiableList(fieldPlans);
+        this.allFieldsPrimitiveScalar = allFieldsPrimitiveScalar;
+        constructor = defaultConstructor(clazz);
+    }
+
+    /** Returns the plan of the given class. */
+    static PersistableClassPlan of(Class<?> clazz) {
+        return PLANS.get(clazz);
+    }
+
+    /**
+     * Returns a handle on the default constructor of the class, or null if the class has none, as
+     * is the case for interfaces and abstract classes.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private static MethodHandle defaultConstructor(Class<?> clazz) {
+        try {
+            Constructor<?> constructor = clazz.getDeclaredConstructor();
+            constructor.setAccessible(true);
+            return MethodHandles.lookup()
+                .unreflectConstructor(constructor)
+                .asType(CONSTRUCTOR_TYPE);
+        } catch (NoSuchMethodException | IllegalAccessException | RuntimeException e) {
+            // The plan can still be used to write objects of the class; newInstance() reports
+            // the missing constructor if it is called.
+            return null;
+        }
+    }
+
+    /**
+     * Returns the fields that are stored, in the order returned by
+     * {@link ReflectionUtils#getAllFields(Class, boolean)}.
+     */
+    List<FieldPlan> getFieldPlans() {
+        return fieldPlans;
+    }
+
+    /** Returns the stored field with the given name, or null if there is none. */
+    FieldPlan getFieldPlan(String name) {
+        for (FieldPlan fieldPlan : fieldPlans) {
+            if (fieldPlan.getName().equals(name)) {
+                return fieldPlan;
+            }
+        }
+        return null;
+    }
+
+    /** Returns the fields that are stored. */
+    List<Field> getFields() {
+        List<Field> fields = new ArrayList<>(fieldPlans.size());
+        for (FieldPlan fieldPlan : fieldPlans) {
+            fields.add(fieldPlan.getField());
+        }
+        return fields;
+    }
+
+    /**
+     * Determines whether all the fields are {@link FieldKind#PRIMITIVE_SCALAR}, so that an array
+     * of objects of the class can be stored as parallel arrays.
+     */
+    boolean areAllFieldsPrimitiveScalar() {
+        return allFieldsPrimitiveScalar;
+    }
+
+    /** Returns a new instance of the class, constructed with its default constructor. */
+    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+    Object newInstance() {
+        if (constructor == null) {
+            // This can never occur. By construction, the class has a default constructor.
+            throw new AssertionError("Class " + clazz.getName() + " has no default constructor");
+        }
+        try {
+            return constructor.invokeExact();
+        } catch (Throwable e) {
+            throw unchecked(e);
+        }
+    }
+
+    /**
+     * Rethrows an unchecked exception thrown by a method handle, or returns an
+     * {@link AssertionError} for a checked one. Constructors of Persistable classes and field
+     * accessors don't throw checked exceptions.
+     */
+    private static AssertionError unchecked(Throwable e) {
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        return new AssertionError(e);
+    }
+
+    /** How a single field is stored, with handles that get and set its value. */
+    static final class FieldPlan {
+
+        private final Field field;
+        private final ZiggyDataType dataType;
+        private final FieldKind kind;
+        private final MethodHandle getter;
+        private final MethodHandle setter;
+
+        @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+        private FieldPlan(Field field) {
+            this.field = field;
+            dataType = ZiggyDataType.getDataType(field);
+            kind = kind(field, dataType);
+            field.setAccessible(true);
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            try {
+                getter = lookup.unreflectGetter(field).asType(GETTER_TYPE);
+                setter = lookup.unreflectSetter(field).asType(SETTER_TYPE);
+            } catch (IllegalAccessException e) {
+                // This can never occur. The field was set to accessible above.
+                throw new AssertionError(e);
+            }
+        }
+
+        private static FieldKind kind(Field field, ZiggyDataType dataType) {
+            Class<?> type = field.getType();
+            if (type.equals(AlgorithmParameters.class)) {
+                return FieldKind.ALGORITHM_PARAMETERS;
+            }
+            if (dataType == ZIGGY_PERSISTABLE) {
+                return FieldKind.PERSISTABLE;
+            }
+            if (type.isArray() || List.class.isAssignableFrom(type)) {
+                return FieldKind.PRIMITIVE_ARRAY;
+            }
+            return FieldKind.PRIMITIVE_SCALAR;
+        }
+
+        Field getField() {
+            return field;
+        }
+
+        String getName() {
+            return field.getName();
+        }
+
+        ZiggyDataType getDataType() {
+            return dataType;
+        }
+
+        FieldKind getKind() {
+            return kind;
+        }
+
+        /**
+         * Returns the class of the values of the field: its type, or the component type of an
+         * array, or the type argument of a list.
+         */
+        Class<?> getElementClass() {
+            Class<?> elementClass = field.getType();
+            if (List.class.isAssignableFrom(elementClass)
+                && field.getGenericType() instanceof ParameterizedType) {
+                Type typeArgument = ((ParameterizedType) field.getGenericType())
+                    .getActualTypeArguments()[0];
+                if (typeArgument instanceof ParameterizedType) {
+                    typeArgument = ((ParameterizedType) typeArgument).getRawType();
+                }
+                return typeArgument instanceof Class ? (Class<?>) typeArgument : Object.class;
+            }
+            while (elementClass.isArray()) {
+                elementClass = elementClass.getComponentType();
+            }
+            return elementClass;
+        }
+
+        /**
+         * Returns an HDF5 array that reads the field from HDF5. This is equivalent to
+         * {@link AbstractHdf5Array#newInstance(Object)} with the field as its argument.
+         */
+        AbstractHdf5Array newHdf5Array() {
+            return switch (kind) {
+                case ALGORITHM_PARAMETERS -> new AlgorithmParametersHdf5Array(field);
+                case PERSISTABLE -> new PersistableHdf5Array(field);
+                default -> new PrimitiveHdf5Array(field);
+            };
+        }
+
+        /** Returns the value of the field in the given object. */
+        @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+        Object get(Object object) {
+            try {
+                return getter.invokeExact(object);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+
+        /** Sets the value of the field in the given object. */
+        @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+        void set(Object object, Object value) {
+            try {
+                setter.invokeExact(object, value);
+            } catch (Throwable e) {
+                throw unchecked(e);
+            }
+        }
+    }
+}
@@ -1,31 +1,27 @@
 package gov.nasa.ziggy.pipeline.step.hdf5;
 
 import static com.google.common.base.Preconditions.checkArgument;
-import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BYTE;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_LONG;
 import static gov.nasa.ziggy.collections.ZiggyDataType.getDataType;
 import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
 
 import java.lang.reflect.Array;
-import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
-import java.lang.reflect.InvocationTargetException;
-import java.lang.reflect.Modifier;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nasa.ziggy.collections.ZiggyArrayUtils;
 import gov.nasa.ziggy.collections.ZiggyDataType;
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldPlan;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 import gov.nasa.ziggy.util.PipelineException;
-import gov.nasa.ziggy.util.ReflectionUtils;
 import gov.nasa.ziggy.util.io.Persistable;
-import gov.nasa.ziggy.util.io.ProxyIgnore;
 import hdf.hdf5lib.H5;
 import hdf.hdf5lib.HDF5Constants;
 
@@ -35,6 +31,7 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
 
     ArrayIterator arrayIterator = null;
     boolean allFieldsPrimitiveScalar = false;
+    private Set<String> writtenFieldNames;
 
     /**
      * Instantiate an object for extraction of data from HDF5 and return to a Java object. This
@@ -74,8 +71,8 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
      * Persistable, but rather a primitive, String, or Enum object, or a boxed primitive."
      */
     void detectPrimitiveScalarFields() {
-        allFieldsPrimitiveScalar = Hdf5AlgorithmInterface
-            .allFieldsParallelizable(ReflectionUtils.getAllFields(auxiliaryClass, false));
+        allFieldsPrimitiveScalar = PersistableClassPlan.of(auxiliaryClass)
+            .areAllFieldsPrimitiveScalar();
     }
 
     /**
@@ -306,50 +303,43 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
      * @return List of additional groups created during the write of this object *(typically these
      * come from writing objects that are members of the dataObject)
      */
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     List<Long> writePersistableScalarObject(long fileId, String groupName) {
 
         Persistable[] dataObjectAsPersistableArray = (Persistable[]) getArrayObject();
         Persistable dataObject = dataObjectAsPersistableArray[0];
         List<Long> groupIds = new ArrayList<>();
         Class<?> clazz = dataObject.getClass();
-        List<Field> fields = ReflectionUtils.getAllFields(clazz, false);
 
         // loop over fields
         int iField = 0;
-        for (Field field : fields) {
-
-            if (field.getAnnotation(ProxyIgnore.class) != null
-                || Modifier.isStatic(field.getModifiers())) {
-                continue;
-            }
-            field.setAccessible(true);
+        for (FieldPlan field : PersistableClassPlan.of(clazz).getFieldPlans()) {
 
             // every field gets its own group, with a group order attribute
 
             // convert the field's contents to an appropriate HDF5 array object
-            AbstractHdf5Array persistableField;
-            try {
-                persistableField = AbstractHdf5Array.newInstance(field.get(dataObject));
-            } catch (IllegalAccessException e) {
-                // This can never occur. We set the field to be accessible prior
-                // to this attempt call get() on it.
-                throw new AssertionError(e);
-            }
+            AbstractHdf5Array persistableField = AbstractHdf5Array
+                .newInstance(field.get(dataObject));
             if (!createGroupsForMissingFields && isEmptyHdf5Array(persistableField)) {
                 log.debug("Not creating group for empty field {} in class {}", field.getName(),
                     clazz.getName());
                 continue;
             }
+
+            // Fields that the write doesn't select are left out, but still take their places
+            // in the field order, so that each field has the same order in every file
+            if (writtenFieldNames != null && !writtenFieldNames.contains(field.getName())) {
+                iField++;
+                continue;
+            }
             if (persistableField != null) {
                 persistableField.setCreateGroupsForMissingFields(isCreateGroupsForMissingFields());
+                persistableField.setStoragePolicy(getStoragePolicy());
+                persistableField.setSession(getSession());
             }
 
             long fieldGroupId = H5.H5Gcreate(fileId, field.getName(), H5P_DEFAULT, H5P_DEFAULT,
                 H5P_DEFAULT);
             groupIds.add(fieldGroupId);
-            writeFieldOrderAttribute(fieldGroupId, iField);
-            iField++;
 
             // If this is an empty field, but we were instructed to create a group
             // for it, mark it as empty and move on
@@ -357,22 +347,19 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
             if (isEmptyHdf5Array(persistableField)) {
                 log.debug("Creating group for empty field {} in class {}", field.getName(),
                     clazz.getName());
-                long orderAttributeSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-                long orderAttributeId = H5.H5Acreate(fieldGroupId,
-                    Hdf5AlgorithmInterface.EMPTY_FIELD_ATT_NAME, ZIGGY_BYTE.getHdf5Type(),
-                    orderAttributeSpace, H5P_DEFAULT, H5P_DEFAULT);
-                H5.H5Aclose(orderAttributeId);
-                H5.H5Sclose(orderAttributeSpace);
+                writeFieldOrderAttribute(fieldGroupId, iField++);
+                session.writeMarkerAttribute(fieldGroupId,
+                    Hdf5AlgorithmInterface.EMPTY_FIELD_ATT_NAME);
                 H5.H5Gclose(fieldGroupId);
                 continue;
             }
 
-            // add an attribute that contains the data type that will be
-            // contained in the group, because I'm tired of trying to infer
+            // add the field order, and an attribute that contains the data type that
+            // will be contained in the group, because I'm tired of trying to infer
             // it from the peculiar way that HDF5 stores data type information
 
-            Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId,
-                persistableField.getDataTypeToSave(), field.getName());
+            session.writeFieldAttributes(fieldGroupId, iField++,
+                persistableField.getDataTypeToSave());
 
             // Use the HDF5 array's write method
 
@@ -386,6 +373,16 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
         return groupIds;
     }
 
+    /**
+     * Selects the fields of a scalar object that are written. The other fields are left out of the
+     * file.
+     *
+     * @param writtenFieldNames the names of the fields to write, or null to write every field
+     */
+    void setWrittenFieldNames(Set<String> writtenFieldNames) {
+        this.writtenFieldNames = writtenFieldNames;
+    }
+
     /**
      * Write the actual class name of a Parameters subclass as an attribute.
      */
@@ -410,29 +407,18 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
 
             // add the parallel array attribute to the group so that downstream
             // users know how to reconstruct this
-            long scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-            long parallelArrayAttribute = H5.H5Acreate(fieldGroupId,
-                Hdf5AlgorithmInterface.PARALLEL_ARRAY_ATT_NAME, ZIGGY_BYTE.getHdf5Type(),
-                scalarSpace, H5P_DEFAULT, H5P_DEFAULT);
-            H5.H5Aclose(parallelArrayAttribute);
-            H5.H5Sclose(scalarSpace);
-
-            // get the parallel primitive arrays from the Persistable array
-            List<PrimitiveHdf5Array> parallelArrays = toParallelArrays();
-
-            // write them to the HDF5 file
-            int iField = 0;
-            for (PrimitiveHdf5Array primitiveArray : parallelArrays) {
-                long subGroupId = H5.H5Gcreate(fieldGroupId, primitiveArray.getFieldName(),
-                    H5P_DEFAULT, H5P_DEFAULT, H5P_DEFAULT);
-                writeFieldOrderAttribute(subGroupId, iField);
-                iField++;
-                Hdf5AlgorithmInterface.writeDataTypeAttribute(subGroupId,
-                    primitiveArray.getDataTypeToSave(), primitiveArray.getFieldName());
-                primitiveArray.write(subGroupId, primitiveArray.getFieldName());
-                H5.H5Gclose(subGroupId);
-                subGroupIds.add(subGroupId);
-            }
+            session.writeMarkerAttribute(fieldGroupId,
+                Hdf5AlgorithmInterface.PARALLEL_ARRAY_ATT_NAME);
+
+            // gather the fields of the Persistable array into parallel primitive arrays, and
+            // write them to the HDF5 file in field order
+            List<FieldPlan> allFields = PersistableClassPlan.of(auxiliaryClass).getFieldPlans();
+            List<Long> parallelArrayGroupIds = new ArrayList<>();
+            ParallelArrayPipeline.fromConfiguration()
+                .gatherAndWrite(allFields.size(), iField -> toParallelArray(allFields.get(iField)),
+                    (primitiveArray, iField) -> parallelArrayGroupIds
+                        .add(writeParallelArray(fieldGroupId, primitiveArray, iField)));
+            subGroupIds.addAll(parallelArrayGroupIds);
         } else {
 
             // if we're here then it's an array of unknown dimension, and
@@ -441,12 +427,8 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
             // tell future users that this group is the top of an object
             // array
 
-            long scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-            long objectArrayAttribute = H5.H5Acreate(fieldGroupId,
-                Hdf5AlgorithmInterface.OBJECT_ARRAY_ATT_NAME, ZIGGY_BYTE.getHdf5Type(), scalarSpace,
-                H5P_DEFAULT, H5P_DEFAULT);
-            H5.H5Aclose(objectArrayAttribute);
-            H5.H5Sclose(scalarSpace);
+            session.writeMarkerAttribute(fieldGroupId,
+                Hdf5AlgorithmInterface.OBJECT_ARRAY_ATT_NAME);
 
             // add an attribute that allows Java to know in advance the
             // size and shape of the array
@@ -467,6 +449,21 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
         return subGroupIds;
     }
 
+    /**
+     * Writes a parallel array to its own group, and returns the identifier of the group.
+     */
+    private long writeParallelArray(long fieldGroupId, PrimitiveHdf5Array primitiveArray,
+        int iField) {
+        long subGroupId = H5.H5Gcreate(fieldGroupId, primitiveArray.getFieldName(), H5P_DEFAULT,
+            H5P_DEFAULT, H5P_DEFAULT);
+        session.writeFieldAttributes(subGroupId, iField, primitiveArray.getDataTypeToSave());
+        primitiveArray.setStoragePolicy(getStoragePolicy());
+        primitiveArray.setSession(getSession());
+        primitiveArray.write(subGroupId, primitiveArray.getFieldName());
+        H5.H5Gclose(subGroupId);
+        return subGroupId;
+    }
+
     List<Long> writePersistableArray(long fieldGroupId, String fieldName) {
 
         List<Long> subGroupIds = new ArrayList<>();
@@ -481,6 +478,8 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
             PersistableHdf5Array persistableObject = new PersistableHdf5Array(
                 getArrayMember(arrayLocation));
             persistableObject.setCreateGroupsForMissingFields(isCreateGroupsForMissingFields());
+            persistableObject.setStoragePolicy(getStoragePolicy());
+            persistableObject.setSession(getSession());
             subGroupIds.addAll(persistableObject.write(subGroupId, newFieldName));
 
             H5.H5Gclose(subGroupId);
@@ -509,20 +508,17 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
      *
      * @param fileId The HDF5 group that contains the data for the object.
      */
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     void readPersistableScalarObject(long fileId) {
 
         Object[] dataArray = (Object[]) arrayObject;
         Object dataObject = dataArray[0];
-        List<Field> fields = ReflectionUtils.getAllFields(getAuxiliaryClass(), false);
-        for (Field field : fields) {
+        for (FieldPlan field : PersistableClassPlan.of(getAuxiliaryClass()).getFieldPlans()) {
 
-            if (field.getAnnotation(ProxyIgnore.class) != null) {
+            // Fields that the read doesn't select are left as they are
+            if (!readScope.includes(field.getName())) {
                 continue;
             }
 
-            field.setAccessible(true);
-
             // If the field doesn't have a corresponding group in the HDF5
             // file, we can either move on to the next field (if missing
             // fields are permitted), or throw an exception (if missing
@@ -532,22 +528,24 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
                 continue;
             }
 
+            // Large arrays can be deferred until they're needed
+            if (readScope.defers(field, fieldGroupId)) {
+                readScope.defer(dataObject, field);
+                H5.H5Gclose(fieldGroupId);
+                continue;
+            }
+
             // Build an appropriate object to capture the data
 
-            AbstractHdf5Array persistableField = AbstractHdf5Array.newInstance(field);
+            AbstractHdf5Array persistableField = field.newHdf5Array();
             persistableField.setAllowMissingFields(allowMissingFields);
+            persistableField.setReadScope(readScope.child(field.getName()));
 
             // go get the data
 
             persistableField.read(fieldGroupId);
             missingFieldsDetected = missingFieldsDetected || persistableField.missingFieldsDetected;
-            try {
-                field.set(dataObject, persistableField.toJava());
-            } catch (IllegalAccessException e) {
-                // This can never occur. The field was set to accessible earlier in this
-                // method.
-                throw new AssertionError(e);
-            }
+            field.set(dataObject, persistableField.toJava());
             H5.H5Gclose(fieldGroupId);
         }
     }
@@ -587,27 +585,19 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
         if (areAllFieldsPrimitiveScalar()
             && H5.H5Aexists(fieldGroupId, Hdf5AlgorithmInterface.PARALLEL_ARRAY_ATT_NAME)) {
 
-            List<Field> allFields = ReflectionUtils.getAllFields(getAuxiliaryClass(), false);
-
-            // load the primitive arrays from the file
-            List<PrimitiveHdf5Array> primitiveHdf5Arrays = new ArrayList<>();
-            for (Field field : allFields) {
-                PrimitiveHdf5Array primitiveHdf5Array = new PrimitiveHdf5Array(field);
-                primitiveHdf5Array.returnAs = ReturnAs.ARRAY;
-                primitiveHdf5Array.allowTrivialDimensions = false;
-                long primitiveGroupId = openGroupIfPresent(fieldGroupId, field.getName());
-                if (primitiveGroupId == -1) {
-                    continue;
-                }
-                primitiveHdf5Array.read(primitiveGroupId);
-                H5.H5Gclose(primitiveGroupId);
-
-                // cast as needed
-                primitiveHdf5Arrays.add(new PrimitiveHdf5Array(primitiveHdf5Array.toJava()));
-            }
-
-            // convert the parallel arrays into the array of Persistable objects
-            forParallelArrays(allFields, primitiveHdf5Arrays);
+            List<FieldPlan> allFields = PersistableClassPlan.of(getAuxiliaryClass())
+                .getFieldPlans();
+
+            // load the primitive arrays from the file in field order, and copy their values,
+            // cast as needed, into the array of Persistable objects
+            ParallelArrayPipeline.fromConfiguration()
+                .readAndScatter(allFields.size(),
+                    iField -> readParallelArray(fieldGroupId, allFields.get(iField)),
+                    (primitiveHdf5Array, iField) -> {
+                        if (primitiveHdf5Array != null) {
+                            fromParallelArray(allFields.get(iField), primitiveHdf5Array.toJava());
+                        }
+                    });
         } else if (getReturnAs().equals(ReturnAs.SCALAR) || !hasArrayDimsAttribute) {
             if (arrayObject == null) {
                 setDimensions(new long[] { 1 });
@@ -655,6 +645,7 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
                     newObject = newPersistableObject();
                 }
                 PersistableHdf5Array newArray = new PersistableHdf5Array(newObject);
+                newArray.setReadScope(readScope.elements());
                 newArray.readPersistableScalarObject(subGroupId);
                 H5.H5Gclose(subGroupId);
                 setArrayMember(newObject, location);
@@ -675,7 +666,7 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
      * @return new object of the class in auxiliaryClass
      */
     Object newPersistableObject() {
-        return newPersistableObject(auxiliaryClass.getName());
+        return PersistableClassPlan.of(auxiliaryClass).newInstance();
     }
 
     /**
@@ -685,13 +676,9 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
     @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     Object newPersistableObject(String className) {
         try {
-            Constructor<?> constructor = Class.forName(className).getDeclaredConstructor();
-            constructor.setAccessible(true);
-            return constructor.newInstance();
-        } catch (ClassNotFoundException | NoSuchMethodException | SecurityException
-            | InstantiationException | IllegalAccessException | IllegalArgumentException
-            | InvocationTargetException e) {
-            // This can never occur. By construction, the class has a default constructor.
+            return PersistableClassPlan.of(Class.forName(className)).newInstance();
+        } catch (ClassNotFoundException e) {
+            // This can never occur. By construction, the class is available to Java.
             throw new AssertionError(e);
         }
     }
@@ -708,81 +695,106 @@ public class PersistableHdf5Array extends AbstractHdf5Array {
      * @return List of PrimitiveHdf5Array objects that contain the contents of the Persistable
      * object array.
      */
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
     List<PrimitiveHdf5Array> toParallelArrays() {
+        List<PrimitiveHdf5Array> primitiveArrays = new ArrayList<>();
+        for (FieldPlan field : PersistableClassPlan.of(auxiliaryClass).getFieldPlans()) {
+            primitiveArrays.add(toParallelArray(field));
+        }
+        return primitiveArrays;
+    }
+
+    /**
+     * Returns a PrimitiveHdf5Array with the values of a single field of the objects in the
+     * Persistable array, in an array of the same shape. The fields are independent of one another,
+     * so this can be called for different fields at the same time.
+     */
+    PrimitiveHdf5Array toParallelArray(FieldPlan field) {
         if (!allFieldsPrimitiveScalar) {
             throw new PipelineException("Cannot convert array of objects of class "
                 + auxiliaryClass.getName() + " to parallel arrays");
         }
-        List<Field> allFields = ReflectionUtils.getAllFields(auxiliaryClass, false);
-        List<PrimitiveHdf5Array> primitiveArrays = new ArrayList<>();
-
-        // construct the primitiveHdf5Array objects with the correct dimensions
-        for (Field field : allFields) {
-            Object parallelArray = ZiggyArrayUtils.constructFullPrimitiveArray(dimensions,
-                getDataType(field));
-            PrimitiveHdf5Array primitiveArray = new PrimitiveHdf5Array(parallelArray);
-            primitiveArray.setFieldName(field.getName());
-            primitiveArrays.add(primitiveArray);
-        }
-
-        // loop over the objects in the PersistableHdf5Array
-        resetArrayLocationCounter();
-        while (arrayIterator.hasNext()) {
-            long[] location = nextArrayLocation();
-            Object arrayMember = getArrayMember(location);
-
-            // loop over fields and set the values in the parallel arrays
-            for (int i = 0; i < allFields.size(); i++) {
-                Field field = allFields.get(i);
-                PrimitiveHdf5Array primitiveArray = primitiveArrays.get(i);
-                try {
-                    field.setAccessible(true);
-                    primitiveArray.setArrayMember(field.get(arrayMember), location);
-                } catch (IllegalAccessException e) {
-                    // This can never occur. The field was set to accessible before the
-                    // get() was called.
-                    throw new AssertionError(e);
-                }
+        PrimitiveHdf5Array primitiveArray = new PrimitiveHdf5Array(
+            ZiggyArrayUtils.constructFullPrimitiveArray(dimensions, field.getDataType()));
+        primitiveArray.setFieldName(field.getName());
+        Object parallelArray = primitiveArray.getArrayObject();
+        ZiggyDataType parallelArrayType = getDataType(parallelArray);
+
+        // loop over the objects in the PersistableHdf5Array, with an iterator of our own so
+        // that other fields can be gathered at the same time
+        ArrayIterator iterator = new ArrayIterator(dimensions);
+        while (iterator.hasNext()) {
+            long[] location = iterator.next();
+            int index = (int) location[location.length - 1];
+            Object arrayMember = ((Object[]) lowestLevelArray(arrayObject, location))[index];
+            Object value = field.get(arrayMember);
+            Object parallelArray1d = lowestLevelArray(parallelArray, location);
+            if (value == null) {
+                ((Object[]) parallelArray1d)[index] = null;
+            } else {
+                parallelArrayType.setArrayMember(value, parallelArray1d, index);
             }
         }
-
-        return primitiveArrays;
+        return primitiveArray;
     }
 
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
-    void forParallelArrays(List<Field> allFields, List<PrimitiveHdf5Array> primitiveArrays) {
-
-        // set dimensions
+    void forParallelArrays(List<FieldPlan> allFields, List<PrimitiveHdf5Array> primitiveArrays) {
         setDimensions(primitiveArrays.get(0).getDimensions());
+        createPersistableObjects();
+        for (int i = 0; i < primitiveArrays.size(); i++) {
+            fromParallelArray(allFields.get(i), primitiveArrays.get(i).getArrayObject());
+        }
+    }
 
-        // make the fields accessible
-        for (Field field : allFields) {
-            field.setAccessible(true);
+    /**
+     * Reads the parallel array of a field. The first array that is read sets the dimensions of
+     * the Persistable array, which is then filled with new objects.
+     *
+     * @return the array, or null if the file has no group for the field or the read doesn't
+     * select it
+     */
+    private PrimitiveHdf5Array readParallelArray(long fieldGroupId, FieldPlan field) {
+        if (!readScope.includes(field.getName())) {
+            return null;
+        }
+        PrimitiveHdf5Array primitiveHdf5Array = new PrimitiveHdf5Array(field.getField());
+        primitiveHdf5Array.returnAs = ReturnAs.ARRAY;
+        primitiveHdf5Array.allowTrivialDimensions = false;
+        long primitiveGroupId = openGroupIfPresent(fieldGroupId, field.getName());
+        if (primitiveGroupId == -1) {
+            return null;
+        }
+        primitiveHdf5Array.read(primitiveGroupId);
+        H5.H5Gclose(primitiveGroupId);
+        if (arrayObject == null) {
+            setDimensions(primitiveHdf5Array.getDimensions());
+            createPersistableObjects();
         }
+        return primitiveHdf5Array;
+    }
 
-        // loop over object members
-        resetArrayLocationCounter();
-        long[] location;
-        while (arrayIterator.hasNext()) {
-            location = arrayIterator.next();
-            Object newObject = newPersistableObject();
-
-            // loop over fields and populate the object
-            for (int i = 0; i < primitiveArrays.size(); i++) {
-                Field field = allFields.get(i);
-                Object value = primitiveArrays.get(i).getArrayMember(location);
-                try {
-                    field.set(newObject, value);
-                } catch (IllegalAccessException e) {
-                    // This can never occur. The field was set to accessible earlier
-                    // in this same method.
-                    throw new AssertionError(e);
-                }
-            }
+    /** Fills the Persistable array with new objects. */
+    private void createPersistableObjects() {
+        PersistableClassPlan plan = PersistableClassPlan.of(auxiliaryClass);
+        ArrayIterator iterator = new ArrayIterator(dimensions);
+        while (iterator.hasNext()) {
+            long[] location = iterator.next();
+            int index = (int) location[location.length - 1];
+            ((Object[]) lowestLevelArray(arrayObject, location))[index] = plan.newInstance();
+        }
+    }
 
-            // insert the object into the array
-            setArrayMember(newObject, location);
+    /**
+     * Sets a single field of the objects in the Persistable array from the values in a parallel
+     * array of the same shape. The fields are independent of one another, so this can be called
+     * for different fields at the same time.
+     */
+    void fromParallelArray(FieldPlan field, Object parallelArray) {
+        ArrayIterator iterator = new ArrayIterator(dimensions);
+        while (iterator.hasNext()) {
+            long[] location = iterator.next();
+            int index = (int) location[location.length - 1];
+            Object arrayMember = ((Object[]) lowestLevelArray(arrayObject, location))[index];
+            field.set(arrayMember, Array.get(lowestLevelArray(parallelArray, location), index));
         }
     }
 
@@ -4,8 +4,12 @@ import static gov.nasa.ziggy.collections.ZiggyArrayUtils.intToLong1d;
 import static gov.nasa.ziggy.collections.ZiggyArrayUtils.longToInt1d;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BOOLEAN;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_BYTE;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_DOUBLE;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_ENUM;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_FLOAT;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_LONG;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_SHORT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_STRING;
 import static gov.nasa.ziggy.collections.ZiggyDataType.elementSizeBytes;
 import static gov.nasa.ziggy.collections.ZiggyDataType.getDataType;
@@ -15,7 +19,9 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.lang3.ArrayUtils;
 
@@ -37,6 +43,16 @@ import hdf.hdf5lib.HDF5Constants;
  */
 public class PrimitiveHdf5Array extends AbstractHdf5Array {
 
+    /**
+     * Types that are written and read through flat buffers. Each hyperslab of a numeric array is
+     * copied once, row by row, between the Java array and a one-dimensional array of the same
+     * primitive type, which the HDF5 library reads or writes in place. Going through the
+     * multi-dimensional arrays instead copies each hyperslab into a sub-array and then into the
+     * byte array that the HDF5 library builds from it. One-dimensional arrays aren't copied at all.
+     */
+    private static final Set<ZiggyDataType> FLAT_BUFFER_TYPES = EnumSet.of(ZIGGY_BYTE,
+        ZIGGY_SHORT, ZIGGY_INT, ZIGGY_LONG, ZIGGY_FLOAT, ZIGGY_DOUBLE);
+
     /**
      * Constructs a PrimitiveHdf5Array that is optimized for reading the contents of a Parameters
      * parameter.
@@ -408,56 +424,38 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
         // determine array size
         long[] arraySize = getDimensions();
 
-        // determine total # of elements
-        long nElements = 1;
-        for (long iSize : arraySize) {
-            nElements *= iSize;
-        }
-
         // create data space
         long dataSpace = H5.H5Screate_simple(arraySize.length, arraySize, null);
 
-        // set up compression if desired
-        long deflateProperty;
-
         // if the array was originally a boolean array, but is now logical,
         // we need to create an attribute that signals this to future users
         // of the data
         if (getHdf5DataType() == ZIGGY_BOOLEAN) {
-            long scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-            long logicalAttribute = H5.H5Acreate(fieldGroupId,
-                Hdf5AlgorithmInterface.BOOLEAN_ARRAY_ATT_NAME, ZIGGY_BYTE.getHdf5Type(),
-                scalarSpace, H5P_DEFAULT, H5P_DEFAULT);
-            H5.H5Aclose(logicalAttribute);
-            H5.H5Sclose(scalarSpace);
+            session.writeMarkerAttribute(fieldGroupId,
+                Hdf5AlgorithmInterface.BOOLEAN_ARRAY_ATT_NAME);
         }
 
         // set the data type
         long dataType = getDataTypeToSave().getHdf5Type();
 
         // if this is a string array, there is considerable special preparation
-        // that needs to be made: we need to create a variable-length datatype,
+        // that needs to be made: we need to use a variable-length datatype,
         // note whether the original data came from a string array
 
         if (getDataTypeToSave() == ZIGGY_STRING) {
-            dataType = H5.H5Tcopy(ZIGGY_STRING.getHdf5Type());
-            H5.H5Tset_size(dataType, HDF5Constants.H5T_VARIABLE);
+            dataType = session.variableLengthStringType();
             if (!isScalar()) {
-                long scalarSpace = H5.H5Screate(HDF5Constants.H5S_SCALAR);
-                long stringArrayAttribute = H5.H5Acreate(fieldGroupId,
-                    Hdf5AlgorithmInterface.STRING_ARRAY_ATT_NAME, ZIGGY_BYTE.getHdf5Type(),
-                    scalarSpace, H5P_DEFAULT, H5P_DEFAULT);
-                H5.H5Aclose(stringArrayAttribute);
-                H5.H5Sclose(scalarSpace);
+                session.writeMarkerAttribute(fieldGroupId,
+                    Hdf5AlgorithmInterface.STRING_ARRAY_ATT_NAME);
             }
         }
 
-        // construct the dataset, write the data, close everything
+        // construct the dataset, write the data, close everything; the session
+        // supplies the chunking and compression, if any
         long dataset;
         if (getDataTypeToSave() == ZIGGY_STRING) {
-            deflateProperty = Hdf5AlgorithmInterface.chunkAndDeflateProperty(nElements, arraySize);
-            dataset = H5.H5Dcreate(fieldGroupId, fieldName, dataType, dataSpace, H5P_DEFAULT,
-                deflateProperty, H5P_DEFAULT);
+            dataset = session.createDataset(fieldGroupId, fieldName, dataType, dataSpace,
+                arraySize, storagePolicy, Hdf5StoragePolicy.VARIABLE_LENGTH_ELEMENT_BYTES);
             H5.H5Dwrite_VLStrings(dataset, dataType, HDF5Constants.H5S_ALL, HDF5Constants.H5S_ALL,
                 H5P_DEFAULT, (Object[]) toHdf5());
         } else {
@@ -465,25 +463,26 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
             // here we need to iterate over hyperslabs to stay below the HDF5-Java limit of
             // 2.2 GB per hyperslab
             PrimitiveHdf5Array.HyperslabIterator hI = new HyperslabIterator();
-            deflateProperty = Hdf5AlgorithmInterface.chunkAndDeflateProperty(nElements,
-                hI.chunkSize());
-            dataset = H5.H5Dcreate(fieldGroupId, fieldName, dataType, dataSpace, H5P_DEFAULT,
-                deflateProperty, H5P_DEFAULT);
+            dataset = session.createDataset(fieldGroupId, fieldName, dataType, dataSpace,
+                arraySize, storagePolicy, elementSizeBytes(getDataTypeToSave()));
+            boolean flatBuffer = writesFlatBuffers(arraySize);
+            Object buffer = null;
             while (hI.hasNext()) {
                 PrimitiveHdf5Array.Hyperslab h = hI.next();
                 H5.H5Sselect_hyperslab(dataSpace, HDF5Constants.H5S_SELECT_SET, h.hyperslabStart(),
                     h.hyperslabStride(), h.hyperslabCount(), h.hyperslabBlock());
                 long memSpace = H5.H5Screate_simple(arraySize.length, h.hyperslabBlock(), null);
-                H5.H5Dwrite(dataset, dataType, memSpace, dataSpace, H5P_DEFAULT,
-                    toHdf5(h.getHyperslab()));
+                if (flatBuffer) {
+                    buffer = h.getFlatHyperslab(buffer);
+                    H5.H5Dwrite(dataset, dataType, memSpace, dataSpace, H5P_DEFAULT, buffer);
+                } else {
+                    H5.H5Dwrite(dataset, dataType, memSpace, dataSpace, H5P_DEFAULT,
+                        toHdf5(h.getHyperslab()));
+                }
                 H5.H5Sclose(memSpace);
             }
         }
         H5.H5Dclose(dataset);
-        if (dataType != getDataTypeToSave().getHdf5Type()) {
-            H5.H5Tclose(dataType);
-        }
-        H5.H5Pclose(deflateProperty);
         H5.H5Sclose(dataSpace);
 
         return emptyGroupIdList;
@@ -531,16 +530,26 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
             setArray(dataArray);
         } else {
             PrimitiveHdf5Array.HyperslabIterator hI = new HyperslabIterator(dimensions, hType);
+            boolean flatBuffer = readsFlatBuffers(dimensions, hType);
+            Object buffer = null;
             while (hI.hasNext()) {
                 PrimitiveHdf5Array.Hyperslab h = hI.next();
                 H5.H5Sselect_hyperslab(dataSpaceId, HDF5Constants.H5S_SELECT_SET,
                     h.hyperslabStart(), h.hyperslabStride(), h.hyperslabCount(),
                     h.hyperslabBlock());
                 long memSpace = H5.H5Screate_simple(dimensions.length, h.hyperslabBlock(), null);
-                Object dataArray = ZiggyArrayUtils.constructFullArray(h.hyperslabBlock(), hType,
-                    false);
-                H5.H5Dread(dataSetId, hdf5TypeInt, memSpace, dataSpaceId, H5P_DEFAULT, dataArray);
-                h.putHyperslab(dataArray);
+                if (flatBuffer) {
+                    buffer = h.flatBuffer(buffer, hType);
+                    H5.H5Dread(dataSetId, hdf5TypeInt, memSpace, dataSpaceId, H5P_DEFAULT,
+                        buffer);
+                    h.putFlatHyperslab(buffer, hType);
+                } else {
+                    Object dataArray = ZiggyArrayUtils.constructFullArray(h.hyperslabBlock(),
+                        hType, false);
+                    H5.H5Dread(dataSetId, hdf5TypeInt, memSpace, dataSpaceId, H5P_DEFAULT,
+                        dataArray);
+                    h.putHyperslab(dataArray);
+                }
                 H5.H5Sclose(memSpace);
             }
         }
@@ -549,6 +558,50 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
         H5.H5Dclose(dataSetId);
     }
 
+    /**
+     * Returns the number of elements in the dataset of a field, without reading it.
+     *
+     * @param fieldGroupId the group of the field
+     * @param fieldName the name of the field, which is also the name of its dataset
+     */
+    static long datasetElementCount(long fieldGroupId, String fieldName) {
+        if (H5.H5Aexists(fieldGroupId, Hdf5AlgorithmInterface.EMPTY_FIELD_ATT_NAME)) {
+            return 0;
+        }
+        long dataSetId = H5.H5Dopen(fieldGroupId, fieldName, H5P_DEFAULT);
+        long dataSpaceId = H5.H5Dget_space(dataSetId);
+        long elementCount = H5.H5Sget_simple_extent_npoints(dataSpaceId);
+        H5.H5Sclose(dataSpaceId);
+        H5.H5Dclose(dataSetId);
+        return elementCount;
+    }
+
+    /**
+     * Determines whether the array is written through flat buffers: its type must be one of the
+     * {@link #FLAT_BUFFER_TYPES}, or a boolean array that is saved as bytes, and it must not be
+     * empty.
+     */
+    boolean writesFlatBuffers(long[] arraySize) {
+        boolean flatType = FLAT_BUFFER_TYPES.contains(dataTypeToSave)
+            && (hdf5DataType == dataTypeToSave || hdf5DataType == ZIGGY_BOOLEAN);
+        return flatType && elementCount(arraySize) > 0;
+    }
+
+    /**
+     * Determines whether an array of the given dimensions and type is read through flat buffers.
+     */
+    static boolean readsFlatBuffers(long[] arraySize, ZiggyDataType dataType) {
+        return FLAT_BUFFER_TYPES.contains(dataType) && elementCount(arraySize) > 0;
+    }
+
+    private static long elementCount(long[] arraySize) {
+        long elementCount = 1;
+        for (long size : arraySize) {
+            elementCount *= size;
+        }
+        return elementCount;
+    }
+
     /**
      * Class that provides management of hyperslabs (HDF5 word for hyper-rectangles). This class
      * allows the PrimitiveHdf5Class objects to read from and write to a sub-section of the object's
@@ -690,6 +743,95 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
             return returnArray;
         }
 
+        /**
+         * Returns the contents of the hyperslab as a one-dimensional array in row-major order, cast
+         * to the type saved in HDF5. If the hyperslab is the whole of a one-dimensional array that
+         * needs no cast, the array itself is returned; otherwise the rows of the hyperslab are
+         * copied into the given buffer, or into a new one if the buffer is null or the wrong size.
+         */
+        Object getFlatHyperslab(Object buffer) {
+            if (getSize().length == 1 && getSize()[0] == getFullArraySize()[0]
+                && hdf5DataType == dataTypeToSave) {
+                return arrayObject;
+            }
+            Object flatBuffer = flatBuffer(buffer, dataTypeToSave);
+            copyRows(arrayObject, flatBuffer, true);
+            return flatBuffer;
+        }
+
+        /**
+         * Puts the contents of a one-dimensional array in row-major order, as read from HDF5, into
+         * the hyperslab's location in the arrayObject. If the hyperslab is the whole of a
+         * one-dimensional array, the buffer becomes the arrayObject, and no nested arrays are
+         * constructed.
+         */
+        void putFlatHyperslab(Object buffer, ZiggyDataType dataType) {
+            if (getSize().length == 1 && getSize()[0] == getFullArraySize()[0]) {
+                setArray(buffer);
+                return;
+            }
+            if (arrayObject == null) {
+                setArray(ZiggyArrayUtils
+                    .constructFullPrimitiveArray(intToLong1d(getFullArraySize()), dataType));
+            }
+            copyRows(arrayObject, buffer, false);
+        }
+
+        /**
+         * Returns the given buffer if it is a one-dimensional array of the given type with one
+         * element for each element of the hyperslab, or else a new buffer.
+         */
+        Object flatBuffer(Object buffer, ZiggyDataType dataType) {
+            int length = (int) elementCount(hyperslabBlock());
+            if (buffer != null && getDataType(buffer) == dataType
+                && Array.getLength(buffer) == length) {
+                return buffer;
+            }
+            return ZiggyArrayUtils.constructPrimitiveArray(1, length, dataType);
+        }
+
+        /**
+         * Copies the rows of the hyperslab between a multi-dimensional array and a flat buffer
+         * that holds the hyperslab in row-major order. A row is the part of the hyperslab that is
+         * contiguous in the last dimension.
+         *
+         * @param toFlatBuffer if true, the rows are copied from the array to the buffer, casting
+         * booleans to bytes; if false, they are copied from the buffer to the array
+         */
+        private void copyRows(Object array, Object flatBuffer, boolean toFlatBuffer) {
+            int[] size = getSize();
+            int[] offset = getOffset();
+            int lastDimension = size.length - 1;
+            int rowLength = size[lastDimension];
+            int rowOffset = offset[lastDimension];
+            int[] rowIndex = new int[lastDimension];
+            int rowCount = Array.getLength(flatBuffer) / rowLength;
+            for (int row = 0, bufferPosition = 0; row < rowCount; row++) {
+                Object rowArray = array;
+                for (int i = 0; i < lastDimension; i++) {
+                    rowArray = ((Object[]) rowArray)[offset[i] + rowIndex[i]];
+                }
+                if (!toFlatBuffer) {
+                    System.arraycopy(flatBuffer, bufferPosition, rowArray, rowOffset, rowLength);
+                } else if (rowArray instanceof boolean[]) {
+                    boolean[] booleanRow = (boolean[]) rowArray;
+                    byte[] byteBuffer = (byte[]) flatBuffer;
+                    for (int i = 0; i < rowLength; i++) {
+                        byteBuffer[bufferPosition + i] = (byte) (booleanRow[rowOffset + i] ? 1
+                            : 0);
+                    }
+                } else {
+                    System.arraycopy(rowArray, rowOffset, flatBuffer, bufferPosition, rowLength);
+                }
+                bufferPosition += rowLength;
+
+                // Advance to the next row, as an odometer would.
+                for (int i = lastDimension - 1; i >= 0 && ++rowIndex[i] == size[i]; i--) {
+                    rowIndex[i] = 0;
+                }
+            }
+        }
+
         /**
          * Puts a hyperslab from HDF5 into the correct location in the PrimitiveHdf5Array's
          * arrayObject
@@ -826,9 +968,5 @@ public class PrimitiveHdf5Array extends AbstractHdf5Array {
             return new Hyperslab(intToLong1d(hr.getSize()), intToLong1d(hr.getOffset()),
                 intToLong1d(hr.getFullArraySize()));
         }
-
-        public long[] chunkSize() {
-            return intToLong1d(getSize());
-        }
     }
 }
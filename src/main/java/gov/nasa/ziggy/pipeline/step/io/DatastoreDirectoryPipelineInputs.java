@@ -55,6 +55,10 @@ public class DatastoreDirectoryPipelineInputs extends PipelineInputs {
     private static final Logger log = LoggerFactory
         .getLogger(DatastoreDirectoryPipelineInputs.class);
 
+    /** The fields that differ from one subtask to the next. */
+    @ProxyIgnore
+    static final Set<String> SUBTASK_FIELD_NAMES = Set.of("dataFilenames");
+
     private List<String> dataFilenames = new ArrayList<>();
     private List<String> modelFilenames = new ArrayList<>();
     private AlgorithmParameters algorithmParameters = new AlgorithmParameters();
@@ -79,7 +83,10 @@ public class DatastoreDirectoryPipelineInputs extends PipelineInputs {
      * are copied into subtask directories. Algorithm parameters are inserted into the parameterSets
      * member. An instance of {@link DatastoreDirectoryPipelineInputs} is serialized to each subtask
      * directory, with the input files for the given subtask included in the instance serialized to
-     * that directory.
+     * that directory. If the pipeline step shares its inputs (see
+     * {@link PipelineInputsOutputsUtils#sharedInputs(String)}), the instance is serialized once to
+     * the task directory, and only the input files of each subtask are serialized to its
+     * directory.
      */
     @Override
     public void copyDatastoreFilesToTaskDirectory(TaskConfiguration taskConfiguration,
@@ -113,8 +120,21 @@ public class DatastoreDirectoryPipelineInputs extends PipelineInputs {
         PipelineInputsOutputsUtils.serializeOutputFileTypesToTaskDirectory(
             new HashSet<>(outputDataFileTypes), taskDirectory);
 
+        // If the step shares its inputs, write the fields that are the same for every subtask
+        // once, to the task directory.
+        String pipelineStepName = getPipelineTask().getPipelineStepName();
+        boolean sharedInputs = PipelineInputsOutputsUtils.sharedInputs(pipelineStepName);
+        if (sharedInputs) {
+            dataFilenames.clear();
+            modelFilenames.clear();
+            modelFilenames.addAll(modelTaskFilesByDatastorePath.values());
+            PipelineInputsOutputsUtils.writePipelineInputsToDirectory(this, pipelineStepName,
+                taskDirectory);
+        }
+
         // Write the inputs to each of the subtask directories, with the correct file names
-        // in the file names list and the correct model names in the model names list.
+        // in the file names list and the correct model names in the model names list. If the
+        // inputs are shared, only the file names are written.
         for (Map.Entry<Path, Set<Path>> entry : pathsBySubtaskDirectory.entrySet()) {
             dataFilenames.clear();
             modelFilenames.clear();
@@ -122,8 +142,13 @@ public class DatastoreDirectoryPipelineInputs extends PipelineInputs {
                 dataFilenames.add(file.getFileName().toString());
             }
             modelFilenames.addAll(modelTaskFilesByDatastorePath.values());
-            PipelineInputsOutputsUtils.writePipelineInputsToDirectory(this,
-                getPipelineTask().getPipelineStepName(), entry.getKey());
+            if (sharedInputs) {
+                PipelineInputsOutputsUtils.writeSubtaskPipelineInputsToDirectory(this,
+                    pipelineStepName, entry.getKey(), SUBTASK_FIELD_NAMES);
+            } else {
+                PipelineInputsOutputsUtils.writePipelineInputsToDirectory(this,
+                    pipelineStepName, entry.getKey());
+            }
         }
 
         taskConfiguration.setSubtaskCount(pathsBySubtaskDirectory.size());
@@ -9,13 +9,19 @@ import java.io.ObjectOutputStream;
 import java.io.UncheckedIOException;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.Set;
+
+import org.apache.commons.configuration2.ImmutableConfiguration;
 
 import gov.nasa.ziggy.data.datastore.DataFileType;
 import gov.nasa.ziggy.pipeline.definition.ClassWrapper;
 import gov.nasa.ziggy.pipeline.definition.PipelineTask;
 import gov.nasa.ziggy.pipeline.step.hdf5.Hdf5AlgorithmInterface;
+import gov.nasa.ziggy.pipeline.step.hdf5.Hdf5StoragePolicy;
 import gov.nasa.ziggy.pipeline.step.subtask.SubtaskUtils;
 import gov.nasa.ziggy.services.config.DirectoryProperties;
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 import gov.nasa.ziggy.util.io.Persistable;
@@ -77,7 +83,37 @@ public abstract class PipelineInputsOutputsUtils implements Persistable {
         String pipelineStepName, Path directory) {
         String filename = AlgorithmInterfaceUtils.inputsFileName(pipelineStepName);
         File inputInTaskDir = new File(directory.toFile(), filename);
-        new Hdf5AlgorithmInterface().writeFile(inputInTaskDir, inputs, true);
+        new Hdf5AlgorithmInterface(Hdf5StoragePolicy.forPipelineStep(pipelineStepName))
+            .writeFile(inputInTaskDir, inputs, true);
+    }
+
+    /**
+     * Determines whether a pipeline step writes the inputs that all of its subtasks share once, to
+     * the task directory, rather than to every subtask directory. This is set by the
+     * {@link PropertyName#HDF5_SHARED_INPUTS} property, which can be given for a single step by
+     * appending the step name.
+     */
+    public static boolean sharedInputs(String pipelineStepName) {
+        ImmutableConfiguration config = ZiggyConfiguration.getInstance();
+        return config.getBoolean(
+            PropertyName.HDF5_SHARED_INPUTS.property() + "." + pipelineStepName,
+            config.getBoolean(PropertyName.HDF5_SHARED_INPUTS.property(), false));
+    }
+
+    /**
+     * Writes the fields of an instance of {@link PipelineInputs} that only apply to one subtask to
+     * the subtask directory. The other fields are shared with the other subtasks, and are written
+     * once to the task directory with {@link #writePipelineInputsToDirectory(PipelineInputs,
+     * String, Path)}. Readers of the subtask's inputs file read the shared file first.
+     *
+     * @param subtaskFieldNames the names of the fields that only apply to the subtask
+     */
+    public static void writeSubtaskPipelineInputsToDirectory(PipelineInputs inputs,
+        String pipelineStepName, Path subtaskDirectory, Set<String> subtaskFieldNames) {
+        String filename = AlgorithmInterfaceUtils.inputsFileName(pipelineStepName);
+        File inputInSubtaskDir = new File(subtaskDirectory.toFile(), filename);
+        new Hdf5AlgorithmInterface(Hdf5StoragePolicy.forPipelineStep(pipelineStepName))
+            .writeFileWithSharedFields(inputInSubtaskDir, inputs, true, subtaskFieldNames);
     }
 
     /** Reads an instance of {@link PipelineInputs} from a directory. */
@@ -88,11 +124,24 @@ public abstract class PipelineInputsOutputsUtils implements Persistable {
         new Hdf5AlgorithmInterface().readFile(inputInTaskDir, inputs, true);
     }
 
+    /**
+     * Reads selected fields of an instance of {@link PipelineInputs} from a directory. The other
+     * fields are not read. See {@link Hdf5AlgorithmInterface#readFile(File, Persistable, boolean,
+     * Set)} for the form of the field paths.
+     */
+    public static void readPipelineInputsFromDirectory(PipelineInputs inputs,
+        String pipelineStepName, Path directory, Set<String> fieldPaths) {
+        String filename = AlgorithmInterfaceUtils.inputsFileName(pipelineStepName);
+        File inputInTaskDir = new File(directory.toFile(), filename);
+        new Hdf5AlgorithmInterface().readFile(inputInTaskDir, inputs, true, fieldPaths);
+    }
+
     public static void writePipelineOutputsToDirectory(PipelineOutputs outputs,
         String pipelineStepName, Path directory) {
         String filename = AlgorithmInterfaceUtils.outputsFileName(pipelineStepName);
         File outputInTaskDir = new File(directory.toFile(), filename);
-        new Hdf5AlgorithmInterface().writeFile(outputInTaskDir, outputs, true);
+        new Hdf5AlgorithmInterface(Hdf5StoragePolicy.forPipelineStep(pipelineStepName))
+            .writeFile(outputInTaskDir, outputs, true);
     }
 
     public static void readPipelineOutputsFromDirectory(PipelineOutputs outputs,
@@ -102,6 +151,19 @@ public abstract class PipelineInputsOutputsUtils implements Persistable {
         new Hdf5AlgorithmInterface().readFile(outputInTaskDir, outputs, true);
     }
 
+    /**
+     * Reads selected fields of an instance of {@link PipelineOutputs} from a directory. The other
+     * fields, such as diagnostic arrays that outputs processing doesn't use, are not read. See
+     * {@link Hdf5AlgorithmInterface#readFile(File, Persistable, boolean, Set)} for the form of the
+     * field paths.
+     */
+    public static void readPipelineOutputsFromDirectory(PipelineOutputs outputs,
+        String pipelineStepName, Path directory, Set<String> fieldPaths) {
+        String filename = AlgorithmInterfaceUtils.outputsFileName(pipelineStepName);
+        File outputInTaskDir = new File(directory.toFile(), filename);
+        new Hdf5AlgorithmInterface().readFile(outputInTaskDir, outputs, true, fieldPaths);
+    }
+
     /**
      * Returns an instance of {@link PipelineInputs} with its {@link PipelineTask} and {@link Path}
      * to the task directory initialized.
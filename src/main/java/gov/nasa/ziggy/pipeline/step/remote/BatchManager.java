@@ -1,5 +1,6 @@
 package gov.nasa.ziggy.pipeline.step.remote;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -31,6 +32,12 @@ public interface BatchManager<T extends BatchParameters> {
     /** Determines whether a specific job has finished. */
     boolean isFinished(RemoteJob remoteJob);
 
+    /**
+     * Obtains the status of a collection of jobs from the batch system in a single query, so that
+     * subsequent queries about any of the jobs do not need to go back to the batch system.
+     */
+    void updateJobStatus(Collection<RemoteJob> remoteJobs);
+
     /** Exit status for a completed job, or null if no exit status is available. */
     Integer exitStatus(RemoteJobInformation remoteJobInformation);
 
@@ -51,4 +58,11 @@ public interface BatchManager<T extends BatchParameters> {
 
     /** Update the cost estimate for a specific job. */
     double getUpdatedCostEstimate(RemoteJob remoteJob);
+
+    /**
+     * Updates the queue, architecture, and submit, start, and end times of a specific job with the
+     * values reported by the batch system. Values that the batch system doesn't report are left
+     * unchanged.
+     */
+    void updateJobTimes(RemoteJob remoteJob);
 }
@@ -124,6 +124,8 @@ public class RemoteAlgorithmExecutor extends AlgorithmExecutor {
     public boolean resumeMonitoring() {
         remoteJobsInformation = new ArrayList<>();
         Set<RemoteJob> remoteJobs = pipelineTaskDataOperations().remoteJobs(pipelineTask);
+        batchManager().updateJobStatus(
+            remoteJobs.stream().filter(job -> !job.isFinished()).collect(Collectors.toList()));
         for (RemoteJob remoteJob : remoteJobs) {
             if (remoteJob.isFinished()) {
                 continue;
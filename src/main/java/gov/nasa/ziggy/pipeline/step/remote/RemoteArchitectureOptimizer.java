@@ -1,6 +1,7 @@
 package gov.nasa.ziggy.pipeline.step.remote;
 
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import gov.nasa.ziggy.util.PipelineException;
@@ -69,8 +70,10 @@ public enum RemoteArchitectureOptimizer {
     },
 
     /**
-     * Selects the architecture that minimizes the run time when including queue time, using the
-     * "expansion" metric to estimate wait times in the queue.
+     * Selects the architecture that minimizes the run time when including queue time. The wait
+     * time in the queue is the median measured wait of the architecture's jobs if at least
+     * {@link #MIN_MEASURED_JOBS} of its jobs have been measured; otherwise, the "expansion"
+     * metric is used to estimate it.
      */
     QUEUE_TIME {
         @Override
@@ -78,6 +81,10 @@ public enum RemoteArchitectureOptimizer {
             int totalSubtasks) {
             List<Architecture> architecturesWithSufficientRam = architecturesWithSufficientRam(
                 batchParameters);
+            Map<String, RemoteJobTimeStatistics> jobTimeStatisticsByArchitecture = batchParameters
+                .executionResources()
+                .getRemoteEnvironment()
+                .jobTimeStatisticsByArchitecture();
             double minimumTimeIncludingQueueTime = Double.MAX_VALUE;
             Architecture optimalArchitecture = null;
 
@@ -86,11 +93,20 @@ public enum RemoteArchitectureOptimizer {
                 batchParameters.executionResources().setArchitecture(architecture);
                 batchParameters.computeParameterValues(batchParameters.executionResources(),
                     totalSubtasks);
-                double queueTimeFactor = batchParameters.executionResources()
-                    .getRemoteEnvironment()
-                    .queueTimeMetricsInstance()
-                    .queueTimeFactor(architecture);
-                double totalTime = queueTimeFactor * batchParameters.requestedWallTimeHours();
+                RemoteJobTimeStatistics jobTimeStatistics = jobTimeStatisticsByArchitecture
+                    .get(architecture.getName());
+                double totalTime;
+                if (jobTimeStatistics != null
+                    && jobTimeStatistics.getJobCount() >= MIN_MEASURED_JOBS) {
+                    totalTime = jobTimeStatistics.queueWaitHours(50)
+                        + batchParameters.requestedWallTimeHours();
+                } else {
+                    double queueTimeFactor = batchParameters.executionResources()
+                        .getRemoteEnvironment()
+                        .queueTimeMetricsInstance()
+                        .queueTimeFactor(architecture);
+                    totalTime = queueTimeFactor * batchParameters.requestedWallTimeHours();
+                }
                 if (totalTime < minimumTimeIncludingQueueTime) {
                     minimumTimeIncludingQueueTime = totalTime;
                     optimalArchitecture = architecture;
@@ -125,6 +141,12 @@ public enum RemoteArchitectureOptimizer {
         }
     };
 
+    /**
+     * The number of an architecture's jobs whose queue times must have been measured before the
+     * measurements are used rather than estimates.
+     */
+    public static final int MIN_MEASURED_JOBS = 10;
+
     public abstract Architecture optimalNodeArchitecture(BatchParameters batchParameters,
         int totalSubtasks);
 
@@ -205,6 +205,14 @@ public class RemoteEnvironment implements PipelineDefinitionElement {
         return queueTimeMetricsByClass.get(queueTimeMetricsClass.getClass());
     }
 
+    /**
+     * Returns the measured queue wait and run times of this environment's jobs on each
+     * architecture, over all queues, by architecture name.
+     */
+    public Map<String, RemoteJobTimeStatistics> jobTimeStatisticsByArchitecture() {
+        return new RemoteEnvironmentOperations().jobTimeStatisticsByArchitecture(name);
+    }
+
     public String getName() {
         return name;
     }
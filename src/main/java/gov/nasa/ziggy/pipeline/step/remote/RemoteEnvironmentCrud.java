@@ -4,6 +4,7 @@ import java.util.List;
 
 import gov.nasa.ziggy.crud.AbstractCrud;
 import gov.nasa.ziggy.crud.ZiggyQuery;
+import jakarta.persistence.LockModeType;
 
 public class RemoteEnvironmentCrud extends AbstractCrud<RemoteEnvironment> {
 
@@ -25,6 +26,29 @@ public class RemoteEnvironmentCrud extends AbstractCrud<RemoteEnvironment> {
         return list(createZiggyQuery(RemoteEnvironment.class));
     }
 
+    public List<RemoteJobTimeStatistics> retrieveJobTimeStatistics(
+        String remoteEnvironmentName) {
+        ZiggyQuery<RemoteJobTimeStatistics, RemoteJobTimeStatistics> query = createZiggyQuery(
+            RemoteJobTimeStatistics.class);
+        query.column(RemoteJobTimeStatistics_.remoteEnvironmentName).in(remoteEnvironmentName);
+        return list(query);
+    }
+
+    /**
+     * Retrieves the statistics of the given remote environment, queue, and architecture, or null
+     * if there are none, and locks them until the end of the transaction so that jobs added by
+     * concurrent transactions aren't lost.
+     */
+    public RemoteJobTimeStatistics retrieveJobTimeStatisticsForUpdate(String remoteEnvironmentName,
+        String queueName, String architectureName) {
+        ZiggyQuery<RemoteJobTimeStatistics, RemoteJobTimeStatistics> query = createZiggyQuery(
+            RemoteJobTimeStatistics.class);
+        query.column(RemoteJobTimeStatistics_.remoteEnvironmentName).in(remoteEnvironmentName);
+        query.column(RemoteJobTimeStatistics_.queueName).in(queueName);
+        query.column(RemoteJobTimeStatistics_.architectureName).in(architectureName);
+        return uniqueResult(query, LockModeType.PESSIMISTIC_WRITE);
+    }
+
     @Override
     public Class<RemoteEnvironment> componentClass() {
         return RemoteEnvironment.class;
@@ -1,9 +1,13 @@
 package gov.nasa.ziggy.pipeline.step.remote;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
+import gov.nasa.ziggy.pipeline.definition.RemoteJob;
 import gov.nasa.ziggy.services.database.DatabaseOperations;
 
 /** Database operations methods for {@link RemoteEnvironment}. */
@@ -45,6 +49,72 @@ public class RemoteEnvironmentOperations extends DatabaseOperations {
         return remoteEnvironmentByName;
     }
 
+    /**
+     * Adds the queue wait and run times of the given finished jobs to the
+     * {@link RemoteJobTimeStatistics} of their remote environments, queues, and architectures, and
+     * marks the jobs as recorded. Jobs whose times have already been recorded, or whose times the
+     * batch system hasn't reported, are skipped. The statistics are locked until the end of the
+     * transaction, so the jobs recorded by concurrent transactions aren't lost. If two
+     * transactions create the same statistics at once, one of them fails the unique constraint of
+     * the statistics.
+     */
+    public void addJobTimes(Collection<RemoteJob> finishedJobs) {
+        List<RemoteJob> jobsToRecord = finishedJobs.stream()
+            .filter(job -> !job.isTimesRecorded() && RemoteJobTimeStatistics.hasJobTimes(job))
+            .collect(Collectors.toList());
+        if (jobsToRecord.isEmpty()) {
+            return;
+        }
+        performTransaction(() -> {
+            for (RemoteJob job : jobsToRecord) {
+                RemoteJobTimeStatistics statistics = remoteEnvironmentCrud()
+                    .retrieveJobTimeStatisticsForUpdate(job.getRemoteEnvironmentName(),
+                        job.getQueueName(), job.getArchitectureName());
+                if (statistics == null) {
+                    statistics = new RemoteJobTimeStatistics(job.getRemoteEnvironmentName(),
+                        job.getQueueName(), job.getArchitectureName());
+                    remoteEnvironmentCrud().persist(statistics);
+                }
+                statistics.addJob(job);
+                remoteEnvironmentCrud().merge(statistics);
+                job.setTimesRecorded(true);
+            }
+        });
+    }
+
+    /**
+     * Returns the {@link RemoteJobTimeStatistics} of the given remote environment's jobs on each
+     * architecture, over all queues, by architecture name.
+     */
+    public Map<String, RemoteJobTimeStatistics> jobTimeStatisticsByArchitecture(
+        String remoteEnvironmentName) {
+        return jobTimeStatisticsBy(remoteEnvironmentName,
+            RemoteJobTimeStatistics::getArchitectureName,
+            architectureName -> new RemoteJobTimeStatistics(remoteEnvironmentName, null,
+                architectureName));
+    }
+
+    /**
+     * Returns the {@link RemoteJobTimeStatistics} of the given remote environment's jobs in each
+     * queue, over all architectures, by queue name.
+     */
+    public Map<String, RemoteJobTimeStatistics> jobTimeStatisticsByQueue(
+        String remoteEnvironmentName) {
+        return jobTimeStatisticsBy(remoteEnvironmentName, RemoteJobTimeStatistics::getQueueName,
+            queueName -> new RemoteJobTimeStatistics(remoteEnvironmentName, queueName, null));
+    }
+
+    private Map<String, RemoteJobTimeStatistics> jobTimeStatisticsBy(
+        String remoteEnvironmentName, Function<RemoteJobTimeStatistics, String> key,
+        Function<String, RemoteJobTimeStatistics> emptyTotal) {
+        Map<String, RemoteJobTimeStatistics> statisticsByKey = new TreeMap<>();
+        for (RemoteJobTimeStatistics statistics : performTransaction(
+            () -> remoteEnvironmentCrud().retrieveJobTimeStatistics(remoteEnvironmentName))) {
+            statisticsByKey.computeIfAbsent(key.apply(statistics), emptyTotal).merge(statistics);
+        }
+        return statisticsByKey;
+    }
+
     RemoteEnvironmentCrud remoteEnvironmentCrud() {
         return remoteEnvironmentCrud;
     }
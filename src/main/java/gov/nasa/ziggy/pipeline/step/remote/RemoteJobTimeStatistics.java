@@ -0,0 +1,151 @@
+package gov.nasa.ziggy.pipeline.step.remote;
+
+import gov.nasa.ziggy.metrics.report.StreamingStatistics;
+import gov.nasa.ziggy.metrics.report.StreamingStatisticsConverter;
+import gov.nasa.ziggy.pipeline.definition.RemoteJob;
+import jakarta.persistence.Column;
+import jakarta.persistence.Convert;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+
+/**
+ * The measured queue wait and run times of the finished {@link RemoteJob}s of one remote
+ * environment, batch queue, and architecture.
+ * <p>
+ * The queue wait of a job is the time from its submission to its start, and its run time is the
+ * time from its start to its end, as reported by the batch system. Each time is added to a
+ * {@link StreamingStatistics} when its job finishes, so the percentiles of the times are available
+ * without going back to the jobs, and the statistics take the same space however many jobs they
+ * include. The statistics are stored in the versioned encoding of
+ * {@link StreamingStatistics#toBytes()}, and the statistics of several queues or architectures are
+ * combined with {@link #merge(RemoteJobTimeStatistics)}.
+ */
+@Entity
+@Table(name = "ziggy_RemoteJobTimeStatistics", uniqueConstraints = {
+    @UniqueConstraint(columnNames = { "remoteEnvironmentName", "queueName", "architectureName" }) })
+public class RemoteJobTimeStatistics {
+
+    // Enough for the histograms of the statistics, even when they use every bucket.
+    private static final int MAX_STATISTICS_BYTES = 16 * 1024;
+    private static final double SECONDS_PER_HOUR = 3600.0;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE,
+        generator = "ziggy_RemoteJobTimeStatistics_generator")
+    @SequenceGenerator(name = "ziggy_RemoteJobTimeStatistics_generator", initialValue = 1,
+        sequenceName = "ziggy_RemoteJobTimeStatistics_sequence", allocationSize = 1)
+    private Long id;
+
+    private String remoteEnvironmentName;
+    private String queueName;
+    private String architectureName;
+
+    @Column(length = MAX_STATISTICS_BYTES)
+    @Convert(converter = StreamingStatisticsConverter.class)
+    private StreamingStatistics queueWaitSeconds = new StreamingStatistics();
+
+    @Column(length = MAX_STATISTICS_BYTES)
+    @Convert(converter = StreamingStatisticsConverter.class)
+    private StreamingStatistics runSeconds = new StreamingStatistics();
+
+    /**
+     * Default constructor for Hibernate use only.
+     */
+    RemoteJobTimeStatistics() {
+    }
+
+    public RemoteJobTimeStatistics(String remoteEnvironmentName, String queueName,
+        String architectureName) {
+        this.remoteEnvironmentName = remoteEnvironmentName;
+        this.queueName = queueName;
+        this.architectureName = architectureName;
+    }
+
+    /** Determines whether the batch system has reported all of the times of a job. */
+    public static boolean hasJobTimes(RemoteJob remoteJob) {
+        return remoteJob.getQueueName() != null && remoteJob.getArchitectureName() != null
+            && remoteJob.getSubmitTime() != null && remoteJob.getStartTime() != null
+            && remoteJob.getEndTime() != null;
+    }
+
+    /**
+     * Adds the queue wait and run time of a finished job.
+     *
+     * @throws IllegalArgumentException if the batch system hasn't reported all of the job's times
+     */
+    public void addJob(RemoteJob remoteJob) {
+        if (!hasJobTimes(remoteJob)) {
+            throw new IllegalArgumentException(
+                "Job " + remoteJob.getJobId() + " has no submit, start, or end time");
+        }
+        long startMillis = remoteJob.getStartTime().getTime();
+        queueWaitSeconds
+            .addValue(Math.max(0, startMillis - remoteJob.getSubmitTime().getTime()) / 1000.0);
+        runSeconds.addValue(Math.max(0, remoteJob.getEndTime().getTime() - startMillis) / 1000.0);
+    }
+
+    /** Adds the jobs of other statistics to these statistics. */
+    public void merge(RemoteJobTimeStatistics other) {
+        queueWaitSeconds.merge(other.queueWaitSeconds);
+        runSeconds.merge(other.runSeconds);
+    }
+
+    /** Returns the number of jobs in the statistics. */
+    public long getJobCount() {
+        return queueWaitSeconds.getN();
+    }
+
+    /**
+     * Returns the given percentile of the queue wait, in hours.
+     *
+     * @param percentile the percentile, from 0 to 100
+     */
+    public double queueWaitHours(double percentile) {
+        return queueWaitSeconds.getPercentile(percentile) / SECONDS_PER_HOUR;
+    }
+
+    /**
+     * Returns the given percentile of the run time, in hours.
+     *
+     * @param percentile the percentile, from 0 to 100
+     */
+    public double runHours(double percentile) {
+        return runSeconds.getPercentile(percentile) / SECONDS_PER_HOUR;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getRemoteEnvironmentName() {
+        return remoteEnvironmentName;
+    }
+
+    public String getQueueName() {
+        return queueName;
+    }
+
+    public String getArchitectureName() {
+        return architectureName;
+    }
+
+    public StreamingStatistics getQueueWaitSeconds() {
+        return queueWaitSeconds;
+    }
+
+    public StreamingStatistics getRunSeconds() {
+        return runSeconds;
+    }
+
+    @Override
+    public String toString() {
+        return "remoteEnvironmentName=[" + remoteEnvironmentName + "], queueName=[" + queueName
+            + "], architectureName=[" + architectureName + "], queueWaitSeconds=["
+            + queueWaitSeconds + "], runSeconds=[" + runSeconds + "]";
+    }
+}
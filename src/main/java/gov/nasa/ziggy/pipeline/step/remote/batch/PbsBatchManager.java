@@ -6,6 +6,7 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -17,8 +18,8 @@ import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ThreadPoolExecutor;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
+import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.configuration2.ImmutableConfiguration;
@@ -34,6 +35,7 @@ import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskOperations;
 import gov.nasa.ziggy.pipeline.step.AlgorithmExecutor;
 import gov.nasa.ziggy.pipeline.step.remote.BatchManager;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteJobInformation;
+import gov.nasa.ziggy.pipeline.step.remote.batch.PbsJobStatusCache.PbsJobStatus;
 import gov.nasa.ziggy.services.config.DirectoryProperties;
 import gov.nasa.ziggy.services.config.PropertyName;
 import gov.nasa.ziggy.services.config.ZiggyConfiguration;
@@ -84,13 +86,16 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
     public static final String OUTPUT_PATH = "Output_Path";
     public static final Pattern SELECT_PATTERN = Pattern
         .compile("\\s*" + SELECT + " = ([0-9]+):model=(\\S+)");
-    public static final Pattern WALLTIME_PATTERN = Pattern.compile("\\s*" + WALLTIME + " = (\\S+)");
-    public static final Pattern JOBNAME_PATTERN = Pattern.compile("\\s*" + JOBNAME + " = (\\S+)");
-    public static final Pattern OUTPUT_PATH_PATTERN = Pattern
-        .compile("\\s*" + OUTPUT_PATH + " = [^:]+:(\\S+)");
-    public static final String QSTAT_JOB_ROW_NAME = "Job:";
+    public static final Pattern WALLTIME_VALUE_PATTERN = Pattern.compile("[0-9]+:[0-9]+:[0-9]+");
     public static final String QSTAT_OWNER_ROW_NAME = "Job_Owner";
     public static final String QSTAT_EXIT_STATUS_ROW_NAME = "Exit_status";
+    public static final String QSTAT_QUEUE_ROW_NAME = "queue";
+    public static final String QSTAT_MODEL_ROW_NAME = "Resource_List.model";
+    public static final String QSTAT_CREATION_TIME_ROW_NAME = "ctime";
+    public static final String QSTAT_QUEUE_TIME_ROW_NAME = "qtime";
+    public static final String QSTAT_START_TIME_ROW_NAME = "stime";
+    public static final String QSTAT_END_TIME_ROW_NAME = "obittime";
+    public static final String QSTAT_MODIFICATION_TIME_ROW_NAME = "mtime";
 
     // Parameters related to the PBS log file.
     public static final String PBS_FILE_COMMENT_PREFIX = "=>> PBS: ";
@@ -104,6 +109,7 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
     private static final int QSUB_TIMEOUT_SECS = 60;
 
     private PipelineTaskOperations pipelineTaskOperations = new PipelineTaskOperations();
+    private PbsJobStatusCache jobStatusCache = new PbsJobStatusCache();
     private PipelineTask pipelineTask;
     private PipelineNodeExecutionResources executionResources;
     private PbsBatchParameters pbsBatchParameters;
@@ -295,18 +301,10 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
     /** Returns the subset of job IDs that were submitted by the current server. */
     private Set<Long> jobIdsThisServer(Set<Long> allJobIds) {
         Set<Long> jobIdsThisServer = new TreeSet<>(); // Deterministic order.
-        List<String> qstatOutput = qstat("-xf " + StringUtils.join(allJobIds, " "),
-            QSTAT_JOB_ROW_NAME, QSTAT_OWNER_ROW_NAME);
-
-        // parse the output: there are 2 lines per job, the first has the ID and the
-        // second has the server name, though both need to be chopped up
-        for (int qstatOutputIndex = 0; qstatOutputIndex < qstatOutput
-            .size(); qstatOutputIndex += 2) {
-            Long jobId = Long.valueOf(StringUtils.stripStart(
-                qstatOutput.get(qstatOutputIndex).split("\\.")[0], QSTAT_JOB_ROW_NAME + " "));
-            String jobServerName = qstatOutput.get(qstatOutputIndex + 1).split("\\@")[1]
-                .split("\\.")[0];
-            if (jobServerName.equals(host())) {
+        jobStatusCache().update(allJobIds);
+        for (long jobId : allJobIds) {
+            PbsJobStatus jobStatus = jobStatusCache().jobStatus(jobId);
+            if (jobStatus != null && host().equals(jobStatus.ownerHost())) {
                 jobIdsThisServer.add(jobId);
             }
         }
@@ -335,7 +333,22 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
 
     @Override
     public boolean isFinished(RemoteJob remoteJob) {
-        return !qstat("-xf " + remoteJob.getJobId(), QSTAT_EXIT_STATUS_ROW_NAME).isEmpty();
+        PbsJobStatus jobStatus = jobStatusCache().jobStatus(remoteJob.getJobId());
+        return jobStatus != null && jobStatus.isFinished();
+    }
+
+    /**
+     * Obtains the status of all the given jobs with a single qstat command. Subsequent calls to
+     * {@link #isFinished(RemoteJob)}, {@link #remoteJobInformation(RemoteJob)}, and
+     * {@link #getUpdatedCostEstimate(RemoteJob)} for these jobs are answered from that snapshot.
+     */
+    @Override
+    public void updateJobStatus(Collection<RemoteJob> remoteJobs) {
+        if (CollectionUtils.isEmpty(remoteJobs)) {
+            return;
+        }
+        jobStatusCache()
+            .update(remoteJobs.stream().map(RemoteJob::getJobId).collect(Collectors.toList()));
     }
 
     /** Returns the exit status from a PBS log file. */
@@ -390,15 +403,13 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
      */
     @Override
     public RemoteJobInformation remoteJobInformation(RemoteJob remoteJob) {
-        List<String> qstatOutput = qstat("-xf " + remoteJob.getJobId(), JOBNAME, OUTPUT_PATH);
-        log.debug("job {}, qstat lines {}", remoteJob.getJobId(), qstatOutput.toString());
-        if (CollectionUtils.isEmpty(qstatOutput)) {
+        PbsJobStatus jobStatus = jobStatusCache().jobStatus(remoteJob.getJobId());
+        if (jobStatus == null) {
             return null;
         }
-        Matcher m = JOBNAME_PATTERN.matcher(qstatOutput.get(0));
-        String jobName = m.matches() ? m.group(1) : null;
-        m = OUTPUT_PATH_PATTERN.matcher(qstatOutput.get(1));
-        String logFile = m.matches() ? m.group(1) : null;
+        String jobName = jobStatus.jobName();
+        String logFile = jobStatus.outputPath();
+        log.debug("job {}, job name {}, log file {}", remoteJob.getJobId(), jobName, logFile);
         if (StringUtils.isBlank(jobName) || StringUtils.isBlank(logFile)) {
             return null;
         }
@@ -421,16 +432,35 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
 
     @Override
     public double getUpdatedCostEstimate(RemoteJob remoteJob) {
-        List<String> qstatOutput = qstat("-xf " + remoteJob.getJobId(), WALLTIME);
-        if (qstatOutput.isEmpty()) {
+        PbsJobStatus jobStatus = jobStatusCache().jobStatus(remoteJob.getJobId());
+        String wallTime = jobStatus != null ? jobStatus.wallTime() : null;
+        if (wallTime == null || !WALLTIME_VALUE_PATTERN.matcher(wallTime).matches()) {
             return remoteJob.getCostEstimate();
         }
-        Matcher matcher = WALLTIME_PATTERN.matcher(qstatOutput.get(0));
-        if (!matcher.matches()) {
-            return remoteJob.getCostEstimate();
+        return TimeFormatter.timeStringHhMmSsToTimeInHours(wallTime) * remoteJob.getCostFactor();
+    }
+
+    @Override
+    public void updateJobTimes(RemoteJob remoteJob) {
+        PbsJobStatus jobStatus = jobStatusCache().jobStatus(remoteJob.getJobId());
+        if (jobStatus == null) {
+            return;
+        }
+        if (jobStatus.queue() != null) {
+            remoteJob.setQueueName(jobStatus.queue());
+        }
+        if (jobStatus.architectureName() != null) {
+            remoteJob.setArchitectureName(jobStatus.architectureName());
+        }
+        if (jobStatus.submitTime() != null) {
+            remoteJob.setSubmitTime(jobStatus.submitTime());
+        }
+        if (jobStatus.startTime() != null) {
+            remoteJob.setStartTime(jobStatus.startTime());
+        }
+        if (jobStatus.endTime() != null) {
+            remoteJob.setEndTime(jobStatus.endTime());
         }
-        return TimeFormatter.timeStringHhMmSsToTimeInHours(matcher.group(1))
-            * remoteJob.getCostFactor();
     }
 
     /**
@@ -520,6 +550,10 @@ public class PbsBatchManager implements BatchManager<PbsBatchParameters> {
         return pipelineTaskOperations;
     }
 
+    PbsJobStatusCache jobStatusCache() {
+        return jobStatusCache;
+    }
+
     String algorithmLogFileSystemProperty(int jobIndex) {
         return ZiggyLog.algorithmLogFileSystemProperty(pipelineTask, jobIndex);
     }
@@ -0,0 +1,312 @@
+package gov.nasa.ziggy.pipeline.step.remote.batch;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.collections4.ListUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.services.process.ExternalProcess;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+
+/**
+ * Caches the status of PBS jobs as reported by {@code qstat -xf}.
+ * <p>
+ * Rather than running one qstat process per job per query, the cache keeps a set of tracked job
+ * IDs and issues a single {@code qstat -xf} command for all of them whenever its snapshot is
+ * refreshed. The full multi-job output is parsed once into a {@link PbsJobStatus} instance per
+ * job, and all queries are answered from that snapshot until it is older than the maximum snapshot
+ * age. A query for a job that was not part of the most recent snapshot adds that job to the
+ * tracked set and refreshes the snapshot.
+ * <p>
+ * Jobs that have finished (i.e., that report an exit status) or that PBS no longer knows about are
+ * dropped from the tracked set when a snapshot is taken, but their status remains available until
+ * the snapshot expires.
+ */
+public class PbsJobStatusCache {
+
+    private static final Logger log = LoggerFactory.getLogger(PbsJobStatusCache.class);
+
+    /** Matches the algorithm monitor polling interval. */
+    static final long DEFAULT_MAX_SNAPSHOT_AGE_MILLIS = 10 * 1000;
+
+    /** Limits the length of the qstat command line. */
+    static final int MAX_JOB_IDS_PER_QSTAT = 500;
+
+    private static final String QSTAT = "qstat";
+    private static final String QSTAT_ARGS = " -xf ";
+
+    // Job rows look like "Job Id: 1234567.server.domain"; attribute rows look like
+    // "    Job_Name = 1-2-pa.0"; continuation rows for long values start with a tab.
+    private static final Pattern JOB_ROW_PATTERN = Pattern
+        .compile("^Job(?: Id)?:\\s*([0-9]+)\\S*\\s*$");
+    private static final Pattern ATTRIBUTE_ROW_PATTERN = Pattern.compile("^\\s+(\\S+) = (.*)$");
+    private static final String CONTINUATION_ROW_PREFIX = "\t";
+
+    private final String qstatCommand;
+    private final long maxSnapshotAgeMillis;
+    private final Set<Long> trackedJobIds = new TreeSet<>(); // Deterministic order.
+    private Set<Long> snapshotJobIds = new HashSet<>();
+    private Map<Long, PbsJobStatus> jobStatusByJobId = new HashMap<>();
+    private long snapshotTimeMillis;
+
+    public PbsJobStatusCache() {
+        this(QSTAT, DEFAULT_MAX_SNAPSHOT_AGE_MILLIS);
+    }
+
+    /**
+     * Creates a cache that uses the given qstat command. This allows a local script that emulates
+     * qstat to be used in testing.
+     */
+    public PbsJobStatusCache(String qstatCommand, long maxSnapshotAgeMillis) {
+        this.qstatCommand = qstatCommand;
+        this.maxSnapshotAgeMillis = maxSnapshotAgeMillis;
+    }
+
+    /**
+     * Adds the given jobs to the tracked jobs and refreshes the snapshot. Subsequent queries for
+     * any of these jobs are answered from the snapshot until it expires.
+     */
+    public synchronized void update(Collection<Long> jobIds) {
+        trackedJobIds.addAll(jobIds);
+        refresh();
+    }
+
+    /**
+     * Returns the status of the given job, or null if PBS has no information about the job. The
+     * snapshot is refreshed if it has expired or if it does not include the given job.
+     */
+    public synchronized PbsJobStatus jobStatus(long jobId) {
+        if (!snapshotJobIds.contains(jobId) || snapshotExpired()) {
+            trackedJobIds.add(jobId);
+            refresh();
+        }
+        return jobStatusByJobId.get(jobId);
+    }
+
+    /** Returns the IDs of the jobs that will be included in the next snapshot. */
+    public synchronized Set<Long> trackedJobIds() {
+        return new TreeSet<>(trackedJobIds);
+    }
+
+    private boolean snapshotExpired() {
+        return currentTimeMillis() - snapshotTimeMillis > maxSnapshotAgeMillis;
+    }
+
+    private void refresh() {
+        List<Long> jobIds = new ArrayList<>(trackedJobIds);
+        Map<Long, PbsJobStatus> statusByJobId = new HashMap<>();
+        boolean qstatSucceeded = true;
+        for (List<Long> jobIdsForQstat : ListUtils.partition(jobIds, MAX_JOB_IDS_PER_QSTAT)) {
+            List<String> qstatOutput = qstat(StringUtils.join(jobIdsForQstat, " "));
+            if (qstatOutput == null) {
+                qstatSucceeded = false;
+                continue;
+            }
+            statusByJobId.putAll(parseQstatOutput(qstatOutput));
+        }
+        log.debug("qstat snapshot contains {} of {} tracked jobs", statusByJobId.size(),
+            jobIds.size());
+        jobStatusByJobId = statusByJobId;
+        snapshotJobIds = new HashSet<>(jobIds);
+        snapshotTimeMillis = currentTimeMillis();
+
+        // If qstat failed, we can't tell which jobs are gone, so keep tracking all of them.
+        if (qstatSucceeded) {
+            trackedJobIds.removeIf(jobId -> !statusByJobId.containsKey(jobId)
+                || statusByJobId.get(jobId).isFinished());
+        }
+    }
+
+    /**
+     * Parses the output of {@code qstat -xf} for any number of jobs into a {@link PbsJobStatus}
+     * per job ID.
+     */
+    static Map<Long, PbsJobStatus> parseQstatOutput(List<String> qstatOutput) {
+        Map<Long, PbsJobStatus> statusByJobId = new HashMap<>();
+        Map<String, String> attributes = null;
+        String attributeName = null;
+        for (String line : qstatOutput) {
+            Matcher matcher = JOB_ROW_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                long jobId = Long.parseLong(matcher.group(1));
+                attributes = new HashMap<>();
+                attributeName = null;
+                statusByJobId.put(jobId, new PbsJobStatus(jobId, attributes));
+                continue;
+            }
+            if (attributes == null) {
+                continue;
+            }
+            if (line.startsWith(CONTINUATION_ROW_PREFIX) && attributeName != null) {
+                attributes.merge(attributeName, line.trim(), String::concat);
+                continue;
+            }
+            matcher = ATTRIBUTE_ROW_PATTERN.matcher(line);
+            if (matcher.matches()) {
+                attributeName = matcher.group(1);
+                attributes.put(attributeName, matcher.group(2).trim());
+            }
+        }
+        return statusByJobId;
+    }
+
+    /**
+     * Runs qstat for the given job IDs and returns its output, or null if qstat could not be run.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private List<String> qstat(String jobIds) {
+        try {
+            ExternalProcess p = qstatExternalProcess(QSTAT_ARGS + jobIds);
+            p.run(true, 0);
+            List<String> qstatOutput = p.stdout();
+            return qstatOutput != null ? qstatOutput : new ArrayList<>();
+        } catch (Exception e) {
+            // The qstat program is not under our control and can fail due to
+            // various transient file system and network issues. If this happens,
+            // we don't want it to bring down the monitoring system, so we catch all
+            // possible exceptions here and try again with the next snapshot.
+            log.error("Error when attempting to run qstat command", e);
+            return null;
+        }
+    }
+
+    ExternalProcess qstatExternalProcess(String commandArgs) {
+        ExternalProcess p = ExternalProcess.simpleExternalProcess(qstatCommand + commandArgs);
+        p.logStdErr(false);
+        p.logStdOut(false);
+        p.writeStdErr(true);
+        p.writeStdOut(true);
+        return p;
+    }
+
+    long currentTimeMillis() {
+        return System.currentTimeMillis();
+    }
+
+    /** Status of a single PBS job as reported by {@code qstat -xf}. */
+    public static class PbsJobStatus {
+
+        // Times are reported like "Thu Oct  9 10:00:00 2026", in the server's local time.
+        private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter
+            .ofPattern("EEE MMM d HH:mm:ss yyyy", Locale.US);
+        private static final Pattern MODEL_PATTERN = Pattern.compile("model=([^:+]+)");
+
+        private final long jobId;
+        private final Map<String, String> attributes;
+
+        public PbsJobStatus(long jobId, Map<String, String> attributes) {
+            this.jobId = jobId;
+            this.attributes = attributes;
+        }
+
+        public long getJobId() {
+            return jobId;
+        }
+
+        /** Returns the value of the given qstat attribute, or null if it is not present. */
+        public String attribute(String attributeName) {
+            return attributes.get(attributeName);
+        }
+
+        /** A job is finished once PBS has recorded its exit status. */
+        public boolean isFinished() {
+            return attributes.containsKey(PbsBatchManager.QSTAT_EXIT_STATUS_ROW_NAME);
+        }
+
+        public String jobName() {
+            return attribute(PbsBatchManager.JOBNAME);
+        }
+
+        /** Returns the output path with the host name removed. */
+        public String outputPath() {
+            String outputPath = attribute(PbsBatchManager.OUTPUT_PATH);
+            return outputPath != null ? StringUtils.substringAfter(outputPath, ":") : null;
+        }
+
+        /** Returns the short name of the host from which the job was submitted. */
+        public String ownerHost() {
+            String owner = attribute(PbsBatchManager.QSTAT_OWNER_ROW_NAME);
+            if (owner == null || !owner.contains("@")) {
+                return null;
+            }
+            return StringUtils.substringBefore(StringUtils.substringAfter(owner, "@"), ".");
+        }
+
+        public String wallTime() {
+            return attribute(PbsBatchManager.WALLTIME);
+        }
+
+        public String queue() {
+            return attribute(PbsBatchManager.QSTAT_QUEUE_ROW_NAME);
+        }
+
+        /** Returns the name of the architecture (model) of the job's nodes. */
+        public String architectureName() {
+            String model = attribute(PbsBatchManager.QSTAT_MODEL_ROW_NAME);
+            if (model != null) {
+                return model;
+            }
+            String select = attribute(PbsBatchManager.SELECT);
+            if (select == null) {
+                return null;
+            }
+            Matcher matcher = MODEL_PATTERN.matcher(select);
+            return matcher.find() ? matcher.group(1) : null;
+        }
+
+        /** Returns the time at which the job entered its queue, or null if it is not known. */
+        public Date submitTime() {
+            Date submitTime = time(PbsBatchManager.QSTAT_QUEUE_TIME_ROW_NAME);
+            return submitTime != null ? submitTime
+                : time(PbsBatchManager.QSTAT_CREATION_TIME_ROW_NAME);
+        }
+
+        /** Returns the time at which the job started, or null if it hasn't started. */
+        public Date startTime() {
+            return time(PbsBatchManager.QSTAT_START_TIME_ROW_NAME);
+        }
+
+        /** Returns the time at which the job ended, or null if it hasn't ended. */
+        public Date endTime() {
+            if (!isFinished()) {
+                return null;
+            }
+            Date endTime = time(PbsBatchManager.QSTAT_END_TIME_ROW_NAME);
+            return endTime != null ? endTime
+                : time(PbsBatchManager.QSTAT_MODIFICATION_TIME_ROW_NAME);
+        }
+
+        @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+        private Date time(String attributeName) {
+            String time = attribute(attributeName);
+            if (StringUtils.isBlank(time)) {
+                return null;
+            }
+            try {
+                return Date.from(LocalDateTime.parse(time.trim().replaceAll("\\s+", " "),
+                    TIME_FORMATTER).atZone(ZoneId.systemDefault()).toInstant());
+            } catch (DateTimeParseException e) {
+                log.warn("Unable to parse {} of job {}: {}", attributeName, jobId, time);
+                return null;
+            }
+        }
+    }
+}
@@ -26,6 +26,7 @@ import gov.nasa.ziggy.metrics.IntervalMetricKey;
 import gov.nasa.ziggy.pipeline.step.AlgorithmStateFiles;
 import gov.nasa.ziggy.pipeline.step.FatalAlgorithmProcessingException;
 import gov.nasa.ziggy.pipeline.step.TaskConfiguration;
+import gov.nasa.ziggy.pipeline.step.hdf5.Hdf5StoragePolicy;
 import gov.nasa.ziggy.pipeline.step.io.AlgorithmInterfaceUtils;
 import gov.nasa.ziggy.pipeline.step.io.PipelineInputs;
 import gov.nasa.ziggy.pipeline.step.io.PipelineInputsOutputsUtils;
@@ -134,6 +135,12 @@ public class SubtaskExecutor {
 
         environment.put(osType.getSharedObjectPathEnvVar(), libPath);
 
+        // Have the algorithm store its HDF5 arrays the way that Ziggy stores its inputs, unless
+        // the runtime environment says otherwise.
+        Hdf5StoragePolicy.forPipelineStep(pipelineStepName())
+            .environment()
+            .forEach(environment::putIfAbsent);
+
         // Add any custom environment settings.
         environment.putAll(customizeEnvironment());
 
@@ -38,6 +38,7 @@ import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
+import java.util.Set;
 
 import org.apache.commons.cli.CommandLine;
 import org.apache.commons.cli.DefaultParser;
@@ -96,8 +97,10 @@ public class SubtaskLocator {
         for (int i = 0; i < taskConfiguration.getSubtaskCount(); i++) {
 
             Path subdirPath = SubtaskUtils.subtaskDirectory(taskDirPath, i);
+            // Only the data filenames are needed, so the rest of the inputs aren't read
             PipelineInputsOutputsUtils.readPipelineInputsFromDirectory(inputs,
-                PipelineInputsOutputsUtils.pipelineStepName(subdirPath.getParent()), subdirPath);
+                PipelineInputsOutputsUtils.pipelineStepName(subdirPath.getParent()), subdirPath,
+                Set.of("dataFilenames"));
             List<String> filesForSubtask = inputs.getDataFilenames();
             if (filesForSubtask.contains(filename) || modelFilenames.contains(filename)) {
                 System.out.println("Subtask " + i + " contains file " + filename);
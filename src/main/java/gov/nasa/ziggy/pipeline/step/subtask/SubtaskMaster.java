@@ -11,6 +11,7 @@ import org.apache.commons.exec.DefaultExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.metrics.ProfilingContext;
 import gov.nasa.ziggy.pipeline.step.AlgorithmStateFiles;
 import gov.nasa.ziggy.pipeline.step.ComputeNodeMaster;
 import gov.nasa.ziggy.pipeline.step.FatalAlgorithmProcessingException;
@@ -80,6 +81,7 @@ public class SubtaskMaster implements Runnable {
     @Override
     @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_IN_RUNNABLE)
     public void run() {
+        ProfilingContext.Scope taskScope = ProfilingContext.enterTask(new File(taskDir).getName());
         try {
             processSubtasks();
             log.info("Node: {}[{}]: No more subtasks to process, thread exiting", node,
@@ -87,6 +89,7 @@ public class SubtaskMaster implements Runnable {
         } catch (Exception e) {
             log.error("Exception thrown in SubtaskMaster", e);
         } finally {
+            taskScope.close();
             countdownLatch.countDown();
         }
     }
@@ -128,6 +131,8 @@ public class SubtaskMaster implements Runnable {
                 .toFile();
             File lockFile = new File(subtaskDir, TaskConfiguration.LOCK_FILE_NAME);
             boolean lockFileObtained = false;
+            ProfilingContext.Scope subtaskScope = ProfilingContext
+                .enterSubtask(subtaskDir.getName());
             try {
                 if (getWriteLockWithoutBlocking(lockFile)) {
                     lockFileObtained = true;
@@ -151,6 +156,7 @@ public class SubtaskMaster implements Runnable {
                 // this subtask.
                 subtaskClient.reportSubtaskComplete(subtaskIndex);
             } finally {
+                subtaskScope.close();
                 SubtaskUtils.putLogStreamIdentifier((String) null);
                 if (lockFileObtained) {
                     releaseWriteLock(lockFile);
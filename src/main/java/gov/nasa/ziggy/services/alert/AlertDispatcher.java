@@ -0,0 +1,296 @@
+package gov.nasa.ziggy.services.alert;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.pipeline.definition.PipelineTask;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
+
+/**
+ * Delivers alerts for {@link AlertService} on a thread of its own, so that generating an alert
+ * doesn't wait for the database or the messenger.
+ * <p>
+ * Alerts wait in a bounded queue until the delivery thread takes them, and a caller that finds the
+ * queue full waits for room. An alert with the same source component, task, and message as one
+ * that is still waiting is counted with the waiting alert rather than queued again, and the number
+ * of repeats is added to its message. The delivery thread persists all of the waiting alerts
+ * together in one transaction, so alerts that arrive while a batch is being persisted form the
+ * next batch. Broadcasts are limited to a maximum number per interval; alerts beyond the limit are
+ * persisted but not broadcast.
+ * <p>
+ * The delivery thread starts with the first alert, and the alerts that are waiting when the JVM
+ * shuts down are delivered by a shutdown hook. Alerts that are generated after that are delivered
+ * on the caller's thread.
+ */
+class AlertDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(AlertDispatcher.class);
+
+    static final int DEFAULT_QUEUE_CAPACITY = 10_000;
+    static final int DEFAULT_MAX_BROADCASTS_PER_INTERVAL = 20;
+    static final long DEFAULT_BROADCAST_INTERVAL_MILLIS = 10_000;
+
+    /** Limits the size of a transaction. */
+    static final int MAX_BATCH_SIZE = 500;
+
+    private static final long STOP_TIMEOUT_MILLIS = 30_000;
+
+    private final Consumer<List<Alert>> persister;
+    private final Consumer<Alert> broadcaster;
+    private final int queueCapacity;
+    private final int maxBroadcastsPerInterval;
+    private final long broadcastIntervalMillis;
+
+    // These are guarded by this.
+    private final Map<AlertKey, PendingAlert> pendingAlerts = new LinkedHashMap<>();
+    private boolean delivering;
+    private boolean stopped;
+    private Thread deliveryThread;
+    private long broadcastIntervalStart;
+    private int broadcastCount;
+    private int suppressedBroadcastCount;
+
+    AlertDispatcher(Consumer<List<Alert>> persister, Consumer<Alert> broadcaster) {
+        this(persister, broadcaster, DEFAULT_QUEUE_CAPACITY, DEFAULT_MAX_BROADCASTS_PER_INTERVAL,
+            DEFAULT_BROADCAST_INTERVAL_MILLIS);
+    }
+
+    /**
+     * @param persister stores a batch of alerts
+     * @param broadcaster publishes an alert
+     * @param queueCapacity the number of alerts that can wait to be delivered
+     * @param maxBroadcastsPerInterval the number of alerts that are broadcast in an interval
+     * @param broadcastIntervalMillis the length of the interval
+     */
+    AlertDispatcher(Consumer<List<Alert>> persister, Consumer<Alert> broadcaster,
+        int queueCapacity, int maxBroadcastsPerInterval, long broadcastIntervalMillis) {
+        this.persister = persister;
+        this.broadcaster = broadcaster;
+        this.queueCapacity = queueCapacity;
+        this.maxBroadcastsPerInterval = maxBroadcastsPerInterval;
+        this.broadcastIntervalMillis = broadcastIntervalMillis;
+    }
+
+    /**
+     * Queues an alert for delivery. If the queue is full, waits for room; if the dispatcher has
+     * stopped, delivers the alert before returning.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    void submit(Alert alert, boolean broadcast) {
+        AlertKey key = new AlertKey(alert);
+        synchronized (this) {
+            PendingAlert pendingAlert = pendingAlerts.get(key);
+            if (pendingAlert != null) {
+                pendingAlert.repeat(broadcast);
+                return;
+            }
+            try {
+                while (!stopped && pendingAlerts.size() >= queueCapacity) {
+                    wait();
+                }
+            } catch (InterruptedException e) {
+                // Deliver the alert here rather than lose it.
+                Thread.currentThread().interrupt();
+            }
+            if (!stopped && pendingAlerts.size() < queueCapacity) {
+                pendingAlerts.put(key, new PendingAlert(alert, broadcast));
+                startDeliveryThread();
+                notifyAll();
+                return;
+            }
+        }
+        deliver(List.of(new PendingAlert(alert, broadcast)));
+    }
+
+    /** Waits until the alerts that have been submitted are delivered. */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    synchronized void flush() {
+        try {
+            while (!pendingAlerts.isEmpty() || delivering) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Delivers the alerts that are waiting and stops the delivery thread. Alerts that are
+     * submitted after this are delivered on the caller's thread.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    void stop() {
+        Thread threadToStop;
+        synchronized (this) {
+            stopped = true;
+            notifyAll();
+            threadToStop = deliveryThread;
+        }
+        if (threadToStop == null) {
+            return;
+        }
+        try {
+            threadToStop.join(STOP_TIMEOUT_MILLIS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (threadToStop.isAlive()) {
+            log.warn("Timed out delivering alerts");
+        }
+    }
+
+    private void startDeliveryThread() {
+        if (deliveryThread != null) {
+            return;
+        }
+        deliveryThread = new Thread(this::deliverAlerts, "AlertDispatcher");
+        deliveryThread.setDaemon(true);
+        deliveryThread.start();
+        ZiggyShutdownHook.addShutdownHook(this::stop);
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private void deliverAlerts() {
+        while (true) {
+            List<PendingAlert> batch = new ArrayList<>();
+            synchronized (this) {
+                try {
+                    while (!stopped && pendingAlerts.isEmpty()) {
+                        wait();
+                    }
+                } catch (InterruptedException e) {
+                    // Deliver what is waiting and exit.
+                    stopped = true;
+                }
+                if (pendingAlerts.isEmpty()) {
+                    return;
+                }
+                Iterator<PendingAlert> iterator = pendingAlerts.values().iterator();
+                while (iterator.hasNext() && batch.size() < MAX_BATCH_SIZE) {
+                    batch.add(iterator.next());
+                    iterator.remove();
+                }
+                delivering = true;
+                notifyAll();
+            }
+            try {
+                deliver(batch);
+            } finally {
+                synchronized (this) {
+                    delivering = false;
+                    notifyAll();
+                }
+            }
+        }
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private void deliver(List<PendingAlert> batch) {
+        List<Alert> alerts = new ArrayList<>(batch.size());
+        for (PendingAlert pendingAlert : batch) {
+            alerts.add(pendingAlert.alert());
+        }
+        try {
+            persister.accept(alerts);
+        } catch (RuntimeException e) {
+            log.error("Failed to store {} alerts in database", alerts.size(), e);
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            if (batch.get(i).broadcast && broadcastAllowed()) {
+                try {
+                    broadcaster.accept(alerts.get(i));
+                } catch (RuntimeException e) {
+                    log.error("Failed to broadcast alert", e);
+                }
+            }
+        }
+    }
+
+    private synchronized boolean broadcastAllowed() {
+        long now = System.currentTimeMillis();
+        if (now - broadcastIntervalStart >= broadcastIntervalMillis) {
+            if (suppressedBroadcastCount > 0) {
+                log.warn("{} alerts were not broadcast, as more than {} were generated in {} ms",
+                    suppressedBroadcastCount, maxBroadcastsPerInterval, broadcastIntervalMillis);
+            }
+            broadcastIntervalStart = now;
+            broadcastCount = 0;
+            suppressedBroadcastCount = 0;
+        }
+        if (broadcastCount < maxBroadcastsPerInterval) {
+            broadcastCount++;
+            return true;
+        }
+        suppressedBroadcastCount++;
+        return false;
+    }
+
+    /** Identifies alerts that are the same but for their time and process. */
+    private static class AlertKey {
+        private final String sourceComponent;
+        private final PipelineTask sourceTask;
+        private final String message;
+
+        AlertKey(Alert alert) {
+            sourceComponent = alert.getSourceComponent();
+            sourceTask = alert.getSourceTask();
+            message = alert.getMessage();
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(sourceComponent, sourceTask, message);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (obj == null || getClass() != obj.getClass()) {
+                return false;
+            }
+            AlertKey other = (AlertKey) obj;
+            return Objects.equals(sourceComponent, other.sourceComponent)
+                && Objects.equals(sourceTask, other.sourceTask)
+                && Objects.equals(message, other.message);
+        }
+    }
+
+    /** An alert that is waiting to be delivered, and the number of times it was repeated. */
+    private static class PendingAlert {
+        private final Alert alert;
+        private boolean broadcast;
+        private int repeatCount;
+
+        PendingAlert(Alert alert, boolean broadcast) {
+            this.alert = alert;
+            this.broadcast = broadcast;
+        }
+
+        void repeat(boolean broadcast) {
+            repeatCount++;
+            this.broadcast |= broadcast;
+        }
+
+        /** Returns the first alert, with the number of repeats, if any, added to its message. */
+        Alert alert() {
+            if (repeatCount == 0) {
+                return alert;
+            }
+            return new Alert(alert.getTimestamp(), alert.getSourceComponent(),
+                alert.getSourceTask(), alert.getProcessName(), alert.getProcessHost(),
+                alert.getProcessId(), alert.getSeverity(),
+                alert.getMessage() + " (repeated " + repeatCount + " times)");
+        }
+    }
+}
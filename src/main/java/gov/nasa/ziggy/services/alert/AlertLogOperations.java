@@ -1,5 +1,6 @@
 package gov.nasa.ziggy.services.alert;
 
+import java.util.Collection;
 import java.util.List;
 
 import gov.nasa.ziggy.pipeline.definition.PipelineInstance;
@@ -17,6 +18,10 @@ public class AlertLogOperations extends DatabaseOperations {
         performTransaction(() -> alertLogCrud().persist(alert));
     }
 
+    public void persist(Collection<AlertLog> alerts) {
+        performTransaction(() -> alertLogCrud().persist(alerts));
+    }
+
     public List<AlertLog> alertLogs(PipelineInstance pipelineInstance) {
         return performTransaction(
             () -> alertLogCrud().retrieveForPipelineInstance(pipelineInstance));
@@ -2,7 +2,9 @@ package gov.nasa.ziggy.services.alert;
 
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.util.ArrayList;
 import java.util.Date;
+import java.util.List;
 
 import org.apache.commons.configuration2.ImmutableConfiguration;
 import org.slf4j.Logger;
@@ -18,10 +20,13 @@ import gov.nasa.ziggy.services.process.AbstractPipelineProcess;
 import gov.nasa.ziggy.services.process.ProcessInfo;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
-import gov.nasa.ziggy.util.PipelineException;
 
 /**
  * Alert service implementation.
+ * <p>
+ * Alerts are stored and broadcast asynchronously by an {@link AlertDispatcher}, so generating an
+ * alert returns without waiting for the database or the messenger. Use {@link #flush()} to wait
+ * for the alerts that have been generated to be delivered.
  *
  * @author Todd Klaus
  */
@@ -32,6 +37,7 @@ public class AlertService {
 
     public boolean broadcastEnabled = false;
     private AlertLogOperations alertLogOperations = new AlertLogOperations();
+    private AlertDispatcher alertDispatcher;
 
     static AlertService instance;
 
@@ -62,16 +68,17 @@ public class AlertService {
 
     public void generateAndBroadcastAlert(String sourceComponent, PipelineTask sourceTask,
         Severity severity, String message) {
-        boolean storedBroadcastFlag = broadcastEnabled;
-        broadcastEnabled = true;
-        generateAlert(sourceComponent, sourceTask, severity, message);
-        broadcastEnabled = storedBroadcastFlag;
+        generateAlert(sourceComponent, sourceTask, severity, message, true);
     }
 
-    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
-    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
     public void generateAlert(String sourceComponent, PipelineTask sourceTask, Severity severity,
         String message) {
+        generateAlert(sourceComponent, sourceTask, severity, message, broadcastEnabled);
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.CAN_NEVER_OCCUR)
+    private void generateAlert(String sourceComponent, PipelineTask sourceTask, Severity severity,
+        String message, boolean broadcast) {
         log.debug("ALERT:[{}]: {}", sourceComponent, message);
 
         Date timestamp = new Date();
@@ -99,15 +106,31 @@ public class AlertService {
         Alert alertData = new Alert(timestamp, sourceComponent, sourceTask, processName,
             processHost, processId, severity, message);
 
-        try {
-            alertLogOperations().persist(new AlertLog(alertData));
-        } catch (PipelineException e) {
-            log.error("Failed to store alert in database", e);
+        alertDispatcher().submit(alertData, broadcast || severity == Severity.INFRASTRUCTURE);
+    }
+
+    /** Waits until the alerts that have been generated are stored and broadcast. */
+    public void flush() {
+        alertDispatcher().flush();
+    }
+
+    private void persist(List<Alert> alerts) {
+        List<AlertLog> alertLogs = new ArrayList<>(alerts.size());
+        for (Alert alert : alerts) {
+            alertLogs.add(new AlertLog(alert));
         }
+        alertLogOperations().persist(alertLogs);
+    }
+
+    private void broadcast(Alert alert) {
+        ZiggyMessenger.publish(new AlertMessage(alert));
+    }
 
-        if (broadcastEnabled || severity == Severity.INFRASTRUCTURE) {
-            ZiggyMessenger.publish(new AlertMessage(alertData));
+    synchronized AlertDispatcher alertDispatcher() {
+        if (alertDispatcher == null) {
+            alertDispatcher = new AlertDispatcher(this::persist, this::broadcast);
         }
+        return alertDispatcher;
     }
 
     AlertLogOperations alertLogOperations() {
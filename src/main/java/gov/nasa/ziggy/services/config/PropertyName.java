@@ -207,6 +207,27 @@ public enum PropertyName {
     /** Environment definition used by pipeline steps. */
     RUNTIME_ENVIRONMENT("ziggy.pipeline.environment"),
 
+    /** Whether event handlers poll their directories instead of waiting for file events. */
+    EVENT_HANDLER_POLLING_ENABLED("ziggy.pipeline.events.polling.enabled"),
+
+    /** Target size of the chunks of compressed HDF5 arrays (bytes). */
+    HDF5_CHUNK_BYTES("ziggy.pipeline.hdf5.chunkBytes"),
+
+    /** Deflate level of HDF5 arrays, from 0 (no compression) to 9. */
+    HDF5_COMPRESSION_LEVEL("ziggy.pipeline.hdf5.compressionLevel"),
+
+    /** Number of elements in the smallest HDF5 array that is compressed. */
+    HDF5_MIN_COMPRESSION_ELEMENTS("ziggy.pipeline.hdf5.minCompressionElements"),
+
+    /** Number of threads that convert arrays of objects to and from HDF5 parallel arrays. */
+    HDF5_PARALLEL_ARRAY_THREADS("ziggy.pipeline.hdf5.parallelArrayThreads"),
+
+    /** Whether the inputs shared by all subtasks are written once to the task directory. */
+    HDF5_SHARED_INPUTS("ziggy.pipeline.hdf5.sharedInputs"),
+
+    /** Whether the shuffle filter is applied to compressed HDF5 arrays. */
+    HDF5_SHUFFLE("ziggy.pipeline.hdf5.shuffle"),
+
     /** Pipeline home directory. */
     PIPELINE_HOME_DIR("ziggy.pipeline.home.dir"),
 
@@ -219,7 +240,7 @@ public enum PropertyName {
     /** Determines whether memdrone is enabled. */
     MEMDRONE_ENABLED("ziggy.pipeline.memdrone.enabled"),
 
-    /** Determines the interval between memdrone samples. */
+    /** Determines the interval between memdrone samples in seconds, which may be fractional. */
     MEMDRONE_SLEEP("ziggy.pipeline.memdrone.sleepSeconds"),
 
     /**
@@ -227,6 +248,12 @@ public enum PropertyName {
      */
     PIPELINE_HALT("ziggy.pipeline.processing.halt.step"),
 
+    /** Whether the task profiler is enabled. */
+    PROFILER_ENABLED("ziggy.pipeline.profiler.enabled"),
+
+    /** Interval between the task profiler's samples of each thread (milliseconds). */
+    PROFILER_SAMPLE_MILLIS("ziggy.pipeline.profiler.sampleMillis"),
+
     /** Location of pipeline results. */
     RESULTS_DIR("ziggy.pipeline.results.dir"),
 
@@ -236,6 +263,9 @@ public enum PropertyName {
      */
     STATUS_BROADCAST_ENABLED("ziggy.pipeline.status.broadcast.enabled"),
 
+    /** Minimum interval between status messages from a single status reporter (milliseconds). */
+    STATUS_MIN_INTERVAL_MILLIS("ziggy.pipeline.status.minIntervalMillis"),
+
     /**
      * Interval for posting worker status (milliseconds) This property does not need to be
      * documented in the manual.
@@ -263,6 +293,18 @@ public enum PropertyName {
      */
     HEARTBEAT_INTERVAL("ziggy.supervisor.heartbeat.interval.millis"),
 
+    /**
+     * Maximum number of control messages (everything other than periodic status messages) that
+     * may wait in each message queue.
+     */
+    MESSAGE_QUEUE_CONTROL_CAPACITY("ziggy.supervisor.messageQueue.controlCapacity"),
+
+    /**
+     * Maximum number of periodic status messages that may wait in each message queue. The oldest
+     * status message is dropped when the queue is full.
+     */
+    MESSAGE_QUEUE_TELEMETRY_CAPACITY("ziggy.supervisor.messageQueue.telemetryCapacity"),
+
     /**
      * Port used for communications between supervisor and console. Each cluster must have a port
      * that is not already in use on the system.
@@ -0,0 +1,308 @@
+package gov.nasa.ziggy.services.events;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.commons.configuration2.ImmutableConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
+
+/**
+ * Notifies {@link ZiggyEventHandler} instances when a ready-indicator file appears in their
+ * watched directories.
+ * <p>
+ * All event handlers share a single watcher thread, which blocks on a {@link WatchService} and
+ * wakes up when a file whose name matches the ready-file pattern is created in any watched
+ * directory. The affected handlers then check their directories on a single shared scan thread.
+ * Events that arrive while a handler's check is already pending are coalesced into that check.
+ * <p>
+ * Some file systems do not deliver change events reliably (for example, network file systems only
+ * report changes made on the local host). For directories on such file systems, for directories
+ * that cannot be registered with the {@link WatchService}, or when the
+ * {@link PropertyName#EVENT_HANDLER_POLLING_ENABLED} property is true, the handler falls back to
+ * checking its directory every {@link ZiggyEventHandler#readyFileCheckIntervalMillis()}.
+ */
+public class ReadyFileWatcher {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadyFileWatcher.class);
+
+    /** File system types that do not reliably deliver events for files created by other hosts. */
+    private static final Set<String> NON_NOTIFYING_FILE_SYSTEM_TYPES = Set.of("nfs", "nfs4",
+        "lustre", "gpfs", "cifs", "smbfs", "smb3", "fuse.sshfs", "panfs", "beegfs");
+
+    /** The JDK falls back to this implementation on platforms without native notification. */
+    private static final String POLLING_WATCH_SERVICE_CLASS_NAME = "PollingWatchService";
+
+    private static ReadyFileWatcher instance;
+
+    private final Map<ZiggyEventHandler, Registration> registrationByHandler = new HashMap<>();
+    private final Map<Path, WatchKey> watchKeyByDirectory = new HashMap<>();
+    private final ScheduledExecutorService scanExecutor;
+    private final boolean pollingEnabled;
+    private WatchService watchService;
+    private boolean watchServiceUnavailable;
+    private boolean shutdown;
+
+    public static synchronized ReadyFileWatcher getInstance() {
+        if (instance == null) {
+            instance = new ReadyFileWatcher();
+            ZiggyShutdownHook.addShutdownHook(instance::shutdown);
+        }
+        return instance;
+    }
+
+    ReadyFileWatcher() {
+        ImmutableConfiguration config = ZiggyConfiguration.getInstance();
+        pollingEnabled = config.getBoolean(PropertyName.EVENT_HANDLER_POLLING_ENABLED.property(),
+            false);
+        scanExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "ReadyFileScanner");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts watching the directory of the given handler. The handler checks its directory once
+     * immediately, to pick up any ready files that appeared while it was not registered, and
+     * thereafter whenever a ready file is created (or on each polling interval if the directory
+     * cannot be watched).
+     */
+    public synchronized void register(ZiggyEventHandler handler) {
+        if (shutdown || registrationByHandler.containsKey(handler)) {
+            return;
+        }
+        Path directory = handler.interpolatedDirectory().toAbsolutePath().normalize();
+        Registration registration = new Registration(handler, directory);
+        registrationByHandler.put(handler, registration);
+        if (watchDirectory(directory)) {
+            log.info("Event handler {} watching directory {} for ready files", handler.getName(),
+                directory);
+            requestScan(registration);
+        } else {
+            log.info("Event handler {} polling directory {} for ready files every {} ms",
+                handler.getName(), directory, handler.readyFileCheckIntervalMillis());
+            schedulePolling(registration);
+        }
+    }
+
+    /**
+     * Stops watching the directory of the given handler. The directory itself is only removed
+     * from the {@link WatchService} when no other handler is watching it.
+     */
+    public synchronized void unregister(ZiggyEventHandler handler) {
+        Registration registration = registrationByHandler.remove(handler);
+        if (registration == null) {
+            return;
+        }
+        if (registration.pollingFuture != null) {
+            registration.pollingFuture.cancel(false);
+            return;
+        }
+        if (registrationsForDirectory(registration.directory).isEmpty()) {
+            WatchKey watchKey = watchKeyByDirectory.remove(registration.directory);
+            if (watchKey != null) {
+                watchKey.cancel();
+            }
+        }
+    }
+
+    /** Determines whether the given handler's directory is watched rather than polled. */
+    public synchronized boolean isWatched(ZiggyEventHandler handler) {
+        Registration registration = registrationByHandler.get(handler);
+        return registration != null && registration.pollingFuture == null;
+    }
+
+    /**
+     * Registers the directory with the {@link WatchService}, starting the watcher thread if
+     * necessary. Returns false if the handler needs to poll the directory instead.
+     */
+    @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
+    private boolean watchDirectory(Path directory) {
+        if (pollingEnabled || watchServiceUnavailable) {
+            return false;
+        }
+        if (watchKeyByDirectory.containsKey(directory)) {
+            return true;
+        }
+        try {
+            if (!Files.isDirectory(directory) || !deliversEvents(directory)) {
+                return false;
+            }
+            if (watchService == null) {
+                watchService = FileSystems.getDefault().newWatchService();
+                if (watchService.getClass()
+                    .getSimpleName()
+                    .equals(POLLING_WATCH_SERVICE_CLASS_NAME)) {
+                    log.info("File change notification not available, using polling");
+                    watchService.close();
+                    watchService = null;
+                    watchServiceUnavailable = true;
+                    return false;
+                }
+                startWatcherThread();
+            }
+            watchKeyByDirectory.put(directory,
+                directory.register(watchService, ENTRY_CREATE, OVERFLOW));
+            return true;
+        } catch (IOException | UnsupportedOperationException e) {
+            // Failing to watch the directory isn't fatal, as the handler can still poll it.
+            log.warn("Unable to watch directory {}, using polling", directory, e);
+            return false;
+        }
+    }
+
+    private boolean deliversEvents(Path directory) throws IOException {
+        String fileSystemType = Files.getFileStore(directory).type();
+        if (NON_NOTIFYING_FILE_SYSTEM_TYPES.contains(fileSystemType)) {
+            log.info("Directory {} is on a {} file system, using polling", directory,
+                fileSystemType);
+            return false;
+        }
+        return true;
+    }
+
+    private void startWatcherThread() {
+        WatchService service = watchService;
+        Thread watcherThread = new Thread(() -> watch(service), "ReadyFileWatcher");
+        watcherThread.setDaemon(true);
+        watcherThread.start();
+    }
+
+    /** Waits for events from the {@link WatchService} until it is closed. */
+    @AcceptableCatchBlock(rationale = Rationale.CLEANUP_BEFORE_EXIT)
+    private void watch(WatchService service) {
+        while (true) {
+            WatchKey watchKey;
+            try {
+                watchKey = service.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+            boolean readyFileCreated = false;
+            for (WatchEvent<?> event : watchKey.pollEvents()) {
+                if (event.kind() == OVERFLOW) {
+                    readyFileCreated = true;
+                } else if (ZiggyEventHandler
+                    .isReadyFileName(((Path) event.context()).getFileName().toString())) {
+                    readyFileCreated = true;
+                }
+            }
+            Path directory = (Path) watchKey.watchable();
+            if (!watchKey.reset()) {
+                pollDirectory(directory);
+            } else if (readyFileCreated) {
+                requestScans(directory);
+            }
+        }
+    }
+
+    private synchronized void requestScans(Path directory) {
+        for (Registration registration : registrationsForDirectory(directory)) {
+            requestScan(registration);
+        }
+    }
+
+    /**
+     * Switches the handlers for a directory that can no longer be watched (for example, because it
+     * was deleted and recreated) to polling.
+     */
+    private synchronized void pollDirectory(Path directory) {
+        if (watchKeyByDirectory.remove(directory) == null) {
+            return;
+        }
+        for (Registration registration : registrationsForDirectory(directory)) {
+            log.warn("Directory {} no longer watched, event handler {} polling instead", directory,
+                registration.handler.getName());
+            schedulePolling(registration);
+        }
+    }
+
+    private void schedulePolling(Registration registration) {
+        long intervalMillis = registration.handler.readyFileCheckIntervalMillis();
+        registration.pollingFuture = scanExecutor.scheduleAtFixedRate(() -> scan(registration), 0L,
+            intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void requestScan(Registration registration) {
+        if (registration.scanPending.compareAndSet(false, true)) {
+            scanExecutor.execute(() -> {
+                registration.scanPending.set(false);
+                scan(registration);
+            });
+        }
+    }
+
+    private void scan(Registration registration) {
+        synchronized (this) {
+            if (registrationByHandler.get(registration.handler) != registration) {
+                return;
+            }
+        }
+        registration.handler.run();
+    }
+
+    private Set<Registration> registrationsForDirectory(Path directory) {
+        Set<Registration> registrations = new HashSet<>();
+        for (Registration registration : registrationByHandler.values()) {
+            if (registration.directory.equals(directory)) {
+                registrations.add(registration);
+            }
+        }
+        return registrations;
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.CLEANUP_BEFORE_EXIT)
+    synchronized void shutdown() {
+        shutdown = true;
+        registrationByHandler.clear();
+        watchKeyByDirectory.clear();
+        scanExecutor.shutdownNow();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("Unable to close watch service", e);
+            }
+            watchService = null;
+        }
+    }
+
+    /** The state of a single handler's registration. */
+    private static class Registration {
+
+        private final ZiggyEventHandler handler;
+        private final Path directory;
+        private final AtomicBoolean scanPending = new AtomicBoolean();
+        private ScheduledFuture<?> pollingFuture;
+
+        public Registration(ZiggyEventHandler handler, Path directory) {
+            this.handler = handler;
+            this.directory = directory;
+        }
+    }
+}
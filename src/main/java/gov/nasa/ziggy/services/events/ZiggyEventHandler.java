@@ -13,9 +13,6 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
-import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
@@ -51,7 +48,8 @@ import jakarta.xml.bind.annotation.XmlAttribute;
  * More specifically, the {@link ZiggyEventHandler} watches for a ready-indicator file to appear in
  * the watched directory; at that time, the pipeline begins execution. Once pipeline execution has
  * started, the ready-indicator file is removed and the event handler returns to watching for
- * events.
+ * events. The watched directory is monitored by the {@link ReadyFileWatcher}, which is shared by
+ * all event handlers.
  *
  * @author PT
  */
@@ -120,11 +118,12 @@ public class ZiggyEventHandler implements Runnable, PipelineDefinitionElement {
 
     @Transient
     private ZiggyEventOperations ziggyEventOperations = new ZiggyEventOperations();
+
     /**
-     * {@link ScheduledExecutorService} that provides a thread for the ready-indicator check.
+     * Indicates that the handler is registered with the {@link ReadyFileWatcher}.
      */
     @Transient
-    private ScheduledExecutorService watcherThread;
+    private volatile boolean running;
 
     public ZiggyEventHandler() {
         ZiggyShutdownHook.addShutdownHook(this::stop);
@@ -137,27 +136,27 @@ public class ZiggyEventHandler implements Runnable, PipelineDefinitionElement {
     }
 
     /**
-     * Starts watching for the specified event. Specifically, this method submits the {@link #run()}
-     * method to the {@link ScheduledExecutorService}.
+     * Starts watching for the specified event. Specifically, this method registers the handler with
+     * the {@link ReadyFileWatcher}, which calls the {@link #run()} method when a ready-indicator
+     * file appears in the watched directory.
      */
     public void start() {
-        watcherThread = new ScheduledThreadPoolExecutor(1);
-        watcherThread.scheduleAtFixedRate(this, 0L, readyFileCheckIntervalMillis(),
-            TimeUnit.MILLISECONDS);
+        running = true;
+        readyFileWatcher().register(this);
     }
 
     /**
      * Stops watching for the ready-indicator file.
      */
     public void stop() {
-        if (watcherThread != null) {
-            watcherThread.shutdownNow();
-            watcherThread = null;
+        if (running) {
+            running = false;
+            readyFileWatcher().unregister(this);
         }
     }
 
     public boolean isRunning() {
-        return watcherThread != null;
+        return running;
     }
 
     /**
@@ -197,7 +196,7 @@ public class ZiggyEventHandler implements Runnable, PipelineDefinitionElement {
         Set<ReadyFile> readyFilesForExecution = new HashSet<>();
         File[] readyFilesInWatchedDirectory = interpolatedDirectory().toFile()
             .listFiles(
-                (FilenameFilter) (dir, filename) -> READY_FILE_NAME.matcher(filename).matches());
+                (FilenameFilter) (dir, filename) -> isReadyFileName(filename));
         if (readyFilesInWatchedDirectory == null || readyFilesInWatchedDirectory.length == 0) {
             return readyFilesForExecution;
         }
@@ -248,7 +247,7 @@ public class ZiggyEventHandler implements Runnable, PipelineDefinitionElement {
      */
     public void toggleStatus() {
         log.debug("Toggling state of event handler {}", name);
-        if (watcherThread == null) { // indicates disabled
+        if (!running) {
             start();
         } else {
             stop();
@@ -308,14 +307,30 @@ public class ZiggyEventHandler implements Runnable, PipelineDefinitionElement {
     }
 
     /**
-     * Returns the desired interval between tests for the ready-indicator file. Package scope so
-     * that it can be mocked out with a different value during tests.
+     * Returns the {@link ReadyFileWatcher} that monitors the watched directory. Package scope for
+     * tests.
+     */
+    ReadyFileWatcher readyFileWatcher() {
+        return ReadyFileWatcher.getInstance();
+    }
+
+    /**
+     * Returns the desired interval between tests for the ready-indicator file when the watched
+     * directory must be polled. Package scope so that it can be mocked out with a different value
+     * during tests.
      */
     long readyFileCheckIntervalMillis() {
         return READY_FILE_CHECK_INTERVAL_MILLIS;
     }
 
-    private Path interpolatedDirectory() {
+    /**
+     * Determines whether a file name matches the pattern for ready-indicator files.
+     */
+    static boolean isReadyFileName(String filename) {
+        return READY_FILE_NAME.matcher(filename).matches();
+    }
+
+    Path interpolatedDirectory() {
         return Paths.get((String) ZiggyConfiguration.interpolate(directory));
     }
 
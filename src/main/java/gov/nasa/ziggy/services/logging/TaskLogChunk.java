@@ -0,0 +1,53 @@
+package gov.nasa.ziggy.services.logging;
+
+import java.io.Serializable;
+
+/**
+ * A window of consecutive lines from a task log, as returned by {@link TaskLogReader}. Line numbers
+ * are zero-based.
+ */
+public class TaskLogChunk implements Serializable {
+
+    private static final long serialVersionUID = 20261019L;
+
+    private final String contents;
+    private final long firstLine;
+    private final long lineCount;
+    private final long totalLines;
+    private final long logSizeBytes;
+
+    public TaskLogChunk(String contents, long firstLine, long lineCount, long totalLines,
+        long logSizeBytes) {
+        this.contents = contents;
+        this.firstLine = firstLine;
+        this.lineCount = lineCount;
+        this.totalLines = totalLines;
+        this.logSizeBytes = logSizeBytes;
+    }
+
+    public String getContents() {
+        return contents;
+    }
+
+    public long getFirstLine() {
+        return firstLine;
+    }
+
+    public long getLineCount() {
+        return lineCount;
+    }
+
+    /** Returns the number of lines in the log at the time the chunk was read. */
+    public long getTotalLines() {
+        return totalLines;
+    }
+
+    public long getLogSizeBytes() {
+        return logSizeBytes;
+    }
+
+    /** Determines whether the chunk ends with the last line of the log. */
+    public boolean isTail() {
+        return firstLine + lineCount >= totalLines;
+    }
+}
@@ -0,0 +1,220 @@
+package gov.nasa.ziggy.services.logging;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads windows of lines from task logs without reading the whole log into memory.
+ * <p>
+ * Task logs can run to gigabytes, so the reader memory-maps the log and copies out only the
+ * requested lines, up to a limit of {@link #MAX_CHUNK_BYTES_DEFAULT} bytes per chunk. To find the
+ * requested lines, the reader keeps a line index for each recently read log. The index records the
+ * byte offset of every {@link #LINE_INDEX_STRIDE}th line, so locating any line means one array
+ * lookup followed by a scan of fewer than {@link #LINE_INDEX_STRIDE} lines, however long the log
+ * is. Logs are append-only while their tasks run, so the index is extended with just the new
+ * content when a log grows. A log that shrinks or is replaced is indexed again from the start.
+ * <p>
+ * A negative first line counts back from the end of the log, so a window at the end of the log
+ * (the part that is usually of interest) can be requested without knowing how long the log is.
+ */
+public class TaskLogReader {
+
+    private static final Logger log = LoggerFactory.getLogger(TaskLogReader.class);
+
+    /** Number of lines between entries in the line index. */
+    static final int LINE_INDEX_STRIDE = 128;
+
+    /** Maximum number of bytes returned in a single chunk. */
+    static final int MAX_CHUNK_BYTES_DEFAULT = 4 * 1024 * 1024;
+
+    /** Maximum number of bytes mapped at once when scanning a log. */
+    private static final long MAP_WINDOW_BYTES = 64 * 1024 * 1024;
+
+    /** Maximum number of logs whose line indexes are kept. */
+    private static final int MAX_INDEXED_LOGS = 32;
+
+    private final int maxChunkBytes;
+    private final Map<Path, LineIndex> lineIndexByLog = Collections
+        .synchronizedMap(new LinkedHashMap<>(16, 0.75F, true) {
+            private static final long serialVersionUID = 20261019L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Path, LineIndex> eldest) {
+                return size() > MAX_INDEXED_LOGS;
+            }
+        });
+
+    public TaskLogReader() {
+        this(MAX_CHUNK_BYTES_DEFAULT);
+    }
+
+    TaskLogReader(int maxChunkBytes) {
+        this.maxChunkBytes = maxChunkBytes;
+    }
+
+    /**
+     * Reads up to the given number of lines from a task log, starting with the given zero-based
+     * line. If the first line is negative, the window starts that many lines before the end of the
+     * log. Fewer lines are returned if the end of the log is reached or the lines would exceed the
+     * maximum chunk size; a single line longer than the maximum chunk size is truncated.
+     */
+    public TaskLogChunk readLines(Path taskLog, long firstLine, int maxLines) throws IOException {
+        Path logPath = taskLog.toAbsolutePath().normalize();
+        LineIndex lineIndex = lineIndexByLog.computeIfAbsent(logPath, path -> new LineIndex());
+        try (FileChannel channel = FileChannel.open(logPath, StandardOpenOption.READ)) {
+            synchronized (lineIndex) {
+                lineIndex.update(channel, Files
+                    .readAttributes(logPath, BasicFileAttributes.class)
+                    .fileKey());
+                long totalLines = lineIndex.lineCount();
+                long start = firstLine < 0 ? Math.max(0L, totalLines + firstLine)
+                    : Math.min(firstLine, totalLines);
+                long end = Math.min(totalLines, start + Math.max(maxLines, 0));
+                long startOffset = lineIndex.lineOffset(channel, start);
+                long endOffset = lineIndex.lineOffset(channel, end);
+                if (endOffset - startOffset > maxChunkBytes) {
+                    NewlineScan scan = scanNewlines(channel, startOffset,
+                        startOffset + maxChunkBytes, Long.MAX_VALUE);
+                    if (scan.count == 0) {
+                        endOffset = startOffset + maxChunkBytes;
+                        end = start + 1;
+                    } else {
+                        endOffset = scan.endOffset;
+                        end = start + scan.count;
+                    }
+                }
+                log.debug("Reading lines {} to {} of {} from {}", start, end, totalLines,
+                    logPath);
+                return new TaskLogChunk(contents(channel, startOffset, endOffset), start,
+                    end - start, totalLines, lineIndex.indexedBytes);
+            }
+        }
+    }
+
+    private static String contents(FileChannel channel, long startOffset, long endOffset)
+        throws IOException {
+        if (endOffset <= startOffset) {
+            return "";
+        }
+        MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, startOffset,
+            endOffset - startOffset);
+        return StandardCharsets.UTF_8.decode(buffer).toString();
+    }
+
+    /**
+     * Counts up to {@code maxNewlines} newlines in the given range of the file and returns the
+     * count and the offset just past the last newline counted.
+     */
+    private static NewlineScan scanNewlines(FileChannel channel, long from, long to,
+        long maxNewlines) throws IOException {
+        NewlineScan scan = new NewlineScan(from);
+        for (long windowStart = from; windowStart < to
+            && scan.count < maxNewlines; windowStart += MAP_WINDOW_BYTES) {
+            int windowSize = (int) Math.min(MAP_WINDOW_BYTES, to - windowStart);
+            MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, windowStart, windowSize);
+            for (int i = 0; i < windowSize; i++) {
+                if (buffer.get(i) == '\n') {
+                    scan.count++;
+                    scan.endOffset = windowStart + i + 1;
+                    if (scan.count == maxNewlines) {
+                        break;
+                    }
+                }
+            }
+        }
+        return scan;
+    }
+
+    /** Result of {@link TaskLogReader#scanNewlines(FileChannel, long, long, long)}. */
+    private static class NewlineScan {
+
+        private long count;
+        private long endOffset;
+
+        public NewlineScan(long startOffset) {
+            endOffset = startOffset;
+        }
+    }
+
+    /**
+     * Byte offsets of every {@link TaskLogReader#LINE_INDEX_STRIDE}th line in a log, up to the end
+     * of the log as of the last update.
+     */
+    private static class LineIndex {
+
+        private Object fileKey;
+        private long[] strideOffsets = new long[16];
+        private int strideCount = 1;
+        private long newlineCount;
+        private long lastNewlineEndOffset;
+        private long indexedBytes;
+
+        /** Extends the index to cover any content appended since the last update. */
+        public void update(FileChannel channel, Object currentFileKey) throws IOException {
+            long size = channel.size();
+            if (!Objects.equals(currentFileKey, fileKey) || size < indexedBytes) {
+                fileKey = currentFileKey;
+                strideCount = 1;
+                newlineCount = 0;
+                lastNewlineEndOffset = 0;
+                indexedBytes = 0;
+            }
+            for (long windowStart = indexedBytes; windowStart < size;
+                windowStart += MAP_WINDOW_BYTES) {
+                int windowSize = (int) Math.min(MAP_WINDOW_BYTES, size - windowStart);
+                MappedByteBuffer buffer = channel.map(MapMode.READ_ONLY, windowStart, windowSize);
+                for (int i = 0; i < windowSize; i++) {
+                    if (buffer.get(i) == '\n') {
+                        newlineCount++;
+                        lastNewlineEndOffset = windowStart + i + 1;
+                        if (newlineCount % LINE_INDEX_STRIDE == 0) {
+                            addStrideOffset(lastNewlineEndOffset);
+                        }
+                    }
+                }
+            }
+            indexedBytes = size;
+        }
+
+        private void addStrideOffset(long offset) {
+            if (strideCount == strideOffsets.length) {
+                strideOffsets = Arrays.copyOf(strideOffsets, 2 * strideCount);
+            }
+            strideOffsets[strideCount++] = offset;
+        }
+
+        /** Returns the number of lines, including a final line with no newline. */
+        public long lineCount() {
+            return newlineCount + (indexedBytes > lastNewlineEndOffset ? 1 : 0);
+        }
+
+        /** Returns the offset of the start of the given line, or the end of the log. */
+        public long lineOffset(FileChannel channel, long line) throws IOException {
+            if (line >= lineCount()) {
+                return indexedBytes;
+            }
+            int stride = (int) (line / LINE_INDEX_STRIDE);
+            long linesToSkip = line % LINE_INDEX_STRIDE;
+            if (linesToSkip == 0) {
+                return strideOffsets[stride];
+            }
+            long strideEnd = stride + 1 < strideCount ? strideOffsets[stride + 1] : indexedBytes;
+            return scanNewlines(channel, strideOffsets[stride], strideEnd, linesToSkip).endOffset;
+        }
+    }
+}
@@ -52,4 +52,10 @@ public class HeartbeatMessage extends StatusMessage {
     public long getHeartbeatTimeMillis() {
         return heartbeatTimeMillis;
     }
+
+    /** Heartbeats tell clients that the supervisor is alive, so they must never be dropped. */
+    @Override
+    public boolean isTelemetry() {
+        return false;
+    }
 }
@@ -14,11 +14,17 @@ import gov.nasa.ziggy.util.os.ProcessUtils;
  */
 public abstract class PipelineMessage implements Serializable {
 
-    private static final long serialVersionUID = 20230513L;
+    private static final long serialVersionUID = 20261019L;
 
     private final Date timeSent = new Date();
     private final long senderProcessId = ProcessUtils.getPid();
 
+    /**
+     * Time at which the supervisor broadcast the message to its clients, in the supervisor's clock.
+     * Every broadcast message thus doubles as a heartbeat from the supervisor.
+     */
+    private long broadcastTimeMillis;
+
     public PipelineMessage() {
     }
 
@@ -33,6 +39,23 @@ public abstract class PipelineMessage implements Serializable {
         return senderProcessId;
     }
 
+    public long getBroadcastTimeMillis() {
+        return broadcastTimeMillis;
+    }
+
+    public void setBroadcastTimeMillis(long broadcastTimeMillis) {
+        this.broadcastTimeMillis = broadcastTimeMillis;
+    }
+
+    /**
+     * Indicates whether this message is telemetry, such as a periodic status update. Telemetry
+     * waits behind all other messages in the message queues and may be coalesced or dropped when
+     * the queues are full. The default implementation returns false.
+     */
+    public boolean isTelemetry() {
+        return false;
+    }
+
     @Override
     public int hashCode() {
         return Objects.hash(senderProcessId, timeSent, getClass());
@@ -1,21 +1,27 @@
 package gov.nasa.ziggy.services.messages;
 
+import gov.nasa.ziggy.services.logging.TaskLogChunk;
+
 /**
- * Carries the contents of a single task log file to a requestor.
+ * Carries a window of lines from a single task log to a requestor.
  *
  * @author PT
  */
 public class SingleTaskLogMessage extends SpecifiedRequestorMessage {
 
-    private static final long serialVersionUID = 20230614L;
-    private final String taskLogContents;
+    private static final long serialVersionUID = 20261019L;
+    private final TaskLogChunk taskLogChunk;
 
-    public SingleTaskLogMessage(SingleTaskLogRequest originalMessage, String taskLogContents) {
+    public SingleTaskLogMessage(SingleTaskLogRequest originalMessage, TaskLogChunk taskLogChunk) {
         super(originalMessage);
-        this.taskLogContents = taskLogContents;
+        this.taskLogChunk = taskLogChunk;
     }
 
     public String taskLogContents() {
-        return taskLogContents;
+        return taskLogChunk.getContents();
+    }
+
+    public TaskLogChunk taskLogChunk() {
+        return taskLogChunk;
     }
 }
@@ -1,31 +1,49 @@
 package gov.nasa.ziggy.services.messages;
 
 import gov.nasa.ziggy.services.logging.TaskLogInformation;
+import gov.nasa.ziggy.services.logging.TaskLogReader;
 import gov.nasa.ziggy.services.messaging.ZiggyMessenger;
 import gov.nasa.ziggy.util.Requestor;
 
 /**
- * Requests a single task log for display.
+ * Requests a window of lines from a single task log for display. Task logs can be very large, so
+ * the log is retrieved one window at a time rather than all at once. See
+ * {@link TaskLogReader#readLines(java.nio.file.Path, long, int)} for the meaning of the first line
+ * and maximum number of lines.
  *
  * @author PT
  */
 public class SingleTaskLogRequest extends SpecifiedRequestorMessage {
 
-    private static final long serialVersionUID = 20230614L;
+    private static final long serialVersionUID = 20261019L;
 
     private final TaskLogInformation taskLogInformation;
+    private final long firstLine;
+    private final int maxLines;
 
-    private SingleTaskLogRequest(Requestor sender, TaskLogInformation taskLogInformation) {
+    private SingleTaskLogRequest(Requestor sender, TaskLogInformation taskLogInformation,
+        long firstLine, int maxLines) {
         super(sender);
         this.taskLogInformation = taskLogInformation;
+        this.firstLine = firstLine;
+        this.maxLines = maxLines;
     }
 
     public static void requestSingleTaskLog(Requestor sender,
-        TaskLogInformation taskLogInformation) {
-        ZiggyMessenger.publish(new SingleTaskLogRequest(sender, taskLogInformation));
+        TaskLogInformation taskLogInformation, long firstLine, int maxLines) {
+        ZiggyMessenger.publish(
+            new SingleTaskLogRequest(sender, taskLogInformation, firstLine, maxLines));
     }
 
     public TaskLogInformation getTaskLogInformation() {
         return taskLogInformation;
     }
+
+    public long getFirstLine() {
+        return firstLine;
+    }
+
+    public int getMaxLines() {
+        return maxLines;
+    }
 }
@@ -1,10 +1,9 @@
 package gov.nasa.ziggy.services.messages;
 
 /**
- * Requests that the memdrone shell script be started by the supervisor. This request is needed in
- * one use-case only: the case in which the console also requests that the supervisor restart failed
- * tasks. In all other cases, the supervisor or the remote nodes do not need this message to tell
- * them to start the shell script.
+ * Requests that the supervisor start sampling memory usage. This request is needed in one use-case
+ * only: the case in which the console also requests that the supervisor restart failed tasks. In
+ * all other cases, the supervisor does not need this message to tell it to start sampling.
  *
  * @author PT
  */
@@ -3,6 +3,7 @@ package gov.nasa.ziggy.services.messages;
 import java.util.Date;
 import java.util.Objects;
 
+import org.apache.commons.lang3.ObjectUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -11,6 +12,10 @@ import gov.nasa.ziggy.services.process.StatusMessage;
 
 /**
  * Informs recipients of the status of a worker process.
+ * <p>
+ * A delta message (see {@link #deltaFrom(StatusMessage)}) leaves any field that has not changed
+ * since the previous message from the same worker null. In particular, this avoids sending the
+ * {@link PipelineTask} with every periodic status update.
  *
  * @author PT
  * @author Bill Wohler
@@ -44,6 +49,49 @@ public class WorkerStatusMessage extends StatusMessage implements Comparable<Wor
         this.lastMessageFromWorker = lastMessageFromWorker;
     }
 
+    @Override
+    public StatusMessage deltaFrom(StatusMessage previousMessage) {
+        if (!(previousMessage instanceof WorkerStatusMessage previous) || previous.isDelta()
+            || previous.workerNumber != workerNumber) {
+            return this;
+        }
+        WorkerStatusMessage delta = new WorkerStatusMessage(workerNumber,
+            changedValue(state, previous.state), changedValue(instanceId, previous.instanceId),
+            changedValue(pipelineTask, previous.pipelineTask),
+            changedValue(pipelineStepName, previous.pipelineStepName),
+            changedValue(unitOfWork, previous.unitOfWork), processingStartTime,
+            lastMessageFromWorker);
+        delta.setSourceProcess(getSourceProcess());
+        delta.setDelta(true);
+        return delta;
+    }
+
+    @Override
+    public StatusMessage applyTo(StatusMessage previousMessage) {
+        if (!isDelta()) {
+            return this;
+        }
+        WorkerStatusMessage previous = (WorkerStatusMessage) previousMessage;
+        WorkerStatusMessage message = new WorkerStatusMessage(workerNumber,
+            ObjectUtils.defaultIfNull(state, previous.state),
+            ObjectUtils.defaultIfNull(instanceId, previous.instanceId),
+            ObjectUtils.defaultIfNull(pipelineTask, previous.pipelineTask),
+            ObjectUtils.defaultIfNull(pipelineStepName, previous.pipelineStepName),
+            ObjectUtils.defaultIfNull(unitOfWork, previous.unitOfWork), processingStartTime,
+            lastMessageFromWorker);
+        message.setSourceProcess(getSourceProcess());
+        return message;
+    }
+
+    private static <T> T changedValue(T value, T previousValue) {
+        return Objects.equals(value, previousValue) ? null : value;
+    }
+
+    @Override
+    public boolean isFinalMessage() {
+        return lastMessageFromWorker;
+    }
+
     @Override
     public String uniqueKey() {
         return super.uniqueKey() + ":" + workerNumber;
@@ -17,7 +17,10 @@ import gov.nasa.ziggy.util.ZiggyShutdownHook;
 /**
  * Manages the process of responding to the presence or absence of heartbeat messages from the
  * supervisor. The worker heartbeat messages are sent out at regular intervals from the supervisor
- * to indicate that it has not crashed.
+ * to indicate that it has not crashed. Every other message broadcast by the supervisor carries the
+ * time at which it was broadcast, and is also treated as a heartbeat (see
+ * {@link #supervisorMessageReceived(long)}); this allows the supervisor to skip the heartbeat
+ * messages when it is sending other traffic.
  * <p>
  * At startup, a console puts the Processes summary into the "Gray" (undefined) state. When the
  * {@link ZiggyRmiClient} is created, an instance of {@link HeartbeatManager} is also created; it
@@ -56,15 +59,31 @@ public class HeartbeatManager {
     /** For testing only. Use static method startInstance() to start singleton. */
     HeartbeatManager() {
         heartbeatIntervalMillis = HeartbeatMessage.heartbeatIntervalMillis();
-        ZiggyMessenger.subscribe(HeartbeatMessage.class, message -> {
-            heartbeatTime = message.getHeartbeatTimeMillis();
-            if (heartbeatCountdownLatch != null) {
-                heartbeatCountdownLatch.countDown();
-            }
-        });
+        ZiggyMessenger.subscribe(HeartbeatMessage.class,
+            message -> heartbeatReceived(message.getHeartbeatTimeMillis()));
         heartbeatTime = -1L;
     }
 
+    private void heartbeatReceived(long supervisorTimeMillis) {
+        heartbeatTime = supervisorTimeMillis;
+        CountDownLatch latch = heartbeatCountdownLatch;
+        if (latch != null) {
+            latch.countDown();
+        }
+    }
+
+    /**
+     * Records the receipt of a message broadcast by the supervisor at the given time (in the
+     * supervisor's clock) as a heartbeat. Messages that were not broadcast by the supervisor have a
+     * broadcast time of zero and are ignored.
+     */
+    static void supervisorMessageReceived(long broadcastTimeMillis) {
+        HeartbeatManager heartbeatManager = instance;
+        if (heartbeatManager != null && broadcastTimeMillis > heartbeatManager.heartbeatTime) {
+            heartbeatManager.heartbeatReceived(broadcastTimeMillis);
+        }
+    }
+
     public static synchronized void startInstance() {
         if (isInstanceStarted()) {
             log.info("ProcessHeartbeatManager instance already available, skipping instantiation");
@@ -0,0 +1,318 @@
+package gov.nasa.ziggy.services.messaging;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.metrics.CounterMetric;
+import gov.nasa.ziggy.metrics.ValueMetric;
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import gov.nasa.ziggy.services.messages.PipelineMessage;
+import gov.nasa.ziggy.services.process.StatusMessage;
+
+/**
+ * Bounded blocking queue that gives control messages priority over telemetry messages.
+ * <p>
+ * Messages are held in two lanes. Messages in the control lane (requests, commands, and
+ * notifications that must not be lost) are always taken before messages in the telemetry lane
+ * (periodic status updates; see {@link PipelineMessage#isTelemetry()}), so a flood of telemetry
+ * can't delay a request to halt tasks or shut down. Each lane has its own capacity:
+ * <ul>
+ * <li>When the control lane is full, {@link #offer(Object, long, TimeUnit)} waits for space and
+ * {@link #offer(Object)} fails immediately.
+ * <li>A telemetry message with the same coalescing key as a telemetry message that is still queued
+ * is combined with that message, in that message's place in the queue. Otherwise, when the
+ * telemetry lane is full, the oldest telemetry message is dropped to make room.
+ * </ul>
+ * <p>
+ * Each time a message is taken from the queue, the depth of each lane is recorded in a
+ * {@link ValueMetric}, and messages dropped or coalesced since the previous take are counted in
+ * {@link CounterMetric}s. The metrics are named {@code ziggy.messaging.<name>.<lane>.depth},
+ * {@code ziggy.messaging.<name>.telemetry.dropped}, and
+ * {@code ziggy.messaging.<name>.telemetry.coalesced}. They are recorded in the consumer's thread so
+ * that they never end up in the metrics of a pipeline task that happens to publish a message.
+ */
+class PrioritizedMessageQueue<E> {
+
+    private static final Logger log = LoggerFactory.getLogger(PrioritizedMessageQueue.class);
+
+    static final int CONTROL_CAPACITY_DEFAULT = 10_000;
+    static final int TELEMETRY_CAPACITY_DEFAULT = 1_000;
+
+    private final String metricsPrefix;
+    private final int controlCapacity;
+    private final int telemetryCapacity;
+    private final Predicate<? super E> telemetry;
+    private final Function<? super E, ?> coalescingKey;
+    private final BinaryOperator<E> coalescer;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private final Condition controlNotFull = lock.newCondition();
+    private final Deque<E> controlMessages = new ArrayDeque<>();
+
+    /**
+     * Telemetry messages in the order in which they were queued, by coalescing key. Messages
+     * without a coalescing key are stored under a key of their own.
+     */
+    private final Map<Object, E> telemetryMessages = new LinkedHashMap<>();
+
+    private long droppedMessageCount;
+    private long coalescedMessageCount;
+    private long reportedDroppedMessageCount;
+    private long reportedCoalescedMessageCount;
+
+    /**
+     * Creates a queue of {@link PipelineMessage}s. Non-final {@link StatusMessage}s are coalesced
+     * per source (see {@link #statusMessageKey(PipelineMessage)}); a coalesced delta is merged
+     * with the queued message so that no changes are lost.
+     */
+    static PrioritizedMessageQueue<PipelineMessage> pipelineMessageQueue(String name) {
+        return new PrioritizedMessageQueue<>(name, controlCapacity(), telemetryCapacity(),
+            PipelineMessage::isTelemetry, PrioritizedMessageQueue::statusMessageKey,
+            PrioritizedMessageQueue::coalesce);
+    }
+
+    /**
+     * Creates a queue.
+     *
+     * @param name the name used in the queue's metrics
+     * @param controlCapacity the maximum number of messages in the control lane
+     * @param telemetryCapacity the maximum number of messages in the telemetry lane
+     * @param telemetry identifies telemetry messages
+     * @param coalescingKey returns the key under which telemetry messages are coalesced, or null
+     * if the message can't be coalesced
+     * @param coalescer combines a queued telemetry message (the first argument) with a later
+     * message with the same key (the second argument)
+     */
+    PrioritizedMessageQueue(String name, int controlCapacity, int telemetryCapacity,
+        Predicate<? super E> telemetry, Function<? super E, ?> coalescingKey,
+        BinaryOperator<E> coalescer) {
+        metricsPrefix = "ziggy.messaging." + name;
+        this.controlCapacity = controlCapacity;
+        this.telemetryCapacity = telemetryCapacity;
+        this.telemetry = telemetry;
+        this.coalescingKey = coalescingKey;
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Adds a message without waiting. Returns false if the message belongs in the control lane and
+     * the control lane is full. Telemetry messages are always accepted.
+     */
+    boolean offer(E message) {
+        lock.lock();
+        try {
+            return enqueue(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Adds a message, waiting up to the given time for space in the control lane if necessary.
+     * Returns false if the control lane was still full when the time expired.
+     */
+    boolean offer(E message, long timeout, TimeUnit unit) throws InterruptedException {
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            if (!telemetry.test(message)) {
+                while (controlMessages.size() >= controlCapacity) {
+                    if (nanos <= 0L) {
+                        return false;
+                    }
+                    nanos = controlNotFull.awaitNanos(nanos);
+                }
+            }
+            return enqueue(message);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean enqueue(E message) {
+        if (!telemetry.test(message)) {
+            if (controlMessages.size() >= controlCapacity) {
+                return false;
+            }
+            controlMessages.add(message);
+        } else {
+            enqueueTelemetry(message);
+        }
+        notEmpty.signal();
+        return true;
+    }
+
+    private void enqueueTelemetry(E message) {
+        Object key = coalescingKey.apply(message);
+        if (key != null) {
+            E queuedMessage = telemetryMessages.get(key);
+            if (queuedMessage != null) {
+                telemetryMessages.put(key, coalescer.apply(queuedMessage, message));
+                coalescedMessageCount++;
+                return;
+            }
+        } else {
+            key = new Object();
+        }
+        if (telemetryMessages.size() >= telemetryCapacity) {
+            Iterator<E> oldestMessage = telemetryMessages.values().iterator();
+            log.debug("Telemetry queue full, dropping {}", oldestMessage.next());
+            oldestMessage.remove();
+            droppedMessageCount++;
+        }
+        telemetryMessages.put(key, message);
+    }
+
+    /**
+     * Removes and returns the oldest control message, or the oldest telemetry message if there are
+     * no control messages, waiting for a message to arrive if the queue is empty.
+     */
+    E take() throws InterruptedException {
+        E message;
+        int controlDepth;
+        int telemetryDepth;
+        long droppedMessages;
+        long coalescedMessages;
+        lock.lockInterruptibly();
+        try {
+            while (controlMessages.isEmpty() && telemetryMessages.isEmpty()) {
+                notEmpty.await();
+            }
+            controlDepth = controlMessages.size();
+            telemetryDepth = telemetryMessages.size();
+            message = controlMessages.poll();
+            if (message != null) {
+                controlNotFull.signal();
+            } else {
+                Iterator<E> oldestMessage = telemetryMessages.values().iterator();
+                message = oldestMessage.next();
+                oldestMessage.remove();
+            }
+            droppedMessages = droppedMessageCount - reportedDroppedMessageCount;
+            coalescedMessages = coalescedMessageCount - reportedCoalescedMessageCount;
+            reportedDroppedMessageCount = droppedMessageCount;
+            reportedCoalescedMessageCount = coalescedMessageCount;
+        } finally {
+            lock.unlock();
+        }
+        recordMetrics(controlDepth, telemetryDepth, droppedMessages, coalescedMessages);
+        return message;
+    }
+
+    private void recordMetrics(int controlDepth, int telemetryDepth, long droppedMessages,
+        long coalescedMessages) {
+        ValueMetric.addValue(metricsPrefix + ".control.depth", controlDepth);
+        ValueMetric.addValue(metricsPrefix + ".telemetry.depth", telemetryDepth);
+        if (droppedMessages > 0) {
+            log.warn("Dropped {} telemetry messages from full {} queue", droppedMessages,
+                metricsPrefix);
+            CounterMetric.increment(metricsPrefix + ".telemetry.dropped", (int) droppedMessages);
+        }
+        if (coalescedMessages > 0) {
+            CounterMetric.increment(metricsPrefix + ".telemetry.coalesced",
+                (int) coalescedMessages);
+        }
+    }
+
+    int size() {
+        lock.lock();
+        try {
+            return controlMessages.size() + telemetryMessages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    boolean isEmpty() {
+        return size() == 0;
+    }
+
+    int controlSize() {
+        lock.lock();
+        try {
+            return controlMessages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int telemetrySize() {
+        lock.lock();
+        try {
+            return telemetryMessages.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long droppedMessageCount() {
+        lock.lock();
+        try {
+            return droppedMessageCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    long coalescedMessageCount() {
+        lock.lock();
+        try {
+            return coalescedMessageCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void clear() {
+        lock.lock();
+        try {
+            controlMessages.clear();
+            telemetryMessages.clear();
+            controlNotFull.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns the coalescing key for a {@link PipelineMessage}, which is the source of a non-final
+     * {@link StatusMessage} and null for all other messages.
+     */
+    static Object statusMessageKey(PipelineMessage message) {
+        if (message instanceof StatusMessage statusMessage
+            && statusMessage.getSourceProcess() != null && !statusMessage.isFinalMessage()) {
+            return statusMessage.uniqueKey();
+        }
+        return null;
+    }
+
+    static PipelineMessage coalesce(PipelineMessage queuedMessage, PipelineMessage message) {
+        return ((StatusMessage) message).coalesceWith((StatusMessage) queuedMessage);
+    }
+
+    static int controlCapacity() {
+        return ZiggyConfiguration.getInstance()
+            .getInt(PropertyName.MESSAGE_QUEUE_CONTROL_CAPACITY.property(),
+                CONTROL_CAPACITY_DEFAULT);
+    }
+
+    static int telemetryCapacity() {
+        return ZiggyConfiguration.getInstance()
+            .getInt(PropertyName.MESSAGE_QUEUE_TELEMETRY_CAPACITY.property(),
+                TELEMETRY_CAPACITY_DEFAULT);
+    }
+}
@@ -0,0 +1,96 @@
+package gov.nasa.ziggy.services.messaging;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import gov.nasa.ziggy.services.process.StatusMessage;
+
+/**
+ * Converts outgoing {@link StatusMessage}s to deltas and incoming deltas back to complete
+ * messages.
+ * <p>
+ * On the sending side, each status message is compared with the previous message sent from the
+ * same source and replaced with a delta that carries only the changed content. Every
+ * {@link #FULL_MESSAGE_INTERVAL}th message from a source is sent in full, so that a process that
+ * starts listening partway through (for example, a newly started console) can begin to
+ * reconstruct that source's status.
+ * <p>
+ * On the receiving side, each delta is applied to the previous complete message from the same
+ * source. Status messages may be coalesced or dropped in transit (see
+ * {@link PrioritizedMessageQueue}), so each outgoing message is numbered, and a delta is only
+ * applied if the receiver's previous message is the one the delta was computed from. A delta that
+ * can't be reconstructed is dropped, and the source's status is brought up to date by its next
+ * complete message.
+ */
+class StatusMessageDeltas {
+
+    /** Interval, in messages from a single source, between complete messages. */
+    static final int FULL_MESSAGE_INTERVAL = 4;
+
+    /** Limits the memory used for sources that stop without sending a final message. */
+    static final int MAX_SOURCES = 1000;
+
+    private final Map<String, StatusMessage> sentMessageBySource = boundedMap();
+    private final Map<String, Integer> deltaCountBySource = boundedMap();
+    private final Map<String, Long> sequenceBySource = boundedMap();
+    private final Map<String, StatusMessage> receivedMessageBySource = boundedMap();
+
+    /**
+     * Returns the message to send in place of the given message, which is either the message
+     * itself or a delta from the previous message from the same source.
+     */
+    StatusMessage outgoingMessage(StatusMessage message) {
+        String source = message.uniqueKey();
+        if (message.isFinalMessage()) {
+            sentMessageBySource.remove(source);
+            deltaCountBySource.remove(source);
+            sequenceBySource.remove(source);
+            return message;
+        }
+        StatusMessage previousMessage = sentMessageBySource.put(source, message);
+        int deltaCount = deltaCountBySource.getOrDefault(source, 0);
+        long sequence = sequenceBySource.merge(source, 1L, Long::sum);
+        StatusMessage outgoingMessage = previousMessage == null
+            || deltaCount >= FULL_MESSAGE_INTERVAL - 1 ? message
+                : message.deltaFrom(previousMessage);
+        deltaCountBySource.put(source, outgoingMessage.isDelta() ? deltaCount + 1 : 0);
+        outgoingMessage.setSequence(sequence, outgoingMessage.isDelta() ? sequence - 1 : 0L);
+        return outgoingMessage;
+    }
+
+    /**
+     * Returns the complete message that corresponds to the given incoming message, or null if the
+     * message is a delta that can't be reconstructed.
+     */
+    StatusMessage incomingMessage(StatusMessage message) {
+        String source = message.uniqueKey();
+        StatusMessage completeMessage = message;
+        if (message.isDelta()) {
+            StatusMessage previousMessage = receivedMessageBySource.get(source);
+            if (previousMessage == null
+                || previousMessage.getSequence() != message.getBaseSequence()) {
+                return null;
+            }
+            completeMessage = message.applyTo(previousMessage);
+            completeMessage.setSequence(message.getSequence(), 0L);
+        }
+        if (completeMessage.isFinalMessage()) {
+            receivedMessageBySource.remove(source);
+        } else {
+            receivedMessageBySource.put(source, completeMessage);
+        }
+        return completeMessage;
+    }
+
+    private static <V> Map<String, V> boundedMap() {
+        return Collections.synchronizedMap(new LinkedHashMap<>() {
+            private static final long serialVersionUID = 20261019L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+                return size() > MAX_SOURCES;
+            }
+        });
+    }
+}
@@ -7,13 +7,14 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.CountDownLatch;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nasa.ziggy.services.messages.PipelineMessage;
+import gov.nasa.ziggy.services.process.StatusMessage;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 
@@ -35,6 +36,14 @@ import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
  * process to another activity in the same process.
  * </ol>
  * <p>
+ * Messages wait in {@link PrioritizedMessageQueue}s, so control messages are sent ahead of any
+ * telemetry and the queues can't grow without limit. Periodic {@link StatusMessage}s get special
+ * handling. A status message that is published while an earlier message from the same source is
+ * still waiting in the outgoing queue replaces that message, so a slow connection does not
+ * accumulate stale status updates. Status messages sent over RMI are also sent as deltas from the
+ * previous message from the same source, and are reconstructed by the receiving
+ * {@link ZiggyMessenger} before any subscribers see them (see {@link StatusMessageDeltas}).
+ * <p>
  * The {@link ZiggyMessenger} is created as a singleton instance in each process. Static methods are
  * provided to allow users to send publish or subscribe requests to the singleton.
  *
@@ -49,18 +58,25 @@ public class ZiggyMessenger {
      */
     private static ZiggyMessenger instance = new ZiggyMessenger();
 
+    /** Maximum time to wait for space in the outgoing queue for a control message. */
+    static final long MAX_PUBLISH_WAIT_MILLIS = 10_000L;
+
     /**
      * Blocking queue for outgoing messages. Messages wait here until the singleton instance is free
      * to deal with them, at which time they get sent from the RMI client to the RMI server.
      */
-    private LinkedBlockingQueue<Message> outgoingMessageQueue = new LinkedBlockingQueue<>();
+    private PrioritizedMessageQueue<Message> outgoingMessageQueue = new PrioritizedMessageQueue<>(
+        "outgoing", PrioritizedMessageQueue.controlCapacity(),
+        PrioritizedMessageQueue.telemetryCapacity(), Message::isTelemetry, Message::coalescingKey,
+        (queuedMessage, message) -> message);
 
     /**
      * Blocking queue for incoming messages. Messages are put onto this queue by the RMI client. A
      * dedicated message action thread in the singleton instance then takes the messages and
      * executes the subscription actions for each message.
      */
-    private LinkedBlockingQueue<PipelineMessage> incomingMessageQueue = new LinkedBlockingQueue<>();
+    private PrioritizedMessageQueue<PipelineMessage> incomingMessageQueue = PrioritizedMessageQueue
+        .pipelineMessageQueue("incoming");
 
     /**
      * Dedicated thread for pulling messages off the blocking queue and giving them to the
@@ -100,6 +116,8 @@ public class ZiggyMessenger {
      */
     private Map<PipelineMessage, CountDownLatch> messageCountdownLatches = new ConcurrentHashMap<>();
 
+    private StatusMessageDeltas statusMessageDeltas = new StatusMessageDeltas();
+
     /**
      * Determines whether messages are stored when they are sent out from the message queue. Use
      * {@link #getMessagesFromQueue()} to retrieve them. For testing only.
@@ -178,7 +196,12 @@ public class ZiggyMessenger {
         CountDownLatch latch = messageCountdownLatches.remove(message.getPipelineMessage());
         if (ZiggyRmiClient.isInitialized() && message.isBroadcastOverRmi()) {
             log.debug("Sending message {}...", message);
-            ZiggyRmiClient.send(message.getPipelineMessage(), latch);
+            PipelineMessage pipelineMessage = message.getPipelineMessage();
+            if (isSourcedStatusMessage(pipelineMessage)) {
+                pipelineMessage = statusMessageDeltas
+                    .outgoingMessage((StatusMessage) pipelineMessage);
+            }
+            ZiggyRmiClient.send(pipelineMessage, latch);
             log.debug("Sending message {}...done", message);
         } else {
             takeAction(message.getPipelineMessage());
@@ -190,6 +213,13 @@ public class ZiggyMessenger {
 
     @SuppressWarnings("unchecked")
     private <T extends PipelineMessage> void takeAction(T message) {
+        if (isSourcedStatusMessage(message)) {
+            message = (T) statusMessageDeltas.incomingMessage((StatusMessage) message);
+            if (message == null) {
+                log.debug("Ignoring status delta that precedes any complete status message");
+                return;
+            }
+        }
         Collection<MessageAction<?>> actions = subscriptions.get(message.getClass());
         if (CollectionUtils.isEmpty(actions)) {
             log.debug("No subscribers for {}", message);
@@ -202,6 +232,11 @@ public class ZiggyMessenger {
         }
     }
 
+    private static boolean isSourcedStatusMessage(PipelineMessage message) {
+        return message instanceof StatusMessage statusMessage
+            && statusMessage.getSourceProcess() != null;
+    }
+
     /**
      * Subscribes to a subclass of {@link PipelineMessage}.
      */
@@ -261,7 +296,13 @@ public class ZiggyMessenger {
             if (latch != null) {
                 instance.messageCountdownLatches.put(message, latch);
             }
-            instance.outgoingMessageQueue.put(new Message(message, broadcastOverRmi));
+            if (!instance.outgoingMessageQueue.offer(
+                new Message(message, broadcastOverRmi, latch != null), MAX_PUBLISH_WAIT_MILLIS,
+                TimeUnit.MILLISECONDS)) {
+                log.error("Outgoing message queue full, unable to publish {}", message);
+                instance.messageCountdownLatches.remove(message);
+                return;
+            }
             log.debug("Added {} to outgoing queue ({} messages)", message,
                 instance.outgoingMessageQueue.size());
         } catch (InterruptedException e) {
@@ -275,7 +316,10 @@ public class ZiggyMessenger {
      */
     static void actOnMessage(PipelineMessage message) {
         try {
-            instance.incomingMessageQueue.put(message);
+            if (!instance.incomingMessageQueue.offer(message, MAX_PUBLISH_WAIT_MILLIS,
+                TimeUnit.MILLISECONDS)) {
+                log.error("Incoming message queue full, unable to act on {}", message);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
@@ -290,6 +334,7 @@ public class ZiggyMessenger {
         setStoreMessages(false);
         instance.messagesFromQueue.clear();
         instance.messageCountdownLatches.clear();
+        instance.statusMessageDeltas = new StatusMessageDeltas();
         instance.incomingMessageQueue.clear();
         instance.startOutgoingMessageThread();
         instance.startMessageActionThread();
@@ -301,7 +346,7 @@ public class ZiggyMessenger {
     }
 
     /** For testing only. */
-    static LinkedBlockingQueue<Message> getOutgoingMessageQueue() {
+    static PrioritizedMessageQueue<Message> getOutgoingMessageQueue() {
         return instance.outgoingMessageQueue;
     }
 
@@ -329,14 +374,34 @@ public class ZiggyMessenger {
         return instance.messageActionThread.isAlive();
     }
 
-    private static class Message {
+    static class Message {
 
         private final PipelineMessage pipelineMessage;
         private final boolean broadcastOverRmi;
+        private final boolean latched;
 
-        public Message(PipelineMessage pipelineMessage, boolean broadcastOverRmi) {
+        public Message(PipelineMessage pipelineMessage, boolean broadcastOverRmi, boolean latched) {
             this.pipelineMessage = pipelineMessage;
             this.broadcastOverRmi = broadcastOverRmi;
+            this.latched = latched;
+        }
+
+        /**
+         * A message whose publisher waits on a latch is never dropped, so it is treated as a
+         * control message.
+         */
+        public boolean isTelemetry() {
+            return !latched && pipelineMessage.isTelemetry();
+        }
+
+        /**
+         * Returns the key for coalescing status messages that are broadcast over RMI, or null if
+         * the message can't be coalesced.
+         */
+        public Object coalescingKey() {
+            return broadcastOverRmi && isTelemetry()
+                ? PrioritizedMessageQueue.statusMessageKey(pipelineMessage)
+                : null;
         }
 
         public PipelineMessage getPipelineMessage() {
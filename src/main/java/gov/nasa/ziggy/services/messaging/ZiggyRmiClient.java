@@ -176,6 +176,7 @@ public class ZiggyRmiClient implements ZiggyRmiClientService {
     @Override
     public void takeMessageActionInClient(PipelineMessage message) throws RemoteException {
         log.debug("message={}", message);
+        HeartbeatManager.supervisorMessageReceived(message.getBroadcastTimeMillis());
         if (useMessenger) {
             ZiggyMessenger.actOnMessage(message);
         } else {
@@ -14,7 +14,7 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -38,7 +38,10 @@ import gov.nasa.ziggy.util.ZiggyShutdownHook;
  * <p>
  * The singleton {@link ZiggyRmiServer} is created when the {@link PipelineSupervisor} is created.
  * At the same time a new {@link Thread} is created that periodically broadcasts instances of the
- * {@link HeartbeatMessage} to all clients. Both that thread and the {@link ZiggyRmiServer} instance
+ * {@link HeartbeatMessage} to all clients. Because every broadcast message is stamped with the time
+ * at which it was broadcast, any message serves as a heartbeat, so the {@link HeartbeatMessage} is
+ * only sent when there has been no other traffic for half of a heartbeat interval (see
+ * {@link #broadcastHeartbeatIfIdle()}). Both that thread and the {@link ZiggyRmiServer} instance
  * are destroyed when the {@link PipelineSupervisor} exits. The shutdown will also attempt to shut
  * down the RMI registry (see below).
  * <p>
@@ -83,7 +86,11 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
     private final Thread broadcastThread;
 
     /** Queue for messages that are received from clients and awaiting broadcast to all clients. */
-    private LinkedBlockingQueue<PipelineMessage> messageQueue = new LinkedBlockingQueue<>();
+    private PrioritizedMessageQueue<PipelineMessage> messageQueue = PrioritizedMessageQueue
+        .pipelineMessageQueue("broadcast");
+
+    /** Time at which the most recent message was broadcast. */
+    private volatile long lastBroadcastTimeMillis;
 
     @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
     private ZiggyRmiServer() throws RemoteException {
@@ -222,7 +229,9 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
         RmiClientThread clientInformation = new RmiClientThread(clientStub,
             clientStub.clientName());
         clientInformation.start();
-        clientInformation.addMessage(new HeartbeatMessage());
+        HeartbeatMessage heartbeatMessage = new HeartbeatMessage();
+        heartbeatMessage.setBroadcastTimeMillis(heartbeatMessage.getHeartbeatTimeMillis());
+        clientInformation.addMessage(heartbeatMessage);
         clientThreads.add(clientInformation);
     }
 
@@ -246,16 +255,37 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
     @AcceptableCatchBlock(rationale = Rationale.CLEANUP_BEFORE_EXIT)
     public synchronized static void addToBroadcastQueue(PipelineMessage message) {
         try {
-            instance.messageQueue.put(message);
+            if (!instance.messageQueue.offer(message, ZiggyMessenger.MAX_PUBLISH_WAIT_MILLIS,
+                TimeUnit.MILLISECONDS)) {
+                log.error("Broadcast queue full, unable to broadcast {}", message);
+            }
         } catch (InterruptedException e) {
             Thread.currentThread().interrupt();
         }
     }
 
+    /**
+     * Broadcasts a {@link HeartbeatMessage} unless another message has been broadcast within the
+     * last half of a heartbeat interval. Since clients treat every message from the server as a
+     * heartbeat, this ensures that clients hear from the server at least once per 1.5 heartbeat
+     * intervals while avoiding heartbeat traffic when the server is busy with other messages.
+     */
+    public static void broadcastHeartbeatIfIdle() {
+        if (instance == null) {
+            return;
+        }
+        if (SystemProxy.currentTimeMillis()
+            - instance.lastBroadcastTimeMillis < HeartbeatMessage.heartbeatIntervalMillis() / 2) {
+            log.debug("Skipping heartbeat, messages broadcast recently");
+            return;
+        }
+        addToBroadcastQueue(new HeartbeatMessage());
+    }
+
     /**
      * Takes the next message off the message queue and broadcasts it to all clients.
      * <p>
-     * The message queue is a {@link LinkedBlockingQueue}, such that the act of taking the next
+     * The message queue is a {@link PrioritizedMessageQueue}, such that the act of taking the next
      * message off the queue blocks if the queue is empty. In consequence, the
      * {@link ZiggyRmiServer} requires a dedicated {@link Thread} to take the messages off the queue
      * and broadcast them.
@@ -284,6 +314,8 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
             }
             log.debug("Broadcasting {} to {} clients", message.getClass().getName(),
                 clientThreads.size());
+            lastBroadcastTimeMillis = SystemProxy.currentTimeMillis();
+            message.setBroadcastTimeMillis(lastBroadcastTimeMillis);
             Set<RmiClientThread> obsoleteStubs = new HashSet<>();
             for (RmiClientThread clientService : clientThreads) {
                 if (clientService.isClientDisconnected()) {
@@ -424,10 +456,12 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
      * that if one client freezes or is waiting to time out, it will not block messages that go out
      * to other clients.
      * <p>
-     * The class provides a {@link LinkedBlockingQueue} for messages, which the broadcast system
+     * The class provides a {@link PrioritizedMessageQueue} for messages, which the broadcast system
      * populates with new messages that must go to the client. The thread that executes the
      * message's action in the client blocks until a message arrives in the queue, at which time it
-     * attempts to execute that message's action.
+     * attempts to execute that message's action. A client that stops accepting messages until its
+     * queue has no room for another control message is treated as disconnected, so that a stalled
+     * client can neither hold up the broadcast thread nor exhaust the supervisor's memory.
      * <p>
      * The class provides methods that allow users to determine the state of the queue and of the
      * thread, which can be used to determine whether the client is actively sending or responding
@@ -441,8 +475,9 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
 
         private final ZiggyRmiClientService serviceStub;
         private final String clientName;
-        private final LinkedBlockingQueue<PipelineMessage> outgoingMessageQueue = new LinkedBlockingQueue<>();
-        boolean clientDisconnected;
+        private final PrioritizedMessageQueue<PipelineMessage> outgoingMessageQueue = PrioritizedMessageQueue
+            .pipelineMessageQueue("client");
+        volatile boolean clientDisconnected;
 
         public RmiClientThread(ZiggyRmiClientService serviceStub, String clientName) {
             this.serviceStub = serviceStub;
@@ -472,11 +507,11 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
         }
 
         public void addMessage(PipelineMessage message) {
-            try {
-                outgoingMessageQueue.put(message);
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                return;
+            if (!outgoingMessageQueue.offer(message)) {
+                log.warn("Message queue for {} full, disconnecting client", clientName);
+                clientDisconnected = true;
+                outgoingMessageQueue.clear();
+                interrupt();
             }
         }
 
@@ -493,7 +528,7 @@ public class ZiggyRmiServer implements ZiggyRmiServerService {
             return Objects.hash(clientName);
         }
 
-        private LinkedBlockingQueue<PipelineMessage> getOutgoingMessageQueue() {
+        private PrioritizedMessageQueue<PipelineMessage> getOutgoingMessageQueue() {
             return outgoingMessageQueue;
         }
 
@@ -1,210 +1,281 @@
 package gov.nasa.ziggy.services.metrics;
 
-import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileReader;
-import java.io.IOException;
-import java.io.Reader;
-import java.io.UncheckedIOException;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
-import gov.nasa.ziggy.metrics.CounterMetric;
 import gov.nasa.ziggy.metrics.MetricType;
 import gov.nasa.ziggy.metrics.MetricValue;
-import gov.nasa.ziggy.metrics.ValueMetric;
-import gov.nasa.ziggy.util.AcceptableCatchBlock;
-import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 import gov.nasa.ziggy.util.TimeRange;
-import gov.nasa.ziggy.util.io.ZiggyFileUtils;
 
 /**
  * Parses a file containing metrics that have been written with Metric.getLogString(). One per line.
- * This class is not MT-safe.
+ * <p>
+ * The file is scanned in place by a {@link MetricsLineScanner}, so lines are only turned into
+ * {@link MetricValue}s if they contain metrics of the requested types. While the file is scanned by
+ * {@link #types()}, the range of timestamps in each block of about {@link #INDEX_BLOCK_SIZE_BYTES}
+ * of the file is recorded, and the blocks that contain no timestamps in a requested time range are
+ * skipped. This class is not MT-safe.
  *
  * @author Sean McCauliff
  */
 public class MetricsFileParser {
-    private static final int BUFFER_SIZE_BYTES = 1024 * 1024;
-    private static final int TYPE_INDEX = 2;
-    private static final int NAME_INDEX = 1;
-    private static final int TIMESTAMP_INDEX = 0;
-    private static final int VALUE_TYPE_VALUE_INDEX = TYPE_INDEX + 5;
-    private static final int COUNTER_TYPE_VALUE_INDEX = TYPE_INDEX + 1;
+    static final int INDEX_BLOCK_SIZE_BYTES = 1024 * 1024;
 
     private final File metricsFile;
-    private Map<String, MetricMetadata> metricNameToMetricType = Collections.emptyMap();
     private final String metricSource;
+    private final int windowSize;
+
+    private final List<MetricMetadata> metricMetadata = new ArrayList<>();
+    private MetricMetadata[] metadataByNameHash = new MetricMetadata[64];
+    private TimestampIndex timestampIndex;
 
     public MetricsFileParser(File metricsFile) {
         this(metricsFile, "");
     }
 
     public MetricsFileParser(File metricsFile, String metricSource) {
+        this(metricsFile, metricSource, MetricsLineScanner.DEFAULT_WINDOW_SIZE);
+    }
+
+    MetricsFileParser(File metricsFile, String metricSource, int windowSize) {
         this.metricsFile = metricsFile;
         this.metricSource = metricSource;
+        this.windowSize = windowSize;
     }
 
     public Iterator<MetricValue> parseFile() {
-        if (metricNameToMetricType.isEmpty()) {
+        return parseFile(null, null, null);
+    }
+
+    /**
+     * Returns the values of the given metric types with timestamps in the given range.
+     *
+     * @param metricTypes the metric types, or null for all types
+     * @param start the start of the range, or null for the start of the file
+     * @param end the end of the range, inclusive, or null for the end of the file
+     */
+    public Iterator<MetricValue> parseFile(Collection<MetricType> metricTypes, Date start,
+        Date end) {
+        if (timestampIndex == null) {
             types();
         }
-        return new LineIterator<>() {
-            @Override
-            protected MetricValue parseLine(String line) {
-                String[] parts = line.split(",");
-                Date timestamp = new Date(Long.parseLong(parts[TIMESTAMP_INDEX]));
-                String name = parts[NAME_INDEX];
-                String typeStr = parts[TYPE_INDEX];
-                float value = (float) Double.parseDouble(parts[metricTypeSwitch(typeStr,
-                    VALUE_TYPE_VALUE_INDEX, COUNTER_TYPE_VALUE_INDEX)]);
-                MetricType metricType = metricNameToMetricType.get(name).metricType;
-                return new MetricValue(metricSource, metricType, timestamp, value);
-            }
-        };
+        return new MetricValueIterator(metricTypes == null ? null : Set.copyOf(metricTypes),
+            start == null ? Long.MIN_VALUE : start.getTime(),
+            end == null ? Long.MAX_VALUE : end.getTime());
     }
 
     /**
-     * Call this after calling parse to get the parsed metrics.
-     *
-     * @return
+     * Scans the file for the metric types that it contains, and the range of their timestamps.
      */
     public Set<MetricType> types() {
-        metricNameToMetricType = new HashMap<>();
-        LineIterator<MetricMetadata> typeIt = metricMetadataIterator();
-        for (MetricMetadata metadata : typeIt) {
-            MetricMetadata oldMetadata = metricNameToMetricType.get(metadata.metricType.getName());
-            if (oldMetadata == null) {
-                metricNameToMetricType.put(metadata.metricType.getName(), metadata);
-            } else {
-                Date start = metadata.start.before(oldMetadata.start) ? metadata.start
-                    : oldMetadata.start;
-                Date end = metadata.end.after(oldMetadata.end) ? metadata.end : metadata.start;
-                if (start != oldMetadata.start || end != oldMetadata.end) {
-                    MetricMetadata updated = new MetricMetadata(metadata.metricType, start, end);
-                    metricNameToMetricType.put(metadata.metricType.getName(), updated);
-                }
-            }
+        metricMetadata.clear();
+        Arrays.fill(metadataByNameHash, null);
+        timestampIndex = new TimestampIndex();
+
+        MetricsLineScanner scanner = new MetricsLineScanner(metricsFile, windowSize);
+        while (scanner.nextLine()) {
+            long timestamp = scanner.timestamp();
+            timestampIndex.add(scanner.lineOffset(), timestamp);
+            MetricMetadata metadata = metadata(scanner);
+            metadata.start = Math.min(metadata.start, timestamp);
+            metadata.end = Math.max(metadata.end, timestamp);
         }
 
-        Set<MetricType> allTypes = Sets.newHashSetWithExpectedSize(metricNameToMetricType.size());
-        for (MetricMetadata metadata : metricNameToMetricType.values()) {
+        Set<MetricType> allTypes = Sets.newHashSetWithExpectedSize(metricMetadata.size());
+        for (MetricMetadata metadata : metricMetadata) {
             allTypes.add(metadata.metricType);
         }
         return allTypes;
     }
 
     public Map<MetricType, TimeRange> getTimestampRange() {
-        Map<MetricType, TimeRange> rv = Maps
-            .newHashMapWithExpectedSize(metricNameToMetricType.size());
-        for (MetricMetadata metadata : metricNameToMetricType.values()) {
-            rv.put(metadata.metricType, new TimeRange(metadata.start, metadata.end));
+        Map<MetricType, TimeRange> rv = Maps.newHashMapWithExpectedSize(metricMetadata.size());
+        for (MetricMetadata metadata : metricMetadata) {
+            rv.put(metadata.metricType,
+                new TimeRange(new Date(metadata.start), new Date(metadata.end)));
         }
         return rv;
     }
 
-    private LineIterator<MetricMetadata> metricMetadataIterator() {
-        return new LineIterator<>() {
-            @Override
-            protected MetricMetadata parseLine(String line) {
-                String[] parts = line.split(",");
-                String name = parts[NAME_INDEX];
-                String typeStr = parts[TYPE_INDEX];
-                int type = metricTypeSwitch(typeStr, MetricType.TYPE_VALUE,
-                    MetricType.TYPE_COUNTER);
-                Date timestamp = new Date(Long.parseLong(parts[TIMESTAMP_INDEX]));
-                MetricType metricType = new MetricType(name, type);
-                return new MetricMetadata(metricType, timestamp, timestamp);
+    /**
+     * Returns the metadata of the metric on the current line of the scanner, which is added if the
+     * metric hasn't been seen before.
+     */
+    private MetricMetadata metadata(MetricsLineScanner scanner) {
+        int hash = scanner.nameHash();
+        int mask = metadataByNameHash.length - 1;
+        int slot = (hash ^ hash >>> 16) & mask;
+        for (; metadataByNameHash[slot] != null; slot = slot + 1 & mask) {
+            MetricMetadata metadata = metadataByNameHash[slot];
+            if (metadata.nameHash == hash && scanner.nameEquals(metadata.nameBytes)) {
+                return metadata;
             }
-        };
-    }
-
-    private <T> T metricTypeSwitch(String metricTypeStr, T valueCase, T counterCase) {
-        if (metricTypeStr.equals(ValueMetric.VALUE_TYPE)) {
-            return valueCase;
         }
-        if (metricTypeStr.equals(CounterMetric.COUNTER_TYPE)) {
-            return counterCase;
+
+        MetricMetadata metadata = new MetricMetadata(scanner.nameBytes(), hash,
+            new MetricType(scanner.name(), scanner.metricType()));
+        metricMetadata.add(metadata);
+        if (2 * metricMetadata.size() > metadataByNameHash.length) {
+            metadataByNameHash = new MetricMetadata[2 * metadataByNameHash.length];
+            for (MetricMetadata existingMetadata : metricMetadata) {
+                insert(existingMetadata);
+            }
+        } else {
+            metadataByNameHash[slot] = metadata;
         }
-        throw new IllegalStateException(
-            "Parse error.  Unknown metric type \"" + metricTypeStr + "\".");
+        return metadata;
     }
 
-    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    protected Reader openReader() {
-        try {
-            return new FileReader(metricsFile, ZiggyFileUtils.ZIGGY_CHARSET);
-        } catch (IOException e) {
-            throw new UncheckedIOException("Unable to read from " + metricsFile.toString(), e);
+    private void insert(MetricMetadata metadata) {
+        int mask = metadataByNameHash.length - 1;
+        int slot = (metadata.nameHash ^ metadata.nameHash >>> 16) & mask;
+        while (metadataByNameHash[slot] != null) {
+            slot = slot + 1 & mask;
         }
+        metadataByNameHash[slot] = metadata;
     }
 
-    private abstract class LineIterator<T> implements Iterator<T>, Iterable<T> {
-        private String nextLine;
-        private final BufferedReader breader;
-
-        @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-        LineIterator() {
-            try {
-                breader = new BufferedReader(openReader(), BUFFER_SIZE_BYTES);
-                nextLine = breader.readLine();
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to read from file", e);
-            }
+    /**
+     * Iterates over the metric values in a time range, skipping the blocks of the file that contain
+     * no timestamps in the range.
+     */
+    private final class MetricValueIterator implements Iterator<MetricValue> {
+        private final MetricsLineScanner scanner = new MetricsLineScanner(metricsFile,
+            windowSize);
+        private final Set<MetricType> metricTypes;
+        private final long start;
+        private final long end;
+
+        private int block = -1;
+        private long nextBlockOffset;
+        private MetricValue next;
+
+        MetricValueIterator(Set<MetricType> metricTypes, long start, long end) {
+            this.metricTypes = metricTypes;
+            this.start = start;
+            this.end = end;
+            next = findNext();
         }
 
         @Override
         public boolean hasNext() {
-            return nextLine != null;
+            return next != null;
         }
 
         @Override
-        @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-        public T next() {
-            if (nextLine == null) {
-                throw new IllegalStateException();
+        public MetricValue next() {
+            if (next == null) {
+                throw new NoSuchElementException();
             }
-            T rv = parseLine(nextLine);
-            try {
-                nextLine = breader.readLine();
-            } catch (IOException e) {
-                throw new UncheckedIOException("Unable to read from file ", e);
+            MetricValue rv = next;
+            next = findNext();
+            return rv;
+        }
+
+        private MetricValue findNext() {
+            while (true) {
+                if (scanner.position() >= nextBlockOffset && !nextBlock()) {
+                    return null;
+                }
+                if (!scanner.nextLine()) {
+                    return null;
+                }
+                long timestamp = scanner.timestamp();
+                if (timestamp < start || timestamp > end) {
+                    continue;
+                }
+                MetricMetadata metadata = metadata(scanner);
+                if (metricTypes != null && !metricTypes.contains(metadata.metricType)) {
+                    continue;
+                }
+                return new MetricValue(metricSource, metadata.metricType, new Date(timestamp),
+                    scanner.value());
             }
-            if (nextLine == null) {
-                ZiggyFileUtils.close(breader);
+        }
+
+        /** Moves to the next block that contains timestamps in the range. */
+        private boolean nextBlock() {
+            int nextBlock = block + 1;
+            while (nextBlock < timestampIndex.size()
+                && !timestampIndex.overlaps(nextBlock, start, end)) {
+                nextBlock++;
+            }
+            if (nextBlock >= timestampIndex.size()) {
+                return false;
+            }
+            if (nextBlock > block + 1) {
+                scanner.seek(timestampIndex.offset(nextBlock));
+            }
+            block = nextBlock;
+            nextBlockOffset = block + 1 < timestampIndex.size() ? timestampIndex.offset(block + 1)
+                : Long.MAX_VALUE;
+            return true;
+        }
+    }
+
+    /**
+     * Sparse index of the timestamps in the file, with the range of timestamps in each block of
+     * lines that starts a multiple of {@link #INDEX_BLOCK_SIZE_BYTES} into the file.
+     */
+    private static final class TimestampIndex {
+        private long[] offsets = new long[16];
+        private long[] minTimestamps = new long[16];
+        private long[] maxTimestamps = new long[16];
+        private int size;
+
+        void add(long lineOffset, long timestamp) {
+            if (size == 0 || lineOffset / INDEX_BLOCK_SIZE_BYTES != offsets[size - 1]
+                / INDEX_BLOCK_SIZE_BYTES) {
+                if (size == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, 2 * size);
+                    minTimestamps = Arrays.copyOf(minTimestamps, 2 * size);
+                    maxTimestamps = Arrays.copyOf(maxTimestamps, 2 * size);
+                }
+                offsets[size] = lineOffset;
+                minTimestamps[size] = timestamp;
+                maxTimestamps[size] = timestamp;
+                size++;
+            } else {
+                minTimestamps[size - 1] = Math.min(minTimestamps[size - 1], timestamp);
+                maxTimestamps[size - 1] = Math.max(maxTimestamps[size - 1], timestamp);
             }
-            return rv;
         }
 
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        int size() {
+            return size;
         }
 
-        @Override
-        public Iterator<T> iterator() {
-            return this;
+        long offset(int block) {
+            return offsets[block];
         }
 
-        protected abstract T parseLine(String line);
+        boolean overlaps(int block, long start, long end) {
+            return minTimestamps[block] <= end && maxTimestamps[block] >= start;
+        }
     }
 
     private static final class MetricMetadata {
+        public final byte[] nameBytes;
+        public final int nameHash;
         public final MetricType metricType;
-        public final Date start;
-        public final Date end;
+        public long start = Long.MAX_VALUE;
+        public long end = Long.MIN_VALUE;
 
-        MetricMetadata(MetricType metricType, Date start, Date end) {
+        MetricMetadata(byte[] nameBytes, int nameHash, MetricType metricType) {
+            this.nameBytes = nameBytes;
+            this.nameHash = nameHash;
             this.metricType = metricType;
-            this.start = start;
-            this.end = end;
         }
     }
 }
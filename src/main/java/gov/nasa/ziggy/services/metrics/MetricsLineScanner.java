@@ -0,0 +1,316 @@
+package gov.nasa.ziggy.services.metrics;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import gov.nasa.ziggy.metrics.CounterMetric;
+import gov.nasa.ziggy.metrics.Metric;
+import gov.nasa.ziggy.metrics.MetricType;
+import gov.nasa.ziggy.metrics.ValueMetric;
+import gov.nasa.ziggy.util.AcceptableCatchBlock;
+import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+
+/**
+ * Scans the lines of a metrics file written by {@link Metric#dump(PrintWriter)}, in which each line
+ * contains a timestamp followed by the {@link Metric#getLogString()} of a metric.
+ * <p>
+ * The file is memory-mapped a window at a time, and the fields of each line are located and parsed
+ * in place in the window, so scanning a line allocates nothing. The name of the metric on the
+ * current line is compared with known names with {@link #nameHash()} and
+ * {@link #nameEquals(byte[])}, and is only copied into a string by {@link #name()}.
+ * <p>
+ * This class is not MT-safe.
+ */
+final class MetricsLineScanner {
+    static final int DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private static final byte VALUE_TYPE = (byte) ValueMetric.VALUE_TYPE.charAt(0);
+    private static final byte COUNTER_TYPE = (byte) CounterMetric.COUNTER_TYPE.charAt(0);
+
+    // The number of fields that precede the sum in the fields of a value metric (min, max, average,
+    // count).
+    private static final int VALUE_METRIC_SKIPPED_FIELDS = 4;
+
+    // A decimal with up to this many digits fits in a long, and 10^22 is the largest power of 10
+    // that is exact in a double.
+    private static final int MAX_MANTISSA_DIGITS = 18;
+    private static final double[] POWERS_OF_10 = new double[23];
+    static {
+        POWERS_OF_10[0] = 1;
+        for (int i = 1; i < POWERS_OF_10.length; i++) {
+            POWERS_OF_10[i] = POWERS_OF_10[i - 1] * 10;
+        }
+    }
+
+    private final File file;
+    private final long fileSize;
+    private final int windowSize;
+
+    private MappedByteBuffer window;
+    private long windowOffset;
+    private long position;
+
+    // Fields of the current line. The start and end of fields are indices into the window.
+    private long lineOffset;
+    private long timestamp;
+    private int nameStart;
+    private int nameEnd;
+    private byte type;
+    private int valueStart;
+    private int valueEnd;
+
+    MetricsLineScanner(File file) {
+        this(file, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * @param windowSize the size of the part of the file that is mapped at once, which is grown if
+     * a line doesn't fit in it
+     */
+    MetricsLineScanner(File file, int windowSize) {
+        this.file = file;
+        this.windowSize = windowSize;
+        fileSize = file.length();
+    }
+
+    /** Returns the offset in the file of the next line. */
+    long position() {
+        return position;
+    }
+
+    /** Moves to the line that starts at the given offset in the file. */
+    void seek(long offset) {
+        position = offset;
+    }
+
+    /**
+     * Moves to the next line that isn't empty, and parses its timestamp, name, and type.
+     *
+     * @return false if there are no more lines
+     * @throws IllegalStateException if the line is not a metric
+     */
+    boolean nextLine() {
+        while (position < fileSize) {
+            int lineEnd = findLineEnd();
+            int lineStart = (int) (position - windowOffset);
+            lineOffset = position;
+            position = windowOffset + lineEnd + 1;
+            if (lineEnd > lineStart && window.get(lineEnd - 1) == '\r') {
+                lineEnd--;
+            }
+            if (lineEnd > lineStart) {
+                parseFields(lineStart, lineEnd);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns the offset in the file of the current line. */
+    long lineOffset() {
+        return lineOffset;
+    }
+
+    long timestamp() {
+        return timestamp;
+    }
+
+    /** Returns {@link MetricType#TYPE_VALUE} or {@link MetricType#TYPE_COUNTER}. */
+    int metricType() {
+        return type == VALUE_TYPE ? MetricType.TYPE_VALUE : MetricType.TYPE_COUNTER;
+    }
+
+    int nameHash() {
+        int hash = 0;
+        for (int i = nameStart; i < nameEnd; i++) {
+            hash = 31 * hash + window.get(i);
+        }
+        return hash;
+    }
+
+    /** Determines whether the name of the current metric is the given UTF-8 name. */
+    boolean nameEquals(byte[] name) {
+        if (name.length != nameEnd - nameStart) {
+            return false;
+        }
+        for (int i = 0; i < name.length; i++) {
+            if (name[i] != window.get(nameStart + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Returns the UTF-8 bytes of the name of the current metric. */
+    byte[] nameBytes() {
+        byte[] name = new byte[nameEnd - nameStart];
+        window.get(nameStart, name);
+        return name;
+    }
+
+    String name() {
+        return new String(nameBytes(), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns the value of the current metric, which is the sum of a value metric or the count of a
+     * counter metric.
+     */
+    float value() {
+        int i = valueStart;
+        boolean negative = i < valueEnd && window.get(i) == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        boolean anyDigits = false;
+        int digits = 0;
+        int exponent = 0;
+        boolean fraction = false;
+        for (; i < valueEnd; i++) {
+            byte b = window.get(i);
+            if (b >= '0' && b <= '9') {
+                anyDigits = true;
+                if (digits < MAX_MANTISSA_DIGITS) {
+                    mantissa = 10 * mantissa + b - '0';
+                    if (mantissa > 0) {
+                        digits++;
+                    }
+                    if (fraction) {
+                        exponent--;
+                    }
+                } else if (!fraction) {
+                    exponent++;
+                }
+            } else if (b == '.' && !fraction) {
+                fraction = true;
+            } else {
+                // Exponents, NaN, and Infinity are rare enough to be parsed the slow way.
+                return (float) Double.parseDouble(field(valueStart, valueEnd));
+            }
+        }
+        if (!anyDigits || -exponent >= POWERS_OF_10.length || exponent >= POWERS_OF_10.length) {
+            return (float) Double.parseDouble(field(valueStart, valueEnd));
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_10[-exponent]
+            : mantissa * POWERS_OF_10[exponent];
+        return (float) (negative ? -value : value);
+    }
+
+    /**
+     * Returns the index in the window of the newline at the end of the line at {@link #position},
+     * or of the end of the file if it is the last line and has no newline, mapping a window that
+     * contains the whole line if necessary.
+     */
+    private int findLineEnd() {
+        if (window == null || position < windowOffset
+            || position >= windowOffset + window.limit()) {
+            map(position, windowSize);
+        }
+        while (true) {
+            int limit = window.limit();
+            for (int i = (int) (position - windowOffset); i < limit; i++) {
+                if (window.get(i) == '\n') {
+                    return i;
+                }
+            }
+            if (windowOffset + limit >= fileSize) {
+                return limit;
+            }
+
+            // The line continues past the end of the window, so map a window that starts at the
+            // line, which is larger if the line already started the window.
+            int size = windowSize;
+            if (windowOffset == position) {
+                if (limit == Integer.MAX_VALUE) {
+                    throw new IllegalStateException(
+                        "Line at offset " + position + " of " + file + " is too long");
+                }
+                size = (int) Math.min(2L * limit, Integer.MAX_VALUE);
+            }
+            map(position, size);
+        }
+    }
+
+    @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
+    private void map(long offset, int size) {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            window = channel.map(MapMode.READ_ONLY, offset, Math.min(size, fileSize - offset));
+            windowOffset = offset;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to read from " + file, e);
+        }
+    }
+
+    private void parseFields(int lineStart, int lineEnd) {
+        int timestampEnd = requiredFieldEnd(lineStart, lineEnd);
+        timestamp = parseLong(lineStart, timestampEnd);
+
+        nameStart = timestampEnd + 1;
+        nameEnd = requiredFieldEnd(nameStart, lineEnd);
+
+        int typeStart = nameEnd + 1;
+        int typeEnd = requiredFieldEnd(typeStart, lineEnd);
+        type = window.get(typeStart);
+        valueStart = typeEnd + 1;
+        if (typeEnd - typeStart == 1 && type == VALUE_TYPE) {
+            for (int i = 0; i < VALUE_METRIC_SKIPPED_FIELDS; i++) {
+                valueStart = requiredFieldEnd(valueStart, lineEnd) + 1;
+            }
+        } else if (typeEnd - typeStart != 1 || type != COUNTER_TYPE) {
+            throw new IllegalStateException(
+                "Parse error.  Unknown metric type \"" + field(typeStart, typeEnd) + "\".");
+        }
+        valueEnd = fieldEnd(valueStart, lineEnd);
+    }
+
+    /** Returns the index of the comma at the end of a field, or the end of the line. */
+    private int fieldEnd(int fieldStart, int lineEnd) {
+        for (int i = fieldStart; i < lineEnd; i++) {
+            if (window.get(i) == ',') {
+                return i;
+            }
+        }
+        return lineEnd;
+    }
+
+    /** Returns the index of the comma at the end of a field that must be followed by another. */
+    private int requiredFieldEnd(int fieldStart, int lineEnd) {
+        int fieldEnd = fieldEnd(fieldStart, lineEnd);
+        if (fieldEnd == lineEnd) {
+            throw new IllegalStateException(
+                "Parse error.  Too few fields at offset " + lineOffset + " of " + file);
+        }
+        return fieldEnd;
+    }
+
+    private long parseLong(int start, int end) {
+        if (start == end) {
+            throw new IllegalStateException(
+                "Parse error.  Missing timestamp at offset " + lineOffset + " of " + file);
+        }
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            byte b = window.get(i);
+            if (b < '0' || b > '9') {
+                throw new IllegalStateException("Parse error.  Invalid timestamp \""
+                    + field(start, end) + "\" at offset " + lineOffset + " of " + file);
+            }
+            value = 10 * value + b - '0';
+        }
+        return value;
+    }
+
+    private String field(int start, int end) {
+        byte[] bytes = new byte[end - start];
+        window.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
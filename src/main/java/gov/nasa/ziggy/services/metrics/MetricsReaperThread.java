@@ -4,11 +4,16 @@ import org.apache.commons.configuration2.ImmutableConfiguration;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.metrics.MetricValueRollup;
 import gov.nasa.ziggy.metrics.MetricsOperations;
 import gov.nasa.ziggy.services.config.ZiggyConfiguration;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 
+/**
+ * Periodically limits the number of metric values in the database to pi.metrics.reaper.maxRows. The
+ * oldest values are rolled up into {@link MetricValueRollup}s before they are deleted.
+ */
 public class MetricsReaperThread extends Thread {
     private static final Logger log = LoggerFactory.getLogger(MetricsReaperThread.class);
 
@@ -4,13 +4,25 @@ import gov.nasa.ziggy.services.messages.PipelineMessage;
 
 /**
  * Superclass for all status-related messages (messages sent by the {@link StatusMessageBroadcaster}
+ * <p>
+ * Status messages from a given source (see {@link #uniqueKey()}) can be sent as deltas, which carry
+ * only the content that changed since the previous message from that source. Subclasses that
+ * support this override {@link #deltaFrom(StatusMessage)} and {@link #applyTo(StatusMessage)}.
+ * <p>
+ * Status messages other than final messages are telemetry (see {@link #isTelemetry()}), so they can
+ * be coalesced or dropped on their way to their recipients. Each message therefore carries a
+ * sequence number, and each delta carries the sequence number of the message it was computed
+ * from, so that a recipient can tell whether it has the message that a delta must be applied to.
  *
  * @author Todd Klaus
  */
 public abstract class StatusMessage extends PipelineMessage {
-    private static final long serialVersionUID = 20230511L;
+    private static final long serialVersionUID = 20261019L;
 
     private ProcessInfo sourceProcess;
+    private boolean delta;
+    private long sequence;
+    private long baseSequence;
 
     public StatusMessage() {
     }
@@ -23,6 +35,75 @@ public abstract class StatusMessage extends PipelineMessage {
         return sourceProcess.toString();
     }
 
+    /**
+     * Returns a message that contains only the content that differs from the previous message from
+     * the same source, or this message if a delta is not possible. The default implementation
+     * returns this message.
+     */
+    public StatusMessage deltaFrom(StatusMessage previousMessage) {
+        return this;
+    }
+
+    /**
+     * Returns the complete message obtained by applying this delta to the previous complete
+     * message from the same source. The default implementation returns this message.
+     */
+    public StatusMessage applyTo(StatusMessage previousMessage) {
+        return this;
+    }
+
+    public boolean isDelta() {
+        return delta;
+    }
+
+    protected void setDelta(boolean delta) {
+        this.delta = delta;
+    }
+
+    /** Returns the position of this message in the sequence of messages from its source. */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /** Returns the sequence number of the message that this delta was computed from. */
+    public long getBaseSequence() {
+        return baseSequence;
+    }
+
+    public void setSequence(long sequence, long baseSequence) {
+        this.sequence = sequence;
+        this.baseSequence = baseSequence;
+    }
+
+    /**
+     * Returns a message that combines this message with an earlier message from the same source
+     * that has not yet been delivered, so that the earlier message can be discarded without losing
+     * any changes. If this message is complete, it supersedes the earlier message and is returned
+     * as is.
+     */
+    public StatusMessage coalesceWith(StatusMessage earlierMessage) {
+        if (!isDelta()) {
+            return this;
+        }
+        StatusMessage message = applyTo(earlierMessage);
+        message.setDelta(earlierMessage.isDelta());
+        message.setSequence(sequence, earlierMessage.baseSequence);
+        return message;
+    }
+
+    /**
+     * Indicates that this is the last message from its source. Final messages are never sent as
+     * deltas or coalesced with other messages.
+     */
+    public boolean isFinalMessage() {
+        return false;
+    }
+
+    @Override
+    public boolean isTelemetry() {
+        return !isFinalMessage();
+    }
+
     public String briefStatus() {
         return source() + "@" + getTimeSent().toString();
     }
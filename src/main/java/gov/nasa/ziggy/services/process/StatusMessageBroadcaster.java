@@ -1,22 +1,35 @@
 package gov.nasa.ziggy.services.process;
 
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.services.config.PropertyName;
+import gov.nasa.ziggy.services.config.ZiggyConfiguration;
+import gov.nasa.ziggy.services.messages.HeartbeatMessage;
 import gov.nasa.ziggy.services.messaging.ZiggyMessenger;
 import gov.nasa.ziggy.util.AcceptableCatchBlock;
 import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
+import gov.nasa.ziggy.util.SystemProxy;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
 
 /**
  * This class periodically broadcasts status messages to the "pipeline-status" JMS topic. Status
  * providers register with this class and provide their status messages (extend
  * {@link StatusMessage} via the {@link StatusReporter} interface.
  * <p>
- * Status updates are sent whenever the process receives a heartbeat message from the supervisor, or
- * (for updates from the supervisor) at whatever interval the supervisor decides is appropriate.
+ * Status updates are sent at the interval given by the
+ * {@link PropertyName#WORKER_STATUS_REPORT_INTERVAL_MILLIS} property, which defaults to the
+ * heartbeat interval. Updates can also be requested at any time with {@link #sendUpdates()}, but
+ * each reporter sends at most one message per {@link PropertyName#STATUS_MIN_INTERVAL_MILLIS};
+ * requests that arrive sooner are skipped, and the reporter's current status goes out with the
+ * next periodic update instead.
  *
  * @author Todd Klaus
  * @author PT
@@ -24,30 +37,69 @@ import gov.nasa.ziggy.util.AcceptableCatchBlock.Rationale;
 public class StatusMessageBroadcaster {
     private static final Logger log = LoggerFactory.getLogger(StatusMessageBroadcaster.class);
 
+    private static final long DEFAULT_MIN_INTERVAL_MILLIS = 1000L;
+
     private final ProcessInfo processInfo;
 
-    // Map[reporter, reportIntervalMillis]
     private final Set<StatusReporter> reporters = new HashSet<>();
+    private final Map<StatusReporter, Long> lastReportTimeMillis = new HashMap<>();
+    private final long minIntervalMillis;
+    private ScheduledThreadPoolExecutor reportExecutor;
 
     public StatusMessageBroadcaster(ProcessInfo processInfo) {
         this.processInfo = processInfo;
+        minIntervalMillis = ZiggyConfiguration.getInstance()
+            .getLong(PropertyName.STATUS_MIN_INTERVAL_MILLIS.property(),
+                DEFAULT_MIN_INTERVAL_MILLIS);
+    }
+
+    /**
+     * Returns the interval between periodic status updates.
+     */
+    public static long reportIntervalMillis() {
+        return ZiggyConfiguration.getInstance()
+            .getLong(PropertyName.WORKER_STATUS_REPORT_INTERVAL_MILLIS.property(),
+                HeartbeatMessage.heartbeatIntervalMillis());
     }
 
     public synchronized void addStatusReporter(final StatusReporter reporter) {
         log.info("Adding a status reporter of class {}", reporter.getClass().getName());
         reporters.add(reporter);
+        startPeriodicUpdates();
+    }
+
+    private void startPeriodicUpdates() {
+        long reportIntervalMillis = reportIntervalMillis();
+        if (reportExecutor != null || reportIntervalMillis <= 0) {
+            return;
+        }
+        reportExecutor = new ScheduledThreadPoolExecutor(1, runnable -> {
+            Thread thread = new Thread(runnable, "StatusMessageBroadcaster");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reportExecutor.scheduleAtFixedRate(this::sendUpdates, reportIntervalMillis,
+            reportIntervalMillis, TimeUnit.MILLISECONDS);
+        ZiggyShutdownHook.addShutdownHook(reportExecutor::shutdownNow);
     }
 
     @AcceptableCatchBlock(rationale = Rationale.MUST_NOT_CRASH)
-    public void sendUpdates() {
+    public synchronized void sendUpdates() {
         log.debug("Sending status messages");
         try {
+            long currentTimeMillis = SystemProxy.currentTimeMillis();
             for (StatusReporter reporter : reporters) {
+                Long lastTimeMillis = lastReportTimeMillis.get(reporter);
+                if (lastTimeMillis != null
+                    && currentTimeMillis - lastTimeMillis < minIntervalMillis) {
+                    continue;
+                }
                 StatusMessage statusMessage = reporter.reportCurrentStatus();
                 if (statusMessage != null) {
 
                     statusMessage.setSourceProcess(processInfo);
                     ZiggyMessenger.publish(statusMessage);
+                    lastReportTimeMillis.put(reporter, currentTimeMillis);
                 }
             }
         } catch (Exception e) {
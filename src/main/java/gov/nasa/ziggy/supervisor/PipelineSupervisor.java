@@ -11,12 +11,11 @@ import static gov.nasa.ziggy.util.WrapperUtils.WRAPPER_LIBRARY_PATH_PROP_NAME_PR
 import static gov.nasa.ziggy.util.WrapperUtils.WRAPPER_LOG_FILE_PROP_NAME;
 import static gov.nasa.ziggy.util.WrapperUtils.wrapperParameter;
 
-import java.io.File;
 import java.io.IOException;
 import java.io.UncheckedIOException;
-import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
@@ -29,7 +28,6 @@ import java.util.stream.Collectors;
 
 import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.exec.CommandLine;
-import org.apache.commons.io.FileUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,10 +53,13 @@ import gov.nasa.ziggy.services.config.ZiggyConfiguration;
 import gov.nasa.ziggy.services.events.ZiggyEventHandler;
 import gov.nasa.ziggy.services.events.ZiggyEventHandler.ZiggyEventHandlerInfoForDisplay;
 import gov.nasa.ziggy.services.events.ZiggyEventOperations;
+import gov.nasa.ziggy.services.logging.TaskLogChunk;
+import gov.nasa.ziggy.services.logging.TaskLogReader;
 import gov.nasa.ziggy.services.logging.ZiggyLog;
 import gov.nasa.ziggy.services.messages.EventHandlerRequest;
 import gov.nasa.ziggy.services.messages.HaltTasksRequest;
 import gov.nasa.ziggy.services.messages.HeartbeatMessage;
+import gov.nasa.ziggy.services.messages.PipelineInstanceFinishedMessage;
 import gov.nasa.ziggy.services.messages.PipelineInstanceStartedMessage;
 import gov.nasa.ziggy.services.messages.RemoveTaskFromKilledTasksMessage;
 import gov.nasa.ziggy.services.messages.RestartTasksRequest;
@@ -129,6 +130,7 @@ public class PipelineSupervisor extends AbstractPipelineProcess {
     private PipelineOperations pipelineOperations = new PipelineOperations();
     private ZiggyEventOperations ziggyEventOperations = new ZiggyEventOperations();
     private PipelineInstanceNodeOperations pipelineInstanceNodeOperations = new PipelineInstanceNodeOperations();
+    private TaskLogReader taskLogReader = new TaskLogReader();
     private AlgorithmMonitor algorithmMonitor;
 
     public PipelineSupervisor(int workerCount, int workerHeapSizeGigabytes) {
@@ -180,8 +182,7 @@ public class PipelineSupervisor extends AbstractPipelineProcess {
             heartbeatExecutor = new ScheduledThreadPoolExecutor(1);
             long heartbeatIntervalMillis = HeartbeatMessage.heartbeatIntervalMillis();
             if (heartbeatIntervalMillis > 0) {
-                heartbeatExecutor.scheduleAtFixedRate(
-                    () -> ZiggyRmiServer.addToBroadcastQueue(new HeartbeatMessage()), 0,
+                heartbeatExecutor.scheduleAtFixedRate(ZiggyRmiServer::broadcastHeartbeatIfIdle, 0,
                     HeartbeatMessage.heartbeatIntervalMillis(), TimeUnit.MILLISECONDS);
             }
             ZiggyShutdownHook.addShutdownHook(() -> {
@@ -289,12 +290,15 @@ public class PipelineSupervisor extends AbstractPipelineProcess {
         ZiggyMessenger.subscribe(StartMemdroneRequest.class, message -> {
             new Memdrone(message.getPipelineStepName(), message.getInstanceId()).startMemdrone();
         });
+        ZiggyMessenger.subscribe(PipelineInstanceFinishedMessage.class, message -> {
+            Memdrone.stopMemdrones(this::pipelineInstanceFinished);
+        });
         ZiggyMessenger.subscribe(TaskLogInformationRequest.class, message -> {
             ZiggyMessenger.publish(new TaskLogInformationMessage(message,
                 ZiggyLog.searchForLogFiles(message.getPipelineTask())));
         });
         ZiggyMessenger.subscribe(SingleTaskLogRequest.class, message -> {
-            ZiggyMessenger.publish(new SingleTaskLogMessage(message, taskLogContents(message)));
+            ZiggyMessenger.publish(new SingleTaskLogMessage(message, taskLogChunk(message)));
         });
         ZiggyMessenger.subscribe(HaltTasksRequest.class, message -> {
             haltRemoteTasks(message);
@@ -317,21 +321,20 @@ public class PipelineSupervisor extends AbstractPipelineProcess {
     }
 
     @AcceptableCatchBlock(rationale = Rationale.EXCEPTION_CHAIN)
-    private String taskLogContents(SingleTaskLogRequest request) {
-        File taskLogFile = new File(request.getTaskLogInformation().getFullPath());
-        String stepLogContents = "<Request timed-out!>";
-        log.info("Reading task log {}", taskLogFile);
-
-        Charset defaultCharset = null;
-        StringBuilder fileContents = new StringBuilder(1024 * 4);
+    private TaskLogChunk taskLogChunk(SingleTaskLogRequest request) {
+        Path taskLogFile = Paths.get(request.getTaskLogInformation().getFullPath());
+        log.info("Reading task log {} from line {}", taskLogFile, request.getFirstLine());
         try {
-            fileContents.append(FileUtils.readFileToString(taskLogFile, defaultCharset));
-            log.info("Returning task log {} ({} chars) ", taskLogFile, fileContents.length());
-            stepLogContents = fileContents.toString();
+            TaskLogChunk taskLogChunk = taskLogReader.readLines(taskLogFile,
+                request.getFirstLine(), request.getMaxLines());
+            log.info("Returning lines {} to {} of task log {} ({} chars)",
+                taskLogChunk.getFirstLine(),
+                taskLogChunk.getFirstLine() + taskLogChunk.getLineCount(), taskLogFile,
+                taskLogChunk.getContents().length());
+            return taskLogChunk;
         } catch (IOException e) {
             throw new UncheckedIOException("Unable to read file " + taskLogFile.toString(), e);
         }
-        return stepLogContents;
     }
 
     /**
@@ -409,6 +412,22 @@ public class PipelineSupervisor extends AbstractPipelineProcess {
         pipelineExecutor().transitionToNextInstanceNode(message.getPipelineTask());
     }
 
+    /**
+     * Determines whether the instance has finished, that is, whether it has completed or none of
+     * its tasks can run.
+     */
+    private boolean pipelineInstanceFinished(long instanceId) {
+        PipelineInstance pipelineInstance = pipelineInstanceOperations()
+            .pipelineInstance(instanceId);
+        if (pipelineInstance == null) {
+            return true;
+        }
+        PipelineInstance.State state = pipelineInstance.getState();
+        return state == PipelineInstance.State.COMPLETED
+            || state == PipelineInstance.State.ERRORS_STALLED
+            || state == PipelineInstance.State.TRANSITION_FAILED;
+    }
+
     /** Retry transition to the next instance node. Package scoped for testing. */
     void retryTransition(RetryTransitionRequest message) {
         PipelineInstance pipelineInstance = pipelineInstanceOperations()
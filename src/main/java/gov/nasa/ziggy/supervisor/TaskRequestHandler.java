@@ -156,6 +156,14 @@ public class TaskRequestHandler implements Runnable, Requestor {
         log.info("Start processing taskRequest={}", taskRequest);
         markInstanceNodeNotTransitioned(taskRequest.getInstanceNodeId());
 
+        // Sample the memory usage of the task's algorithm processes. The sampler is shared by all
+        // the tasks of the pipeline step, so it's only started by the first of them.
+        if (Memdrone.memdroneEnabled()) {
+            PipelineTask pipelineTask = taskRequest.getPipelineTask();
+            new Memdrone(pipelineTask.getPipelineStepName(), pipelineTask.getPipelineInstanceId())
+                .startMemdrone();
+        }
+
         ExternalProcess externalProcess = ExternalProcess
             .simpleExternalProcess(commandLine(taskRequest));
         externalProcess.mergeWithEnvironment(
@@ -182,17 +190,9 @@ public class TaskRequestHandler implements Runnable, Requestor {
             pipelineTaskDataOperations().taskErrored(pipelineTask);
         }
 
-        // Finalize the task's memdrone activities.
         boolean taskErrored = pipelineTaskDataOperations().hasErrored(pipelineTask);
         log.info("task={}, retried={}, errored={}", pipelineTask,
             pipelineTaskDataOperations().retrying(pipelineTask), taskErrored);
-
-        Memdrone memdrone = new Memdrone(pipelineTask.getPipelineStepName(),
-            pipelineTask.getPipelineInstanceId());
-        if (Memdrone.memdroneEnabled()) {
-            memdrone.createStatsCache();
-            memdrone.createPidMapCache();
-        }
         log.info("Finished processing taskRequest={}", taskRequest);
     }
 
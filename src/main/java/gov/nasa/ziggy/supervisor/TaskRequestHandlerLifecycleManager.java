@@ -15,6 +15,7 @@ import java.util.concurrent.ThreadPoolExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.metrics.report.Memdrone;
 import gov.nasa.ziggy.pipeline.definition.PipelineTask;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineInstanceNodeOperations;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDataOperations;
@@ -247,6 +248,12 @@ public class TaskRequestHandlerLifecycleManager extends Thread {
                 log.info("Waiting for workers to exit...");
                 taskRequestThreadCountdownLatch.await();
                 log.info("Waiting for workers to exit...done");
+
+                // The instance node has completed or errored, or its remaining tasks have been
+                // put back on the queue for later, so the memory usage of its algorithm processes
+                // no longer needs to be sampled. The sampler is started again if more of its
+                // tasks run.
+                stopMemdrone(initialRequest.getPipelineTask());
             }
         } catch (InterruptedException e) {
             shutdown();
@@ -254,6 +261,13 @@ public class TaskRequestHandlerLifecycleManager extends Thread {
         }
     }
 
+    private void stopMemdrone(PipelineTask pipelineTask) {
+        if (Memdrone.memdroneEnabled()) {
+            new Memdrone(pipelineTask.getPipelineStepName(), pipelineTask.getPipelineInstanceId())
+                .stopMemdrone();
+        }
+    }
+
     /**
      * Shuts down the {@link TaskRequestHandler} threads and discards the thread pool. This is used
      * by the shutdown hook and thus must have public scope.
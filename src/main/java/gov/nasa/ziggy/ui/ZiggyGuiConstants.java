@@ -71,7 +71,9 @@ public class ZiggyGuiConstants {
     public static final String HELP = "Help";
     public static final String IMPORT = "Import";
     public static final String NEW_SYMBOL = "+";
+    public static final String NEXT = "Next";
     public static final String OK = "OK";
+    public static final String PREVIOUS = "Previous";
     public static final String REFRESH = "Refresh";
     public static final String REPORT = "Report";
     public static final String RESTART = "Restart";
@@ -1,6 +1,8 @@
 package gov.nasa.ziggy.ui.instances;
 
 import static gov.nasa.ziggy.ui.ZiggyGuiConstants.CLOSE;
+import static gov.nasa.ziggy.ui.ZiggyGuiConstants.NEXT;
+import static gov.nasa.ziggy.ui.ZiggyGuiConstants.PREVIOUS;
 import static gov.nasa.ziggy.ui.ZiggyGuiConstants.REFRESH;
 import static gov.nasa.ziggy.ui.ZiggyGuiConstants.TO_BOTTOM;
 import static gov.nasa.ziggy.ui.ZiggyGuiConstants.TO_TOP;
@@ -23,6 +25,7 @@ import javax.swing.JPanel;
 import javax.swing.JScrollBar;
 import javax.swing.JScrollPane;
 import javax.swing.JTextArea;
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 
 import org.slf4j.Logger;
@@ -31,6 +34,7 @@ import org.slf4j.LoggerFactory;
 import gov.nasa.ziggy.pipeline.definition.PipelineTaskDisplayData;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDisplayDataOperations;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskOperations;
+import gov.nasa.ziggy.services.logging.TaskLogChunk;
 import gov.nasa.ziggy.services.logging.TaskLogInformation;
 import gov.nasa.ziggy.services.messages.SingleTaskLogMessage;
 import gov.nasa.ziggy.services.messages.SingleTaskLogRequest;
@@ -40,6 +44,11 @@ import gov.nasa.ziggy.ui.util.ZiggySwingUtils;
 import gov.nasa.ziggy.util.Requestor;
 
 /**
+ * Displays a task log. Task logs can be very large, so the dialog shows a window of up to
+ * {@link #LOG_WINDOW_LINES} lines at a time, starting with the end of the log. The
+ * {@code Previous} and {@code Next} buttons move the window through the log, and the
+ * {@code To top} and {@code To bottom} buttons jump to the start and end of the log.
+ *
  * @author Bill Wohler
  */
 public class SingleTaskLogDialog extends javax.swing.JDialog implements Requestor {
@@ -47,13 +56,16 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
     private static final Logger log = LoggerFactory.getLogger(TaskLogInformationDialog.class);
     private static final long serialVersionUID = 20240614L;
     private static final long LOG_CONTENT_TIMEOUT_MILLIS = 30000L;
+    private static final int LOG_WINDOW_LINES = 5000;
 
     private JLabel taskLogLabel;
+    private JLabel lineRangeLabel;
     private JTextArea textArea;
     private JScrollPane textScrollPane;
 
     private TaskLogInformation taskLogInformation;
     private SingleTaskLogMessage currentMessage;
+    private TaskLogChunk currentChunk;
     private CountDownLatch taskLogMessageCountdownLatch;
 
     private final UUID uuid = UUID.randomUUID();
@@ -84,14 +96,17 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
         getContentPane().add(createButtonPanel(ZiggySwingUtils.createButton(REFRESH, this::refresh),
             ZiggySwingUtils.createButton(CLOSE, this::close)), BorderLayout.SOUTH);
 
-        refresh();
+        refresh(-LOG_WINDOW_LINES, this::scrollToBottom);
         pack();
     }
 
     private JPanel createDataPanel() {
         taskLogLabel = new JLabel();
+        lineRangeLabel = new JLabel();
 
         JPanel navButtons = createButtonPanel(ZiggySwingUtils.createButton(TO_TOP, this::topOfLog),
+            ZiggySwingUtils.createButton(PREVIOUS, this::previousWindow),
+            ZiggySwingUtils.createButton(NEXT, this::nextWindow),
             ZiggySwingUtils.createButton(TO_BOTTOM, this::bottomOfLog));
 
         textArea = new JTextArea();
@@ -108,41 +123,82 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
             .addGroup(dataPanelLayout.createSequentialGroup()
                 .addGap(10) // just enough to get the label away from the edge
                 .addComponent(taskLogLabel)
-                .addComponent(navButtons))
+                .addComponent(navButtons)
+                .addComponent(lineRangeLabel))
             .addComponent(textScrollPane));
 
         dataPanelLayout.setVerticalGroup(dataPanelLayout.createSequentialGroup()
             .addGroup(dataPanelLayout.createParallelGroup(Alignment.CENTER)
                 .addComponent(taskLogLabel)
                 .addComponent(navButtons, GroupLayout.PREFERRED_SIZE, GroupLayout.DEFAULT_SIZE,
-                    GroupLayout.PREFERRED_SIZE))
+                    GroupLayout.PREFERRED_SIZE)
+                .addComponent(lineRangeLabel))
             .addComponent(textScrollPane));
 
         return dataPanel;
     }
 
     private void topOfLog(ActionEvent evt) {
+        if (currentChunk != null && currentChunk.getFirstLine() > 0) {
+            refresh(0, this::scrollToTop);
+        } else {
+            scrollToTop();
+        }
+    }
+
+    private void bottomOfLog(ActionEvent evt) {
+        if (currentChunk != null && !currentChunk.isTail()) {
+            refresh(-LOG_WINDOW_LINES, this::scrollToBottom);
+        } else {
+            scrollToBottom();
+        }
+    }
+
+    private void previousWindow(ActionEvent evt) {
+        if (currentChunk != null && currentChunk.getFirstLine() > 0) {
+            refresh(Math.max(0, currentChunk.getFirstLine() - LOG_WINDOW_LINES),
+                this::scrollToBottom);
+        }
+    }
+
+    private void nextWindow(ActionEvent evt) {
+        if (currentChunk != null && !currentChunk.isTail()) {
+            refresh(currentChunk.getFirstLine() + currentChunk.getLineCount(), this::scrollToTop);
+        }
+    }
+
+    private void scrollToTop() {
         JScrollBar verticalScrollBar = textScrollPane.getVerticalScrollBar();
         verticalScrollBar.setValue(verticalScrollBar.getMinimum());
     }
 
-    private void bottomOfLog(ActionEvent evt) {
+    private void scrollToBottom() {
         JScrollBar verticalScrollBar = textScrollPane.getVerticalScrollBar();
         verticalScrollBar.setValue(verticalScrollBar.getMaximum());
     }
 
+    /**
+     * Refreshes the current window, which follows the end of the log if it includes the last line.
+     */
     private void refresh(ActionEvent evt) {
-        refresh();
+        if (currentChunk == null || currentChunk.isTail()) {
+            refresh(-LOG_WINDOW_LINES, this::scrollToBottom);
+        } else {
+            refresh(currentChunk.getFirstLine(), () -> {
+            });
+        }
     }
 
     /**
-     * Refreshes the contents of the dialog box.
+     * Refreshes the contents of the dialog box with the window of the log that starts at the given
+     * line (or, if negative, that many lines before the end of the log), and then runs the given
+     * action.
      */
-    private void refresh() {
-        new SwingWorker<String, Void>() {
+    private void refresh(long firstLine, Runnable afterDisplay) {
+        new SwingWorker<TaskLogChunk, Void>() {
 
             @Override
-            protected String doInBackground() throws Exception {
+            protected TaskLogChunk doInBackground() throws Exception {
 
                 // Retrieve the task from the database
                 PipelineTaskDisplayData task = pipelineTaskDisplayDataOperations()
@@ -154,7 +210,7 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
                 // Request the log contents from the supervisor
                 taskLogMessageCountdownLatch = new CountDownLatch(1);
                 SingleTaskLogRequest.requestSingleTaskLog(SingleTaskLogDialog.this,
-                    taskLogInformation);
+                    taskLogInformation, firstLine, LOG_WINDOW_LINES);
 
                 // Wait for the task log to be delivered, but don't wait too long.
                 if (!taskLogMessageCountdownLatch.await(LOG_CONTENT_TIMEOUT_MILLIS,
@@ -165,9 +221,9 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
 
                 // Strip the task log out of the message, and then send the message
                 // itself to Davy Jones' Locker.
-                String taskLogContents = currentMessage.taskLogContents();
+                TaskLogChunk taskLogChunk = currentMessage.taskLogChunk();
                 currentMessage = null;
-                return taskLogContents;
+                return taskLogChunk;
             }
 
             /** Returns the label for a task that is used in some UI displays. */
@@ -193,11 +249,14 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
             @Override
             protected void done() {
                 try {
-                    String updatedText = get();
-                    if (updatedText == null) {
+                    TaskLogChunk taskLogChunk = get();
+                    if (taskLogChunk == null) {
                         return;
                     }
-                    textArea.setText(updatedText);
+                    currentChunk = taskLogChunk;
+                    textArea.setText(taskLogChunk.getContents());
+                    lineRangeLabel.setText(lineRangeText(taskLogChunk));
+                    SwingUtilities.invokeLater(afterDisplay);
                 } catch (InterruptedException | ExecutionException e) {
                     MessageUtils.showError(rootPane, e);
                 }
@@ -205,6 +264,15 @@ public class SingleTaskLogDialog extends javax.swing.JDialog implements Requesto
         }.execute();
     }
 
+    private static String lineRangeText(TaskLogChunk taskLogChunk) {
+        if (taskLogChunk.getLineCount() == 0) {
+            return "No lines";
+        }
+        return "Lines " + (taskLogChunk.getFirstLine() + 1) + "-"
+            + (taskLogChunk.getFirstLine() + taskLogChunk.getLineCount()) + " of "
+            + taskLogChunk.getTotalLines();
+    }
+
     private void close(ActionEvent evt) {
         setVisible(false);
     }
@@ -18,6 +18,10 @@ import gov.nasa.ziggy.util.TimeRange;
  * @author Sean McCauliff
  */
 public class DatabaseMetricsValueSource implements MetricsValueSource {
+    // About the width of the chart in pixels. Long windows are plotted from rollups of the values
+    // with at least this many points rather than from every value.
+    private static final int POINT_COUNT = 1000;
+
     private final MetricsOperations metricsOperations = new MetricsOperations();
 
     @Override
@@ -27,7 +31,7 @@ public class DatabaseMetricsValueSource implements MetricsValueSource {
             .newHashMapWithExpectedSize(selectedMetricTypes.size());
         for (MetricType type : selectedMetricTypes) {
             List<MetricValue> values = metricsOperations().metricValues(type, windowStart,
-                windowEnd);
+                windowEnd, POINT_COUNT);
             rv.put(type, values);
         }
         return rv;
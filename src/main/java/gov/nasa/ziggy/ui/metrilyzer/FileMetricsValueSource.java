@@ -5,9 +5,7 @@ import java.util.Date;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
 
-import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Maps;
 
 import gov.nasa.ziggy.metrics.MetricType;
@@ -33,18 +31,12 @@ class FileMetricsValueSource implements MetricsValueSource {
         List<MetricType> selectedMetricTypes, Date windowStart, Date windowEnd) {
         Map<MetricType, Collection<MetricValue>> rv = Maps
             .newHashMapWithExpectedSize(selectedMetricTypes.size());
-        Set<MetricType> typeSet = ImmutableSet.copyOf(selectedMetricTypes);
+        // The deltas in the window depend on the values before it, so the values are read from
+        // the start of the file.
         DeltaMetricValueGenerator metricIt = new DeltaMetricValueGenerator(
-            metricsFileParser.parseFile());
-        // TODO: could probably break this off after seeing a date
-        // greater than the date we are interested in.
+            metricsFileParser.parseFile(selectedMetricTypes, null, windowEnd));
         for (MetricValue metricDelta : metricIt) {
-            if (metricDelta.getTimestamp().before(windowStart)
-                || metricDelta.getTimestamp().after(windowEnd)) {
-                continue;
-            }
-            MetricType metricType = metricDelta.getMetricType();
-            if (!typeSet.contains(metricType)) {
+            if (metricDelta.getTimestamp().before(windowStart)) {
                 continue;
             }
             Collection<MetricValue> valuesForType = rv.get(metricDelta.getMetricType());
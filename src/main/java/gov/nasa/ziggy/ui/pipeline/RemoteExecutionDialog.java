@@ -57,6 +57,7 @@ import gov.nasa.ziggy.pipeline.step.remote.BatchQueue;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteArchitectureOptimizer;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteEnvironment;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteEnvironmentOperations;
+import gov.nasa.ziggy.pipeline.step.remote.RemoteJobTimeStatistics;
 import gov.nasa.ziggy.pipeline.step.remote.batch.SupportedBatchSystem;
 import gov.nasa.ziggy.pipeline.step.subtask.SubtaskInformation;
 import gov.nasa.ziggy.services.config.PropertyName;
@@ -138,6 +139,7 @@ public class RemoteExecutionDialog extends JDialog {
     private Map<String, RemoteEnvironment> remoteEnvironmentByName;
     private Map<String, Architecture> architectureByDescription;
     private Map<String, BatchQueue> batchQueueByDescription;
+    private Map<String, Map<String, RemoteJobTimeStatistics>> jobTimeStatisticsByEnvironmentName;
 
     // Cached remote environment settings for each supported environment.
     private Map<String, RemoteEnvironmentCache> remoteCacheByEnvironmentName = new HashMap<>();
@@ -234,6 +236,7 @@ public class RemoteExecutionDialog extends JDialog {
         ProcessingMode processingMode = pipelineOperations()
             .processingMode(originalConfiguration.getPipelineName());
         remoteEnvironmentByName = retrieveRemoteEnvironmentByName();
+        jobTimeStatisticsByEnvironmentName = retrieveJobTimeStatistics();
         JLabel pipelineText = new JLabel(MessageFormat.format("{0} (processing {1} data)",
             originalConfiguration.getPipelineName(), processingMode.toString()));
 
@@ -545,6 +548,21 @@ public class RemoteExecutionDialog extends JDialog {
         return remoteEnvironmentByName;
     }
 
+    /**
+     * Retrieves the job time statistics of each remote environment by architecture name once, so
+     * they don't have to be queried each time the user selects an architecture.
+     */
+    private Map<String, Map<String, RemoteJobTimeStatistics>> retrieveJobTimeStatistics() {
+        Map<String, Map<String, RemoteJobTimeStatistics>> statistics = new HashMap<>();
+        for (String remoteEnvironmentName : remoteEnvironmentByName.keySet()) {
+            if (!remoteEnvironmentName.equals(DISABLED_REMOTE_ENVIRONMENT.getName())) {
+                statistics.put(remoteEnvironmentName, remoteEnvironmentOperations()
+                    .jobTimeStatisticsByArchitecture(remoteEnvironmentName));
+            }
+        }
+        return statistics;
+    }
+
     private Group labelGroup(Group group, List<JLabel> labels, int minimumWidth) {
         for (JLabel label : labels) {
             group.addComponent(label, minimumWidth, GroupLayout.DEFAULT_SIZE,
@@ -717,6 +735,9 @@ public class RemoteExecutionDialog extends JDialog {
                 .append(
                     "&ensp;Queue time minimizes the estimated total time including time in the queue.")
                 .appendBreak()
+                .append(
+                    "&ensp;&ensp;Measured queue waits are used for architectures with enough jobs.")
+                .appendBreak()
                 .append("&ensp;Cost minimizes the number of SBUs.")
                 .toString());
         optimizerComboBox.addItemListener(this::itemStateChanged);
@@ -872,10 +893,20 @@ public class RemoteExecutionDialog extends JDialog {
         if (!lastArchitectureComboBoxSelection.equals(RemoteEnvironment.ANY_ARCHITECTURE)) {
             Architecture architecture = architectureByDescription
                 .get(lastArchitectureComboBoxSelection);
-            architectureLimits
-                .setText(MessageFormat.format("{0} cores, {1} GB/core, {2} fractional {4}",
-                    architecture.getCores(), architecture.gigsPerCore(), architecture.getCost(),
-                    remoteEnvironment().getCostUnit()));
+            String limits = MessageFormat.format("{0} cores, {1} GB/core, {2} fractional {3}",
+                architecture.getCores(), architecture.gigsPerCore(), architecture.getCost(),
+                remoteEnvironment().getCostUnit());
+            RemoteJobTimeStatistics jobTimeStatistics = jobTimeStatisticsByEnvironmentName
+                .getOrDefault(remoteEnvironment().getName(), Map.of())
+                .get(architecture.getName());
+            if (jobTimeStatistics != null) {
+                limits += MessageFormat.format(
+                    "; queue wait {0,number,0.0} hrs median, {1,number,0.0} hrs 90th percentile "
+                        + "({2} jobs)",
+                    jobTimeStatistics.queueWaitHours(50), jobTimeStatistics.queueWaitHours(90),
+                    jobTimeStatistics.getJobCount());
+            }
+            architectureLimits.setText(limits);
         } else {
             architectureLimits.setText("");
         }
@@ -5,6 +5,8 @@ import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import javax.swing.GroupLayout;
 import javax.swing.JLabel;
@@ -16,13 +18,14 @@ import javax.swing.SwingUtilities;
 import org.netbeans.swing.outline.Outline;
 
 import gov.nasa.ziggy.pipeline.definition.database.PipelineInstanceNodeOperations;
-import gov.nasa.ziggy.services.messages.HeartbeatMessage;
 import gov.nasa.ziggy.services.messages.WorkerStatusMessage;
 import gov.nasa.ziggy.services.messaging.ZiggyMessenger;
 import gov.nasa.ziggy.services.process.StatusMessage;
+import gov.nasa.ziggy.services.process.StatusMessageBroadcaster;
 import gov.nasa.ziggy.ui.util.ZiggySwingUtils;
 import gov.nasa.ziggy.ui.util.models.AbstractZiggyTableModel;
 import gov.nasa.ziggy.ui.util.table.ZiggyTable;
+import gov.nasa.ziggy.util.ZiggyShutdownHook;
 import gov.nasa.ziggy.util.ZiggyStringUtils;
 import gov.nasa.ziggy.worker.WorkerResources;
 
@@ -46,8 +49,29 @@ public class WorkerStatusPanel extends JPanel {
     public WorkerStatusPanel() {
         buildComponent();
 
-        ZiggyMessenger.subscribe(HeartbeatMessage.class, message -> update((StatusMessage) null));
         ZiggyMessenger.subscribe(WorkerStatusMessage.class, this::update);
+        startOutdatedMessageCheck();
+    }
+
+    /**
+     * Starts periodic removal of messages from workers that have stopped reporting. The check runs
+     * at twice the worker status report interval so that a worker that is still running always has
+     * a chance to report between checks.
+     */
+    private void startOutdatedMessageCheck() {
+        long checkIntervalMillis = 2 * StatusMessageBroadcaster.reportIntervalMillis();
+        if (checkIntervalMillis <= 0) {
+            return;
+        }
+        ScheduledThreadPoolExecutor outdatedMessageCheck = new ScheduledThreadPoolExecutor(1,
+            runnable -> {
+                Thread thread = new Thread(runnable, "WorkerStatusPanel");
+                thread.setDaemon(true);
+                return thread;
+            });
+        outdatedMessageCheck.scheduleAtFixedRate(() -> update((StatusMessage) null),
+            checkIntervalMillis, checkIntervalMillis, TimeUnit.MILLISECONDS);
+        ZiggyShutdownHook.addShutdownHook(outdatedMessageCheck::shutdownNow);
     }
 
     private void buildComponent() {
@@ -149,8 +173,8 @@ public class WorkerStatusPanel extends JPanel {
         /**
          * Status messages in the model. The {@link Boolean} component of the {@link Map} indicates
          * whether the message is up-to-date, which is defined as a message that has arrived since
-         * the previous heartbeat message from the supervisor. Messages that are not up-to-date are
-         * removed when the next heartbeat message is detected. This is necessary to ensure that
+         * the previous check for outdated messages. Messages that are not up-to-date are removed
+         * at the next check. This is necessary to ensure that
          * workers that fail without sending a status message marked as a final message do not
          * remain in the model indefinitely.
          */
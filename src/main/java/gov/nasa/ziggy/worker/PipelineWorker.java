@@ -41,13 +41,14 @@ import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.metrics.ProfilingContext;
+import gov.nasa.ziggy.metrics.TaskProfiler;
 import gov.nasa.ziggy.pipeline.definition.PipelineStepExecutor.RunMode;
 import gov.nasa.ziggy.pipeline.definition.PipelineTask;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDataOperations;
 import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskOperations;
 import gov.nasa.ziggy.services.logging.ZiggyLog;
 import gov.nasa.ziggy.services.messages.HaltTasksRequest;
-import gov.nasa.ziggy.services.messages.HeartbeatMessage;
 import gov.nasa.ziggy.services.messages.ShutdownMessage;
 import gov.nasa.ziggy.services.messages.TaskHaltedMessage;
 import gov.nasa.ziggy.services.messaging.HeartbeatManager;
@@ -108,8 +109,11 @@ public class PipelineWorker extends AbstractPipelineProcess {
         RunMode runMode = RunMode.valueOf(args[2]);
 
         // Construct the WorkerProcess instance
-        PipelineWorker workerProcess = new PipelineWorker(NAME,
-            new PipelineTaskOperations().pipelineTask(taskId), workerId);
+        PipelineTask pipelineTask = new PipelineTaskOperations().pipelineTask(taskId);
+        // The process works on one task, until it exits.
+        TaskProfiler.startIfEnabled();
+        ProfilingContext.enterTask(pipelineTask.taskBaseName());
+        PipelineWorker workerProcess = new PipelineWorker(NAME, pipelineTask, workerId);
         workerProcess.initialize();
         workerProcess.processTask(runMode);
         log.info("Worker exiting with status 0");
@@ -169,16 +173,6 @@ public class PipelineWorker extends AbstractPipelineProcess {
      */
     private void subscribe() {
 
-        // When a heartbeat comes in, send out the update message.
-        ZiggyMessenger.subscribe(HeartbeatMessage.class, message -> {
-            Thread t = new Thread(() -> {
-                log.debug("heartbeat received");
-                AbstractPipelineProcess.sendUpdates();
-            });
-            t.setDaemon(true);
-            t.start();
-        });
-
         // When a shutdown request comes in, honor it.
         ZiggyMessenger.subscribe(ShutdownMessage.class, message -> {
             log.info("Shutting down due to shutdown signal");
@@ -12,12 +12,17 @@ function dataStruct = read_file( object, filename, structName )
 %    structA.structB sub-structure of the main struct, structName should be
 %    '/structA/structB'. 
 %
+% A file that shares fields with the file of the same name in the parent directory, such
+%    as the inputs file of a subtask whose task shares its inputs, is read on top of that
+%    file: the fields of the file replace those of the shared file.
+%
 
 %=========================================================================================
 
 %   get the information about the file
 
     h5FileInfo = h5info( filename ) ;
+    sharedFieldsFile = shared_fields_file( filename, h5FileInfo ) ;
     
 %   open the file
 
@@ -26,12 +31,24 @@ function dataStruct = read_file( object, filename, structName )
 %   use the groups reader to produce the top-level struct
 
     noMatch = false ;
+    inSharedFile = false ;
     if ~exist('structName', 'var') || isempty(structName)
-        dataStruct = read_groups( object, fileId, h5FileInfo.Groups ) ;
+        if isempty(sharedFieldsFile)
+            dataStruct = read_groups( object, fileId, h5FileInfo.Groups ) ;
+        else
+            dataStruct = read_file( object, sharedFieldsFile ) ;
+            for iGroup = 1:length(h5FileInfo.Groups)
+                fieldName = get_field_name( h5FileInfo.Groups(iGroup) ) ;
+                dataStruct.(fieldName) = read_group( object, fileId, ...
+                    h5FileInfo.Groups(iGroup) ) ;
+            end
+        end
     else
         groupInfo = find_group( object, h5FileInfo.Groups, structName ) ;
         if ~isempty(groupInfo)
             dataStruct = read_group( object, fileId, groupInfo ) ;
+        elseif ~isempty(sharedFieldsFile)
+            inSharedFile = true ;
         else
             noMatch = true ;
         end
@@ -43,11 +60,36 @@ function dataStruct = read_file( object, filename, structName )
         error('ziggy:Hdf5ConverterClass:read_file:UnmatchedStructName', ...
             ['read_file: no HDF5 group found with name "', structName, '"']) ;
     end
+    if (inSharedFile)
+        dataStruct = read_file( object, sharedFieldsFile, structName ) ;
+    end
     
 return
 
 %=========================================================================================
 
+%   subfunction that returns the name of the file that holds the fields that a file shares
+%   with other files, which is the file of the same name in the parent directory, or an
+%   empty char array if the file shares no fields
+
+function sharedFieldsFile = shared_fields_file( filename, h5FileInfo )
+
+    sharedFieldsFile = '' ;
+    attributes = h5FileInfo.Attributes ;
+    if isempty(attributes) || ...
+            ~any(strcmp( 'SHARED_FIELDS_IN_PARENT_DIRECTORY', {attributes.Name} ))
+        return ;
+    end
+    [fileDir, name, ext] = fileparts( filename ) ;
+    if isempty(fileDir)
+        fileDir = pwd ;
+    end
+    sharedFieldsFile = fullfile( fileparts(fileDir), [name, ext] ) ;
+
+return
+
+%=========================================================================================
+
 %   subfunction that reads a list of groups and returns a map that connects the group
 %   names and their intended orders
 
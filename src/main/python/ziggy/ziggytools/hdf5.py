@@ -14,12 +14,18 @@ multi-dimensional tuple for multi-dimensional arrays); arrays of structs are rep
 as tuples of dictionaries. The class also requires that dictionaries that are written to
 HDF5 obey these same requirements (i.e., no numpy arrays or other funny business).
 
+Algorithms whose outputs are too large to hold in memory twice can instead write them
+incrementally with an Hdf5FileWriter, which appends numpy arrays a block at a time to
+resizable, chunked datasets. The resulting file has the same layout as one written from a
+dictionary.
+
 This is based in large part on the MATLAB hdf5ConverterClass.
 
 @author PT
 
 """
 
+import os
 import h5py
 import numpy
 import numbers
@@ -31,14 +37,24 @@ class Hdf5AlgorithmInterface:
     
     def __init__(self):
         
-        # Compression level for arrays
-        self._compression_level = 0
+        # Compression level for arrays. Ziggy passes the HDF5 storage policy of the
+        # pipeline step in environment variables, so that the files written by the
+        # algorithm are stored the same way as the files written by Ziggy.
+        self._compression_level = int(os.environ.get("ZIGGY_HDF5_COMPRESSION_LEVEL", 0))
         
         # Smallest array size that will be compressed -- because compression
         # involves some overhead size to the resulting file, this prevents 
         # files with compressed arrays from winding up larger than the uncompressed
         # version
-        self._compression_min_elements = 0
+        self._compression_min_elements = int(
+                os.environ.get("ZIGGY_HDF5_MIN_COMPRESSION_ELEMENTS", 0))
+        
+        # Whether the shuffle filter is applied before compression, which groups the
+        # bytes of the elements by significance and usually helps numeric arrays compress
+        self._shuffle = os.environ.get("ZIGGY_HDF5_SHUFFLE", "true").lower() == "true"
+        
+        # Target size in bytes of the chunks of compressed arrays
+        self._chunk_bytes = int(os.environ.get("ZIGGY_HDF5_CHUNK_BYTES", 1024 * 1024))
         
         # Struct arrays of scalars are stored in HDF5 Persistable files as a struct
         # with parallel arrays. When _reconstituteStructArray is True, the struct
@@ -57,6 +73,10 @@ class Hdf5AlgorithmInterface:
         
         self._HDF5_GROUP_DELIMITER = "/"
         
+        # Attribute of a file that holds only some of the fields of its struct; the
+        # other fields are in the file of the same name in the parent directory
+        self._SHARED_FIELDS_ATT_NAME = "SHARED_FIELDS_IN_PARENT_DIRECTORY"
+        
     # returns the constant mapping from HDF5 native types to the value stored in the
     # type attribute of an HDF5 array. This mapping must match what is used in all other
     # HDF5 algorithm interface packages (currently MATLAB, C++, and Java). Someday mayble
@@ -80,6 +100,16 @@ class Hdf5AlgorithmInterface:
     def set_compression_min_elements(self, compression_min_elements):
         self._compression_min_elements = int(compression_min_elements)
         
+    def set_shuffle(self, shuffle):
+        if not isinstance(shuffle, bool):
+            raise ValueError("argument {} is not bool", shuffle)
+        self._shuffle = shuffle
+        
+    def set_chunk_bytes(self, chunk_bytes):
+        if int(chunk_bytes) <= 0:
+            raise ValueError("argument {} is not positive", chunk_bytes)
+        self._chunk_bytes = int(chunk_bytes)
+        
     def set_reconstitute_struct_array(self, reconstitute_struct_array):
         if not isinstance(reconstitute_struct_array, bool):
             raise ValueError("argument {} is not bool", reconstitute_struct_array)
@@ -95,28 +125,51 @@ class Hdf5AlgorithmInterface:
     # a struct_name argument is supplied, the contents of the corresponding 
     # group will be returned. Note that struct_name must use the HDF5 naming
     # convention, which uses filesep to indicate sub-structrures; thus structA.structB
-    # would translate to "/structA/structB".
+    # would translate to "/structA/structB". A file that shares fields with the file
+    # of the same name in the parent directory, such as the inputs file of a subtask
+    # whose task shares its inputs, is read on top of that file, so its fields replace
+    # those of the shared file.
     def read_file(self, file_name, group_name = ""):  
         
         file = h5py.File(file_name, "r")
+        shared_file_name = None
+        if self._SHARED_FIELDS_ATT_NAME in file.attrs:
+            shared_file_name = self._shared_fields_file_name(file_name)
         hdf5_contents = ""
         no_match = False
+        in_shared_file = False
         if not group_name:
-            hdf5_contents = self._read_groups(file)
+            if shared_file_name is None:
+                hdf5_contents = self._read_groups(file)
+            else:
+                hdf5_contents = self.read_file(shared_file_name)
+                for k in file.keys():
+                    hdf5_contents[k] = self._read_group(file[k])
         else:
             group = self._find_group(file, group_name)
             if group:
                 hdf5_contents = self._read_group(group)
-            else:
+            elif shared_file_name is None:
                 no_match = True
+            else:
+                in_shared_file = True
         
         file.close()
         
         if no_match:
             raise NameError("Group with name {} not found", group_name)
+        if in_shared_file:
+            return self.read_file(shared_file_name, group_name)
             
         return hdf5_contents
     
+    # returns the name of the file that holds the fields that a file shares with other
+    # files, which is the file of the same name in the parent directory
+    def _shared_fields_file_name(self, file_name):
+        
+        file_dir = os.path.dirname(os.path.abspath(file_name))
+        return os.path.join(os.path.dirname(file_dir), os.path.basename(file_name))
+    
     # recursively searches for a named sub-group in a parent group. If found,
     # that group is returned, otherwise an empty string is returned. 
     def _find_group(self, group, group_name):
@@ -380,6 +433,13 @@ class Hdf5AlgorithmInterface:
         self._write_scalar_struct(data_object, file)
         file.close()
         
+    # Opens an HDF5 file for incremental writing, and returns an Hdf5FileWriter for it. Large
+    # arrays can then be appended to the file a block at a time while they are computed, rather
+    # than held in memory until the whole data object can be passed to write_file. The file
+    # has the same layout as one written by write_file.
+    def open_file_writer(self, file_name):
+        return Hdf5FileWriter(self, file_name)
+        
     # writes a scalar "struct" (in this case an object or a dictionary) to
     # an HDF5 file. 
     def _write_scalar_struct(self, data_object, group):
@@ -400,44 +460,48 @@ class Hdf5AlgorithmInterface:
             # write the ordering of the field as an attribute
             new_group.attrs.create("FIELD_ORDER", int(i_field_order))
             i_field_order = i_field_order + 1
+            self._write_field(data_object[k], new_group, k)
             
-            # There are a number of different forms of content that the current value could
-            # represent, and even within that there are a number of different ways that the
-            # information might be represented in Python. Here we attempt to address all of those!
-            value = data_object[k]
-            np_value = numpy.atleast_1d(value)
+    # writes the value of a field to the field's group, which already has its FIELD_ORDER
+    # attribute
+    def _write_field(self, value, new_group, k):
             
-            # empty field
-            if value is None or (isinstance(value, str) and len(value) == 0):
-                new_group.attrs.create("EMPTY_FIELD", numpy.array([0], dtype=numpy.int8))
+        # There are a number of different forms of content that the current value could
+        # represent, and even within that there are a number of different ways that the
+        # information might be represented in Python. Here we attempt to address all of those!
+        np_value = numpy.atleast_1d(value)
+        
+        # empty field
+        if value is None or (isinstance(value, str) and len(value) == 0):
+            new_group.attrs.create("EMPTY_FIELD", numpy.array([0], dtype=numpy.int8))
 
-            # dictionary -- recursive call to this method
-            elif isinstance(value, dict):
-                self._write_scalar_struct(value, new_group)
+        # dictionary -- recursive call to the struct writer
+        elif isinstance(value, dict):
+            self._write_scalar_struct(value, new_group)
 
-            # object -- recursive call to this method
-            elif hasattr(value, '__dict__'):
-                self._write_scalar_struct(value, new_group)
-                
-            # numeric
-            elif numpy.issubdtype(np_value.dtype, numpy.number):
-                self._write_numeric_array(np_value, new_group, k)
-        
-            # boolean 
-            elif str(np_value.dtype) == "bool":
-                self._write_bool_array(np_value, new_group, k)
-                
-            # text strings
-            elif self._is_string_array(np_value):
-                self._write_string_array(np_value, new_group, k)
-                
-            # object list, set or array:
-            elif self._is_dict_array(np_value):
-                self._write_struct_array(value, new_group, k)
-                
-            # something not supported
-            else:
-                raise ValueError("Data object {} is something unsupported", k)
+        # object -- recursive call to the struct writer
+        elif hasattr(value, '__dict__'):
+            self._write_scalar_struct(value, new_group)
+            
+        # numeric
+        elif numpy.issubdtype(np_value.dtype, numpy.number):
+            self._write_numeric_array(np_value, new_group, k)
+    
+        # boolean 
+        elif str(np_value.dtype) == "bool":
+            self._write_bool_array(np_value, new_group, k)
+            
+        # text strings
+        elif self._is_string_array(np_value):
+            self._write_string_array(np_value, new_group, k)
+            
+        # object list, set or array:
+        elif self._is_dict_array(np_value):
+            self._write_struct_array(value, new_group, k)
+            
+        # something not supported
+        else:
+            raise ValueError("Data object {} is something unsupported", k)
     
     # determines whether a data object is a numpy array of strings
     def _is_string_array(self, value):
@@ -466,11 +530,31 @@ class Hdf5AlgorithmInterface:
                 dtype=numpy.int8))
         
         # create and write the dataset
-        if self._compression_level > 0 and value.size > self._compression_min_elements:
-            group.create_dataset(name, shape=value.shape, dtype=array_dtype, data=value,
-                    compression="gzip", compression_opts=self._compression_level)
-        else:
-            group.create_dataset(name, shape=value.shape, dtype=array_dtype, data=value)
+        group.create_dataset(name, shape=value.shape, dtype=array_dtype, data=value,
+                **self._storage_options(value.shape, value.dtype.itemsize))
+    
+    # Returns the chunking and compression options of create_dataset for an array. These
+    # follow the same rules as the Java and C++ writers: arrays with at least the minimum
+    # number of elements are compressed, and their chunks keep the trailing dimensions
+    # whole as far as the target chunk size allows.
+    def _storage_options(self, shape, element_size):
+        size = reduce(mul, shape, 1)
+        if (self._compression_level <= 0 or len(shape) == 0 or size == 0
+                or size < self._compression_min_elements):
+            return {}
+        return {"chunks" : self._chunk_shape(shape, element_size), "shuffle" : self._shuffle,
+                "compression" : "gzip", "compression_opts" : self._compression_level}
+    
+    # Returns the shape of the chunks of an array with the given shape. The trailing dimensions
+    # are kept whole as far as the target chunk size allows, and each dimension of a chunk has
+    # at least one element.
+    def _chunk_shape(self, shape, element_size):
+        chunk_elements = max(1, self._chunk_bytes // max(1, element_size))
+        chunks = [1] * len(shape)
+        for i in reversed(range(len(shape))):
+            chunks[i] = max(1, min(shape[i], chunk_elements))
+            chunk_elements = max(1, chunk_elements // chunks[i])
+        return tuple(chunks)
     
     # Writes a boolean array to an HDF5 group, first converting it to a byte array    
     def _write_bool_array(self, value, group, name):
@@ -488,8 +572,9 @@ class Hdf5AlgorithmInterface:
         
         # write the array (but first it has to be converted to UTF-8)
         value = self._to_utf8(value)
+        # variable-length strings are stored in chunks as 16-byte references
         group.create_dataset(name, shape=value.shape, dtype=h5py.string_dtype(),
-                data=value)
+                data=value, **self._storage_options(value.shape, 16))
         
     # Converts an array of strings in any encoding to the UTF-8 encoding desired by 
     # HDF5's variable-width string array infrastructure
@@ -675,3 +760,293 @@ class Hdf5AlgorithmInterface:
             specific_name = specific_name + "-" + str(subscript)
             
         return specific_name
+
+
+class Hdf5StructWriter:
+    """
+    Writes the fields of a struct to an HDF5 group one at a time, in the layout of the HDF5
+    Persistable standard. Fields whose values are available in full are written with
+    write_field. Arrays that are computed a block at a time are written with create_array,
+    which returns an Hdf5ArrayWriter that appends rows to a resizable, chunked dataset; arrays
+    of structs whose fields are all primitive scalars are written likewise with
+    create_parallel_array. Sub-structs are written with create_struct. The fields are stored in
+    the order in which they are created.
+    
+    Instances are obtained from Hdf5AlgorithmInterface.open_file_writer and from the
+    create_struct method.
+    """
+    
+    def __init__(self, interface, group):
+        self._interface = interface
+        self._group = group
+        self._field_order = 0
+        self._open_writers = list()
+        self._closed = False
+        group.attrs.create("DATA_TYPE", numpy.array(
+                interface._TYPE_ATTRIBUTE_MAP["H5T_OPAQUE"], dtype=numpy.int8))
+        
+    # Writes a field in full, exactly as write_file writes the fields of a dictionary.
+    def write_field(self, name, value):
+        self._interface._write_field(value, self._create_field_group(name), name)
+        
+    # Returns an Hdf5StructWriter for a field that is itself a struct.
+    def create_struct(self, name):
+        return self._track(Hdf5StructWriter(self._interface, self._create_field_group(name)))
+    
+    # Returns an Hdf5ArrayWriter for a field that holds a numeric, boolean, or string array.
+    # The dtype is a numpy dtype, bool, or str. Each row of the array has the shape row_shape;
+    # the default is a scalar row, i.e., a 1-d array. If the number of rows is known in advance,
+    # pass it as expected_rows, so that arrays smaller than the minimum for compression aren't
+    # compressed; otherwise, every array is compressed when compression is enabled.
+    def create_array(self, name, dtype, row_shape=(), expected_rows=None):
+        return self._track(Hdf5ArrayWriter(self._interface, self._create_field_group(name),
+                name, dtype, row_shape, expected_rows))
+    
+    # Returns an Hdf5ParallelArrayWriter for a field that holds a 1-d array of structs whose
+    # fields are all primitive scalars. The fields argument maps the name of each field of the
+    # structs to its dtype, in field order.
+    def create_parallel_array(self, name, fields, expected_rows=None):
+        return self._track(Hdf5ParallelArrayWriter(self._interface,
+                self._create_field_group(name), fields, expected_rows))
+    
+    # Finishes the fields of the struct that are still being written. 
+    def close(self):
+        if self._closed:
+            return
+        for writer in self._open_writers:
+            writer.close()
+        self._open_writers = list()
+        self._closed = True
+        
+    def _create_field_group(self, name):
+        if self._closed:
+            raise ValueError("Struct writer is closed")
+        group = self._group.create_group(name)
+        group.attrs.create("FIELD_ORDER", int(self._field_order))
+        self._field_order = self._field_order + 1
+        return group
+    
+    def _track(self, writer):
+        self._open_writers.append(writer)
+        return writer
+    
+
+class Hdf5FileWriter(Hdf5StructWriter):
+    """
+    Writes an HDF5 file incrementally. The top-level struct of the file is written with the
+    methods of Hdf5StructWriter, and the file is complete when it is closed. Use it as a
+    context manager so that the file is closed even if the algorithm fails:
+    
+        with Hdf5AlgorithmInterface().open_file_writer("outputs.h5") as writer:
+            writer.write_field("target_id", target_id)
+            flux = writer.create_array("flux", numpy.float64, row_shape=(n_cadences,))
+            for target in targets:
+                flux.append(compute_flux(target))
+    """
+    
+    def __init__(self, interface, file_name):
+        self._file = h5py.File(file_name, "w")
+        super().__init__(interface, self._file)
+        
+    # Finishes the fields that are still being written and closes the file.
+    def close(self):
+        if self._closed:
+            return
+        try:
+            super().close()
+        finally:
+            self._file.close()
+        
+    def __enter__(self):
+        return self
+    
+    def __exit__(self, exc_type, exc_value, traceback):
+        self.close()
+        return False
+    
+
+class Hdf5ArrayWriter:
+    """
+    Appends rows to an array in an HDF5 file. The array is stored in a chunked dataset whose
+    first dimension grows with each append, so only the rows being appended are held in memory.
+    The dataset is chunked and compressed according to the storage policy of the
+    Hdf5AlgorithmInterface that created it. An array to which no rows are appended is stored as
+    an empty field.
+    """
+    
+    def __init__(self, interface, group, name, dtype, row_shape, expected_rows):
+        self._group = group
+        self._name = name
+        self._row_shape = tuple(int(n) for n in row_shape)
+        self._rows = 0
+        self._closed = False
+        row_size = reduce(mul, self._row_shape, 1)
+        if row_size <= 0:
+            raise ValueError("Row shape {} of array {} has no elements".format(row_shape, name))
+        
+        # booleans are stored as bytes, and strings as UTF-8 variable-length strings, just as
+        # write_file stores them
+        if dtype is str or dtype is numpy.str_:
+            self._dtype = None
+            storage_dtype = h5py.string_dtype()
+            element_size = 16
+            group.attrs.create("DATA_TYPE", numpy.array(
+                    interface._TYPE_ATTRIBUTE_MAP[numpy.str_], dtype=numpy.int8))
+        else:
+            self._dtype = numpy.dtype(dtype)
+            if self._dtype == numpy.bool_:
+                group.attrs.create("LOGICAL_BOOLEAN_ARRAY", numpy.array([0], dtype=numpy.int8))
+                storage_dtype = numpy.dtype(numpy.int8)
+            elif str(self._dtype) in interface._TYPE_ATTRIBUTE_MAP:
+                storage_dtype = self._dtype
+            else:
+                raise ValueError("Array {} has unsupported dtype {}".format(name, dtype))
+            element_size = storage_dtype.itemsize
+            group.attrs.create("DATA_TYPE", numpy.array(
+                    [interface._TYPE_ATTRIBUTE_MAP[str(storage_dtype)]], dtype=numpy.int8))
+        
+        # resizable datasets must be chunked. If the eventual size is known, the usual
+        # storage options apply; otherwise, the chunk shape is set as if the array were
+        # large, and compression is applied whenever it is enabled
+        if expected_rows is not None and expected_rows > 0:
+            options = interface._storage_options((int(expected_rows),) + self._row_shape,
+                    element_size)
+        elif interface._compression_level > 0:
+            options = interface._storage_options(
+                    (interface._chunk_bytes,) + self._row_shape, element_size)
+        else:
+            options = {}
+        if "chunks" not in options:
+            rows_hint = int(expected_rows) if expected_rows else interface._chunk_bytes
+            options["chunks"] = interface._chunk_shape((max(1, rows_hint),) + self._row_shape,
+                    element_size)
+        self._dataset = group.create_dataset(name, shape=(0,) + self._row_shape,
+                maxshape=(None,) + self._row_shape, dtype=storage_dtype, **options)
+    
+    # Appends a single row, or a block of rows, to the array. A block has the shape
+    # (n,) + row_shape. Values are converted to the dtype of the array; values that can't be
+    # converted without changing their kind (for example, floats to an integer array) raise a
+    # ValueError.
+    def append(self, rows):
+        if self._closed:
+            raise ValueError("Array writer is closed")
+        rows = self._to_storage(rows)
+        if rows.shape == self._row_shape:
+            rows = rows.reshape((1,) + self._row_shape)
+        if rows.shape[1:] != self._row_shape:
+            raise ValueError("Rows with shape {} don't match row shape {}".format(
+                    rows.shape[1:], self._row_shape))
+        n_rows = rows.shape[0]
+        if n_rows == 0:
+            return
+        self._dataset.resize(self._rows + n_rows, axis=0)
+        self._dataset[self._rows:self._rows + n_rows] = rows
+        self._rows = self._rows + n_rows
+        
+    # Returns the number of rows appended so far
+    def row_count(self):
+        return self._rows
+    
+    # Finishes the array. If no rows were appended, the array is stored as an empty field.
+    def close(self):
+        if self._closed:
+            return
+        self._closed = True
+        if self._rows == 0:
+            del self._group[self._name]
+            for attribute in ("DATA_TYPE", "LOGICAL_BOOLEAN_ARRAY"):
+                if attribute in self._group.attrs:
+                    del self._group.attrs[attribute]
+            self._group.attrs.create("EMPTY_FIELD", numpy.array([0], dtype=numpy.int8))
+        
+    # Converts rows to the form in which they are stored. Blocks that already have the dtype
+    # of the array are not copied.
+    def _to_storage(self, rows):
+        if self._dtype is None:
+            rows = numpy.asarray(rows)
+            if rows.dtype.kind not in "OU":
+                raise ValueError("Rows of dtype {} can't be appended to a string array".format(
+                        rows.dtype))
+            encoded = numpy.empty(rows.shape, dtype=object)
+            flat_rows = rows.reshape(-1)
+            flat_encoded = encoded.reshape(-1)
+            for i in range(flat_rows.size):
+                flat_encoded[i] = str(flat_rows[i]).encode("UTF-8")
+            return encoded
+        rows = numpy.asarray(rows)
+        if not numpy.can_cast(rows.dtype, self._dtype, casting="same_kind"):
+            raise ValueError("Rows of dtype {} can't be appended to an array of dtype {}".format(
+                    rows.dtype, self._dtype))
+        if self._dtype == numpy.bool_:
+            return rows.astype(numpy.int8)
+        return rows.astype(self._dtype, copy=False)
+    
+
+class Hdf5ParallelArrayWriter:
+    """
+    Appends structs to a 1-d array of structs whose fields are all primitive scalars. As in
+    write_file, the array is stored as a struct of parallel arrays, one per field, and each
+    parallel array is appended to by an Hdf5ArrayWriter. Only the structs being appended are
+    held in memory. An array to which no structs are appended is stored as an empty field.
+    """
+    
+    def __init__(self, interface, group, fields, expected_rows):
+        if len(fields) == 0:
+            raise ValueError("A parallel array needs at least one field")
+        self._group = group
+        self._rows = 0
+        self._closed = False
+        group.attrs.create("PARALLEL_ARRAY", numpy.array([0], dtype=numpy.int8))
+        group.attrs.create("DATA_TYPE", numpy.array(
+                interface._TYPE_ATTRIBUTE_MAP["H5T_OPAQUE"], dtype=numpy.int8))
+        self._writers = dict()
+        field_order = 0
+        for name, dtype in fields.items():
+            field_group = group.create_group(name)
+            field_group.attrs.create("FIELD_ORDER", int(field_order))
+            field_order = field_order + 1
+            self._writers[name] = Hdf5ArrayWriter(interface, field_group, name, dtype, (),
+                    expected_rows)
+            
+    # Appends a struct, or a sequence of structs. Each struct is a dictionary or an object
+    # with a value for every field.
+    def append(self, structs):
+        if isinstance(structs, dict) or hasattr(structs, "__dict__"):
+            structs = (structs,)
+        structs = [s.__dict__ if hasattr(s, "__dict__") else s for s in structs]
+        self.append_columns({name : [s[name] for s in structs] for name in self._writers})
+        
+    # Appends structs given as a dictionary that maps each field name to a sequence of the
+    # values of that field, one per struct.
+    def append_columns(self, columns):
+        if self._closed:
+            raise ValueError("Parallel array writer is closed")
+        if set(columns.keys()) != set(self._writers.keys()):
+            raise ValueError("Columns {} don't match fields {}".format(
+                    list(columns.keys()), list(self._writers.keys())))
+        columns = {name : numpy.atleast_1d(values) for name, values in columns.items()}
+        lengths = set(len(values) for values in columns.values())
+        if len(lengths) != 1:
+            raise ValueError("Columns have different lengths {}".format(lengths))
+        for name, writer in self._writers.items():
+            writer.append(columns[name])
+        self._rows = self._rows + lengths.pop()
+        
+    # Returns the number of structs appended so far
+    def row_count(self):
+        return self._rows
+    
+    # Finishes the array. If no structs were appended, the array is stored as an empty field.
+    def close(self):
+        if self._closed:
+            return
+        self._closed = True
+        if self._rows == 0:
+            for name in self._writers:
+                del self._group[name]
+            del self._group.attrs["PARALLEL_ARRAY"]
+            del self._group.attrs["DATA_TYPE"]
+            self._group.attrs.create("EMPTY_FIELD", numpy.array([0], dtype=numpy.int8))
+        else:
+            for writer in self._writers.values():
+                writer.close()
@@ -6,7 +6,9 @@ Created on Oct 5, 2020
 '''
 import unittest
 import tempfile
+import tracemalloc
 import os
+import h5py
 import numpy as np
 from ..hdf5 import Hdf5AlgorithmInterface
 
@@ -218,6 +220,157 @@ class Hdf5AlgorithmInterfaceTest(unittest.TestCase):
         dict_from_file = self.h.read_file(self.hdf5_file_name)
         self.assertEqual("int_scalar", list(dict_from_file)[0])
         
+    # Tests that a file that shares fields with the file of the same name in the parent
+    # directory, as Ziggy writes the inputs of subtasks whose task shares its inputs, is
+    # read on top of the shared file
+    def test_read_shared_fields(self):
+        self.h.write_file(self.hdf5_file_name, _hdf5_simple_test_dict())
+        subtask_dir = os.path.join(self._temporary_directory.name, "st-0")
+        os.mkdir(subtask_dir)
+        subtask_file_name = os.path.join(subtask_dir, "test-file.h5")
+        self.h.write_file(subtask_file_name, {"int_scalar": 7})
+        with h5py.File(subtask_file_name, "a") as subtask_file:
+            subtask_file.attrs.create("SHARED_FIELDS_IN_PARENT_DIRECTORY", 0, dtype="int8")
+        dict_from_file = self.h.read_file(subtask_file_name)
+        self.assertEqual({"real_scalar": -105.3, "int_scalar": 7}, dict_from_file)
+        self.assertEqual("real_scalar", list(dict_from_file)[0])
+        self.assertEqual(7, self.h.read_file(subtask_file_name, "int_scalar"))
+        self.assertEqual(-105.3, self.h.read_file(subtask_file_name, "real_scalar"))
+        
+    # Tests that a file written incrementally has the same layout and contents as the same
+    # data written by write_file, so that the Java, C++, and MATLAB readers can read it
+    def test_streaming_writer_layout(self):
+        flux = np.arange(12, dtype=np.float64).reshape(4, 3)
+        test_dict = {"int_scalar": 50,
+                     "flux": tuple(map(tuple, flux)),
+                     "quality": (True, False, True),
+                     "names": ("Alice", "in", "her", "party"),
+                     "inner": {"real_scalar": -105.3, "int_array": (1, 2, 3, 4, 5)},
+                     "parallelizable_array": (_hdf5_parallelizable_dict(1, 2.5, "a", True),
+                                              _hdf5_parallelizable_dict(5, 6.5, "b", False),
+                                              _hdf5_parallelizable_dict(9, 10.5, "c", True))}
+        self.h.write_file(self.hdf5_file_name, test_dict)
+        
+        streamed_file_name = os.path.join(self._temporary_directory.name, "streamed-file.h5")
+        with self.h.open_file_writer(streamed_file_name) as writer:
+            writer.write_field("int_scalar", 50)
+            flux_writer = writer.create_array("flux", np.float64, row_shape=(3,))
+            flux_writer.append(flux[0])
+            flux_writer.append(flux[1:])
+            quality_writer = writer.create_array("quality", bool)
+            quality_writer.append((True, False))
+            quality_writer.append(True)
+            names_writer = writer.create_array("names", str)
+            for name in ("Alice", "in", "her", "party"):
+                names_writer.append(name)
+            inner = writer.create_struct("inner")
+            inner.write_field("real_scalar", -105.3)
+            int_array_writer = inner.create_array("int_array", np.int64)
+            int_array_writer.append(np.arange(1, 6))
+            struct_writer = writer.create_parallel_array("parallelizable_array",
+                    {"a": np.int64, "b": np.float64, "c": str, "d": bool})
+            struct_writer.append(_hdf5_parallelizable_dict(1, 2.5, "a", True))
+            struct_writer.append_columns({"a": (5, 9), "b": (6.5, 10.5), "c": ("b", "c"),
+                                          "d": (False, True)})
+            self.assertEqual(3, struct_writer.row_count())
+        
+        with h5py.File(self.hdf5_file_name, "r") as expected, \
+                h5py.File(streamed_file_name, "r") as actual:
+            self._assert_same_layout(expected, actual)
+        self.assertEqual(str(self.h.read_file(self.hdf5_file_name)),
+                         str(self.h.read_file(streamed_file_name)))
+    
+    def _assert_same_layout(self, expected, actual):
+        self.assertEqual(set(expected.attrs.keys()), set(actual.attrs.keys()), expected.name)
+        for k in expected.attrs.keys():
+            self.assertTrue(np.array_equal(expected.attrs[k], actual.attrs[k]), expected.name)
+        if isinstance(expected, h5py.Dataset):
+            self.assertTrue(isinstance(actual, h5py.Dataset), expected.name)
+            self.assertEqual(expected.dtype, actual.dtype, expected.name)
+            self.assertEqual(expected.shape, actual.shape, expected.name)
+            self.assertTrue(np.array_equal(expected[()], actual[()]), expected.name)
+            return
+        self.assertEqual(set(expected.keys()), set(actual.keys()), expected.name)
+        for k in expected.keys():
+            self._assert_same_layout(expected[k], actual[k])
+    
+    # Tests that arrays and struct arrays to which nothing is appended are empty fields
+    def test_streaming_writer_empty_arrays(self):
+        with self.h.open_file_writer(self.hdf5_file_name) as writer:
+            writer.write_field("int_scalar", 50)
+            writer.create_array("flux", np.float64, row_shape=(3,))
+            writer.create_parallel_array("structs", {"a": np.int32, "b": str})
+        with h5py.File(self.hdf5_file_name, "r") as file:
+            for name in ("flux", "structs"):
+                self.assertEqual(["EMPTY_FIELD", "FIELD_ORDER"], sorted(file[name].attrs.keys()))
+                self.assertEqual(0, len(file[name].keys()))
+        dict_from_file = self.h.read_file(self.hdf5_file_name)
+        self.assertEqual(50, dict_from_file["int_scalar"])
+        self.assertEqual("", dict_from_file["flux"])
+        self.assertEqual("", dict_from_file["structs"])
+        
+    # Tests that rows that don't match the array are rejected
+    def test_streaming_writer_rejects_bad_rows(self):
+        with self.h.open_file_writer(self.hdf5_file_name) as writer:
+            flux_writer = writer.create_array("flux", np.int32, row_shape=(3,))
+            with self.assertRaises(ValueError):
+                flux_writer.append(np.zeros((2, 4), dtype=np.int32))
+            with self.assertRaises(ValueError):
+                flux_writer.append(np.zeros((2, 3), dtype=np.float64))
+            struct_writer = writer.create_parallel_array("structs", {"a": np.int32})
+            with self.assertRaises(ValueError):
+                struct_writer.append_columns({"b": (1, 2)})
+            flux_writer.append(np.zeros((2, 3), dtype=np.int16))
+            self.assertEqual(2, flux_writer.row_count())
+        with self.assertRaises(ValueError):
+            flux_writer.append(np.zeros((1, 3), dtype=np.int32))
+        with self.assertRaises(ValueError):
+            writer.write_field("late", 1)
+        
+    # Tests that compressed arrays are chunked the same way when streamed
+    def test_streaming_writer_compression(self):
+        self.h.set_compression_level(4)
+        self.h.set_chunk_bytes(8 * 1000)
+        with self.h.open_file_writer(self.hdf5_file_name) as writer:
+            flux_writer = writer.create_array("flux", np.float64, row_shape=(100,))
+            for i in range(50):
+                flux_writer.append(np.full((2, 100), i, dtype=np.float64))
+        with h5py.File(self.hdf5_file_name, "r") as file:
+            dataset = file["flux"]["flux"]
+            self.assertEqual((100, 100), dataset.shape)
+            self.assertEqual((10, 100), dataset.chunks)
+            self.assertEqual("gzip", dataset.compression)
+            self.assertTrue(np.array_equal(np.full(100, 49.0), dataset[99]))
+    
+    # Tests that the memory used while streaming a large array is bounded by the size of the
+    # blocks that are appended, not by the size of the array
+    def test_streaming_writer_memory(self):
+        block_rows = 128
+        row_shape = (1024,)
+        block_bytes = block_rows * row_shape[0] * 8
+        n_blocks = 64
+        tracemalloc.start()
+        try:
+            with self.h.open_file_writer(self.hdf5_file_name) as writer:
+                flux_writer = writer.create_array("flux", np.float64, row_shape=row_shape)
+                struct_writer = writer.create_parallel_array("structs",
+                        {"a": np.int64, "b": np.float64})
+                tracemalloc.reset_peak()
+                for i in range(n_blocks):
+                    block = np.full((block_rows,) + row_shape, i, dtype=np.float64)
+                    flux_writer.append(block)
+                    del block
+                    struct_writer.append_columns({"a": np.arange(block_rows * 16),
+                            "b": np.zeros(block_rows * 16)})
+                _, peak_bytes = tracemalloc.get_traced_memory()
+        finally:
+            tracemalloc.stop()
+        
+        # the whole array is 64 blocks, but no more than a couple are held at once
+        self.assertLess(peak_bytes, 4 * block_bytes)
+        with h5py.File(self.hdf5_file_name, "r") as file:
+            self.assertEqual((n_blocks * block_rows,) + row_shape, file["flux"]["flux"].shape)
+            self.assertEqual(n_blocks * block_rows * 16, file["structs"]["a"]["a"].shape[0])
 
 if __name__ == "__main__":
     #import sys;sys.argv = ['', 'Test.testName']
@@ -0,0 +1,92 @@
+/*
+ * Hdf5ConversionBenchmark.cpp
+ *
+ * Micro-benchmark of the conversions between booleans and the int8 values that HDF5
+ * stores them as. It compares the per-element conversions that Hdf5Interface used to
+ * perform, which took their vectors by value, checked bounds on every element, and
+ * allocated a new vector on every call, with the bulk conversions into reused buffers.
+ * Only the inline conversions of Hdf5Interface are used, so the benchmark needs the
+ * HDF5 headers but not the HDF5 library.
+ *
+ * Usage: hdf5bench [elements [repetitions]]
+ */
+
+#include "Hdf5Interface.h"
+#include <chrono>
+
+namespace {
+
+std::vector<int8_t> perElementBoolToInt8(std::vector<bool> boolVector) {
+	std::vector<int8_t> int8Vector(boolVector.size());
+	for (uint i=0 ; i<boolVector.size() ; i++) {
+		int8Vector.at(i) = (int8_t)boolVector.at(i);
+	}
+	return int8Vector;
+}
+
+std::vector<bool> perElementInt8ToBool(std::vector<int8_t> int8Vector) {
+	std::vector<bool> boolVector(int8Vector.size());
+	for (uint i=0 ; i<int8Vector.size() ; i++) {
+		boolVector.at(i) = (int8Vector.at(i) == (int8_t)1);
+	}
+	return boolVector;
+}
+
+double nanosPerElement(std::chrono::steady_clock::time_point start, long elements) {
+	std::chrono::duration<double, std::nano> elapsed = std::chrono::steady_clock::now() - start;
+	return elapsed.count() / elements;
+}
+
+}
+
+int main(int argc, char** argv) {
+
+	long numel = argc > 1 ? std::strtol(argv[1], NULL, 10) : 1000000;
+	long repetitions = argc > 2 ? std::strtol(argv[2], NULL, 10) : 200;
+	long elements = numel * repetitions;
+
+	std::vector<bool> boolVector(numel);
+	for (long i=0 ; i<numel ; i++) {
+		boolVector[i] = (i % 3) == 0;
+	}
+	std::vector<int8_t> int8Vector = perElementBoolToInt8(boolVector);
+
+	//	the checksums keep the compiler from discarding the conversions
+	long checksum = 0;
+	for (int pass=0 ; pass<3 ; pass++) {
+
+		std::chrono::steady_clock::time_point start = std::chrono::steady_clock::now();
+		for (long i=0 ; i<repetitions ; i++) {
+			checksum += perElementBoolToInt8(boolVector)[i % numel];
+		}
+		double perElementToInt8 = nanosPerElement(start, elements);
+
+		std::vector<int8_t> int8Buffer(numel);
+		start = std::chrono::steady_clock::now();
+		for (long i=0 ; i<repetitions ; i++) {
+			Hdf5Interface::boolToInt8(boolVector, int8Buffer.data());
+			checksum += int8Buffer[i % numel];
+		}
+		double bulkToInt8 = nanosPerElement(start, elements);
+
+		start = std::chrono::steady_clock::now();
+		for (long i=0 ; i<repetitions ; i++) {
+			checksum += perElementInt8ToBool(int8Vector)[i % numel];
+		}
+		double perElementToBool = nanosPerElement(start, elements);
+
+		std::vector<bool> boolBuffer;
+		start = std::chrono::steady_clock::now();
+		for (long i=0 ; i<repetitions ; i++) {
+			Hdf5Interface::int8ToBool(int8Vector.data(), numel, boolBuffer);
+			checksum += boolBuffer[i % numel];
+		}
+		double bulkToBool = nanosPerElement(start, elements);
+
+		std::cout << "Pass " << pass << ": bool to int8 " << perElementToInt8
+				<< " ns per element, " << bulkToInt8 << " in bulk; int8 to bool "
+				<< perElementToBool << " per element, " << bulkToBool << " in bulk" << std::endl;
+	}
+	std::cout << "Checksum " << checksum << std::endl;
+	return 0;
+}
@@ -9,8 +9,10 @@ import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_LONG;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_SHORT;
 import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_STRING;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
@@ -515,4 +517,82 @@ public class ZiggyArrayUtilsTest {
         int[][] array2d = { { 1, 2, 3 }, { 4, 5, 6 } };
         ZiggyArrayUtils.arrayWithTrivialDimensions(array2d, 1);
     }
+
+    @Test
+    public void testCastPrimitiveNumericToNumeric() {
+        long[] longs = { Long.MAX_VALUE, Long.MIN_VALUE, 1L << 40, -3, 300, 0 };
+        double[] doubles = { 1.0e20, -1.0e20, 3.7, -3.7, Double.NaN, 1.0e-50 };
+
+        // Each value is the same as a direct cast of the source value.
+        byte[] bytes = (byte[]) ZiggyArrayUtils.castArray(longs, ZIGGY_BYTE);
+        int[] ints = (int[]) ZiggyArrayUtils.castArray(doubles, ZIGGY_INT);
+        float[] floats = (float[]) ZiggyArrayUtils.castArray(longs, ZIGGY_FLOAT);
+        double[] doublesFromLongs = (double[]) ZiggyArrayUtils.castArray(longs, ZIGGY_DOUBLE);
+        long[] longsFromDoubles = (long[]) ZiggyArrayUtils.castArray(doubles, ZIGGY_LONG);
+        short[] shorts = (short[]) ZiggyArrayUtils.castArray(doubles, ZIGGY_SHORT);
+        for (int i = 0; i < longs.length; i++) {
+            assertEquals((byte) longs[i], bytes[i]);
+            assertEquals((int) doubles[i], ints[i]);
+            assertEquals((float) longs[i], floats[i], 0);
+            assertEquals(longs[i], doublesFromLongs[i], 0);
+            assertEquals((long) doubles[i], longsFromDoubles[i]);
+            assertEquals((short) doubles[i], shorts[i]);
+        }
+
+        float[] floatSource = { 1.5F, -2.5F, Float.MAX_VALUE };
+        assertArrayEquals(new double[] { 1.5, -2.5, Float.MAX_VALUE },
+            (double[]) ZiggyArrayUtils.castArray(floatSource, ZIGGY_DOUBLE), 0);
+        assertArrayEquals(new long[] { -7, 8 },
+            (long[]) ZiggyArrayUtils.castArray(new byte[] { -7, 8 }, ZIGGY_LONG));
+
+        // Boxed arrays are still cast.
+        assertArrayEquals(new float[] { 2, 3 },
+            (float[]) ZiggyArrayUtils.castArray(new Integer[] { 2, 3 }, ZIGGY_FLOAT), 0);
+    }
+
+    @Test
+    public void testCastMultiDimensionalArrays() {
+        int[][][][] ints = new int[2][3][4][5];
+        ZiggyArrayUtils.fill(ints, 7);
+        ints[1][2][3][4] = -9;
+        float[][][][] floats = (float[][][][]) ZiggyArrayUtils.castArray(ints, ZIGGY_FLOAT);
+        assertArrayEquals(new long[] { 2, 3, 4, 5 }, ZiggyArrayUtils.getArraySize(floats));
+        assertEquals(7.0F, floats[0][0][0][0], 0);
+        assertEquals(-9.0F, floats[1][2][3][4], 0);
+
+        // Casting to the same type returns a copy, not the original.
+        int[][] source = { { 1, 2 }, { 3, 4, 5 } };
+        int[][] copy = (int[][]) ZiggyArrayUtils.castArray(source, ZIGGY_INT);
+        assertTrue(Arrays.deepEquals(source, copy));
+        assertNotSame(source[0], copy[0]);
+        assertNotSame(source[1], copy[1]);
+
+        // Ragged arrays keep their shape.
+        Integer[][] boxed = (Integer[][]) ZiggyArrayUtils.box(source);
+        assertArrayEquals(new Integer[] { 3, 4, 5 }, boxed[1]);
+        int[][] unboxed = (int[][]) ZiggyArrayUtils.unbox(boxed);
+        assertTrue(Arrays.deepEquals(source, unboxed));
+    }
+
+    @Test
+    public void testSetValueWidening() {
+        double[][] doubleArray = new double[2][3];
+        ZiggyArrayUtils.setValue(doubleArray, new int[] { 1, 2 }, 5);
+        assertEquals(5.0, doubleArray[1][2], 0);
+        ZiggyArrayUtils.setValue(doubleArray, new int[] { 0, 1 }, 2.5);
+        assertEquals(2.5, doubleArray[0][1], 0);
+        assertEquals(2.5, ZiggyArrayUtils.getValue(doubleArray, new int[] { 0, 1 }));
+    }
+
+    @Test
+    public void testCopyArray() {
+        int[] ints = { 1, 2, 3 };
+        int[] intCopy = (int[]) ZiggyArrayUtils.copyArray(ints, int.class);
+        assertArrayEquals(ints, intCopy);
+        assertNotSame(ints, intCopy);
+        assertArrayEquals(new Integer[] { 1, 2, 3 },
+            (Integer[]) ZiggyArrayUtils.copyArray(ints, Integer.class));
+        assertArrayEquals(new Object[] { "a", "b" },
+            (Object[]) ZiggyArrayUtils.copyArray(new String[] { "a", "b" }, Object.class));
+    }
 }
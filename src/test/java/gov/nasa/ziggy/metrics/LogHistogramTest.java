@@ -0,0 +1,117 @@
+package gov.nasa.ziggy.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for {@link LogHistogram}.
+ */
+public class LogHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        assertEquals(0, LogHistogram.bucketIndex(-5L));
+        assertEquals(0, LogHistogram.bucketIndex(0L));
+        assertEquals(31, LogHistogram.bucketIndex(31L));
+        assertEquals(LogHistogram.BUCKET_COUNT - 1, LogHistogram.bucketIndex(Long.MAX_VALUE));
+        assertEquals(Long.MAX_VALUE,
+            LogHistogram.bucketUpperBound(LogHistogram.BUCKET_COUNT - 1));
+
+        // The buckets cover all values without gaps, and each value falls within its bucket.
+        for (int index = 1; index < LogHistogram.BUCKET_COUNT; index++) {
+            assertEquals(LogHistogram.bucketUpperBound(index - 1) + 1,
+                LogHistogram.bucketLowerBound(index));
+            assertEquals(index, LogHistogram.bucketIndex(LogHistogram.bucketLowerBound(index)));
+            assertEquals(index, LogHistogram.bucketIndex(LogHistogram.bucketUpperBound(index)));
+            long width = LogHistogram.bucketUpperBound(index) - LogHistogram.bucketLowerBound(index)
+                + 1;
+            assertTrue(width <= Math.max(1L,
+                LogHistogram.bucketLowerBound(index) / LogHistogram.SUB_BUCKET_COUNT));
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        LogHistogram histogram = new LogHistogram();
+        assertEquals(0, histogram.getPercentile(50));
+
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.recordValue(value);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertPercentile(50_000, histogram.getPercentile(50));
+        assertPercentile(95_000, histogram.getPercentile(95));
+        assertPercentile(99_000, histogram.getPercentile(99));
+        assertPercentile(100_000, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPercentile() {
+        new LogHistogram().getPercentile(101);
+    }
+
+    @Test
+    public void testMerge() {
+        LogHistogram lowValues = new LogHistogram();
+        LogHistogram highValues = new LogHistogram();
+        for (long value = 1; value <= 1000; value++) {
+            lowValues.recordValue(value);
+            highValues.recordValue(value + 1000);
+        }
+        LogHistogram merged = lowValues.copy();
+        merged.merge(highValues);
+        assertEquals(2000, merged.getCount());
+        assertPercentile(1000, merged.getPercentile(50));
+        assertPercentile(1900, merged.getPercentile(95));
+
+        // The merged histograms are unchanged.
+        assertEquals(1000, lowValues.getCount());
+        assertEquals(1000, highValues.getCount());
+    }
+
+    @Test
+    public void testReset() {
+        LogHistogram histogram = new LogHistogram();
+        histogram.recordValue(1000L);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(new LogHistogram(), histogram);
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        LogHistogram histogram = new LogHistogram();
+        histogram.recordValue(3L);
+        histogram.recordValue(3L);
+        histogram.recordValue(1_000_000_000L);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(histogram);
+        }
+        LogHistogram copy;
+        try (ObjectInputStream input = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            copy = (LogHistogram) input.readObject();
+        }
+        assertEquals(histogram, copy);
+        assertEquals(3, copy.getCount());
+
+        copy.recordValue(5L);
+        assertNotEquals(histogram, copy);
+    }
+
+    private void assertPercentile(long expected, long actual) {
+        assertEquals(expected, actual, expected * 0.03);
+    }
+}
@@ -0,0 +1,66 @@
+package gov.nasa.ziggy.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import gov.nasa.ziggy.metrics.MetricValueRollup.Resolution;
+
+/**
+ * Unit tests for {@link MetricValueRollup}.
+ */
+public class MetricValueRollupTest {
+
+    private static final long DAY_MILLIS = 24L * 60 * 60 * 1000;
+
+    @Test
+    public void testForPointCount() {
+        assertEquals(Resolution.DAY, Resolution.forPointCount(30 * DAY_MILLIS, 30));
+        assertEquals(Resolution.HOUR, Resolution.forPointCount(30 * DAY_MILLIS, 31));
+        assertEquals(Resolution.MINUTE, Resolution.forPointCount(30 * DAY_MILLIS, 1000));
+        assertNull(Resolution.forPointCount(DAY_MILLIS, 2000));
+    }
+
+    @Test
+    public void testCoarser() {
+        assertEquals(Resolution.MINUTE, Resolution.finest());
+        assertEquals(Resolution.HOUR, Resolution.MINUTE.coarser());
+        assertEquals(Resolution.DAY, Resolution.HOUR.coarser());
+        assertNull(Resolution.DAY.coarser());
+        Resolution resolution = Resolution.finest();
+        while (resolution.coarser() != null) {
+            assertTrue(resolution.coarser().getBucketMillis() > resolution.getBucketMillis());
+            resolution = resolution.coarser();
+        }
+    }
+
+    @Test
+    public void testBucketStart() {
+        assertEquals(3 * DAY_MILLIS, Resolution.DAY.bucketStart(3 * DAY_MILLIS + 1234));
+        assertEquals(-60000, Resolution.MINUTE.bucketStart(-1));
+    }
+
+    @Test
+    public void testAddAndMerge() {
+        MetricType metricType = new MetricType("metric", MetricType.TYPE_VALUE);
+        MetricValueRollup rollup = new MetricValueRollup(metricType, Resolution.HOUR, 5000);
+        assertEquals(0, rollup.getBucketStart().getTime());
+        assertTrue(Double.isNaN(rollup.getMean()));
+
+        rollup.add(4);
+        rollup.add(-2);
+        MetricValueRollup otherRollup = new MetricValueRollup(metricType, Resolution.HOUR, 0);
+        otherRollup.add(10);
+        rollup.merge(otherRollup);
+        rollup.merge(new MetricValueRollup(metricType, Resolution.HOUR, 0));
+
+        assertEquals(3, rollup.getCount());
+        assertEquals(-2, rollup.getMin(), 0);
+        assertEquals(10, rollup.getMax(), 0);
+        assertEquals(4, rollup.getMean(), 0);
+        assertEquals(4, rollup.toMetricValue().getValue(), 0);
+        assertEquals(metricType, rollup.toMetricValue().getMetricType());
+    }
+}
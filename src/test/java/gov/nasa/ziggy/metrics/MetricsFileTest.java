@@ -0,0 +1,144 @@
+package gov.nasa.ziggy.metrics;
+
+import static gov.nasa.ziggy.ZiggyUnitTestUtils.TEST_DATA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Unit tests for {@link MetricsFile}.
+ */
+public class MetricsFileTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private Path metricsFile;
+    private Map<String, Metric> metrics;
+
+    @Before
+    public void setUp() {
+        metricsFile = directoryRule.directory().resolve("metrics-0.ser");
+
+        CounterMetric counterMetric = new CounterMetric("counter");
+        counterMetric.increment(3);
+        ValueMetric valueMetric = new ValueMetric("value");
+        IntervalMetric intervalMetric = new IntervalMetric("interval");
+        for (long value = 1; value <= 1000; value++) {
+            valueMetric.addValue(value * value);
+            intervalMetric.addValue(value);
+        }
+        ValueMetric emptyMetric = new ValueMetric("empty");
+
+        metrics = new HashMap<>();
+        for (Metric metric : new Metric[] { counterMetric, valueMetric, intervalMetric,
+            emptyMetric }) {
+            metrics.put(metric.getName(), metric);
+        }
+    }
+
+    @Test
+    public void testReadWrite() {
+        MetricsFile.write(metrics, metricsFile);
+
+        assertFalse(MetricsFile.isSerialized(metricsFile));
+        Map<String, Metric> metricsRead = MetricsFile.read(metricsFile);
+        assertEquals(metrics, metricsRead);
+        assertTrue(metricsRead.get("interval") instanceof IntervalMetric);
+        assertEquals(metrics.get("value").toString(), metricsRead.get("value").toString());
+        assertEquals(((ValueMetric) metrics.get("value")).getPercentile(90),
+            ((ValueMetric) metricsRead.get("value")).getPercentile(90));
+    }
+
+    @Test
+    public void testReadFiltered() {
+        MetricsFile.write(metrics, metricsFile);
+
+        Map<String, Metric> metricsRead = MetricsFile.read(metricsFile,
+            metricName -> metricName.startsWith("interval") || metricName.equals("counter"));
+        assertEquals(Set.of("interval", "counter"), metricsRead.keySet());
+        assertEquals(metrics.get("interval"), metricsRead.get("interval"));
+        assertEquals(3, ((CounterMetric) metricsRead.get("counter")).getCount());
+    }
+
+    @Test
+    public void testReadSerialized() throws IOException {
+        copyLegacyMetricsFile();
+
+        assertTrue(MetricsFile.isSerialized(metricsFile));
+        assertStatisticsEqual(metrics, MetricsFile.read(metricsFile));
+        assertEquals(Set.of("value"),
+            MetricsFile.read(metricsFile, metricName -> metricName.equals("value")).keySet());
+    }
+
+    @Test
+    public void testConvert() throws IOException {
+        copyLegacyMetricsFile();
+        Map<String, Metric> serializedMetrics = MetricsFile.read(metricsFile);
+
+        assertTrue(MetricsFile.convert(metricsFile));
+        assertFalse(MetricsFile.isSerialized(metricsFile));
+        Map<String, Metric> convertedMetrics = MetricsFile.read(metricsFile);
+        assertEquals(serializedMetrics, convertedMetrics);
+        assertStatisticsEqual(metrics, convertedMetrics);
+        assertTrue(convertedMetrics.get("interval") instanceof IntervalMetric);
+        try (Stream<Path> files = Files.list(directoryRule.directory())) {
+            assertEquals(1L, files.count());
+        }
+
+        assertFalse(MetricsFile.convert(metricsFile));
+    }
+
+    @Test(expected = PipelineException.class)
+    public void testNotMetricsFile() throws IOException {
+        Files.writeString(metricsFile, "not metrics");
+        MetricsFile.read(metricsFile);
+    }
+
+    @Test(expected = PipelineException.class)
+    public void testTruncatedMetricsFile() throws IOException {
+        MetricsFile.write(metrics, metricsFile);
+        byte[] bytes = Files.readAllBytes(metricsFile);
+        Files.write(metricsFile, Arrays.copyOf(bytes, bytes.length - 1));
+        MetricsFile.read(metricsFile);
+    }
+
+    /**
+     * Copies a file of the metrics created in {@link #setUp()}, written with Java serialization by
+     * the Ziggy release that preceded {@link MetricsFile}, to the metrics file.
+     */
+    private void copyLegacyMetricsFile() throws IOException {
+        Files.copy(TEST_DATA.resolve("metrics").resolve("legacy-metrics.ser"), metricsFile);
+    }
+
+    /**
+     * Compares the statistics of metrics, but not the histograms, which metrics written with Java
+     * serialization by earlier releases don't have.
+     */
+    private void assertStatisticsEqual(Map<String, Metric> expectedMetrics,
+        Map<String, Metric> actualMetrics) {
+        assertEquals(expectedMetrics.keySet(), actualMetrics.keySet());
+        for (String metricName : expectedMetrics.keySet()) {
+            assertEquals(expectedMetrics.get(metricName).getClass(),
+                actualMetrics.get(metricName).getClass());
+            assertEquals(expectedMetrics.get(metricName).toString(),
+                actualMetrics.get(metricName).toString());
+        }
+    }
+}
@@ -10,6 +10,8 @@ import org.junit.Rule;
 import org.junit.Test;
 
 import gov.nasa.ziggy.ZiggyDatabaseRule;
+import gov.nasa.ziggy.metrics.MetricValueRollup.Resolution;
+import gov.nasa.ziggy.util.TimeRange;
 
 /**
  * Unit tests for {@link MetricsCrud} class.
@@ -46,4 +48,135 @@ public class MetricsOperationsTest {
             assertTrue(ids.contains(i));
         }
     }
+
+    @Test
+    public void testRollUpOldMetrics() {
+        MetricsOperations metricsOperations = new MetricsOperations();
+        MetricType metricType = new MetricType("metric", MetricType.TYPE_VALUE);
+        metricsOperations.persist(metricType);
+
+        // 3 values a minute for 2 hours.
+        long start = 1000L * 60 * 60 * 24 * 365;
+        for (int i = 0; i < 360; i++) {
+            metricsOperations.persist(
+                new MetricValue("host", metricType, new Date(start + 20000L * i), i % 3));
+        }
+
+        // Roll up the first hour and a third of the second.
+        metricsOperations.deleteOldMetrics(120);
+        assertEquals(120, metricsOperations.metricValueIds().size());
+
+        List<MetricValueRollup> minuteRollups = metricsOperations.metricValueRollups(metricType,
+            Resolution.MINUTE, new Date(start), new Date(start + 2 * 60 * 60 * 1000L));
+        assertEquals(80, minuteRollups.size());
+        for (int i = 0; i < minuteRollups.size(); i++) {
+            MetricValueRollup rollup = minuteRollups.get(i);
+            assertEquals(start + 60000L * i, rollup.getBucketStart().getTime());
+            assertEquals(3, rollup.getCount());
+            assertEquals(0, rollup.getMin(), 0);
+            assertEquals(2, rollup.getMax(), 0);
+            assertEquals(1, rollup.getMean(), 0);
+        }
+        List<MetricValueRollup> hourRollups = metricsOperations.metricValueRollups(metricType,
+            Resolution.HOUR, new Date(start), new Date(start + 2 * 60 * 60 * 1000L));
+        assertEquals(2, hourRollups.size());
+        assertEquals(180, hourRollups.get(0).getCount());
+        assertEquals(60, hourRollups.get(1).getCount());
+
+        // Rolling up more values of the same buckets merges them into the existing rollups.
+        metricsOperations.deleteOldMetrics(0);
+        hourRollups = metricsOperations.metricValueRollups(metricType, Resolution.HOUR,
+            new Date(start), new Date(start + 2 * 60 * 60 * 1000L));
+        assertEquals(2, hourRollups.size());
+        assertEquals(180, hourRollups.get(1).getCount());
+        assertEquals(new TimeRange(new Date(start), new Date(start + 119 * 60 * 1000L)),
+            metricsOperations.timestampRange(metricType));
+    }
+
+    @Test
+    public void testReapExpiredRollups() {
+        MetricsOperations metricsOperations = new MetricsOperations();
+        MetricType metricType = new MetricType("metric", MetricType.TYPE_VALUE);
+        metricsOperations.persist(metricType);
+
+        // 1 value an hour for 10 days, all of which are rolled up.
+        long hourMillis = 60 * 60 * 1000L;
+        long start = 1000L * 60 * 60 * 24 * 365;
+        for (int i = 0; i < 240; i++) {
+            metricsOperations
+                .persist(new MetricValue("host", metricType, new Date(start + hourMillis * i), i));
+        }
+        metricsOperations.deleteOldMetrics(0);
+
+        // Only the last 7 days of minute rollups are kept, but all of the hour rollups are.
+        Date end = new Date(start + 240 * hourMillis);
+        List<MetricValueRollup> minuteRollups = metricsOperations.metricValueRollups(metricType,
+            Resolution.MINUTE, new Date(start), end);
+        assertEquals(169, minuteRollups.size());
+        assertEquals(start + 71 * hourMillis, minuteRollups.get(0).getBucketStart().getTime());
+        assertEquals(240, metricsOperations
+            .metricValueRollups(metricType, Resolution.HOUR, new Date(start), end)
+            .size());
+        assertEquals(new TimeRange(new Date(start), new Date(start + 239 * hourMillis)),
+            metricsOperations.timestampRange(metricType));
+
+        // A day has enough minutes, but the minute rollups of the first day have been reaped, so
+        // the hour rollups are returned.
+        List<MetricValue> metricValues = metricsOperations.metricValues(metricType,
+            new Date(start), new Date(start + 24 * hourMillis - 1), 1000);
+        assertEquals(24, metricValues.size());
+        for (int i = 0; i < metricValues.size(); i++) {
+            assertEquals(start + hourMillis * i, metricValues.get(i).getTimestamp().getTime());
+            assertEquals(i, metricValues.get(i).getValue(), 0);
+        }
+
+        // The last day still has its minute rollups.
+        metricValues = metricsOperations.metricValues(metricType,
+            new Date(start + 216 * hourMillis), new Date(start + 240 * hourMillis - 1), 1000);
+        assertEquals(24, metricValues.size());
+        assertEquals(216, metricValues.get(0).getValue(), 0);
+    }
+
+    @Test
+    public void testMetricValues() {
+        MetricsOperations metricsOperations = new MetricsOperations();
+        MetricType metricType = new MetricType("metric", MetricType.TYPE_VALUE);
+        metricsOperations.persist(metricType);
+
+        // 1 value a minute for 2 hours, of which the first hour is rolled up.
+        long start = 1000L * 60 * 60 * 24 * 365;
+        for (int i = 0; i < 120; i++) {
+            metricsOperations
+                .persist(new MetricValue("host", metricType, new Date(start + 60000L * i), i));
+        }
+        metricsOperations.deleteOldMetrics(60);
+
+        // 2 hours has 120 minutes, but not 100 hours.
+        Date end = new Date(start + 2 * 60 * 60 * 1000L - 1);
+        List<MetricValue> metricValues = metricsOperations.metricValues(metricType,
+            new Date(start), end, 100);
+        assertEquals(120, metricValues.size());
+        for (int i = 0; i < metricValues.size(); i++) {
+            assertEquals(start + 60000L * i, metricValues.get(i).getTimestamp().getTime());
+            assertEquals(i, metricValues.get(i).getValue(), 0);
+        }
+
+        // Just under 2 hours has 1 hour, so the values are the means of the 2 hour buckets,
+        // combining the rolled up and raw values.
+        metricValues = metricsOperations.metricValues(metricType, new Date(start), end, 1);
+        assertEquals(2, metricValues.size());
+        assertEquals(29.5, metricValues.get(0).getValue(), 1e-6);
+        assertEquals(89.5, metricValues.get(1).getValue(), 1e-6);
+
+        // 2 hours has fewer than 1000 minutes, so the raw values follow the minute rollups.
+        metricValues = metricsOperations.metricValues(metricType, new Date(start), end, 1000);
+        assertEquals(120, metricValues.size());
+        assertEquals(119, metricValues.get(119).getValue(), 0);
+
+        // The persisted rollups aren't changed by the query.
+        assertEquals(60, metricsOperations
+            .metricValueRollups(metricType, Resolution.HOUR, new Date(start), end)
+            .get(0)
+            .getCount());
+    }
 }
@@ -0,0 +1,107 @@
+package gov.nasa.ziggy.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.util.io.ZiggyFileUtils;
+
+public class TaskProfilerTest {
+
+    private static final String TASK_NAME = "1-2-step";
+    private static final String SUBTASK_NAME = "st-0";
+    private static final long SPIN_MILLIS = 1000;
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private long spinResult;
+
+    @Test
+    public void testProfilingContext() {
+        assertNull(ProfilingContext.current());
+        try (ProfilingContext.Scope ignoredTask = ProfilingContext.enterTask(TASK_NAME)) {
+            assertEquals(TASK_NAME, ProfilingContext.current().getTaskName());
+            assertNull(ProfilingContext.current().getSubtaskName());
+            try (ProfilingContext.Scope ignoredSubtask = ProfilingContext
+                .enterSubtask(SUBTASK_NAME)) {
+                assertEquals(TASK_NAME, ProfilingContext.current().getTaskName());
+                assertEquals(SUBTASK_NAME, ProfilingContext.current().getSubtaskName());
+                assertEquals(TASK_NAME + "/" + SUBTASK_NAME,
+                    ProfilingContext.current().toString());
+            }
+            assertNull(ProfilingContext.current().getSubtaskName());
+        }
+        assertNull(ProfilingContext.current());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSubtaskWithoutTask() {
+        ProfilingContext.enterSubtask(SUBTASK_NAME);
+    }
+
+    @Test
+    public void testProfile() throws IOException {
+        TaskProfiler taskProfiler = new TaskProfiler(directoryRule.directory(), ".test",
+            Duration.ofMillis(10));
+        taskProfiler.start();
+
+        spin();
+        try (ProfilingContext.Scope ignoredTask = ProfilingContext.enterTask(TASK_NAME)) {
+            spin();
+            try (ProfilingContext.Scope ignoredSubtask = ProfilingContext
+                .enterSubtask(SUBTASK_NAME)) {
+                spin();
+            }
+        }
+        taskProfiler.stop();
+
+        Path profileFile = taskProfiler.profileFile(TASK_NAME);
+        assertEquals(directoryRule.directory().resolve(TASK_NAME + ".test.folded"), profileFile);
+        List<String> stacks = Files.readAllLines(profileFile, ZiggyFileUtils.ZIGGY_CHARSET);
+        assertFalse(stacks.isEmpty());
+
+        boolean taskSamples = false;
+        boolean subtaskSamples = false;
+        for (String stack : stacks) {
+            assertTrue(stack, stack.matches("\\S+ \\d+"));
+            if (!stack.contains(TaskProfilerTest.class.getName() + ".spin")) {
+                continue;
+            }
+            if (stack.startsWith(SUBTASK_NAME + ";")) {
+                subtaskSamples = true;
+            } else {
+                taskSamples = true;
+            }
+        }
+        assertTrue(taskSamples);
+        assertTrue(subtaskSamples);
+
+        // Only the task's samples are in the profile.
+        try (Stream<Path> files = Files.list(directoryRule.directory())) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    /** Keeps the CPU busy so that the thread is sampled. */
+    private void spin() {
+        long endMillis = System.currentTimeMillis() + SPIN_MILLIS;
+        while (System.currentTimeMillis() < endMillis) {
+            for (int i = 0; i < 10_000; i++) {
+                spinResult = 31 * spinResult + i;
+            }
+        }
+    }
+}
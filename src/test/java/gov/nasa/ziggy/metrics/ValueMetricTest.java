@@ -1,7 +1,18 @@
 package gov.nasa.ziggy.metrics;
 
+import static gov.nasa.ziggy.ZiggyUnitTestUtils.TEST_DATA;
 import static org.junit.Assert.assertEquals;
-
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
@@ -92,6 +103,59 @@ public class ValueMetricTest {
         assertEquals(1, metricThreadTwo.getCount());
     }
 
+    @Test
+    public void testValueMetricConcurrent() throws Exception {
+        int threadCount = 4;
+        int valuesPerThread = 100_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+        List<Future<?>> results = new ArrayList<>();
+        for (int thread = 0; thread < threadCount; thread++) {
+            long offset = thread * valuesPerThread;
+            results.add(executor.submit(() -> {
+                for (int i = 1; i <= valuesPerThread; i++) {
+                    ValueMetric.addValue(METRIC_1_NAME, offset + i);
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        executor.shutdown();
+
+        ValueMetric m = ValueMetric.getValueMetric(METRIC_1_NAME).getGlobalMetric();
+        long valueCount = (long) threadCount * valuesPerThread;
+        assertEquals(valueCount, m.getCount());
+        assertEquals(valueCount * (valueCount + 1) / 2, m.getSum());
+        assertEquals(1, m.getMin());
+        assertEquals(valueCount, m.getMax());
+        assertEquals(valueCount, m.getHistogram().getCount());
+    }
+
+    @Test
+    public void testPercentiles() {
+        ValueMetric m = ValueMetric.getValueMetric(METRIC_1_NAME).getGlobalMetric();
+        assertEquals(0, m.getPercentile(50));
+
+        for (int value = 1; value <= 1000; value++) {
+            ValueMetric.addValue(METRIC_1_NAME, value);
+        }
+        assertEquals(500, m.getPercentile(50), 15);
+        assertEquals(950, m.getPercentile(95), 29);
+        assertEquals(990, m.getPercentile(99), 30);
+
+        // Estimates are limited to the range of the values.
+        assertEquals(1000, m.getPercentile(100));
+        assertEquals(1, m.getPercentile(0));
+
+        // Percentiles survive copies and merges.
+        assertEquals(m.getPercentile(95), m.makeCopy().getPercentile(95));
+        ValueMetric.addValue(METRIC_2_NAME, 10_000);
+        ValueMetric m2 = ValueMetric.getValueMetric(METRIC_2_NAME).getGlobalMetric();
+        m2.merge(m);
+        assertEquals(m.getPercentile(50), m2.getPercentile(50));
+        assertEquals(10_000, m2.getPercentile(100));
+    }
+
     private <T> T executeSynchronous(Callable<T> task) throws Exception {
         ExecutorService executor = Executors.newSingleThreadExecutor();
         Future<T> result = executor.submit(task);
@@ -181,4 +245,55 @@ public class ValueMetricTest {
             valueMetricWithDifferentSum, valueMetricWithDifferentCount, valueMetricWithDifferentMin,
             valueMetricWithDifferentMax, valueMetricWithDifferentClass);
     }
+
+    /**
+     * Reads metrics serialized by the Ziggy release that preceded the histograms, whose serialized
+     * form must still be readable.
+     */
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testReadLegacySerializedMetrics() throws IOException, ClassNotFoundException {
+        Map<String, Metric> metrics;
+        try (ObjectInputStream input = new ObjectInputStream(new BufferedInputStream(
+            Files.newInputStream(TEST_DATA.resolve("metrics").resolve("legacy-metrics.ser"))))) {
+            metrics = (Map<String, Metric>) input.readObject();
+        }
+
+        ValueMetric valueMetric = (ValueMetric) metrics.get("value");
+        assertEquals(1, valueMetric.getMin());
+        assertEquals(1000000, valueMetric.getMax());
+        assertEquals(1000, valueMetric.getCount());
+        assertEquals(333833500, valueMetric.getSum());
+        assertEquals(1000000, valueMetric.getPercentile(100));
+
+        assertTrue(metrics.get("interval") instanceof IntervalMetric);
+        assertEquals(500500, ((ValueMetric) metrics.get("interval")).getSum());
+        assertEquals(0, ((ValueMetric) metrics.get("empty")).getCount());
+        assertEquals(3, ((CounterMetric) metrics.get("counter")).getCount());
+
+        // Values can still be added to the deserialized metrics.
+        valueMetric.addValue(0);
+        assertEquals(0, valueMetric.getMin());
+        assertEquals(1001, valueMetric.getCount());
+    }
+
+    @Test
+    public void testSerialization() throws IOException, ClassNotFoundException {
+        IntervalMetric intervalMetric = new IntervalMetric("interval");
+        for (long value = 1; value <= 1000; value++) {
+            intervalMetric.addValue(value);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(intervalMetric);
+        }
+        ValueMetric metricRead;
+        try (ObjectInputStream input = new ObjectInputStream(
+            new ByteArrayInputStream(bytes.toByteArray()))) {
+            metricRead = (ValueMetric) input.readObject();
+        }
+
+        assertEquals(intervalMetric, metricRead);
+        assertEquals(intervalMetric.getPercentile(90), metricRead.getPercentile(90));
+    }
 }
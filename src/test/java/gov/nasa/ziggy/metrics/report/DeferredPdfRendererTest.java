@@ -0,0 +1,60 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.jfree.chart.ChartFactory;
+import org.jfree.chart.JFreeChart;
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.junit.Rule;
+import org.junit.Test;
+
+import com.lowagie.text.Image;
+import com.lowagie.text.pdf.PdfPCell;
+import com.lowagie.text.pdf.PdfPTable;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+
+/**
+ * Unit tests for {@link DeferredPdfRenderer}.
+ */
+public class DeferredPdfRendererTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    @Test
+    public void testChartsInTable() throws Exception {
+        DeferredPdfRenderer deferredPdfRenderer = new DeferredPdfRenderer(true);
+        PdfPTable table = new PdfPTable(2);
+        deferredPdfRenderer.printChart(table, chart(), 200, 100);
+        deferredPdfRenderer.printChart(table, chart(), 200, 100);
+        deferredPdfRenderer.add(table);
+
+        // The images are only added to the table when the content is written.
+        assertEquals(0, table.size());
+
+        File pdfFile = directoryRule.directory().resolve("report.pdf").toFile();
+        PdfRenderer pdfRenderer = new PdfRenderer(pdfFile);
+        deferredPdfRenderer.writeTo(pdfRenderer);
+        pdfRenderer.close();
+
+        assertEquals(1, table.size());
+        for (PdfPCell cell : table.getRow(0).getCells()) {
+            Image image = cell.getImage();
+            assertEquals(200, image.getWidth(), 0);
+            assertEquals(100, image.getHeight(), 0);
+        }
+        assertTrue(Files.size(pdfFile.toPath()) > 0);
+    }
+
+    private JFreeChart chart() {
+        DefaultCategoryDataset dataset = new DefaultCategoryDataset();
+        dataset.addValue(1, "series", "a");
+        dataset.addValue(2, "series", "b");
+        return ChartFactory.createBarChart("chart", "category", "value", dataset);
+    }
+}
@@ -4,12 +4,15 @@ import static gov.nasa.ziggy.services.config.PropertyName.RESULTS_DIR;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Date;
+import java.util.Map;
 
+import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.RuleChain;
@@ -79,4 +82,57 @@ public class MemdroneTest {
         Path pLatest = memdrone.latestMemdronePath();
         assertEquals(p2.getFileName().toString(), pLatest.getFileName().toString());
     }
+
+    @Test
+    public void testStopMemdrones() {
+        assumeTrue(MemorySampler.supported());
+        Memdrone calMemdrone1 = new Memdrone(BINARY_NAME_1, INSTANCE_ID_1);
+        Memdrone paMemdrone1 = new Memdrone(BINARY_NAME_2, INSTANCE_ID_1);
+        Memdrone calMemdrone2 = new Memdrone(BINARY_NAME_1, INSTANCE_ID_2);
+        try {
+            calMemdrone1.startMemdrone();
+            paMemdrone1.startMemdrone();
+            calMemdrone2.startMemdrone();
+            assertTrue(calMemdrone1.memdroneRunning());
+
+            Memdrone.stopMemdrones(instanceId -> instanceId == INSTANCE_ID_1);
+            assertFalse(calMemdrone1.memdroneRunning());
+            assertFalse(paMemdrone1.memdroneRunning());
+            assertTrue(calMemdrone2.memdroneRunning());
+
+            calMemdrone2.stopMemdrone();
+            assertFalse(calMemdrone2.memdroneRunning());
+        } finally {
+            Memdrone.stopMemdrones(instanceId -> true);
+        }
+    }
+
+    @Test
+    public void testStatsByPid() throws IOException {
+        Memdrone memdrone = new Memdrone(BINARY_NAME_1, INSTANCE_ID_1);
+        Path memdronePath = memdrone.latestMemdronePath();
+        try (MemoryTimeSeriesWriter writer = new MemoryTimeSeriesWriter(
+            memdronePath.resolve("memdrone-host1.bin"), "host1")) {
+            writer.writeProcess(100, "15-3-cal/st-0");
+            writer.writeProcess(101, "15-3-cal/st-1");
+            writer.writeSamples(1000L, new int[] { 100, 101 }, new int[] { 1, 4 }, 2);
+            writer.writeSamples(2000L, new int[] { 100, 101 }, new int[] { 3, 4 }, 2);
+        }
+        try (MemoryTimeSeriesWriter writer = new MemoryTimeSeriesWriter(
+            memdronePath.resolve("memdrone-host2.bin"), "host2")) {
+            writer.writeProcess(100, "15-4-cal/st-0");
+            writer.writeSamples(1000L, new int[] { 100 }, new int[] { 8 }, 1);
+        }
+
+        Map<String, SummaryStatistics> statsByPid = memdrone.statsByPid();
+        assertEquals(3, statsByPid.size());
+        assertEquals(2, statsByPid.get("host1:100").getN());
+        assertEquals(2048.0, statsByPid.get("host1:100").getMean(), 0.0);
+        assertEquals(3072.0, statsByPid.get("host1:100").getMax(), 0.0);
+        assertEquals(4096.0, statsByPid.get("host1:101").getMean(), 0.0);
+        assertEquals(8192.0, statsByPid.get("host2:100").getMean(), 0.0);
+
+        assertEquals(Map.of("host1:100", "15-3-cal/st-0", "host1:101", "15-3-cal/st-1",
+            "host2:100", "15-4-cal/st-0"), memdrone.subtasksByPid());
+    }
 }
@@ -0,0 +1,126 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+
+/**
+ * Unit tests for {@link MemorySampler}. The tests start processes in subtask directories and
+ * sample them, so they only run on systems with a {@code /proc} file system.
+ */
+public class MemorySamplerTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private Path timeSeriesFile;
+    private List<Process> processes = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        assumeTrue(MemorySampler.supported());
+        timeSeriesFile = directoryRule.directory().resolve("memdrone-host1.bin");
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        for (Process process : processes) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    @Test
+    public void testSample() throws IOException {
+        Process subtask0 = startProcess("15-3-cal/st-0");
+        Process subtask1 = startProcess("15-4-cal/st-1");
+
+        // Processes of other instances, other steps, or outside subtask directories are ignored.
+        startProcess("16-5-cal/st-0");
+        startProcess("15-6-pa/st-0");
+        startProcess("15-3-cal");
+
+        MemorySampler sampler = new MemorySampler("cal", 15L, timeSeriesFile, "host1");
+        sampler.start(60_000L);
+        sampler.sample();
+        sampler.stop();
+
+        Map<Integer, String> subtaskByPid = new HashMap<>();
+        Map<Integer, Integer> sampleCountByPid = new HashMap<>();
+        try (MemoryTimeSeriesReader reader = new MemoryTimeSeriesReader(timeSeriesFile)) {
+            reader.read(new MemoryTimeSeriesReader.Listener() {
+                @Override
+                public void process(String host, int pid, String subtask) {
+                    subtaskByPid.put(pid, subtask);
+                }
+
+                @Override
+                public void sample(String host, long timestampMillis, int pid,
+                    long rssKilobytes) {
+                    assertTrue(rssKilobytes > 0);
+                    sampleCountByPid.merge(pid, 1, Integer::sum);
+                }
+            });
+        }
+
+        // The scheduled sample may or may not have run before the sampler was stopped, but each
+        // process is recorded only once regardless.
+        assertEquals(Map.of((int) subtask0.pid(), "15-3-cal/st-0", (int) subtask1.pid(),
+            "15-4-cal/st-1"), subtaskByPid);
+        assertEquals(subtaskByPid.keySet(), sampleCountByPid.keySet());
+    }
+
+    @Test
+    public void testExitedProcess() throws IOException, InterruptedException {
+        Process process = startProcess("15-3-cal/st-0");
+        process.destroyForcibly().waitFor();
+
+        MemorySampler sampler = new MemorySampler("cal", 15L, timeSeriesFile, "host1");
+        sampler.start(60_000L);
+        sampler.stop();
+
+        List<Integer> sampledPids = new ArrayList<>();
+        try (MemoryTimeSeriesReader reader = new MemoryTimeSeriesReader(timeSeriesFile)) {
+            reader.read((host, timestampMillis, pid, rssKilobytes) -> sampledPids.add(pid));
+        }
+        assertEquals(List.of(), sampledPids);
+    }
+
+    @Test
+    public void testNoProcesses() throws IOException {
+        startProcess("16-5-cal/st-0");
+        Path emptyTimeSeriesFile = directoryRule.directory().resolve("memdrone-host2.bin");
+        new MemoryTimeSeriesWriter(emptyTimeSeriesFile, "host1").close();
+
+        MemorySampler sampler = new MemorySampler("cal", 15L, timeSeriesFile, "host1");
+        sampler.start(60_000L);
+        sampler.sample();
+        sampler.sample();
+        sampler.stop();
+
+        // Samples in which no processes were found aren't written.
+        assertEquals(Files.size(emptyTimeSeriesFile), Files.size(timeSeriesFile));
+    }
+
+    private Process startProcess(String workingDir) throws IOException {
+        Path directory = directoryRule.directory().resolve(workingDir);
+        Files.createDirectories(directory);
+        Process process = new ProcessBuilder("sleep", "60").directory(directory.toFile()).start();
+        processes.add(process);
+        return process;
+    }
+}
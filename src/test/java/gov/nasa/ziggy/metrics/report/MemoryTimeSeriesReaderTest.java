@@ -0,0 +1,105 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Unit tests for {@link MemoryTimeSeriesReader} and {@link MemoryTimeSeriesWriter}.
+ */
+public class MemoryTimeSeriesReaderTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private Path timeSeriesFile;
+
+    @Before
+    public void setUp() {
+        timeSeriesFile = directoryRule.directory().resolve("memdrone-host1.bin");
+    }
+
+    @Test
+    public void testReadWrite() throws IOException {
+        try (MemoryTimeSeriesWriter writer = new MemoryTimeSeriesWriter(timeSeriesFile,
+            "host1")) {
+            writer.writeProcess(100, "15-3-cal/st-0");
+            writer.writeProcess(101, "15-3-cal/st-1");
+            writer.writeSamples(1000L, new int[] { 100, 101 }, new int[] { 2048, 4096 }, 2);
+            writer.writeSamples(2000L, new int[] { 101, 0 }, new int[] { 8192, 0 }, 1);
+        }
+
+        // Sampling can be restarted in the same file.
+        try (MemoryTimeSeriesWriter writer = new MemoryTimeSeriesWriter(timeSeriesFile,
+            "host1")) {
+            writer.writeProcess(100, "15-4-cal/st-0");
+            writer.writeSamples(3000L, new int[] { 100 }, new int[] { 1024 }, 1);
+        }
+
+        RecordingListener listener = read();
+        assertEquals(List.of("host1:100=15-3-cal/st-0", "host1:101=15-3-cal/st-1",
+            "host1:100=15-4-cal/st-0"), listener.processes);
+        assertEquals(List.of("1000,host1:100=2048", "1000,host1:101=4096", "2000,host1:101=8192",
+            "3000,host1:100=1024"), listener.samples);
+    }
+
+    @Test
+    public void testReadPartialRecord() throws IOException {
+        try (MemoryTimeSeriesWriter writer = new MemoryTimeSeriesWriter(timeSeriesFile,
+            "host1")) {
+            writer.writeProcess(100, "15-3-cal/st-0");
+            writer.writeSamples(1000L, new int[] { 100 }, new int[] { 2048 }, 1);
+            writer.writeSamples(2000L, new int[] { 100 }, new int[] { 4096 }, 1);
+        }
+
+        // Cut the last sample short, as if it were being written while the file was read.
+        byte[] bytes = Files.readAllBytes(timeSeriesFile);
+        Files.write(timeSeriesFile, Arrays.copyOf(bytes, bytes.length - 3));
+
+        RecordingListener listener = read();
+        assertEquals(List.of("1000,host1:100=2048"), listener.samples);
+    }
+
+    @Test(expected = PipelineException.class)
+    public void testNotTimeSeries() throws IOException {
+        Files.writeString(timeSeriesFile, "Tue Aug 14 06:39:13 PDT 2012 43085 845252 tps\n");
+        read();
+    }
+
+    private RecordingListener read() throws IOException {
+        RecordingListener listener = new RecordingListener();
+        try (MemoryTimeSeriesReader reader = new MemoryTimeSeriesReader(timeSeriesFile)) {
+            assertEquals("host1", reader.getHost());
+            reader.read(listener);
+        }
+        return listener;
+    }
+
+    private static class RecordingListener implements MemoryTimeSeriesReader.Listener {
+
+        private final List<String> processes = new ArrayList<>();
+        private final List<String> samples = new ArrayList<>();
+
+        @Override
+        public void process(String host, int pid, String subtask) {
+            processes.add(host + ":" + pid + "=" + subtask);
+        }
+
+        @Override
+        public void sample(String host, long timestampMillis, int pid, long rssKilobytes) {
+            samples.add(timestampMillis + "," + host + ":" + pid + "=" + rssKilobytes);
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.jfree.data.category.DefaultCategoryDataset;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.nasa.ziggy.pipeline.definition.PipelineInstanceNode;
+import gov.nasa.ziggy.pipeline.definition.PipelineTaskMetric;
+import gov.nasa.ziggy.pipeline.definition.PipelineTaskMetric.Units;
+import gov.nasa.ziggy.pipeline.definition.database.PipelineTaskDataOperations;
+
+public class NodeReportTest {
+
+    private static final int TASK_COUNT = 250;
+
+    private NodeReport nodeReport;
+
+    @Before
+    public void setUp() {
+        PipelineTaskDataOperations pipelineTaskDataOperations = mock(
+            PipelineTaskDataOperations.class);
+        doAnswer(invocation -> {
+            BiConsumer<Long, PipelineTaskMetric> consumer = invocation.getArgument(1);
+            for (long taskId = 1; taskId <= TASK_COUNT; taskId++) {
+                consumer.accept(taskId, new PipelineTaskMetric("exec", 1000 * taskId, Units.TIME));
+                consumer.accept(taskId, new PipelineTaskMetric("send", 10 * taskId, Units.TIME));
+                consumer.accept(taskId, new PipelineTaskMetric("size", 100 * taskId, Units.BYTES));
+            }
+            return null;
+        }).when(pipelineTaskDataOperations).forEachTaskMetric(any(), any());
+
+        nodeReport = spy(new NodeReport(null));
+        doReturn(pipelineTaskDataOperations).when(nodeReport).pipelineTaskDataOperations();
+        nodeReport.collectMetrics(new PipelineInstanceNode());
+    }
+
+    @Test
+    public void testCategoryStatistics() {
+        assertEquals(List.of("exec", "send", "size"), nodeReport.getOrderedCategoryNames());
+        assertTrue(nodeReport.categoryIsTime("exec"));
+        assertTrue(nodeReport.categoryIsTime("send"));
+        assertFalse(nodeReport.categoryIsTime("size"));
+
+        StreamingStatistics execStats = nodeReport.getCategoryStats().get("exec");
+        assertEquals(TASK_COUNT, execStats.getN());
+        assertEquals(1000.0, execStats.getMin(), 0);
+        assertEquals(1000.0 * TASK_COUNT, execStats.getMax(), 0);
+        assertEquals(1000.0 * (TASK_COUNT + 1) / 2, execStats.getMean(), 1e-6);
+        assertEquals(0.9 * 1000 * TASK_COUNT, execStats.getPercentile(90),
+            0.03 * 1000 * TASK_COUNT);
+
+        List<TopNListElement> topTen = nodeReport.getCategoryTopTen().get("size").getList();
+        assertEquals(10, topTen.size());
+        assertEquals(100L * TASK_COUNT, topTen.get(0).getValue());
+        assertEquals("ID: " + TASK_COUNT, topTen.get(0).getLabel());
+        assertEquals(100L * (TASK_COUNT - 9), topTen.get(9).getValue());
+    }
+
+    @Test
+    public void testChartDataset() {
+        DefaultCategoryDataset dataset = nodeReport.chartDataset();
+
+        assertEquals(List.of("exec", "send"), dataset.getRowKeys());
+
+        // The longest tasks are the ones with the largest IDs, in order of ID.
+        List<Long> expectedTaskIds = new ArrayList<>();
+        for (long taskId = TASK_COUNT - NodeReport.MAX_CHART_TASKS + 1; taskId <= TASK_COUNT;
+            taskId++) {
+            expectedTaskIds.add(taskId);
+        }
+        assertEquals(expectedTaskIds, dataset.getColumnKeys());
+        assertEquals(1000.0 * TASK_COUNT / 60000,
+            dataset.getValue("exec", Long.valueOf(TASK_COUNT)).doubleValue(), 1e-9);
+        assertEquals(10.0 * TASK_COUNT / 60000,
+            dataset.getValue("send", Long.valueOf(TASK_COUNT)).doubleValue(), 1e-9);
+    }
+}
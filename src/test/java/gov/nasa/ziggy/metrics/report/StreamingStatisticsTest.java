@@ -0,0 +1,165 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.commons.math3.stat.descriptive.DescriptiveStatistics;
+import org.junit.Test;
+
+import gov.nasa.ziggy.util.PipelineException;
+
+/**
+ * Unit tests for {@link StreamingStatistics}.
+ */
+public class StreamingStatisticsTest {
+
+    private static final double PERCENTILE_TOLERANCE = 0.03;
+
+    @Test
+    public void testMoments() {
+        StreamingStatistics stats = new StreamingStatistics();
+        DescriptiveStatistics expectedStats = new DescriptiveStatistics();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            double value = 1000 + 100 * random.nextGaussian();
+            stats.addValue(value);
+            expectedStats.addValue(value);
+        }
+
+        assertMomentsEqual(expectedStats, stats);
+    }
+
+    @Test
+    public void testMerge() {
+        StreamingStatistics stats = new StreamingStatistics();
+        DescriptiveStatistics expectedStats = new DescriptiveStatistics();
+        Random random = new Random(42);
+        for (int part = 0; part < 10; part++) {
+            StreamingStatistics partStats = new StreamingStatistics();
+            for (int i = 0; i < 100 * part; i++) {
+                double value = 10 * part + random.nextDouble() * 1000;
+                partStats.addValue(value);
+                expectedStats.addValue(value);
+            }
+            stats.merge(partStats);
+        }
+
+        assertMomentsEqual(expectedStats, stats);
+        assertPercentilesClose(expectedStats, stats);
+    }
+
+    @Test
+    public void testPercentiles() {
+        StreamingStatistics stats = new StreamingStatistics();
+        DescriptiveStatistics expectedStats = new DescriptiveStatistics();
+        for (int value = 1; value <= 100000; value++) {
+            stats.addValue(value);
+            expectedStats.addValue(value);
+        }
+
+        assertPercentilesClose(expectedStats, stats);
+        assertEquals(100000, stats.getPercentile(100), 0);
+    }
+
+    @Test
+    public void testPercentilesWithinRange() {
+        StreamingStatistics stats = new StreamingStatistics();
+        stats.addValue(1000);
+        stats.addValue(1001);
+
+        assertTrue(stats.getPercentile(1) >= 1000);
+        assertTrue(stats.getPercentile(99) <= 1001);
+    }
+
+    @Test
+    public void testBinCounts() {
+        StreamingStatistics stats = new StreamingStatistics();
+        for (int value = 0; value < 10; value++) {
+            stats.addValue(value);
+        }
+
+        long[] binCounts = stats.binCounts(10);
+        assertEquals(10, Arrays.stream(binCounts).sum());
+        for (long binCount : binCounts) {
+            assertEquals(1, binCount);
+        }
+
+        StreamingStatistics singleValue = new StreamingStatistics();
+        singleValue.addValue(5);
+        singleValue.addValue(5);
+        assertEquals(2, singleValue.binCounts(4)[0]);
+    }
+
+    @Test
+    public void testEmpty() {
+        StreamingStatistics stats = new StreamingStatistics();
+        stats.merge(new StreamingStatistics());
+
+        assertEquals(0, stats.getN());
+        assertEquals(0, stats.getSum(), 0);
+        assertTrue(Double.isNaN(stats.getMean()));
+        assertTrue(Double.isNaN(stats.getVariance()));
+        assertTrue(Double.isNaN(stats.getMin()));
+        assertTrue(Double.isNaN(stats.getMax()));
+        assertTrue(Double.isNaN(stats.getPercentile(50)));
+        assertEquals(0, Arrays.stream(stats.binCounts(10)).sum());
+    }
+
+    @Test
+    public void testEncoding() {
+        StreamingStatistics stats = new StreamingStatistics();
+        for (int value = 1; value <= 1000; value++) {
+            stats.addValue(value * 1.5);
+        }
+
+        StreamingStatistics decoded = StreamingStatistics.fromBytes(stats.toBytes());
+        assertEquals(stats.getN(), decoded.getN());
+        assertEquals(stats.getMean(), decoded.getMean(), 0);
+        assertEquals(stats.getVariance(), decoded.getVariance(), 0);
+        assertEquals(stats.getSum(), decoded.getSum(), 0);
+        assertEquals(stats.getMin(), decoded.getMin(), 0);
+        assertEquals(stats.getMax(), decoded.getMax(), 0);
+        for (double percentile : new double[] { 10, 50, 90 }) {
+            assertEquals(stats.getPercentile(percentile), decoded.getPercentile(percentile), 0);
+        }
+
+        StreamingStatistics empty = StreamingStatistics
+            .fromBytes(new StreamingStatistics().toBytes());
+        assertEquals(0, empty.getN());
+        assertTrue(Double.isNaN(empty.getMin()));
+    }
+
+    @Test(expected = PipelineException.class)
+    public void testDecodeUnsupportedVersion() {
+        byte[] bytes = new StreamingStatistics().toBytes();
+        bytes[0] = StreamingStatistics.ENCODING_VERSION + 1;
+        StreamingStatistics.fromBytes(bytes);
+    }
+
+    @Test(expected = PipelineException.class)
+    public void testDecodeTruncated() {
+        byte[] bytes = new StreamingStatistics().toBytes();
+        StreamingStatistics.fromBytes(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    private void assertMomentsEqual(DescriptiveStatistics expected, StreamingStatistics actual) {
+        assertEquals(expected.getN(), actual.getN());
+        assertEquals(expected.getMean(), actual.getMean(), 1e-9 * Math.abs(expected.getMean()));
+        assertEquals(expected.getVariance(), actual.getVariance(), 1e-9 * expected.getVariance());
+        assertEquals(expected.getSum(), actual.getSum(), 1e-9 * Math.abs(expected.getSum()));
+        assertEquals(expected.getMin(), actual.getMin(), 0);
+        assertEquals(expected.getMax(), actual.getMax(), 0);
+    }
+
+    private void assertPercentilesClose(DescriptiveStatistics expected,
+        StreamingStatistics actual) {
+        for (double percentile : new double[] { 10, 25, 50, 75, 90, 99 }) {
+            double expectedPercentile = expected.getPercentile(percentile);
+            assertEquals("percentile " + percentile, expectedPercentile,
+                actual.getPercentile(percentile), PERCENTILE_TOLERANCE * expectedPercentile);
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package gov.nasa.ziggy.metrics.report;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.metrics.CounterMetric;
+import gov.nasa.ziggy.metrics.Metric;
+import gov.nasa.ziggy.metrics.MetricsFile;
+import gov.nasa.ziggy.metrics.ValueMetric;
+
+/**
+ * Unit tests for {@link SubtaskMetricsAggregator}.
+ */
+public class SubtaskMetricsAggregatorTest {
+
+    private static final String EXEC_TIME_METRIC = "execTime";
+    private static final String COUNTER_METRIC = "counter";
+    private static final int TOP_N_LENGTH = 5;
+    private static final int SUBTASK_COUNT = 250;
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private File cacheFile;
+
+    @Before
+    public void setUp() {
+        cacheFile = directoryRule.directory().resolve("metrics-cache.ser").toFile();
+    }
+
+    @Test
+    public void testAggregate() throws IOException {
+        File taskDir = createTaskDir("1-2-step", SUBTASK_COUNT, 1000);
+
+        SubtaskMetricsSummary summary = aggregate(taskDir).get(taskDir.getName());
+
+        assertEquals(SUBTASK_COUNT, summary.getSubtaskCount());
+        assertEquals(0, summary.getMissingMetricsCount());
+
+        // Compare with the subtask metrics merged serially.
+        Map<String, Metric> expectedMetrics = new HashMap<>();
+        for (int subtask = 0; subtask < SUBTASK_COUNT; subtask++) {
+            for (Metric metric : subtaskMetrics(subtask, 1000).values()) {
+                if (expectedMetrics.containsKey(metric.getName())) {
+                    expectedMetrics.get(metric.getName()).merge(metric);
+                } else {
+                    expectedMetrics.put(metric.getName(), metric.makeCopy());
+                }
+            }
+        }
+        assertEquals(expectedMetrics, summary.getMetrics());
+
+        StreamingStatistics execTimes = summary.getAverageStats().get(EXEC_TIME_METRIC);
+        assertEquals(SUBTASK_COUNT, execTimes.getN());
+        assertEquals(1000, execTimes.getMin(), 0);
+        assertEquals(1000 + 10 * (SUBTASK_COUNT - 1), execTimes.getMax(), 0);
+        assertFalse(summary.getAverageStats().containsKey(COUNTER_METRIC));
+
+        List<TopNListElement> topN = summary.getTopN().getList();
+        assertEquals(TOP_N_LENGTH, topN.size());
+        assertEquals(1000 + 10 * (SUBTASK_COUNT - 1), topN.get(0).getValue());
+        assertEquals("1-2-step/st-" + (SUBTASK_COUNT - 1), topN.get(0).getLabel());
+    }
+
+    @Test
+    public void testCache() throws IOException {
+        File firstTaskDir = createTaskDir("1-2-step", SUBTASK_COUNT, 1000);
+        Map<String, Metric> firstTaskMetrics = aggregate(firstTaskDir)
+            .get(firstTaskDir.getName())
+            .getMetrics();
+        assertTrue(cacheFile.exists());
+
+        // The first task is now read from the cache, so its metrics files are no longer needed.
+        for (int subtask = 0; subtask < SUBTASK_COUNT; subtask++) {
+            Files.delete(metricsFile(firstTaskDir, subtask));
+        }
+        File secondTaskDir = createTaskDir("1-3-step", 10, 5000);
+
+        Map<String, SubtaskMetricsSummary> summaries = aggregate(firstTaskDir, secondTaskDir);
+
+        assertEquals(List.of(firstTaskDir.getName(), secondTaskDir.getName()),
+            new ArrayList<>(summaries.keySet()));
+        assertEquals(firstTaskMetrics, summaries.get(firstTaskDir.getName()).getMetrics());
+        assertEquals(SUBTASK_COUNT, summaries.get(firstTaskDir.getName()).getSubtaskCount());
+        assertEquals(10, summaries.get(secondTaskDir.getName()).getSubtaskCount());
+    }
+
+    @Test
+    public void testIncompleteTaskNotCached() throws IOException {
+        File taskDir = createTaskDir("1-2-step", 10, 1000);
+        Files.delete(metricsFile(taskDir, 3));
+
+        SubtaskMetricsSummary summary = aggregate(taskDir).get(taskDir.getName());
+        assertEquals(10, summary.getSubtaskCount());
+        assertEquals(1, summary.getMissingMetricsCount());
+        assertFalse(cacheFile.exists());
+
+        // Once the missing subtask finishes, the task is read again.
+        MetricsFile.write(subtaskMetrics(3, 1000), metricsFile(taskDir, 3));
+        summary = aggregate(taskDir).get(taskDir.getName());
+        assertEquals(0, summary.getMissingMetricsCount());
+        assertTrue(cacheFile.exists());
+    }
+
+    @Test
+    public void testCacheForOtherTopN() throws IOException {
+        File taskDir = createTaskDir("1-2-step", 10, 1000);
+        aggregate(taskDir);
+
+        for (int subtask = 0; subtask < 10; subtask++) {
+            Files.delete(metricsFile(taskDir, subtask));
+        }
+        SubtaskMetricsSummary summary = new SubtaskMetricsAggregator(COUNTER_METRIC, TOP_N_LENGTH,
+            cacheFile).aggregate(List.of(taskDir)).get(taskDir.getName());
+
+        // The cached summary has a different top N list, so the task is read again.
+        assertEquals(10, summary.getMissingMetricsCount());
+    }
+
+    @Test
+    public void testConcurrentCacheUpdates() throws Exception {
+        int taskCount = 8;
+        List<File> taskDirs = new ArrayList<>();
+        for (int task = 0; task < taskCount; task++) {
+            taskDirs.add(createTaskDir("1-" + task + "-step", 10, 1000));
+        }
+
+        // Each task is aggregated by its own aggregator, all sharing the cache file and one pool.
+        ExecutorService metricsThreadPool = Executors.newFixedThreadPool(2);
+        ExecutorService aggregatorThreadPool = Executors.newFixedThreadPool(taskCount);
+        try {
+            List<Future<?>> aggregations = new ArrayList<>();
+            for (File taskDir : taskDirs) {
+                aggregations.add(aggregatorThreadPool.submit(() -> {
+                    SubtaskMetricsAggregator aggregator = new SubtaskMetricsAggregator(
+                        EXEC_TIME_METRIC, TOP_N_LENGTH, cacheFile);
+                    aggregator.setExecutor(metricsThreadPool);
+                    aggregator.aggregate(List.of(taskDir));
+                }));
+            }
+            for (Future<?> aggregation : aggregations) {
+                aggregation.get();
+            }
+            assertFalse(metricsThreadPool.isShutdown());
+        } finally {
+            aggregatorThreadPool.shutdownNow();
+            metricsThreadPool.shutdownNow();
+        }
+
+        // All of the tasks were cached, so none of them needs its metrics files any longer.
+        for (File taskDir : taskDirs) {
+            for (int subtask = 0; subtask < 10; subtask++) {
+                Files.delete(metricsFile(taskDir, subtask));
+            }
+        }
+        Map<String, SubtaskMetricsSummary> summaries = aggregate(taskDirs.toArray(new File[0]));
+        for (SubtaskMetricsSummary summary : summaries.values()) {
+            assertEquals(0, summary.getMissingMetricsCount());
+        }
+        try (Stream<Path> files = Files.list(cacheFile.toPath().getParent())) {
+            assertTrue(files.noneMatch(file -> file.getFileName().toString().endsWith(".tmp")));
+        }
+    }
+
+    @After
+    public void tearDown() {
+        Metric.clear();
+    }
+
+    private Map<String, SubtaskMetricsSummary> aggregate(File... taskDirs) {
+        return new SubtaskMetricsAggregator(EXEC_TIME_METRIC, TOP_N_LENGTH, cacheFile)
+            .aggregate(List.of(taskDirs));
+    }
+
+    private File createTaskDir(String name, int subtaskCount, long baseExecTime)
+        throws IOException {
+        File taskDir = directoryRule.directory().resolve(name).toFile();
+        for (int subtask = 0; subtask < subtaskCount; subtask++) {
+            Path metricsFile = metricsFile(taskDir, subtask);
+            Files.createDirectories(metricsFile.getParent());
+            MetricsFile.write(subtaskMetrics(subtask, baseExecTime), metricsFile);
+        }
+        return taskDir;
+    }
+
+    private Path metricsFile(File taskDir, int subtask) {
+        return taskDir.toPath()
+            .resolve("st-" + subtask)
+            .resolve(SubtaskMetricsAggregator.METRICS_FILE_NAME);
+    }
+
+    private Map<String, Metric> subtaskMetrics(int subtask, long baseExecTime) {
+        Metric.clear();
+        ValueMetric.addValue(EXEC_TIME_METRIC, baseExecTime + 10 * subtask);
+        CounterMetric.increment(COUNTER_METRIC, subtask + 1);
+        return Metric.getGlobalMetricsSnapshot();
+    }
+}
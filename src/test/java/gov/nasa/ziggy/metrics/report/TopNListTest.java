@@ -46,6 +46,16 @@ public class TopNListTest {
         assertEquals("list", expected, actual);
     }
 
+    @Test
+    public void testAddAll() {
+        TopNList actualList = generateList(MAX_LIST_LENGTH, 1, 5, 9, 3);
+        actualList.addAll(generateList(MAX_LIST_LENGTH, 8, 2, 7, 4));
+        String actual = actualList.toString();
+        String expected = "[9, 8, 7, 5, 4]";
+
+        assertEquals("list", expected, actual);
+    }
+
     private TopNList generateList(int listMaxLength, int... values) {
         TopNList l = new TopNList(listMaxLength);
         for (int i : values) {
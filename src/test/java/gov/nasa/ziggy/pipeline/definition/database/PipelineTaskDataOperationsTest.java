@@ -8,8 +8,11 @@ import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.spy;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -35,6 +38,7 @@ import gov.nasa.ziggy.pipeline.definition.TaskCountsTest;
 import gov.nasa.ziggy.pipeline.definition.TaskExecutionLog;
 import gov.nasa.ziggy.pipeline.step.AlgorithmStateFiles.SubtaskStateCounts;
 import gov.nasa.ziggy.pipeline.step.remote.BatchManager;
+import gov.nasa.ziggy.pipeline.step.remote.RemoteEnvironmentOperations;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteJobInformation;
 
 public class PipelineTaskDataOperationsTest {
@@ -295,6 +299,29 @@ public class PipelineTaskDataOperationsTest {
         assertEquals(expectedTaskMetricsByTask, taskMetricsByTask);
     }
 
+    @Test
+    public void testForEachTaskMetric() {
+        Map<PipelineTask, List<PipelineTaskMetric>> expectedTaskMetricsByTask = createPipelineTaskMetrics(
+            pipelineOperationsTestUtils.getPipelineTasks());
+
+        Map<Long, List<PipelineTaskMetric>> taskMetricsByTaskId = new LinkedHashMap<>();
+        pipelineTaskDataOperations.forEachTaskMetric(
+            pipelineOperationsTestUtils.pipelineInstanceNode(),
+            (taskId, taskMetric) -> taskMetricsByTaskId
+                .computeIfAbsent(taskId, id -> new ArrayList<>())
+                .add(taskMetric));
+
+        assertEquals(expectedTaskMetricsByTask.size(), taskMetricsByTaskId.size());
+        List<Long> taskIds = new ArrayList<>(taskMetricsByTaskId.keySet());
+        List<Long> sortedTaskIds = new ArrayList<>(taskIds);
+        Collections.sort(sortedTaskIds);
+        assertEquals(sortedTaskIds, taskIds);
+        for (PipelineTask pipelineTask : expectedTaskMetricsByTask.keySet()) {
+            assertEquals(new HashSet<>(expectedTaskMetricsByTask.get(pipelineTask)),
+                new HashSet<>(taskMetricsByTaskId.get(pipelineTask.getId())));
+        }
+    }
+
     private Map<PipelineTask, List<PipelineTaskMetric>> createPipelineTaskMetrics(
         List<PipelineTask> pipelineTasks) {
         Map<PipelineTask, List<PipelineTaskMetric>> taskMetricsByTask = new HashMap<>();
@@ -478,6 +505,40 @@ public class PipelineTaskDataOperationsTest {
         assertEquals(0, job.getCostEstimate(), 1e-9);
     }
 
+    @Test
+    public void testUpdateJobsCountsJobTimesOnce() {
+        PipelineTask task = pipelineTaskOperationsTest.createPipelineTask();
+        pipelineTaskDataOperations.addRemoteJobs(task, remoteJobsInformation());
+
+        // Two updates that both read the jobs before either of them stored its results, as the
+        // supervisor and the console can.
+        Set<RemoteJob> firstRemoteJobs = pipelineTaskDataOperations.remoteJobs(task);
+        Set<RemoteJob> secondRemoteJobs = pipelineTaskDataOperations.remoteJobs(task);
+        BatchManager<?> batchManager = mockRemoteJobUpdates();
+        Mockito.doAnswer(invocation -> {
+            RemoteJob job = invocation.getArgument(0);
+            job.setQueueName("low");
+            job.setArchitectureName("ivy");
+            job.setSubmitTime(new Date(1_000_000_000_000L));
+            job.setStartTime(new Date(1_000_000_600_000L));
+            job.setEndTime(new Date(1_000_004_200_000L));
+            return null;
+        }).when(batchManager).updateJobTimes(ArgumentMatchers.any(RemoteJob.class));
+        doReturn(firstRemoteJobs, secondRemoteJobs).when(pipelineTaskDataOperations)
+            .remoteJobs(task);
+
+        pipelineTaskDataOperations.updateJobs(task);
+        pipelineTaskDataOperations.updateJobs(task);
+
+        assertEquals(1, new RemoteEnvironmentOperations().jobTimeStatisticsByArchitecture("hecc")
+            .get("ivy")
+            .getJobCount());
+        Mockito.reset(pipelineTaskDataOperations);
+        List<RemoteJob> remoteJobs = new ArrayList<>(pipelineTaskDataOperations.remoteJobs(task));
+        assertTrue(remoteJobs.get(remoteJobs.indexOf(new RemoteJob(9101154))).isTimesRecorded());
+        assertFalse(remoteJobs.get(remoteJobs.indexOf(new RemoteJob(9102337))).isTimesRecorded());
+    }
+
     private List<RemoteJobInformation> remoteJobsInformation() {
         List<RemoteJobInformation> remoteJobsInformation = new ArrayList<>();
         RemoteJobInformation remoteJobInformation = new RemoteJobInformation("pbsLogfile",
@@ -493,7 +554,7 @@ public class PipelineTaskDataOperationsTest {
         return remoteJobsInformation;
     }
 
-    private void mockRemoteJobUpdates() {
+    private BatchManager<?> mockRemoteJobUpdates() {
         BatchManager<?> batchManager = Mockito.mock(BatchManager.class);
         pipelineTaskDataOperations = Mockito.spy(PipelineTaskDataOperations.class);
         Mockito.doReturn(batchManager)
@@ -510,5 +571,6 @@ public class PipelineTaskDataOperationsTest {
         Mockito.when(batchManager.getUpdatedCostEstimate(job9101154)).thenReturn(10.0);
         Mockito.when(batchManager.getUpdatedCostEstimate(job9102337)).thenReturn(4.0);
         Mockito.when(batchManager.getUpdatedCostEstimate(job6020203)).thenReturn(0.0);
+        return batchManager;
     }
 }
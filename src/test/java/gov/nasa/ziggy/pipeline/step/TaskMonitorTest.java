@@ -41,6 +41,7 @@ import gov.nasa.ziggy.services.alert.Alert;
 import gov.nasa.ziggy.services.alert.Alert.Severity;
 import gov.nasa.ziggy.services.alert.AlertLog;
 import gov.nasa.ziggy.services.alert.AlertLogOperations;
+import gov.nasa.ziggy.services.alert.AlertService;
 import gov.nasa.ziggy.services.config.DirectoryProperties;
 import gov.nasa.ziggy.services.config.PropertyName;
 import gov.nasa.ziggy.services.messages.AllJobsFinishedMessage;
@@ -411,6 +412,7 @@ public class TaskMonitorTest {
         taskMonitor.update();
         verify(taskMonitor).issueAlertForLowMemoryWarning();
         verify(taskMonitor, times(0)).issueMemoryAlert(ArgumentMatchers.anyString());
+        AlertService.getInstance().flush();
         assertTrue(
             CollectionUtils.isEmpty(new AlertLogOperations().alertLogs(List.of(pipelineTask))));
 
@@ -421,6 +423,7 @@ public class TaskMonitorTest {
         verify(taskMonitor, times(2)).issueAlertForLowMemoryWarning();
         verify(taskMonitor, times(1)).issueMemoryAlert(ArgumentMatchers.anyString());
         verify(taskMonitor, times(1)).issueMemoryAlert("1234567");
+        AlertService.getInstance().flush();
         List<AlertLog> alertLogs = new AlertLogOperations().alertLogs(List.of(pipelineTask));
         assertEquals(1, alertLogs.size());
         AlertLog alertLog = alertLogs.get(0);
@@ -434,6 +437,7 @@ public class TaskMonitorTest {
         verify(taskMonitor, times(3)).issueAlertForLowMemoryWarning();
         verify(taskMonitor, times(1)).issueMemoryAlert(ArgumentMatchers.anyString());
         verify(taskMonitor, times(1)).issueMemoryAlert("1234567");
+        AlertService.getInstance().flush();
         alertLogs = new AlertLogOperations().alertLogs(List.of(pipelineTask));
         assertEquals(1, alertLogs.size());
         assertEquals(alertLog.getId(), alertLogs.get(0).getId());
@@ -446,6 +450,7 @@ public class TaskMonitorTest {
         verify(taskMonitor, times(2)).issueMemoryAlert(ArgumentMatchers.anyString());
         verify(taskMonitor, times(1)).issueMemoryAlert("1234567");
         verify(taskMonitor, times(1)).issueMemoryAlert("1234568");
+        AlertService.getInstance().flush();
         alertLogs = new AlertLogOperations().alertLogs(List.of(pipelineTask));
         assertEquals(2, alertLogs.size());
         for (AlertLog newAlertLog : alertLogs) {
@@ -1,13 +1,17 @@
 package gov.nasa.ziggy.pipeline.step.hdf5;
 
 import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
+import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
 
 import org.junit.After;
 import org.junit.Before;
@@ -127,4 +131,108 @@ public class Hdf5AlgorithmInterfaceTest {
         recoveredTestValues.ignoreThisField = 0;
         algorithmInterface.readFile(hdf5File, recoveredTestValues, false);
     }
+
+    @Test
+    public void testReadSelectedFields() {
+        hdf5File = directoryRule.directory().resolve("hdf5WriteTestFile.h5").toFile();
+        PersistableSample2 persistableTest2 = generatePersistableTest2Object();
+        algorithmInterface.writeFile(hdf5File, persistableTest2, false);
+        PersistableSample2 recoveredTestValues = new PersistableSample2();
+        recoveredTestValues.intScalar = -1;
+
+        // The persistableScalar2 group is missing, but isn't selected, so isn't an error
+        Set<String> fieldPaths = Set.of("persistableList", "persistableScalar1.floatArray1");
+        boolean missingFieldsDetected = algorithmInterface.readFile(hdf5File,
+            recoveredTestValues, false, fieldPaths);
+        assertFalse(missingFieldsDetected);
+
+        assertEquals(persistableTest2.persistableList, recoveredTestValues.persistableList);
+        assertArrayEquals(persistableTest2.persistableScalar1.floatArray1,
+            recoveredTestValues.persistableScalar1.floatArray1, 0);
+        assertNull(recoveredTestValues.persistableScalar1.longArray2);
+        assertNull(recoveredTestValues.persistableArray2);
+        assertEquals(-1, recoveredTestValues.intScalar);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testReadUnknownField() {
+        hdf5File = directoryRule.directory().resolve("hdf5WriteTestFile.h5").toFile();
+        algorithmInterface.writeFile(hdf5File, generatePersistableTest2Object(), false);
+        algorithmInterface.readFile(hdf5File, new PersistableSample2(), true,
+            Set.of("persistableScalar1.noSuchField"));
+    }
+
+    @Test
+    public void testReadFileDeferringArrays() {
+        hdf5File = directoryRule.directory().resolve("hdf5WriteTestFile.h5").toFile();
+        PersistableSample1 persistable = PersistableSample1.newInstance(5, 1000, 20, 30, 4, 5, 6);
+        algorithmInterface.writeFile(hdf5File, persistable, false);
+
+        // The float and long arrays have 1000 and 600 elements, the others fewer than 500
+        PersistableSample1 recoveredPersistable = new PersistableSample1();
+        DeferredHdf5Fields deferredFields = algorithmInterface
+            .readFileDeferringArrays(hdf5File, recoveredPersistable, false, 500);
+        assertFalse(deferredFields.isMissingFieldsDetected());
+        assertEquals(List.of("floatArray1", "longArray2"),
+            new ArrayList<>(deferredFields.getFieldPaths()));
+        assertNull(recoveredPersistable.floatArray1);
+        assertNull(recoveredPersistable.longArray2);
+        assertEquals(persistable.intList, recoveredPersistable.intList);
+        assertEquals(persistable.doubleScalar, recoveredPersistable.doubleScalar, 0);
+
+        deferredFields.load("longArray2");
+        assertFalse(deferredFields.isDeferred("longArray2"));
+        assertNull(recoveredPersistable.floatArray1);
+        deferredFields.loadAll();
+        assertTrue(deferredFields.getFieldPaths().isEmpty());
+        assertEquals(persistable, recoveredPersistable);
+    }
+
+    @Test
+    public void testWriteFileWithSharedFields() {
+        File sharedFile = directoryRule.directory().resolve("shared.h5").toFile();
+        File subDirectory = directoryRule.directory().resolve("st-0").toFile();
+        subDirectory.mkdirs();
+        hdf5File = new File(subDirectory, "shared.h5");
+        PersistableSample2 persistableTest2 = generatePersistableTest2Object();
+        algorithmInterface.writeFile(sharedFile, persistableTest2, false);
+        persistableTest2.intScalar = 17;
+        persistableTest2.persistableScalar1 = PersistableSample1.newInstance(2, 3, 4, 5, 6, 7,
+            8);
+        algorithmInterface.writeFileWithSharedFields(hdf5File, persistableTest2, false,
+            Set.of("intScalar", "persistableScalar1"));
+        assertEquals(sharedFile.getAbsoluteFile(),
+            Hdf5AlgorithmInterface.sharedFieldsFile(hdf5File));
+
+        // The file holds only its own fields
+        long subtaskFileId = H5.H5Fopen(hdf5File.getAbsolutePath(),
+            HDF5Constants.H5F_ACC_RDONLY, H5P_DEFAULT);
+        assertTrue(H5.H5Aexists(subtaskFileId, Hdf5AlgorithmInterface.SHARED_FIELDS_ATT_NAME));
+        assertTrue(H5.H5Lexists(subtaskFileId, "intScalar", H5P_DEFAULT));
+        assertFalse(H5.H5Lexists(subtaskFileId, "persistableList", H5P_DEFAULT));
+        H5.H5Fclose(subtaskFileId);
+
+        // The fields of the file replace those of the shared file
+        PersistableSample2 recoveredTestValues = new PersistableSample2();
+        assertFalse(algorithmInterface.readFile(hdf5File, recoveredTestValues, false));
+        assertEquals(persistableTest2, recoveredTestValues);
+
+        // Selected fields are read from whichever file holds them
+        recoveredTestValues = new PersistableSample2();
+        algorithmInterface.readFile(hdf5File, recoveredTestValues, false,
+            Set.of("intScalar", "persistableList"));
+        assertEquals(17, recoveredTestValues.intScalar);
+        assertEquals(persistableTest2.persistableList, recoveredTestValues.persistableList);
+        assertNull(recoveredTestValues.persistableScalar1);
+        assertEquals(hdf5File, Hdf5AlgorithmInterface.fileHoldingField(hdf5File, "intScalar"));
+        assertEquals(sharedFile.getAbsoluteFile(),
+            Hdf5AlgorithmInterface.fileHoldingField(hdf5File, "persistableList"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testWriteFileWithUnknownSharedField() {
+        algorithmInterface.writeFileWithSharedFields(
+            directoryRule.directory().resolve("hdf5WriteTestFile.h5").toFile(),
+            generatePersistableTest2Object(), false, Set.of("noSuchField"));
+    }
 }
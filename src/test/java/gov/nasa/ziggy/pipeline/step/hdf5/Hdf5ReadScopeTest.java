@@ -0,0 +1,99 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Unit tests for the {@link Hdf5ReadScope} class.
+ */
+public class Hdf5ReadScopeTest {
+
+    @Test
+    public void testAllFields() {
+        Hdf5ReadScope scope = Hdf5ReadScope.of(PersistableSample2.class, null, null);
+        assertTrue(scope.includes("intScalar"));
+        assertTrue(scope.child("persistableScalar1").includes("floatArray1"));
+        assertTrue(Hdf5ReadScope.ALL.includes("anything"));
+    }
+
+    @Test
+    public void testSelectedFields() {
+        Hdf5ReadScope scope = Hdf5ReadScope.of(PersistableSample2.class,
+            Set.of("persistableList", "persistableScalar1.floatArray1"), null);
+        assertTrue(scope.includes("persistableList"));
+        assertTrue(scope.includes("persistableScalar1"));
+        assertFalse(scope.includes("persistableScalar2"));
+        assertFalse(scope.includes("intScalar"));
+
+        // A selected field selects everything below it
+        Hdf5ReadScope listScope = scope.child("persistableList");
+        assertTrue(listScope.includes("intList"));
+        assertTrue(listScope.elements().includes("floatArray1"));
+
+        // A field along a path selects only the rest of the path
+        Hdf5ReadScope scalarScope = scope.child("persistableScalar1");
+        assertEquals("persistableScalar1.floatArray1", scalarScope.fieldPath("floatArray1"));
+        assertTrue(scalarScope.includes("floatArray1"));
+        assertFalse(scalarScope.includes("longArray2"));
+        assertSame(scalarScope, scalarScope.elements());
+    }
+
+    @Test
+    public void testPrefixIsNotAParent() {
+        Hdf5ReadScope scope = Hdf5ReadScope.of(PersistableSample2.class,
+            Set.of("persistableScalar1"), null);
+        assertFalse(scope.includes("persistableScalar"));
+    }
+
+    @Test
+    public void testRestrictedTo() {
+
+        // Every field that the file holds is read, and no others
+        Hdf5ReadScope scope = Hdf5ReadScope.of(PersistableSample2.class, null, null)
+            .restrictedTo(Set.of("intScalar"));
+        assertTrue(scope.includes("intScalar"));
+        assertFalse(scope.includes("persistableScalar1"));
+
+        // A read of selected fields reads those that the file holds
+        scope = Hdf5ReadScope
+            .of(PersistableSample2.class, Set.of("intScalar", "persistableScalar1.floatArray1"),
+                null)
+            .restrictedTo(Set.of("persistableScalar1", "persistableList"));
+        assertFalse(scope.includes("intScalar"));
+        assertFalse(scope.includes("persistableList"));
+        assertTrue(scope.includes("persistableScalar1"));
+        assertTrue(scope.child("persistableScalar1").includes("floatArray1"));
+        assertFalse(scope.child("persistableScalar1").includes("longArray2"));
+    }
+
+    @Test
+    public void testSelectsOnly() {
+        assertFalse(Hdf5ReadScope.of(PersistableSample2.class, null, null)
+            .selectsOnly(Set.of("intScalar")));
+        Hdf5ReadScope scope = Hdf5ReadScope.of(PersistableSample2.class,
+            Set.of("intScalar", "persistableScalar1.floatArray1"), null);
+        assertTrue(scope.selectsOnly(Set.of("intScalar", "persistableScalar1")));
+        assertFalse(scope.selectsOnly(Set.of("intScalar")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownField() {
+        Hdf5ReadScope.of(PersistableSample2.class, Set.of("persistableArray2.noSuchField"), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPathPastPrimitiveField() {
+        Hdf5ReadScope.of(PersistableSample2.class, Set.of("intScalar.value"), null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIgnoredField() {
+        Hdf5ReadScope.of(PersistableSample2.class, Set.of("ignoreThisField"), null);
+    }
+}
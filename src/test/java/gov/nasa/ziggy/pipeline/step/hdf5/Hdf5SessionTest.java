@@ -0,0 +1,107 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.RunByNameTestCategory;
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+
+/**
+ * Unit tests for the {@link Hdf5Session} class.
+ */
+public class Hdf5SessionTest {
+
+    private static final Logger log = LoggerFactory.getLogger(Hdf5SessionTest.class);
+
+    private static final Hdf5StoragePolicy COMPRESSED = new Hdf5StoragePolicy(4, true, 100,
+        1024 * 1024);
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    @Test
+    public void testClose() {
+
+        // A session that was never used has no handles to close.
+        Hdf5Session session = new Hdf5Session();
+        session.close();
+        assertTrue(session.isClosed());
+        session.close();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testClosedSession() {
+        Hdf5Session session = new Hdf5Session();
+        session.close();
+        session.writeIntAttribute(0L, Hdf5AlgorithmInterface.FIELD_ORDER_ATT_NAME, 1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCloseSharedSession() {
+        Hdf5Session.shared().close();
+    }
+
+    @Test
+    public void testWriteFilesWithOneSession() {
+        try (Hdf5Session session = new Hdf5Session()) {
+            Hdf5AlgorithmInterface algorithmInterface = new Hdf5AlgorithmInterface(COMPRESSED,
+                session);
+            for (int i = 0; i < 3; i++) {
+                File file = directoryRule.directory().resolve("session-" + i + ".h5").toFile();
+                PersistableSample1 persistable = PersistableSample1.newInstance(5, 1000 + i, 20,
+                    30, 4, 5, 6);
+                algorithmInterface.writeFile(file, persistable, false);
+                PersistableSample1 recoveredPersistable = new PersistableSample1();
+                algorithmInterface.readFile(file, recoveredPersistable, false);
+                assertEquals(persistable, recoveredPersistable);
+            }
+        }
+    }
+
+    /**
+     * Writes thousands of small files, first with a new session for each file, then with one
+     * session for all of them, and logs the time per file.
+     */
+    @Test
+    @Category(RunByNameTestCategory.class)
+    public void benchmarkManySmallFiles() {
+        int fileCount = 5000;
+        PersistableSample2 persistable = new Hdf5AlgorithmInterfaceTest()
+            .generatePersistableTest2Object();
+        for (int pass = 0; pass < 3; pass++) {
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < fileCount; i++) {
+                try (Hdf5Session session = new Hdf5Session()) {
+                    new Hdf5AlgorithmInterface(COMPRESSED, session).writeFile(file(i),
+                        persistable, false);
+                }
+            }
+            long sessionPerFileNanos = System.nanoTime() - startNanos;
+
+            startNanos = System.nanoTime();
+            try (Hdf5Session session = new Hdf5Session()) {
+                Hdf5AlgorithmInterface algorithmInterface = new Hdf5AlgorithmInterface(COMPRESSED,
+                    session);
+                for (int i = 0; i < fileCount; i++) {
+                    algorithmInterface.writeFile(file(i), persistable, false);
+                }
+            }
+            long sharedSessionNanos = System.nanoTime() - startNanos;
+            log.info("Pass {}: {} us per file with a session per file, {} us with one session",
+                pass, sessionPerFileNanos / 1000 / fileCount,
+                sharedSessionNanos / 1000 / fileCount);
+        }
+    }
+
+    private File file(int i) {
+        return directoryRule.directory().resolve("benchmark-" + i % 100 + ".h5").toFile();
+    }
+}
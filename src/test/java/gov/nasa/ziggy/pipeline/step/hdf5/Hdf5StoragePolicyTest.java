@@ -0,0 +1,141 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static gov.nasa.ziggy.services.config.PropertyName.HDF5_COMPRESSION_LEVEL;
+import static gov.nasa.ziggy.services.config.PropertyName.HDF5_MIN_COMPRESSION_ELEMENTS;
+import static hdf.hdf5lib.HDF5Constants.H5P_DEFAULT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.ZiggyPropertyRule;
+import hdf.hdf5lib.H5;
+import hdf.hdf5lib.HDF5Constants;
+
+/**
+ * Unit tests for the {@link Hdf5StoragePolicy} class.
+ */
+public class Hdf5StoragePolicyTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    @Rule
+    public ZiggyPropertyRule compressionLevelPropertyRule = new ZiggyPropertyRule(
+        HDF5_COMPRESSION_LEVEL, "4");
+
+    @Rule
+    public ZiggyPropertyRule stepCompressionLevelPropertyRule = new ZiggyPropertyRule(
+        HDF5_COMPRESSION_LEVEL.property() + ".pa", "7");
+
+    @Rule
+    public ZiggyPropertyRule stepMinElementsPropertyRule = new ZiggyPropertyRule(
+        HDF5_MIN_COMPRESSION_ELEMENTS.property() + ".pa", "1000");
+
+    @Test
+    public void testForPipelineStep() {
+        Hdf5StoragePolicy defaultPolicy = Hdf5StoragePolicy.defaultPolicy();
+        assertEquals(4, defaultPolicy.getCompressionLevel());
+        assertEquals(Hdf5StoragePolicy.DEFAULT_MIN_COMPRESSION_ELEMENTS,
+            defaultPolicy.getMinCompressionElements());
+        assertTrue(defaultPolicy.isShuffle());
+        assertEquals(Hdf5StoragePolicy.DEFAULT_CHUNK_BYTES, defaultPolicy.getChunkBytes());
+
+        Hdf5StoragePolicy paPolicy = Hdf5StoragePolicy.forPipelineStep("pa");
+        assertEquals(7, paPolicy.getCompressionLevel());
+        assertEquals(1000, paPolicy.getMinCompressionElements());
+        assertTrue(paPolicy.isShuffle());
+
+        Hdf5StoragePolicy calPolicy = Hdf5StoragePolicy.forPipelineStep("cal");
+        assertEquals(4, calPolicy.getCompressionLevel());
+        assertEquals(Hdf5StoragePolicy.DEFAULT_MIN_COMPRESSION_ELEMENTS,
+            calPolicy.getMinCompressionElements());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCompressionLevel() {
+        new Hdf5StoragePolicy(10, true, 0, 1024);
+    }
+
+    @Test
+    public void testCompress() {
+        Hdf5StoragePolicy policy = new Hdf5StoragePolicy(6, true, 200, 1024);
+        assertFalse(policy.compress(0));
+        assertFalse(policy.compress(199));
+        assertTrue(policy.compress(200));
+        assertFalse(Hdf5StoragePolicy.UNCOMPRESSED.compress(1_000_000));
+    }
+
+    @Test
+    public void testChunkShape() {
+        Hdf5StoragePolicy policy = new Hdf5StoragePolicy(6, true, 200, 1024);
+
+        // 256 four-byte elements per chunk keep the last dimension whole and divide the second.
+        assertArrayEquals(new long[] { 1, 32, 8 },
+            policy.chunkShape(new long[] { 100, 50, 8 }, 4));
+
+        // A small array is a single chunk.
+        assertArrayEquals(new long[] { 10, 20 }, policy.chunkShape(new long[] { 10, 20 }, 1));
+
+        // A row that is longer than a chunk is divided.
+        assertArrayEquals(new long[] { 1, 128 }, policy.chunkShape(new long[] { 3, 1000 }, 8));
+    }
+
+    @Test
+    public void testEnvironment() {
+        Map<String, String> environment = new Hdf5StoragePolicy(6, false, 100, 4096)
+            .environment();
+        assertEquals("6", environment.get(Hdf5StoragePolicy.COMPRESSION_LEVEL_ENV));
+        assertEquals("false", environment.get(Hdf5StoragePolicy.SHUFFLE_ENV));
+        assertEquals("100", environment.get(Hdf5StoragePolicy.MIN_COMPRESSION_ELEMENTS_ENV));
+        assertEquals("4096", environment.get(Hdf5StoragePolicy.CHUNK_BYTES_ENV));
+    }
+
+    @Test
+    public void testWriteCompressed() {
+        PersistableSample1 persistable = PersistableSample1.newInstance(5, 1000, 20, 30, 40, 50,
+            60);
+        File uncompressedFile = directoryRule.directory().resolve("uncompressed.h5").toFile();
+        File compressedFile = directoryRule.directory().resolve("compressed.h5").toFile();
+        new Hdf5AlgorithmInterface(Hdf5StoragePolicy.UNCOMPRESSED).writeFile(uncompressedFile,
+            persistable, false);
+        new Hdf5AlgorithmInterface(new Hdf5StoragePolicy(6, true, 200, 4096))
+            .writeFile(compressedFile, persistable, false);
+        assertTrue(compressedFile.length() < uncompressedFile.length());
+
+        long fileId = H5.H5Fopen(compressedFile.getAbsolutePath(), HDF5Constants.H5F_ACC_RDONLY,
+            H5P_DEFAULT);
+        try {
+            // The Boolean array is compressed, with the shuffle and deflate filters.
+            assertStorage(fileId, "/booleanArray3/booleanArray3", HDF5Constants.H5D_CHUNKED, 2);
+
+            // The list is smaller than the minimum, so it is stored as before.
+            assertStorage(fileId, "/intList/intList", HDF5Constants.H5D_CONTIGUOUS, 0);
+        } finally {
+            H5.H5Fclose(fileId);
+        }
+
+        PersistableSample1 readPersistable = new PersistableSample1();
+        new Hdf5AlgorithmInterface().readFile(compressedFile, readPersistable, false);
+        assertEquals(persistable, readPersistable);
+    }
+
+    private void assertStorage(long fileId, String datasetName, int layout, int filterCount) {
+        long datasetId = H5.H5Dopen(fileId, datasetName, H5P_DEFAULT);
+        long propertyId = H5.H5Dget_create_plist(datasetId);
+        try {
+            assertEquals(layout, H5.H5Pget_layout(propertyId));
+            assertEquals(filterCount, H5.H5Pget_nfilters(propertyId));
+        } finally {
+            H5.H5Pclose(propertyId);
+            H5.H5Dclose(datasetId);
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyPropertyRule;
+import gov.nasa.ziggy.services.config.PropertyName;
+
+/**
+ * Unit tests for the {@link ParallelArrayPipeline} class.
+ */
+public class ParallelArrayPipelineTest {
+
+    @Rule
+    public ZiggyPropertyRule threadsPropertyRule = new ZiggyPropertyRule(
+        PropertyName.HDF5_PARALLEL_ARRAY_THREADS, "3");
+
+    @Test
+    public void testFromConfiguration() {
+        assertEquals(3, ParallelArrayPipeline.fromConfiguration().getWorkerCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidWorkerCount() {
+        new ParallelArrayPipeline(0);
+    }
+
+    @Test
+    public void testGatherAndWrite() {
+        for (int workerCount : new int[] { 1, 3 }) {
+            Thread callingThread = Thread.currentThread();
+            List<Integer> written = new ArrayList<>();
+            new ParallelArrayPipeline(workerCount).gatherAndWrite(20, i -> i * 10,
+                (value, i) -> {
+                    assertSame(callingThread, Thread.currentThread());
+                    assertEquals(i * 10, value.intValue());
+                    written.add(i);
+                });
+            assertEquals(20, written.size());
+            for (int i = 0; i < written.size(); i++) {
+                assertEquals(i, written.get(i).intValue());
+            }
+        }
+    }
+
+    @Test
+    public void testReadAndScatter() {
+        for (int workerCount : new int[] { 1, 3 }) {
+            Thread callingThread = Thread.currentThread();
+            List<Integer> read = new ArrayList<>();
+            Set<Integer> scattered = ConcurrentHashMap.newKeySet();
+            new ParallelArrayPipeline(workerCount).readAndScatter(20, i -> {
+                assertSame(callingThread, Thread.currentThread());
+                read.add(i);
+                return i * 10;
+            }, (value, i) -> {
+                assertEquals(i * 10, value.intValue());
+                scattered.add(i);
+            });
+            assertEquals(20, scattered.size());
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < 20; i++) {
+                expected.add(i);
+            }
+            assertEquals(expected, read);
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testGatherException() {
+        new ParallelArrayPipeline(3).gatherAndWrite(10, i -> {
+            if (i == 5) {
+                throw new IllegalStateException("field " + i);
+            }
+            return i;
+        }, (value, i) -> {
+        });
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testScatterException() {
+        new ParallelArrayPipeline(3).readAndScatter(10, i -> i, (value, i) -> {
+            if (i == 5) {
+                throw new IllegalStateException("field " + i);
+            }
+        });
+    }
+
+    @Test
+    public void testPersistableParallelArrays() {
+        PersistableSample3[] samples = new PersistableSample3[1000];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new PersistableSample3();
+            samples[i].setIntVar(i);
+            samples[i].setStringVar("string " + i);
+        }
+        PersistableHdf5Array array = new PersistableHdf5Array(samples);
+        List<PersistableClassPlan.FieldPlan> fields = PersistableClassPlan
+            .of(PersistableSample3.class)
+            .getFieldPlans();
+        List<PrimitiveHdf5Array> parallelArrays = Collections
+            .synchronizedList(new ArrayList<>());
+        new ParallelArrayPipeline(3).gatherAndWrite(fields.size(),
+            i -> array.toParallelArray(fields.get(i)), (primitiveArray, i) -> {
+                assertEquals(fields.get(i).getName(), primitiveArray.getFieldName());
+                parallelArrays.add(primitiveArray);
+            });
+
+        PersistableHdf5Array readArray = new PersistableHdf5Array(samples);
+        PersistableSample3[] readSamples = new PersistableSample3[samples.length];
+        for (int i = 0; i < readSamples.length; i++) {
+            readSamples[i] = new PersistableSample3();
+        }
+        readArray.setArray(readSamples);
+        new ParallelArrayPipeline(3).readAndScatter(fields.size(), parallelArrays::get,
+            (primitiveArray, i) -> readArray.fromParallelArray(fields.get(i),
+                primitiveArray.getArrayObject()));
+        assertArrayEquals(samples, readSamples);
+    }
+}
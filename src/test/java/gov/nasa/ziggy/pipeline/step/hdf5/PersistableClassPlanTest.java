@@ -0,0 +1,101 @@
+package gov.nasa.ziggy.pipeline.step.hdf5;
+
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_ENUM;
+import static gov.nasa.ziggy.collections.ZiggyDataType.ZIGGY_INT;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldKind;
+import gov.nasa.ziggy.pipeline.step.hdf5.PersistableClassPlan.FieldPlan;
+
+/**
+ * Unit tests for the {@link PersistableClassPlan} class.
+ */
+public class PersistableClassPlanTest {
+
+    @Test
+    public void testFieldPlans() {
+        PersistableClassPlan plan = PersistableClassPlan.of(PersistableSample2.class);
+        assertSame(plan, PersistableClassPlan.of(PersistableSample2.class));
+
+        // The ProxyIgnore field is left out.
+        List<FieldPlan> fieldPlans = plan.getFieldPlans();
+        assertEquals(5, fieldPlans.size());
+        assertEquals("persistableList", fieldPlans.get(0).getName());
+        assertEquals(FieldKind.PERSISTABLE, fieldPlans.get(0).getKind());
+        assertEquals(FieldKind.PERSISTABLE, fieldPlans.get(1).getKind());
+        assertEquals("intScalar", fieldPlans.get(4).getName());
+        assertEquals(FieldKind.PRIMITIVE_SCALAR, fieldPlans.get(4).getKind());
+        assertEquals(ZIGGY_INT, fieldPlans.get(4).getDataType());
+        assertFalse(plan.areAllFieldsPrimitiveScalar());
+
+        // Fields are found by name, and know the class of the objects that they hold.
+        assertSame(fieldPlans.get(4), plan.getFieldPlan("intScalar"));
+        assertNull(plan.getFieldPlan("ignoreThisField"));
+        assertEquals(PersistableSample1.class, fieldPlans.get(0).getElementClass());
+        assertEquals(PersistableSample1.class,
+            plan.getFieldPlan("persistableArray2").getElementClass());
+
+        plan = PersistableClassPlan.of(PersistableSample1.class);
+        assertEquals(FieldKind.PRIMITIVE_ARRAY, plan.getFieldPlans().get(0).getKind());
+        assertEquals(FieldKind.PRIMITIVE_ARRAY, plan.getFieldPlans().get(3).getKind());
+        assertEquals(ZIGGY_ENUM, plan.getFieldPlans().get(6).getDataType());
+        assertFalse(plan.areAllFieldsPrimitiveScalar());
+
+        assertTrue(PersistableClassPlan.of(PersistableSample3.class).areAllFieldsPrimitiveScalar());
+    }
+
+    @Test
+    public void testGetAndSet() {
+        PersistableClassPlan plan = PersistableClassPlan.of(PersistableSample3.class);
+        PersistableSample3 sample = (PersistableSample3) plan.newInstance();
+        assertNotSame(sample, plan.newInstance());
+
+        // The fields are private, and some are primitive.
+        FieldPlan intVar = plan.getFieldPlans().get(1);
+        assertEquals("intVar", intVar.getName());
+        assertEquals(5, intVar.get(sample));
+        intVar.set(sample, 7);
+        assertEquals(7, sample.getIntVar());
+
+        FieldPlan enumScalar = plan.getFieldPlans().get(5);
+        enumScalar.set(sample, EnumTest.SECOND);
+        assertEquals(EnumTest.SECOND, sample.getEnumScalar());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testSetPrimitiveToNull() {
+        PersistableClassPlan plan = PersistableClassPlan.of(PersistableSample3.class);
+        plan.getFieldPlans().get(1).set(plan.newInstance(), null);
+    }
+
+    @Test
+    public void testParallelArrays() throws NoSuchFieldException {
+        PersistableSample3[] samples = new PersistableSample3[3];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = new PersistableSample3();
+            samples[i].setIntVar(i);
+            samples[i].setStringVar("string " + i);
+        }
+        PersistableHdf5Array array = new PersistableHdf5Array(samples);
+        assertTrue(array.areAllFieldsPrimitiveScalar());
+        List<PrimitiveHdf5Array> parallelArrays = array.toParallelArrays();
+        assertEquals(6, parallelArrays.size());
+        assertArrayEquals(new int[] { 0, 1, 2 }, (int[]) parallelArrays.get(1).getArrayObject());
+
+        PersistableHdf5Array readArray = new PersistableHdf5Array(
+            PersistableSample4.class.getDeclaredField("persistableTest3Array"));
+        readArray.forParallelArrays(
+            PersistableClassPlan.of(PersistableSample3.class).getFieldPlans(), parallelArrays);
+        assertArrayEquals(samples, (Object[]) readArray.toJava());
+    }
+}
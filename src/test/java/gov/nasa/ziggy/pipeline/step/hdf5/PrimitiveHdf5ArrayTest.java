@@ -392,7 +392,8 @@ public class PrimitiveHdf5ArrayTest {
 
         // create a parent group for the array
         long fieldGroupId = H5.H5Gcreate(fileId, fieldName, H5P_DEFAULT, H5P_DEFAULT, H5P_DEFAULT);
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId, ZIGGY_INT, fieldName);
+        Hdf5AlgorithmInterface.writeDataTypeAttribute(Hdf5Session.shared(), fieldGroupId,
+            ZIGGY_INT, fieldName);
 
         // create a 3-d array of integer values
         int[][][] intTestArray = { { { 1, 2, 3 }, { 4, 5, 6 }, { 7, 8, 9 } },
@@ -449,7 +450,8 @@ public class PrimitiveHdf5ArrayTest {
         PrimitiveHdf5Array persistableField = (PrimitiveHdf5Array) AbstractHdf5Array
             .newInstance(booleanTestArray);
         // execute the method
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId, ZIGGY_BYTE, fieldName);
+        Hdf5AlgorithmInterface.writeDataTypeAttribute(Hdf5Session.shared(), fieldGroupId,
+            ZIGGY_BYTE, fieldName);
         persistableField.write(fieldGroupId, fieldName);
 
         // make sure the correct attributes were added
@@ -489,7 +491,8 @@ public class PrimitiveHdf5ArrayTest {
 
         // create a parent group for the array
         long fieldGroupId = H5.H5Gcreate(fileId, fieldName, H5P_DEFAULT, H5P_DEFAULT, H5P_DEFAULT);
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId, ZIGGY_STRING, fieldName);
+        Hdf5AlgorithmInterface.writeDataTypeAttribute(Hdf5Session.shared(), fieldGroupId,
+            ZIGGY_STRING, fieldName);
 
         // create an array of Strings
         String[][] stringTestArray = { { "the", "wild", "boys", "were", "calling", "" },
@@ -581,7 +584,8 @@ public class PrimitiveHdf5ArrayTest {
         // create a parent group for the array
         long fieldGroupId = H5.H5Gcreate(fileId, "doubleScalar", H5P_DEFAULT, H5P_DEFAULT,
             H5P_DEFAULT);
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId, ZIGGY_DOUBLE, "doubleScalar");
+        Hdf5AlgorithmInterface.writeDataTypeAttribute(Hdf5Session.shared(), fieldGroupId,
+            ZIGGY_DOUBLE, "doubleScalar");
         persistableField.write(fieldGroupId, "doubleScalar");
         H5.H5Gclose(fieldGroupId);
 
@@ -619,7 +623,8 @@ public class PrimitiveHdf5ArrayTest {
 
         // create a parent group for the list
         long fieldGroupId = H5.H5Gcreate(fileId, "intList", H5P_DEFAULT, H5P_DEFAULT, H5P_DEFAULT);
-        Hdf5AlgorithmInterface.writeDataTypeAttribute(fieldGroupId, ZIGGY_INT, "intList");
+        Hdf5AlgorithmInterface.writeDataTypeAttribute(Hdf5Session.shared(), fieldGroupId,
+            ZIGGY_INT, "intList");
         iListPData.write(fieldGroupId, "intList");
         H5.H5Gclose(fieldGroupId);
 
@@ -764,6 +769,88 @@ public class PrimitiveHdf5ArrayTest {
         assertTrue(Arrays.equals(randomArray4, aArray));
     }
 
+    @Test
+    public void testGetFlatHyperslab() {
+        int[][][] randomArray = new int[3][4][5];
+        for (int i = 0; i < randomArray.length; i++) {
+            for (int j = 0; j < randomArray[i].length; j++) {
+                for (int k = 0; k < randomArray[i][j].length; k++) {
+                    randomArray[i][j][k] = rd.nextInt();
+                }
+            }
+        }
+        PrimitiveHdf5Array a = new PrimitiveHdf5Array(randomArray);
+        assertTrue(a.writesFlatBuffers(new long[] { 3, 4, 5 }));
+        PrimitiveHdf5Array.Hyperslab hyperslab = a.new Hyperslab(new long[] { 1, 2, 5 },
+            new long[] { 1, 2, 0 });
+        int[] flatArray = (int[]) hyperslab.getFlatHyperslab(null);
+        assertTrue(Arrays.equals(ArrayUtils.addAll(randomArray[1][2], randomArray[1][3]),
+            flatArray));
+
+        // A buffer of the right size is reused.
+        hyperslab = a.new Hyperslab(new long[] { 1, 2, 5 }, new long[] { 2, 0, 0 });
+        assertTrue(flatArray == hyperslab.getFlatHyperslab(flatArray));
+        assertTrue(Arrays.equals(ArrayUtils.addAll(randomArray[2][0], randomArray[2][1]),
+            flatArray));
+
+        hyperslab = a.new Hyperslab(new long[] { 1, 1, 2 }, new long[] { 2, 3, 1 });
+        flatArray = (int[]) hyperslab.getFlatHyperslab(flatArray);
+        assertTrue(Arrays.equals(new int[] { randomArray[2][3][1], randomArray[2][3][2] },
+            flatArray));
+
+        // Booleans are cast to bytes.
+        boolean[][] booleanArray = { { true, false, true }, { false, false, true } };
+        a = new PrimitiveHdf5Array(booleanArray);
+        assertTrue(a.writesFlatBuffers(new long[] { 2, 3 }));
+        hyperslab = a.new Hyperslab(new long[] { 2, 3 }, new long[] { 0, 0 });
+        assertTrue(Arrays.equals(new byte[] { 1, 0, 1, 0, 0, 1 },
+            (byte[]) hyperslab.getFlatHyperslab(null)));
+
+        // A whole one-dimensional array is not copied.
+        double[] doubleArray = { 1.0, 2.0, 3.0 };
+        a = new PrimitiveHdf5Array(doubleArray);
+        hyperslab = a.new Hyperslab(new long[] { 3 }, new long[] { 0 });
+        assertTrue(doubleArray == hyperslab.getFlatHyperslab(null));
+
+        // Strings aren't written through flat buffers.
+        a = new PrimitiveHdf5Array(new String[] { "a", "b" });
+        assertFalse(a.writesFlatBuffers(new long[] { 2 }));
+        assertFalse(PrimitiveHdf5Array.readsFlatBuffers(new long[] { 2 }, ZIGGY_STRING));
+        assertFalse(PrimitiveHdf5Array.readsFlatBuffers(new long[] { 0 }, ZIGGY_INT));
+    }
+
+    @Test
+    public void testPutFlatHyperslab() throws NoSuchFieldException, SecurityException {
+        PrimitiveHdf5Array a = new PrimitiveHdf5Array(
+            HyperslabTestData.class.getDeclaredField("intArray3"));
+        PrimitiveHdf5Array.Hyperslab hyperslab = a.new Hyperslab(new long[] { 1, 2, 5 },
+            new long[] { 1, 2, 0 }, new long[] { 3, 4, 5 });
+        int[] flatArray = (int[]) hyperslab.flatBuffer(null, ZIGGY_INT);
+        assertEquals(10, flatArray.length);
+        for (int i = 0; i < flatArray.length; i++) {
+            flatArray[i] = i + 1;
+        }
+        hyperslab.putFlatHyperslab(flatArray, ZIGGY_INT);
+        int[][][] aArray = (int[][][]) a.getArrayObject();
+        assertTrue(Arrays.equals(new long[] { 3, 4, 5 }, ZiggyArrayUtils.getArraySize(aArray)));
+        assertTrue(Arrays.equals(new int[] { 1, 2, 3, 4, 5 }, aArray[1][2]));
+        assertTrue(Arrays.equals(new int[] { 6, 7, 8, 9, 10 }, aArray[1][3]));
+        assertTrue(Arrays.equals(new int[5], aArray[0][0]));
+
+        hyperslab = a.new Hyperslab(new long[] { 1, 1, 2 }, new long[] { 2, 3, 1 },
+            new long[] { 3, 4, 5 });
+        hyperslab.putFlatHyperslab(new int[] { 11, 12 }, ZIGGY_INT);
+        assertTrue(aArray == a.getArrayObject());
+        assertTrue(Arrays.equals(new int[] { 0, 11, 12, 0, 0 }, aArray[2][3]));
+
+        // A whole one-dimensional array becomes the array object.
+        a = new PrimitiveHdf5Array(HyperslabTestData.class.getDeclaredField("doubleArray1"));
+        hyperslab = a.new Hyperslab(new long[] { 3 }, new long[] { 0 }, new long[] { 3 });
+        double[] doubleArray = (double[]) hyperslab.flatBuffer(null, ZIGGY_DOUBLE);
+        hyperslab.putFlatHyperslab(doubleArray, ZIGGY_DOUBLE);
+        assertTrue(doubleArray == a.getArrayObject());
+    }
+
     @Test
     public void testHyperslabIteratorConstructors() throws NoSuchFieldException, SecurityException,
         IllegalArgumentException, IllegalAccessException {
@@ -857,5 +944,6 @@ public class PrimitiveHdf5ArrayTest {
 
     class HyperslabTestData {
         int[][][] intArray3;
+        double[] doubleArray1;
     }
 }
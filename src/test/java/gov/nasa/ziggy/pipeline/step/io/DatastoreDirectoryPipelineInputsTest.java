@@ -94,10 +94,14 @@ public class DatastoreDirectoryPipelineInputsTest {
     public ZiggyPropertyRule taskDirRule = new ZiggyPropertyRule(PropertyName.RESULTS_DIR,
         ziggyDirectoryRule, "pipeline-results");
 
+    public ZiggyPropertyRule sharedInputsRule = new ZiggyPropertyRule(
+        PropertyName.HDF5_SHARED_INPUTS, (String) null);
+
     @Rule
     public final RuleChain testRuleChain = RuleChain.outerRule(ziggyDirectoryRule)
         .around(datastoreRootProperty)
-        .around(taskDirRule);
+        .around(taskDirRule)
+        .around(sharedInputsRule);
 
     @Before
     public void setup() throws IOException {
@@ -375,6 +379,37 @@ public class DatastoreDirectoryPipelineInputsTest {
         }
     }
 
+    /**
+     * Exercises the copyDatastoreFilesToTaskDirectory() method with the inputs shared by the
+     * subtasks written once to the task directory.
+     */
+    @Test
+    public void testCopyDatastoreFilesToTaskDirectoryWithSharedInputs() {
+        sharedInputsRule.setValue("true");
+        pipelineInputs.copyDatastoreFilesToTaskDirectory(taskConfiguration, taskDirectory);
+        assertEquals(EXPECTED_SUBTASK_COUNT, taskConfiguration.getSubtaskCount());
+        assertTrue(Files.exists(taskDirectory.resolve("testmod-inputs.h5")));
+
+        for (int subtaskIndex = 0; subtaskIndex < EXPECTED_SUBTASK_COUNT; subtaskIndex++) {
+            Path subtaskDirectory = taskDirectory.resolve("st-" + subtaskIndex);
+            assertTrue(Files.exists(subtaskDirectory.resolve("testmod-inputs.h5")));
+            TestPipelineInputs storedInputs = new TestPipelineInputs(datastoreFileManager,
+                Mockito.mock(AlertService.class), pipelineTask, pipelineTaskOperations,
+                pipelineInstanceOperations, pipelineInstanceNodeOperations);
+            PipelineInputsOutputsUtils.readPipelineInputsFromDirectory(storedInputs, "testmod",
+                subtaskDirectory);
+
+            // The data files come from the subtask's file, the rest from the shared file
+            assertEquals(List.of("foo"), storedInputs.getModelFilenames());
+            assertTrue(storedInputs.getDataFilenames()
+                .contains("uncalibrated-pixels-" + subtaskIndex + ".science.nc"));
+            assertTrue(storedInputs.getDataFilenames().contains("everyone-needs-me-0.nc"));
+            assertEquals(4, storedInputs.getDataFilenames().size());
+            assertEquals(2,
+                storedInputs.getAlgorithmParameters().getParameterSetsByName().size());
+        }
+    }
+
     /** Tests the subtaskInformation() method. */
 
     @Test
@@ -1,19 +1,28 @@
 package gov.nasa.ziggy.pipeline.step.io;
 
+import static gov.nasa.ziggy.services.config.PropertyName.HDF5_SHARED_INPUTS;
 import static gov.nasa.ziggy.services.config.PropertyName.ZIGGY_TEST_WORKING_DIR;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.mockito.Mockito.mock;
 
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
+import gov.nasa.ziggy.RunByNameTestCategory;
 import gov.nasa.ziggy.ZiggyDirectoryRule;
 import gov.nasa.ziggy.ZiggyPropertyRule;
 import gov.nasa.ziggy.pipeline.definition.PipelineNode;
@@ -29,6 +38,9 @@ import gov.nasa.ziggy.pipeline.step.subtask.SubtaskInformation;
  */
 public class PipelineInputsOutputsUtilsTest {
 
+    private static final Logger log = LoggerFactory
+        .getLogger(PipelineInputsOutputsUtilsTest.class);
+
     private PipelineTask pipelineTask;
     private Path taskDirectory;
     private Path workingDir;
@@ -40,6 +52,14 @@ public class PipelineInputsOutputsUtilsTest {
     public ZiggyPropertyRule ziggyTestWorkingDirPropertyRule = new ZiggyPropertyRule(
         ZIGGY_TEST_WORKING_DIR, (String) null);
 
+    @Rule
+    public ZiggyPropertyRule sharedInputsPropertyRule = new ZiggyPropertyRule(
+        HDF5_SHARED_INPUTS, (String) null);
+
+    @Rule
+    public ZiggyPropertyRule stepSharedInputsPropertyRule = new ZiggyPropertyRule(
+        HDF5_SHARED_INPUTS.property() + ".pa", (String) null);
+
     @Before
     public void setup() throws IOException {
 
@@ -90,6 +110,94 @@ public class PipelineInputsOutputsUtilsTest {
         assertEquals(12.5F, inputsForTest.getFloatValue(), 1e-6);
     }
 
+    @Test
+    public void testSharedInputs() {
+        assertFalse(PipelineInputsOutputsUtils.sharedInputs("pa"));
+        sharedInputsPropertyRule.setValue("true");
+        assertTrue(PipelineInputsOutputsUtils.sharedInputs("pa"));
+        stepSharedInputsPropertyRule.setValue("false");
+        assertFalse(PipelineInputsOutputsUtils.sharedInputs("pa"));
+        assertTrue(PipelineInputsOutputsUtils.sharedInputs("cal"));
+    }
+
+    @Test
+    public void testWriteSubtaskPipelineInputs() {
+        TestPipelineInputs inputs = new TestPipelineInputs(pipelineTask, taskDirectory);
+        PipelineInputsOutputsUtils.writePipelineInputsToDirectory(inputs, "pa", taskDirectory);
+        inputs.setIntValue(3);
+        inputs.setFloatValue(1.5F);
+        PipelineInputsOutputsUtils.writeSubtaskPipelineInputsToDirectory(inputs, "pa",
+            workingDir, Set.of("intValue"));
+        assertTrue(Files.isRegularFile(taskDirectory.resolve("pa-inputs.h5")));
+        assertTrue(Files.isRegularFile(workingDir.resolve("pa-inputs.h5")));
+
+        // The subtask's field comes from its own file, the rest from the shared file
+        TestPipelineInputs inputsForTest = new TestPipelineInputs(pipelineTask, taskDirectory);
+        inputsForTest.setIntValue(0);
+        inputsForTest.setFloatValue(0);
+        PipelineInputsOutputsUtils.readPipelineInputsFromDirectory(inputsForTest, "pa", workingDir);
+        assertEquals(3, inputsForTest.getIntValue());
+        assertEquals(12.5F, inputsForTest.getFloatValue(), 1e-6);
+    }
+
+    /**
+     * Writes the inputs of many subtasks, first with a complete file for each subtask, then with a
+     * shared file and a file of data file names for each subtask, and logs the time, the number of
+     * files, and the number of bytes of each layout.
+     */
+    @Test
+    @Category(RunByNameTestCategory.class)
+    public void benchmarkSharedInputs() throws IOException {
+        int subtaskCount = 1000;
+        BenchmarkPipelineInputs inputs = new BenchmarkPipelineInputs(pipelineTask, taskDirectory);
+        for (int pass = 0; pass < 3; pass++) {
+            Path fullDirectory = directoryRule.directory().resolve("full-" + pass);
+            long startNanos = System.nanoTime();
+            for (int i = 0; i < subtaskCount; i++) {
+                Path subtaskDirectory = Files
+                    .createDirectories(fullDirectory.resolve("st-" + i));
+                inputs.setDataFilenames(List.of("data-" + i + ".h5"));
+                PipelineInputsOutputsUtils.writePipelineInputsToDirectory(inputs, "pa",
+                    subtaskDirectory);
+            }
+            long fullNanos = System.nanoTime() - startNanos;
+
+            Path sharedDirectory = directoryRule.directory().resolve("shared-" + pass);
+            startNanos = System.nanoTime();
+            Files.createDirectories(sharedDirectory);
+            inputs.setDataFilenames(new ArrayList<>());
+            PipelineInputsOutputsUtils.writePipelineInputsToDirectory(inputs, "pa",
+                sharedDirectory);
+            for (int i = 0; i < subtaskCount; i++) {
+                Path subtaskDirectory = Files
+                    .createDirectories(sharedDirectory.resolve("st-" + i));
+                inputs.setDataFilenames(List.of("data-" + i + ".h5"));
+                PipelineInputsOutputsUtils.writeSubtaskPipelineInputsToDirectory(inputs, "pa",
+                    subtaskDirectory, Set.of("dataFilenames"));
+            }
+            long sharedNanos = System.nanoTime() - startNanos;
+
+            log.info("Pass {}: complete inputs {} ms, {} files, {} bytes", pass,
+                fullNanos / 1_000_000, inputsFileCount(fullDirectory), inputsBytes(fullDirectory));
+            log.info("Pass {}: shared inputs {} ms, {} files, {} bytes", pass,
+                sharedNanos / 1_000_000, inputsFileCount(sharedDirectory),
+                inputsBytes(sharedDirectory));
+        }
+    }
+
+    private long inputsFileCount(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).count();
+        }
+    }
+
+    private long inputsBytes(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length())
+                .sum();
+        }
+    }
+
     @Test
     public void testWritePipelineOutputs() {
         PipelineInputsOutputsUtils.writePipelineOutputsToDirectory(
@@ -169,6 +277,23 @@ public class PipelineInputsOutputsUtilsTest {
         }
     }
 
+    private static class BenchmarkPipelineInputs extends TestPipelineInputs {
+
+        private List<String> dataFilenames = new ArrayList<>();
+        private double[] parameters = new double[20000];
+
+        public BenchmarkPipelineInputs(PipelineTask pipelineTask, Path taskDirectory) {
+            super(pipelineTask, taskDirectory);
+            for (int i = 0; i < parameters.length; i++) {
+                parameters[i] = i * 0.5;
+            }
+        }
+
+        public void setDataFilenames(List<String> dataFilenames) {
+            this.dataFilenames = dataFilenames;
+        }
+    }
+
     private static class TestPipelineOutputs extends PipelineOutputs {
 
         private int intValue = 7;
@@ -3,6 +3,7 @@ package gov.nasa.ziggy.pipeline.step.remote;
 import static org.junit.Assert.assertEquals;
 import static org.mockito.Mockito.when;
 
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
@@ -13,6 +14,7 @@ import org.mockito.Mockito;
 
 import gov.nasa.ziggy.ZiggyPropertyRule;
 import gov.nasa.ziggy.pipeline.definition.PipelineNodeExecutionResources;
+import gov.nasa.ziggy.pipeline.definition.RemoteJob;
 import gov.nasa.ziggy.pipeline.step.remote.batch.PbsBatchParameters;
 
 /**
@@ -120,4 +122,39 @@ public class RemoteArchitectureOptimizerTest {
         executionResources.setSubtaskTypicalWallTimeHours(0.5);
         assertEquals("ivy", optimizer.optimalNodeArchitecture(batchParameters, 500).getName());
     }
+
+    @Test
+    public void testOptimizeForMeasuredQueueTime() {
+        RemoteArchitectureOptimizer optimizer = RemoteArchitectureOptimizer.QUEUE_TIME;
+        executionResources.setSubtaskRamGigabytes(6.0);
+        executionResources.setSubtaskMaxWallTimeHours(4.5);
+        executionResources.setSubtaskTypicalWallTimeHours(0.5);
+
+        // Jobs on ivy wait a day in the queue, which is longer than its estimate. Too few jobs on
+        // has have been measured for the measurements to be used.
+        int minJobs = RemoteArchitectureOptimizer.MIN_MEASURED_JOBS;
+        Mockito.when(remoteEnvironment.jobTimeStatisticsByArchitecture())
+            .thenReturn(Map.of("ivy", jobTimeStatistics(minJobs, 24 * 3600), "has",
+                jobTimeStatistics(minJobs - 1, 0)));
+        assertEquals("cas_ait",
+            optimizer.optimalNodeArchitecture(batchParameters, 500).getName());
+
+        Mockito.when(remoteEnvironment.jobTimeStatisticsByArchitecture())
+            .thenReturn(Map.of("has", jobTimeStatistics(minJobs, 60)));
+        assertEquals("has", optimizer.optimalNodeArchitecture(batchParameters, 500).getName());
+    }
+
+    private RemoteJobTimeStatistics jobTimeStatistics(int jobCount, long queueWaitSeconds) {
+        RemoteJobTimeStatistics statistics = new RemoteJobTimeStatistics("hecc", "low", null);
+        for (int i = 0; i < jobCount; i++) {
+            RemoteJob remoteJob = new RemoteJob(i, "hecc");
+            remoteJob.setQueueName("low");
+            remoteJob.setArchitectureName("arch");
+            remoteJob.setSubmitTime(new Date(0));
+            remoteJob.setStartTime(new Date(queueWaitSeconds * 1000));
+            remoteJob.setEndTime(new Date(queueWaitSeconds * 1000 + 3_600_000));
+            statistics.addJob(remoteJob);
+        }
+        return statistics;
+    }
 }
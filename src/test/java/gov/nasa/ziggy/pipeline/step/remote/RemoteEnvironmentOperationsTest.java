@@ -4,13 +4,17 @@ import static gov.nasa.ziggy.ZiggyUnitTestUtils.TEST_DATA;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 
 import gov.nasa.ziggy.ZiggyDatabaseRule;
+import gov.nasa.ziggy.pipeline.definition.RemoteJob;
 import gov.nasa.ziggy.pipeline.definition.importer.PipelineDefinitionImporter;
 
 public class RemoteEnvironmentOperationsTest {
@@ -56,4 +60,46 @@ public class RemoteEnvironmentOperationsTest {
         assertTrue(remoteEnvironmentNames.contains("nas"));
         assertEquals(2, remoteEnvironmentNames.size());
     }
+
+    @Test
+    public void testJobTimeStatistics() {
+        RemoteEnvironmentOperations remoteEnvironmentOperations = new RemoteEnvironmentOperations();
+        remoteEnvironmentOperations.addJobTimes(List.of(remoteJob(1, "low", "ivy", 600, 3600),
+            remoteJob(2, "low", "has", 1200, 7200), remoteJob(3, "normal", "ivy", 1800, 3600),
+            new RemoteJob(4, "nas")));
+        remoteEnvironmentOperations.addJobTimes(List.of(remoteJob(5, "low", "ivy", 3000, 1800)));
+
+        Map<String, RemoteJobTimeStatistics> statisticsByArchitecture = remoteEnvironmentOperations
+            .jobTimeStatisticsByArchitecture("nas");
+        assertEquals(Set.of("has", "ivy"), statisticsByArchitecture.keySet());
+        RemoteJobTimeStatistics ivyStatistics = statisticsByArchitecture.get("ivy");
+        assertEquals("ivy", ivyStatistics.getArchitectureName());
+        assertEquals(3, ivyStatistics.getJobCount());
+        assertEquals(600, ivyStatistics.getQueueWaitSeconds().getMin(), 0);
+        assertEquals(3000, ivyStatistics.getQueueWaitSeconds().getMax(), 0);
+        assertEquals(1800 / 3600.0, ivyStatistics.queueWaitHours(50), 0.03);
+        assertEquals(1.0, ivyStatistics.runHours(100), 0);
+        assertEquals(1, statisticsByArchitecture.get("has").getJobCount());
+
+        Map<String, RemoteJobTimeStatistics> statisticsByQueue = remoteEnvironmentOperations
+            .jobTimeStatisticsByQueue("nas");
+        assertEquals(Set.of("low", "normal"), statisticsByQueue.keySet());
+        assertEquals(3, statisticsByQueue.get("low").getJobCount());
+        assertEquals(1, statisticsByQueue.get("normal").getJobCount());
+
+        assertTrue(remoteEnvironmentOperations.jobTimeStatisticsByArchitecture("bauhaus")
+            .isEmpty());
+    }
+
+    private RemoteJob remoteJob(long jobId, String queueName, String architectureName,
+        long queueWaitSeconds, long runSeconds) {
+        RemoteJob remoteJob = new RemoteJob(jobId, "nas");
+        remoteJob.setQueueName(queueName);
+        remoteJob.setArchitectureName(architectureName);
+        long submitMillis = 1_000_000_000_000L;
+        remoteJob.setSubmitTime(new Date(submitMillis));
+        remoteJob.setStartTime(new Date(submitMillis + queueWaitSeconds * 1000));
+        remoteJob.setEndTime(new Date(submitMillis + (queueWaitSeconds + runSeconds) * 1000));
+        return remoteJob;
+    }
 }
@@ -15,6 +15,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -40,6 +41,7 @@ import gov.nasa.ziggy.pipeline.step.remote.BatchQueue;
 import gov.nasa.ziggy.pipeline.step.remote.BatchQueueTestUtils;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteEnvironment;
 import gov.nasa.ziggy.pipeline.step.remote.RemoteJobInformation;
+import gov.nasa.ziggy.pipeline.step.remote.batch.PbsJobStatusCache.PbsJobStatus;
 import gov.nasa.ziggy.services.config.PropertyName;
 import gov.nasa.ziggy.services.config.ZiggyConfiguration;
 import gov.nasa.ziggy.services.process.ExternalProcess;
@@ -95,7 +97,7 @@ public class PbsBatchManagerTest {
         .mock(PipelineTaskOperations.class);
     private PbsBatchManager pbsBatchManager = Mockito.spy(PbsBatchManager.class);
     private ExternalProcess qstatExternalProcess1 = Mockito.mock(ExternalProcess.class);
-    private ExternalProcess qstatExternalProcess2 = Mockito.mock(ExternalProcess.class);
+    private PbsJobStatusCache jobStatusCache = Mockito.mock(PbsJobStatusCache.class);
     private ExternalProcess qdelExternalProcess = Mockito.mock(ExternalProcess.class);
 
     @Before
@@ -114,6 +116,7 @@ public class PbsBatchManagerTest {
         executionResources.setSubtaskTypicalWallTimeHours(0.5);
         executionResources.setArchitecture(architectureByName.get("ivy"));
         Mockito.doReturn(pipelineTaskOperations).when(pbsBatchManager).pipelineTaskOperations();
+        Mockito.doReturn(jobStatusCache).when(pbsBatchManager).jobStatusCache();
         Mockito.doReturn(qsubExternalProcess)
             .when(pbsBatchManager)
             .qsubExternalProcess(ArgumentMatchers.any(CommandLine.class));
@@ -215,15 +218,14 @@ public class PbsBatchManagerTest {
                 List.of("1234567.batch user low    100-200-tps.0  5   5 04:00 R 02:33  254%",
                     "1234568.batch user low    100-200-tps.1  5   5 04:00 R 02:33  254%",
                     "1234569.batch user low    100-200-tps.2  5   5 04:00 R 02:33  254%"));
-        Mockito.doReturn(qstatExternalProcess2)
-            .when(pbsBatchManager)
-            .qstatExternalProcess("-xf 1234567 1234568 1234569");
-        Mockito.when(qstatExternalProcess2.stdout("Job:", "Job_Owner"))
-            .thenReturn(
-                List.of("Job: 1234567.batch.example.com", "    Job_Owner = user@host1.example.com",
-                    "Job: 1234568.batch.example.com", "    Job_Owner = user@host1.example.com",
-                    "Job: 1234569.batch.example.com", "    Job_Owner = user@host2.example.com"));
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "Job_Owner", "user@host1.example.com"));
+        Mockito.when(jobStatusCache.jobStatus(1234568L))
+            .thenReturn(jobStatus(1234568L, "Job_Owner", "user@host1.example.com"));
+        Mockito.when(jobStatusCache.jobStatus(1234569L))
+            .thenReturn(jobStatus(1234569L, "Job_Owner", "user@host2.example.com"));
         Map<String, Long> jobIdByName = pbsBatchManager.jobIdByName(tps200PipelineTask);
+        Mockito.verify(jobStatusCache).update(Set.of(1234567L, 1234568L, 1234569L));
         assertEquals(2, jobIdByName.size());
         assertTrue(jobIdByName.containsKey("100-200-tps.0"));
         assertEquals(1234567L, jobIdByName.get("100-200-tps.0").longValue());
@@ -248,16 +250,25 @@ public class PbsBatchManagerTest {
     @Test
     public void testRemoteJobIsFinished() {
         RemoteJob remoteJob = new RemoteJob(1234567L);
-        Mockito.doReturn(qstatExternalProcess1)
-            .when(pbsBatchManager)
-            .qstatExternalProcess("-xf 1234567");
-        Mockito.when(qstatExternalProcess1.stdout("Exit_status"))
-            .thenReturn(List.of("    Exit_status = 0"));
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "Exit_status", "0"));
         assertTrue(pbsBatchManager.isFinished(remoteJob));
-        Mockito.when(qstatExternalProcess1.stdout("Exit_status")).thenReturn(new ArrayList<>());
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "job_state", "R"));
+        assertFalse(pbsBatchManager.isFinished(remoteJob));
+        Mockito.when(jobStatusCache.jobStatus(1234567L)).thenReturn(null);
         assertFalse(pbsBatchManager.isFinished(remoteJob));
     }
 
+    @Test
+    public void testUpdateJobStatus() {
+        pbsBatchManager.updateJobStatus(
+            List.of(new RemoteJob(1234567L), new RemoteJob(1234568L), new RemoteJob(1234569L)));
+        Mockito.verify(jobStatusCache).update(List.of(1234567L, 1234568L, 1234569L));
+        pbsBatchManager.updateJobStatus(new ArrayList<>());
+        Mockito.verifyNoMoreInteractions(jobStatusCache);
+    }
+
     @Test
     public void testExitStatus() {
         RemoteJobInformation job0Information = new RemoteJobInformation(
@@ -299,12 +310,9 @@ public class PbsBatchManagerTest {
         remoteJob.setFinished(false);
         remoteJob.setJobId(1234567L);
         remoteJob.setRemoteEnvironmentName("hecc");
-        Mockito.doReturn(qstatExternalProcess1)
-            .when(pbsBatchManager)
-            .qstatExternalProcess("-xf 1234567");
-        Mockito.when(qstatExternalProcess1.stdout("Job_Name", "Output_Path"))
-            .thenReturn(List.of("    Job_Name = dv-118-36426.0",
-                "    Output_Path = draco.nas.nasa.gov:/non/existent/path"));
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "Job_Name", "dv-118-36426.0", "Output_Path",
+                "draco.nas.nasa.gov:/non/existent/path"));
         RemoteJobInformation remoteJobInformation = pbsBatchManager.remoteJobInformation(remoteJob);
         assertNotNull(remoteJobInformation);
         assertEquals("dv-118-36426.0", remoteJobInformation.getJobName());
@@ -320,11 +328,7 @@ public class PbsBatchManagerTest {
         remoteJob.setFinished(false);
         remoteJob.setJobId(1234567L);
         remoteJob.setRemoteEnvironmentName("hecc");
-        Mockito.doReturn(qstatExternalProcess1)
-            .when(pbsBatchManager)
-            .qstatExternalProcess("-xf 1234567");
-        Mockito.when(qstatExternalProcess1.stdout("Job_Name", "Output_Path"))
-            .thenReturn(new ArrayList<>());
+        Mockito.when(jobStatusCache.jobStatus(1234567L)).thenReturn(null);
         RemoteJobInformation remoteJobInformation = pbsBatchManager.remoteJobInformation(remoteJob);
         assertNull(remoteJobInformation);
     }
@@ -344,19 +348,27 @@ public class PbsBatchManagerTest {
     @Test
     public void testUpdateCostEstimate() {
         RemoteJob remoteJob = new RemoteJob(1234567L, "hecc", 0.47);
-        Mockito.doReturn(qstatExternalProcess1)
-            .when(pbsBatchManager)
-            .qstatExternalProcess("-xf 1234567");
-        Mockito.when(qstatExternalProcess1.stdout("resources_used.walltime"))
-            .thenReturn(List.of("    resources_used.walltime = 14:15:00"));
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "resources_used.walltime", "14:15:00"));
         double estimate = pbsBatchManager.getUpdatedCostEstimate(remoteJob);
         assertEquals(6.6975, estimate, 1e-5);
         remoteJob.setCostEstimate(estimate);
-        Mockito.when(qstatExternalProcess1.stdout("resources_used.walltime"))
-            .thenReturn(new ArrayList<>());
+        Mockito.when(jobStatusCache.jobStatus(1234567L)).thenReturn(null);
         assertEquals(6.6975, pbsBatchManager.getUpdatedCostEstimate(remoteJob), 1e-5);
-        Mockito.when(qstatExternalProcess1.stdout("resources_used.walltime"))
-            .thenReturn(List.of("Something that doesn't match the regular expression"));
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "job_state", "Q"));
         assertEquals(6.6975, pbsBatchManager.getUpdatedCostEstimate(remoteJob), 1e-5);
+        Mockito.when(jobStatusCache.jobStatus(1234567L))
+            .thenReturn(jobStatus(1234567L, "resources_used.walltime",
+                "Something that doesn't match the regular expression"));
+        assertEquals(6.6975, pbsBatchManager.getUpdatedCostEstimate(remoteJob), 1e-5);
+    }
+
+    private PbsJobStatus jobStatus(long jobId, String... attributeNamesAndValues) {
+        Map<String, String> attributes = new HashMap<>();
+        for (int i = 0; i < attributeNamesAndValues.length; i += 2) {
+            attributes.put(attributeNamesAndValues[i], attributeNamesAndValues[i + 1]);
+        }
+        return new PbsJobStatus(jobId, attributes);
     }
 }
@@ -0,0 +1,171 @@
+package gov.nasa.ziggy.pipeline.step.remote.batch;
+
+import static gov.nasa.ziggy.ZiggyUnitTestUtils.TEST_DATA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.pipeline.step.remote.batch.PbsJobStatusCache.PbsJobStatus;
+
+/**
+ * Unit tests for {@link PbsJobStatusCache}. The tests use a local script in place of qstat; the
+ * script records its arguments and prints the contents of a file of canned qstat -xf output.
+ */
+public class PbsJobStatusCacheTest {
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private Path qstatCallsFile;
+    private Path fakeQstat;
+
+    @Before
+    public void setUp() throws IOException {
+        qstatCallsFile = directoryRule.directory().resolve("qstat-calls.txt");
+        fakeQstat = directoryRule.directory().resolve("qstat");
+        Files.writeString(fakeQstat,
+            "#!/bin/sh\n" + "echo \"$@\" >> " + qstatCallsFile.toAbsolutePath() + "\n" + "cat "
+                + TEST_DATA.resolve("qstat-xf-output.txt").toAbsolutePath() + "\n");
+        Files.setPosixFilePermissions(fakeQstat, PosixFilePermissions.fromString("rwxr-xr-x"));
+    }
+
+    @Test
+    public void testParseQstatOutput() throws IOException {
+        Map<Long, PbsJobStatus> statusByJobId = PbsJobStatusCache
+            .parseQstatOutput(Files.readAllLines(TEST_DATA.resolve("qstat-xf-output.txt")));
+        assertEquals(Set.of(1234567L, 1234568L, 1234569L), statusByJobId.keySet());
+
+        PbsJobStatus jobStatus = statusByJobId.get(1234567L);
+        assertEquals(1234567L, jobStatus.getJobId());
+        assertEquals("100-200-tps.0", jobStatus.jobName());
+        assertEquals("/path/to/pbs-100-200-tps.0", jobStatus.outputPath());
+        assertEquals("host1", jobStatus.ownerHost());
+        assertEquals("02:33:00", jobStatus.wallTime());
+        assertEquals("PBS_O_HOME=/u/user,PBS_O_LANG=en_US.UTF-8,"
+            + "PBS_O_LOGNAME=user,PBS_O_WORKDIR=/u/user", jobStatus.attribute("Variable_List"));
+        assertFalse(jobStatus.isFinished());
+
+        jobStatus = statusByJobId.get(1234568L);
+        assertNull(jobStatus.wallTime());
+        assertFalse(jobStatus.isFinished());
+
+        jobStatus = statusByJobId.get(1234569L);
+        assertEquals("host2", jobStatus.ownerHost());
+        assertEquals("271", jobStatus.attribute("Exit_status"));
+        assertTrue(jobStatus.isFinished());
+    }
+
+    @Test
+    public void testJobTimes() throws IOException {
+        Map<Long, PbsJobStatus> statusByJobId = PbsJobStatusCache
+            .parseQstatOutput(Files.readAllLines(TEST_DATA.resolve("qstat-xf-output.txt")));
+
+        PbsJobStatus jobStatus = statusByJobId.get(1234567L);
+        assertEquals("low", jobStatus.queue());
+        assertEquals("ivy", jobStatus.architectureName());
+        assertEquals(date(2026, 10, 19, 8, 0, 5), jobStatus.submitTime());
+        assertEquals(date(2026, 10, 19, 9, 30, 5), jobStatus.startTime());
+        assertNull(jobStatus.endTime());
+
+        jobStatus = statusByJobId.get(1234568L);
+        assertEquals(date(2026, 10, 9, 8, 0, 5), jobStatus.submitTime());
+        assertNull(jobStatus.startTime());
+        assertNull(jobStatus.endTime());
+
+        // Without a queue time, the submit time is the creation time.
+        jobStatus = statusByJobId.get(1234569L);
+        assertEquals("ivy", jobStatus.architectureName());
+        assertEquals(date(2026, 10, 19, 8, 0, 0), jobStatus.submitTime());
+        assertEquals(date(2026, 10, 19, 10, 0, 0), jobStatus.startTime());
+        assertEquals(date(2026, 10, 19, 14, 0, 12), jobStatus.endTime());
+    }
+
+    @Test
+    public void testOneQstatPerSnapshot() throws IOException {
+        PbsJobStatusCache cache = new PbsJobStatusCache(fakeQstat.toString(), 60_000L);
+        cache.update(List.of(1234567L, 1234568L, 1234569L));
+        assertEquals(List.of("-xf 1234567 1234568 1234569"), qstatCalls());
+
+        // All queries are answered from the snapshot.
+        assertEquals("100-200-tps.0", cache.jobStatus(1234567L).jobName());
+        assertEquals("100-200-tps.1", cache.jobStatus(1234568L).jobName());
+        assertTrue(cache.jobStatus(1234569L).isFinished());
+        assertEquals(1, qstatCalls().size());
+
+        // The finished job is no longer tracked.
+        assertEquals(Set.of(1234567L, 1234568L), cache.trackedJobIds());
+    }
+
+    @Test
+    public void testQueryForUntrackedJob() throws IOException {
+        PbsJobStatusCache cache = new PbsJobStatusCache(fakeQstat.toString(), 60_000L);
+        cache.update(List.of(1234567L, 1234568L));
+
+        // A job that is not in the snapshot causes a refresh that includes all tracked jobs.
+        assertNotNull(cache.jobStatus(1234569L));
+        assertEquals(List.of("-xf 1234567 1234568", "-xf 1234567 1234568 1234569"),
+            qstatCalls());
+
+        // A job that PBS doesn't know about is null, and is not tracked after the refresh.
+        assertNull(cache.jobStatus(1234570L));
+        assertEquals("-xf 1234567 1234568 1234570", qstatCalls().get(2));
+        assertEquals(Set.of(1234567L, 1234568L), cache.trackedJobIds());
+        assertNull(cache.jobStatus(1234570L));
+        assertEquals(3, qstatCalls().size());
+    }
+
+    @Test
+    public void testSnapshotExpiration() throws IOException {
+        PbsJobStatusCache cache = Mockito
+            .spy(new PbsJobStatusCache(fakeQstat.toString(), 10_000L));
+        Mockito.doReturn(1_000L).when(cache).currentTimeMillis();
+        cache.update(List.of(1234567L, 1234568L));
+        Mockito.doReturn(11_000L).when(cache).currentTimeMillis();
+        cache.jobStatus(1234567L);
+        assertEquals(1, qstatCalls().size());
+        Mockito.doReturn(11_001L).when(cache).currentTimeMillis();
+        cache.jobStatus(1234567L);
+        cache.jobStatus(1234568L);
+        assertEquals(2, qstatCalls().size());
+    }
+
+    @Test
+    public void testQstatFailure() {
+        PbsJobStatusCache cache = new PbsJobStatusCache(
+            directoryRule.directory().resolve("no-such-qstat").toString(), 60_000L);
+        cache.update(List.of(1234567L, 1234568L));
+        assertNull(cache.jobStatus(1234567L));
+
+        // Without qstat output, the jobs continue to be tracked.
+        assertEquals(Set.of(1234567L, 1234568L), cache.trackedJobIds());
+    }
+
+    private Date date(int year, int month, int day, int hour, int minute, int second) {
+        return Date.from(LocalDateTime.of(year, month, day, hour, minute, second)
+            .atZone(ZoneId.systemDefault())
+            .toInstant());
+    }
+
+    private List<String> qstatCalls() throws IOException {
+        return Files.readAllLines(qstatCallsFile);
+    }
+}
@@ -0,0 +1,144 @@
+package gov.nasa.ziggy.services.alert;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Test;
+
+import gov.nasa.ziggy.services.alert.Alert.Severity;
+
+public class AlertDispatcherTest {
+
+    private final List<List<Alert>> persistedBatches = Collections
+        .synchronizedList(new ArrayList<>());
+    private final List<Alert> broadcastAlerts = Collections.synchronizedList(new ArrayList<>());
+    private AlertDispatcher alertDispatcher;
+
+    @After
+    public void tearDown() {
+        if (alertDispatcher != null) {
+            alertDispatcher.stop();
+        }
+    }
+
+    @Test
+    public void testDeliveryAndDeduplication() throws InterruptedException {
+        CountDownLatch persistStarted = new CountDownLatch(1);
+        CountDownLatch releasePersist = new CountDownLatch(1);
+        alertDispatcher = new AlertDispatcher(alerts -> {
+            persistStarted.countDown();
+            awaitQuietly(releasePersist);
+            persistedBatches.add(alerts);
+        }, broadcastAlerts::add);
+
+        // The first alert is taken at once, and the rest wait for it to be persisted.
+        alertDispatcher.submit(alert("component", "first"), false);
+        assertTrue(persistStarted.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            alertDispatcher.submit(alert("component", "repeated"), i == 3);
+        }
+        alertDispatcher.submit(alert("other component", "repeated"), false);
+        releasePersist.countDown();
+        alertDispatcher.flush();
+
+        assertEquals(2, persistedBatches.size());
+        assertEquals(1, persistedBatches.get(0).size());
+        assertEquals("first", persistedBatches.get(0).get(0).getMessage());
+        List<Alert> batch = persistedBatches.get(1);
+        assertEquals(2, batch.size());
+        assertEquals("component", batch.get(0).getSourceComponent());
+        assertEquals("repeated (repeated 4 times)", batch.get(0).getMessage());
+        assertEquals("other component", batch.get(1).getSourceComponent());
+        assertEquals("repeated", batch.get(1).getMessage());
+
+        // One of the repeated alerts asked to be broadcast.
+        assertEquals(1, broadcastAlerts.size());
+        assertEquals("component", broadcastAlerts.get(0).getSourceComponent());
+    }
+
+    @Test
+    public void testBroadcastRateLimit() {
+        alertDispatcher = new AlertDispatcher(persistedBatches::add, broadcastAlerts::add,
+            AlertDispatcher.DEFAULT_QUEUE_CAPACITY, 3, 60_000);
+        for (int i = 0; i < 10; i++) {
+            alertDispatcher.submit(alert("component", "message " + i), true);
+        }
+        alertDispatcher.flush();
+
+        assertEquals(10, persistedBatches.stream().mapToInt(List::size).sum());
+        assertEquals(3, broadcastAlerts.size());
+    }
+
+    @Test
+    public void testBoundedQueue() throws InterruptedException {
+        CountDownLatch releasePersist = new CountDownLatch(1);
+        alertDispatcher = new AlertDispatcher(alerts -> {
+            awaitQuietly(releasePersist);
+            persistedBatches.add(alerts);
+        }, broadcastAlerts::add, 2, 10, 60_000);
+
+        // At most two alerts are taken by the first batch, and the next two fill the queue, so
+        // the fifth waits.
+        Thread submitter = new Thread(() -> {
+            for (int i = 0; i < 5; i++) {
+                alertDispatcher.submit(alert("component", "message " + i), false);
+            }
+        });
+        submitter.start();
+        submitter.join(500);
+        assertTrue(submitter.isAlive());
+
+        releasePersist.countDown();
+        submitter.join(10_000);
+        alertDispatcher.flush();
+        assertEquals(5, persistedBatches.stream().mapToInt(List::size).sum());
+    }
+
+    @Test
+    public void testStop() {
+        alertDispatcher = new AlertDispatcher(persistedBatches::add, broadcastAlerts::add);
+        for (int i = 0; i < 3; i++) {
+            alertDispatcher.submit(alert("component", "message " + i), false);
+        }
+        alertDispatcher.stop();
+        assertEquals(3, persistedBatches.stream().mapToInt(List::size).sum());
+
+        // Alerts submitted after the dispatcher stops are delivered at once.
+        alertDispatcher.submit(alert("component", "late"), true);
+        assertEquals(4, persistedBatches.stream().mapToInt(List::size).sum());
+        assertEquals("late", broadcastAlerts.get(0).getMessage());
+    }
+
+    @Test
+    public void testPersistFailure() {
+        alertDispatcher = new AlertDispatcher(alerts -> {
+            throw new IllegalStateException("No database");
+        }, broadcastAlerts::add);
+        alertDispatcher.submit(alert("component", "message"), true);
+        alertDispatcher.flush();
+
+        // The alert is broadcast even though it couldn't be stored.
+        assertEquals(1, broadcastAlerts.size());
+    }
+
+    private Alert alert(String sourceComponent, String message) {
+        return new Alert(new Date(), sourceComponent, null, "process", "host", 1,
+            Severity.WARNING, message);
+    }
+
+    private void awaitQuietly(CountDownLatch latch) {
+        try {
+            latch.await(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
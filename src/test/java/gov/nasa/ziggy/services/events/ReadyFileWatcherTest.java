@@ -0,0 +1,150 @@
+package gov.nasa.ziggy.services.events;
+
+import static gov.nasa.ziggy.services.config.PropertyName.EVENT_HANDLER_POLLING_ENABLED;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+import gov.nasa.ziggy.ZiggyPropertyRule;
+
+/**
+ * Unit tests for {@link ReadyFileWatcher}.
+ */
+public class ReadyFileWatcherTest {
+
+    private static final Logger log = LoggerFactory.getLogger(ReadyFileWatcherTest.class);
+
+    private static final long POLLING_INTERVAL_MILLIS = 100L;
+    private static final long MAX_EVENT_LATENCY_MILLIS = 2_000L;
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    @Rule
+    public ZiggyPropertyRule pollingEnabledPropertyRule = new ZiggyPropertyRule(
+        EVENT_HANDLER_POLLING_ENABLED, (String) null);
+
+    private Path watchedDirectory;
+    private ReadyFileWatcher readyFileWatcher;
+
+    @Before
+    public void setUp() throws IOException {
+        watchedDirectory = Files.createDirectories(directoryRule.directory().resolve("events"));
+    }
+
+    @After
+    public void tearDown() {
+        if (readyFileWatcher != null) {
+            readyFileWatcher.shutdown();
+        }
+    }
+
+    @Test
+    public void testReadyFileEvent() throws IOException, InterruptedException {
+        readyFileWatcher = new ReadyFileWatcher();
+        Semaphore scans = new Semaphore(0);
+        ZiggyEventHandler handler = handler("handler", scans);
+        readyFileWatcher.register(handler);
+        assertTrue(readyFileWatcher.isWatched(handler));
+
+        // The handler checks its directory once when it's registered.
+        assertTrue(scans.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+
+        long startNanos = System.nanoTime();
+        Files.createFile(watchedDirectory.resolve("label.READY.name.1"));
+        assertTrue(scans.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        log.info("Event handler notified {} ms after ready file creation",
+            TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    @Test
+    public void testOtherFilesIgnored() throws IOException, InterruptedException {
+        readyFileWatcher = new ReadyFileWatcher();
+        Semaphore scans = new Semaphore(0);
+        ZiggyEventHandler handler = handler("handler", scans);
+        readyFileWatcher.register(handler);
+        assertTrue(scans.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+
+        Files.createFile(watchedDirectory.resolve("data-file.h5"));
+        assertFalse(scans.tryAcquire(500L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testSharedDirectory() throws IOException, InterruptedException {
+        readyFileWatcher = new ReadyFileWatcher();
+        Semaphore scans1 = new Semaphore(0);
+        Semaphore scans2 = new Semaphore(0);
+        ZiggyEventHandler handler1 = handler("handler1", scans1);
+        ZiggyEventHandler handler2 = handler("handler2", scans2);
+        readyFileWatcher.register(handler1);
+        readyFileWatcher.register(handler2);
+        assertTrue(scans1.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        assertTrue(scans2.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+
+        // Unregistering one handler doesn't stop the watch for the other.
+        readyFileWatcher.unregister(handler1);
+        Files.createFile(watchedDirectory.resolve("READY.name.1"));
+        assertTrue(scans2.tryAcquire(MAX_EVENT_LATENCY_MILLIS, TimeUnit.MILLISECONDS));
+        assertFalse(scans1.tryAcquire(500L, TimeUnit.MILLISECONDS));
+
+        readyFileWatcher.unregister(handler2);
+        Files.createFile(watchedDirectory.resolve("READY.other.1"));
+        assertFalse(scans2.tryAcquire(500L, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testPollingFallback() throws InterruptedException {
+        pollingEnabledPropertyRule.setValue("true");
+        readyFileWatcher = new ReadyFileWatcher();
+        Semaphore scans = new Semaphore(0);
+        ZiggyEventHandler handler = handler("handler", scans);
+        readyFileWatcher.register(handler);
+        assertFalse(readyFileWatcher.isWatched(handler));
+
+        // The directory is checked on every polling interval whether or not anything changed.
+        assertTrue(scans.tryAcquire(3, 10 * POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+
+        readyFileWatcher.unregister(handler);
+        scans.drainPermits();
+        assertFalse(scans.tryAcquire(3 * POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void testMissingDirectory() throws InterruptedException {
+        readyFileWatcher = new ReadyFileWatcher();
+        Semaphore scans = new Semaphore(0);
+        ZiggyEventHandler handler = handler("handler", scans);
+        Mockito.doReturn(directoryRule.directory().resolve("no-such-dir"))
+            .when(handler)
+            .interpolatedDirectory();
+        readyFileWatcher.register(handler);
+        assertFalse(readyFileWatcher.isWatched(handler));
+        assertTrue(scans.tryAcquire(2, 10 * POLLING_INTERVAL_MILLIS, TimeUnit.MILLISECONDS));
+    }
+
+    private ZiggyEventHandler handler(String name, Semaphore scans) {
+        ZiggyEventHandler handler = Mockito.mock(ZiggyEventHandler.class);
+        Mockito.doReturn(name).when(handler).getName();
+        Mockito.doReturn(watchedDirectory).when(handler).interpolatedDirectory();
+        Mockito.doReturn(POLLING_INTERVAL_MILLIS).when(handler).readyFileCheckIntervalMillis();
+        Mockito.doAnswer(invocation -> {
+            scans.release();
+            return null;
+        }).when(handler).run();
+        return handler;
+    }
+}
@@ -0,0 +1,135 @@
+package gov.nasa.ziggy.services.logging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+
+/**
+ * Unit tests for {@link TaskLogReader}.
+ */
+public class TaskLogReaderTest {
+
+    private static final int LINE_COUNT = 1000;
+
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
+    private Path taskLog;
+    private TaskLogReader taskLogReader;
+
+    @Before
+    public void setUp() throws IOException {
+        taskLog = directoryRule.directory().resolve("10-100-algname.0-0.log");
+        Files.writeString(taskLog, lines(0, LINE_COUNT));
+        taskLogReader = new TaskLogReader();
+    }
+
+    @Test
+    public void testReadLines() throws IOException {
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, 0, 10);
+        assertEquals(lines(0, 10), chunk.getContents());
+        assertEquals(0, chunk.getFirstLine());
+        assertEquals(10, chunk.getLineCount());
+        assertEquals(LINE_COUNT, chunk.getTotalLines());
+        assertEquals(Files.size(taskLog), chunk.getLogSizeBytes());
+        assertFalse(chunk.isTail());
+
+        // Lines on either side of an index entry.
+        int stride = TaskLogReader.LINE_INDEX_STRIDE;
+        chunk = taskLogReader.readLines(taskLog, 3 * stride - 2, 5);
+        assertEquals(lines(3 * stride - 2, 3 * stride + 3), chunk.getContents());
+    }
+
+    @Test
+    public void testReadTail() throws IOException {
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, -25, 25);
+        assertEquals(lines(LINE_COUNT - 25, LINE_COUNT), chunk.getContents());
+        assertEquals(LINE_COUNT - 25, chunk.getFirstLine());
+        assertTrue(chunk.isTail());
+
+        // A tail window longer than the log starts at the beginning.
+        chunk = taskLogReader.readLines(taskLog, -2 * LINE_COUNT, 2 * LINE_COUNT);
+        assertEquals(lines(0, LINE_COUNT), chunk.getContents());
+    }
+
+    @Test
+    public void testReadPastEnd() throws IOException {
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, LINE_COUNT - 5, 10);
+        assertEquals(lines(LINE_COUNT - 5, LINE_COUNT), chunk.getContents());
+        assertEquals(5, chunk.getLineCount());
+
+        chunk = taskLogReader.readLines(taskLog, LINE_COUNT + 5, 10);
+        assertEquals("", chunk.getContents());
+        assertEquals(LINE_COUNT, chunk.getFirstLine());
+        assertEquals(0, chunk.getLineCount());
+    }
+
+    @Test
+    public void testGrowingLog() throws IOException {
+        taskLogReader.readLines(taskLog, -10, 10);
+
+        // A partial last line counts as a line.
+        Files.writeString(taskLog, lines(LINE_COUNT, LINE_COUNT + 300) + "partial",
+            StandardOpenOption.APPEND);
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, -3, 3);
+        assertEquals(LINE_COUNT + 301, chunk.getTotalLines());
+        assertEquals(lines(LINE_COUNT + 298, LINE_COUNT + 300) + "partial", chunk.getContents());
+
+        // Lines indexed after the log grew can be found directly.
+        chunk = taskLogReader.readLines(taskLog, LINE_COUNT + 200, 2);
+        assertEquals(lines(LINE_COUNT + 200, LINE_COUNT + 202), chunk.getContents());
+
+        // Completing the partial line doesn't change the line count.
+        Files.writeString(taskLog, " line\n", StandardOpenOption.APPEND);
+        chunk = taskLogReader.readLines(taskLog, -1, 1);
+        assertEquals(LINE_COUNT + 301, chunk.getTotalLines());
+        assertEquals("partial line\n", chunk.getContents());
+    }
+
+    @Test
+    public void testReplacedLog() throws IOException {
+        taskLogReader.readLines(taskLog, -10, 10);
+        Files.writeString(taskLog, lines(0, 5));
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, -10, 10);
+        assertEquals(5, chunk.getTotalLines());
+        assertEquals(lines(0, 5), chunk.getContents());
+    }
+
+    @Test
+    public void testMaxChunkBytes() throws IOException {
+        int lineLength = line(0).length();
+        taskLogReader = new TaskLogReader(10 * lineLength + 5);
+        TaskLogChunk chunk = taskLogReader.readLines(taskLog, 0, 100);
+        assertEquals(10, chunk.getLineCount());
+        assertEquals(lines(0, 10), chunk.getContents());
+
+        // A line longer than the maximum chunk size is truncated.
+        taskLogReader = new TaskLogReader(5);
+        chunk = taskLogReader.readLines(taskLog, 1, 100);
+        assertEquals(1, chunk.getLineCount());
+        assertEquals(line(1).substring(0, 5), chunk.getContents());
+    }
+
+    private static String lines(int start, int end) {
+        StringBuilder lines = new StringBuilder();
+        for (int i = start; i < end; i++) {
+            lines.append(line(i));
+        }
+        return lines.toString();
+    }
+
+    private static String line(int lineNumber) {
+        return String.format("2026-10-19 12:00:00 INFO line %06d of the task log%n", lineNumber);
+    }
+}
@@ -0,0 +1,217 @@
+package gov.nasa.ziggy.services.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Unit tests for {@link PrioritizedMessageQueue}.
+ */
+public class PrioritizedMessageQueueTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PrioritizedMessageQueueTest.class);
+
+    @Test
+    public void testControlBeforeTelemetry() throws InterruptedException {
+        PrioritizedMessageQueue<TestMessage> queue = queue(10, 10);
+        queue.offer(telemetry("t1", null));
+        queue.offer(telemetry("t2", null));
+        queue.offer(control("c1"));
+        queue.offer(control("c2"));
+        assertEquals(2, queue.controlSize());
+        assertEquals(2, queue.telemetrySize());
+
+        assertEquals(List.of("c1", "c2", "t1", "t2"), takeAll(queue));
+    }
+
+    @Test
+    public void testControlCapacity() throws InterruptedException {
+        PrioritizedMessageQueue<TestMessage> queue = queue(2, 10);
+        assertTrue(queue.offer(control("c1")));
+        assertTrue(queue.offer(control("c2")));
+        assertFalse(queue.offer(control("c3")));
+        assertFalse(queue.offer(control("c3"), 50L, TimeUnit.MILLISECONDS));
+
+        // Telemetry is unaffected by a full control lane.
+        assertTrue(queue.offer(telemetry("t1", null)));
+
+        // Space in the control lane wakes up a waiting publisher.
+        Thread consumer = new Thread(() -> {
+            try {
+                Thread.sleep(50L);
+                queue.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.start();
+        assertTrue(queue.offer(control("c3"), 5_000L, TimeUnit.MILLISECONDS));
+        consumer.join();
+        assertEquals(List.of("c2", "c3", "t1"), takeAll(queue));
+    }
+
+    @Test
+    public void testTelemetryOverflow() throws InterruptedException {
+        PrioritizedMessageQueue<TestMessage> queue = queue(10, 3);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.offer(telemetry("t" + i, null)));
+        }
+        assertEquals(3, queue.telemetrySize());
+        assertEquals(2, queue.droppedMessageCount());
+        assertEquals(List.of("t2", "t3", "t4"), takeAll(queue));
+    }
+
+    @Test
+    public void testTelemetryCoalescing() throws InterruptedException {
+        PrioritizedMessageQueue<TestMessage> queue = queue(10, 2);
+        queue.offer(telemetry("a1", "a"));
+        queue.offer(telemetry("b1", "b"));
+        queue.offer(telemetry("a2", "a"));
+        queue.offer(telemetry("a3", "a"));
+        assertEquals(2, queue.telemetrySize());
+        assertEquals(2, queue.coalescedMessageCount());
+        assertEquals(0, queue.droppedMessageCount());
+
+        // The coalesced message keeps the position of the first message from its source.
+        assertEquals(List.of("a1+a2+a3", "b1"), takeAll(queue));
+    }
+
+    /**
+     * Floods the queue with telemetry from several publishers while a slow consumer takes messages
+     * and checks that control messages are still delivered promptly and that the queue stays
+     * within its capacity. Promptness is measured by the number of telemetry messages the consumer
+     * takes while a control message is queued rather than by elapsed time, so that the test doesn't
+     * depend on how much CPU the test threads get.
+     */
+    @Test
+    public void testControlLatencyUnderTelemetryFlood() throws InterruptedException {
+        int telemetryCapacity = 1_000;
+        PrioritizedMessageQueue<TestMessage> queue = queue(100, telemetryCapacity);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicInteger maxSize = new AtomicInteger();
+        AtomicInteger takenTelemetryCount = new AtomicInteger();
+        List<Thread> publishers = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            String source = "source" + i;
+            Thread publisher = new Thread(() -> {
+                int messageCount = 0;
+                while (running.get()) {
+                    queue.offer(telemetry(source + "-" + messageCount++, null));
+                    maxSize.accumulateAndGet(queue.size(), Math::max);
+                }
+            });
+            publisher.setDaemon(true);
+            publisher.start();
+            publishers.add(publisher);
+        }
+
+        // Each message takes the consumer about 1 ms, as if it were sent over RMI.
+        Map<String, Integer> telemetryTakenByControlMessage = new ConcurrentHashMap<>();
+        Thread consumer = new Thread(() -> {
+            try {
+                while (true) {
+                    TestMessage message = queue.take();
+                    if (message.telemetry) {
+                        takenTelemetryCount.incrementAndGet();
+                    } else {
+                        telemetryTakenByControlMessage.put(message.content,
+                            takenTelemetryCount.get());
+                    }
+                    Thread.sleep(1L);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+
+        // Let the telemetry back up before sending control messages.
+        while (queue.telemetrySize() < telemetryCapacity) {
+            Thread.sleep(10L);
+        }
+        int controlMessageCount = 20;
+        Map<String, Integer> telemetryTakenByControlOffer = new HashMap<>();
+        for (int i = 0; i < controlMessageCount; i++) {
+            String content = "c" + i;
+            assertTrue(queue.offer(control(content), 1_000L, TimeUnit.MILLISECONDS));
+            telemetryTakenByControlOffer.put(content, takenTelemetryCount.get());
+            Thread.sleep(20L);
+        }
+        while (telemetryTakenByControlMessage.size() < controlMessageCount) {
+            Thread.sleep(10L);
+        }
+        running.set(false);
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        consumer.interrupt();
+        consumer.join();
+
+        int maxTelemetryTakenAhead = telemetryTakenByControlOffer.keySet()
+            .stream()
+            .mapToInt(content -> telemetryTakenByControlMessage.get(content)
+                - telemetryTakenByControlOffer.get(content))
+            .max()
+            .getAsInt();
+        log.info("At most {} telemetry messages taken ahead of a control message, {} dropped",
+            maxTelemetryTakenAhead, queue.droppedMessageCount());
+
+        // With a FIFO queue, each control message would wait behind the full telemetry backlog.
+        // Here, only a message that was being taken when the control message arrived can go first.
+        assertTrue(maxTelemetryTakenAhead <= 1);
+        assertTrue(queue.droppedMessageCount() > 0);
+        assertTrue(maxSize.get() <= telemetryCapacity + controlMessageCount);
+    }
+
+    private PrioritizedMessageQueue<TestMessage> queue(int controlCapacity,
+        int telemetryCapacity) {
+        return new PrioritizedMessageQueue<>("test", controlCapacity, telemetryCapacity,
+            message -> message.telemetry, message -> message.key,
+            (queuedMessage, message) -> telemetry(queuedMessage.content + "+" + message.content,
+                message.key));
+    }
+
+    private List<String> takeAll(PrioritizedMessageQueue<TestMessage> queue)
+        throws InterruptedException {
+        List<String> contents = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            contents.add(queue.take().content);
+        }
+        return contents;
+    }
+
+    private static TestMessage control(String content) {
+        return new TestMessage(content, false, null);
+    }
+
+    private static TestMessage telemetry(String content, String key) {
+        return new TestMessage(content, true, key);
+    }
+
+    private static class TestMessage {
+
+        private final String content;
+        private final boolean telemetry;
+        private final String key;
+
+        public TestMessage(String content, boolean telemetry, String key) {
+            this.content = content;
+            this.telemetry = telemetry;
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package gov.nasa.ziggy.services.messaging;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import gov.nasa.ziggy.pipeline.definition.PipelineTask;
+import gov.nasa.ziggy.services.messages.WorkerStatusMessage;
+import gov.nasa.ziggy.services.process.ProcessInfo;
+import gov.nasa.ziggy.services.process.StatusMessage;
+
+/**
+ * Unit tests for {@link StatusMessageDeltas}.
+ */
+public class StatusMessageDeltasTest {
+
+    private PipelineTask pipelineTask;
+    private ProcessInfo processInfo = new ProcessInfo("worker", 1234L, 0);
+    private StatusMessageDeltas sender;
+    private StatusMessageDeltas receiver;
+
+    @Before
+    public void setUp() {
+        pipelineTask = Mockito.spy(PipelineTask.class);
+        Mockito.when(pipelineTask.getId()).thenReturn(3L);
+        sender = new StatusMessageDeltas();
+        receiver = new StatusMessageDeltas();
+    }
+
+    @Test
+    public void testDeltaRoundTrip() {
+        WorkerStatusMessage idleMessage = statusMessage("IDLE", false);
+        StatusMessage outgoingMessage = sender.outgoingMessage(idleMessage);
+        assertSame(idleMessage, outgoingMessage);
+        assertSame(idleMessage, receiver.incomingMessage(outgoingMessage));
+
+        // Only the state changes, so the delta omits the pipeline task.
+        outgoingMessage = sender.outgoingMessage(statusMessage("PROCESSING", false));
+        assertTrue(outgoingMessage.isDelta());
+        WorkerStatusMessage delta = (WorkerStatusMessage) outgoingMessage;
+        assertEquals("PROCESSING", delta.getState());
+        assertNull(delta.getPipelineTask());
+        assertNull(delta.getUnitOfWork());
+
+        WorkerStatusMessage completeMessage = (WorkerStatusMessage) receiver
+            .incomingMessage(outgoingMessage);
+        assertFalse(completeMessage.isDelta());
+        assertEquals("PROCESSING", completeMessage.getState());
+        assertEquals(pipelineTask, completeMessage.getPipelineTask());
+        assertEquals("uow", completeMessage.getUnitOfWork());
+        assertEquals("step", completeMessage.getPipelineStepName());
+        assertEquals(processInfo, completeMessage.getSourceProcess());
+    }
+
+    @Test
+    public void testPeriodicCompleteMessage() {
+        for (int i = 0; i < 2 * StatusMessageDeltas.FULL_MESSAGE_INTERVAL; i++) {
+            StatusMessage outgoingMessage = sender.outgoingMessage(statusMessage("IDLE", false));
+            assertEquals(i % StatusMessageDeltas.FULL_MESSAGE_INTERVAL != 0,
+                outgoingMessage.isDelta());
+        }
+    }
+
+    @Test
+    public void testDeltaWithoutCompleteMessage() {
+        sender.outgoingMessage(statusMessage("IDLE", false));
+        StatusMessage outgoingMessage = sender.outgoingMessage(statusMessage("IDLE", false));
+        assertTrue(outgoingMessage.isDelta());
+
+        // A receiver that missed the complete message can't use the delta.
+        assertNull(receiver.incomingMessage(outgoingMessage));
+    }
+
+    @Test
+    public void testDroppedDelta() {
+        receiver.incomingMessage(sender.outgoingMessage(statusMessage("IDLE", false)));
+        sender.outgoingMessage(statusMessage("PROCESSING", false));
+
+        // The delta that follows a dropped delta can't be applied.
+        StatusMessage outgoingMessage = sender.outgoingMessage(statusMessage("PROCESSING", false));
+        assertTrue(outgoingMessage.isDelta());
+        assertNull(receiver.incomingMessage(outgoingMessage));
+
+        // The next complete message brings the receiver up to date.
+        outgoingMessage = sender.outgoingMessage(statusMessage("PROCESSING", false));
+        assertTrue(outgoingMessage.isDelta());
+        assertNull(receiver.incomingMessage(outgoingMessage));
+        outgoingMessage = sender.outgoingMessage(statusMessage("PROCESSING", false));
+        assertFalse(outgoingMessage.isDelta());
+        assertEquals("PROCESSING",
+            ((WorkerStatusMessage) receiver.incomingMessage(outgoingMessage)).getState());
+    }
+
+    @Test
+    public void testCoalescedDeltas() {
+        receiver.incomingMessage(sender.outgoingMessage(statusMessage("IDLE", false)));
+        StatusMessage delta1 = sender.outgoingMessage(statusMessage("PROCESSING", false));
+        WorkerStatusMessage message2 = new WorkerStatusMessage(1, "PROCESSING", "2", pipelineTask,
+            "step", "uow2", 1000L, false);
+        message2.setSourceProcess(processInfo);
+        StatusMessage delta2 = sender.outgoingMessage(message2);
+
+        // The coalesced delta carries the changes from both deltas.
+        StatusMessage coalescedDelta = delta2.coalesceWith(delta1);
+        assertTrue(coalescedDelta.isDelta());
+        WorkerStatusMessage completeMessage = (WorkerStatusMessage) receiver
+            .incomingMessage(coalescedDelta);
+        assertEquals("PROCESSING", completeMessage.getState());
+        assertEquals("uow2", completeMessage.getUnitOfWork());
+        assertEquals(pipelineTask, completeMessage.getPipelineTask());
+
+        // Subsequent deltas still apply.
+        StatusMessage delta3 = sender.outgoingMessage(statusMessage("IDLE", false));
+        assertEquals("IDLE",
+            ((WorkerStatusMessage) receiver.incomingMessage(delta3)).getState());
+    }
+
+    @Test
+    public void testFinalMessage() {
+        receiver.incomingMessage(sender.outgoingMessage(statusMessage("IDLE", false)));
+
+        // Final messages are always complete, and the next message starts over.
+        WorkerStatusMessage finalMessage = statusMessage("IDLE", true);
+        assertSame(finalMessage, sender.outgoingMessage(finalMessage));
+        assertSame(finalMessage, receiver.incomingMessage(finalMessage));
+        StatusMessage outgoingMessage = sender.outgoingMessage(statusMessage("IDLE", false));
+        assertFalse(outgoingMessage.isDelta());
+
+        // The receiver forgot the worker after its final message, so it needs that complete
+        // message before it can apply deltas again.
+        outgoingMessage = sender.outgoingMessage(statusMessage("IDLE", false));
+        assertTrue(outgoingMessage.isDelta());
+        assertNull(receiver.incomingMessage(outgoingMessage));
+    }
+
+    private WorkerStatusMessage statusMessage(String state, boolean lastMessage) {
+        WorkerStatusMessage message = new WorkerStatusMessage(1, state, "2", pipelineTask, "step",
+            "uow", 1000L, lastMessage);
+        message.setSourceProcess(processInfo);
+        return message;
+    }
+}
@@ -11,13 +11,17 @@ import java.util.concurrent.CountDownLatch;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mockito.Mockito;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import gov.nasa.ziggy.TestEventDetector;
+import gov.nasa.ziggy.pipeline.definition.PipelineTask;
 import gov.nasa.ziggy.services.messages.PipelineMessage;
+import gov.nasa.ziggy.services.messages.WorkerStatusMessage;
 import gov.nasa.ziggy.services.messaging.MessagingTestUtils.Message1;
 import gov.nasa.ziggy.services.messaging.MessagingTestUtils.Message2;
+import gov.nasa.ziggy.services.process.ProcessInfo;
 import gov.nasa.ziggy.util.PipelineException;
 
 /**
@@ -158,4 +162,42 @@ public class ZiggyMessengerTest {
         assertEquals(PipelineException.class.getName(),
             ZiggyMessenger.getExceptionsThrown().get(0).getClass().getName());
     }
+
+    /**
+     * Tests that status messages from a single source that pile up in the outgoing queue are
+     * coalesced into the most recent one.
+     */
+    @Test
+    public void testStatusMessageCoalescing() throws InterruptedException {
+        List<String> states = new ArrayList<>();
+        ZiggyMessenger.subscribe(WorkerStatusMessage.class, message -> {
+            states.add(message.getState());
+        });
+
+        // Hold up the outgoing queue while the status messages are published.
+        CountDownLatch holdQueue = new CountDownLatch(1);
+        ZiggyMessenger.subscribe(Message1.class, message -> {
+            try {
+                holdQueue.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        ZiggyMessenger.publish(new Message1("hold"));
+
+        PipelineTask pipelineTask = Mockito.spy(PipelineTask.class);
+        Mockito.when(pipelineTask.getId()).thenReturn(3L);
+        ProcessInfo processInfo = new ProcessInfo("worker", 1234L, 0);
+        for (int i = 0; i < 5; i++) {
+            WorkerStatusMessage message = new WorkerStatusMessage(1, "state" + i, "2",
+                pipelineTask, "step", "uow", 1000L, false);
+            message.setSourceProcess(processInfo);
+            ZiggyMessenger.publish(message);
+        }
+        holdQueue.countDown();
+
+        assertTrue(TestEventDetector.detectTestEvent(1000L, () -> !states.isEmpty()));
+        Thread.sleep(100L);
+        assertEquals(List.of("state4"), states);
+    }
 }
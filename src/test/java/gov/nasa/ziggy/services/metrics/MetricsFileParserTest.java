@@ -2,19 +2,29 @@ package gov.nasa.ziggy.services.metrics;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 
 import java.io.File;
-import java.io.Reader;
-import java.io.StringReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+import org.junit.Rule;
 import org.junit.Test;
 
+import gov.nasa.ziggy.ZiggyDirectoryRule;
+
 import gov.nasa.ziggy.metrics.CounterMetric;
 import gov.nasa.ziggy.metrics.MetricType;
 import gov.nasa.ziggy.metrics.MetricValue;
 import gov.nasa.ziggy.metrics.ValueMetric;
+import gov.nasa.ziggy.util.TimeRange;
 
 /**
  * Test the MetricsFileParser
@@ -22,6 +32,9 @@ import gov.nasa.ziggy.metrics.ValueMetric;
  * @author Sean McCauliff
  */
 public class MetricsFileParserTest {
+    @Rule
+    public ZiggyDirectoryRule directoryRule = new ZiggyDirectoryRule();
+
     @Test
     public void testParse() throws Exception {
         long timestamp = 23432434;
@@ -44,12 +57,9 @@ public class MetricsFileParserTest {
         cm0.toLogString(testInput);
         testInput.append('\n');
 
-        MetricsFileParser parser = new MetricsFileParser(new File("bogus")) {
-            @Override
-            protected Reader openReader() {
-                return new StringReader(testInput.toString());
-            }
-        };
+        File metricsFile = directoryRule.directory().resolve("metrics.txt").toFile();
+        Files.writeString(metricsFile.toPath(), testInput);
+        MetricsFileParser parser = new MetricsFileParser(metricsFile);
 
         Iterator<MetricValue> mvIt = parser.parseFile();
         MetricValue metricValue = mvIt.next();
@@ -64,6 +74,79 @@ public class MetricsFileParserTest {
         assertFalse(mvIt.hasNext());
     }
 
+    @Test
+    public void testParseSelectedTypesAndTimes() throws IOException {
+        // Write enough lines for several blocks of the timestamp index.
+        int lineCount = 100000;
+        File metricsFile = directoryRule.directory().resolve("metrics.txt").toFile();
+        try (PrintWriter writer = new PrintWriter(
+            Files.newBufferedWriter(metricsFile.toPath()))) {
+            for (int i = 0; i < lineCount; i++) {
+                writer.println(
+                    (1000L + i) + ",metric.value" + i % 3 + ",V,0,1000," + i + ".25,1," + i);
+                writer.println((1000L + i) + ",metric.counter,C," + i);
+            }
+        }
+        assertTrue(metricsFile.length() > 3 * MetricsFileParser.INDEX_BLOCK_SIZE_BYTES);
+
+        // A small window makes the scanner map the file many times.
+        MetricsFileParser parser = new MetricsFileParser(metricsFile, "host", 4096);
+        MetricType value1Type = new MetricType("metric.value1", MetricType.TYPE_VALUE);
+        MetricType counterType = new MetricType("metric.counter", MetricType.TYPE_COUNTER);
+        assertEquals(Set.of(new MetricType("metric.value0", MetricType.TYPE_VALUE), value1Type,
+            new MetricType("metric.value2", MetricType.TYPE_VALUE), counterType), parser.types());
+
+        Map<MetricType, TimeRange> timestampRange = parser.getTimestampRange();
+        assertEquals(new TimeRange(new Date(1001), new Date(1000L + lineCount - 3)),
+            timestampRange.get(value1Type));
+        assertEquals(new TimeRange(new Date(1000), new Date(1000L + lineCount - 1)),
+            timestampRange.get(counterType));
+
+        List<MetricValue> metricValues = new ArrayList<>();
+        parser.parseFile(List.of(value1Type), new Date(80000), new Date(80010))
+            .forEachRemaining(metricValues::add);
+        assertEquals(4, metricValues.size());
+        for (int i = 0; i < metricValues.size(); i++) {
+            int line = 79000 + 3 * i;
+            assertMetricValue(
+                new MetricValue("host", value1Type, new Date(1000L + line), line),
+                metricValues.get(i));
+        }
+
+        int counterValueCount = 0;
+        Iterator<MetricValue> counterValues = parser.parseFile(List.of(counterType), null, null);
+        while (counterValues.hasNext()) {
+            assertEquals(counterValueCount++, counterValues.next().getValue(), 0);
+        }
+        assertEquals(lineCount, counterValueCount);
+    }
+
+    @Test
+    public void testParseValueFormats() throws IOException {
+        File metricsFile = directoryRule.directory().resolve("metrics.txt").toFile();
+        Files.writeString(metricsFile.toPath(),
+            "1,a,V,0,0,0,1,1.2345678E7\r\n\n2,a,V,0,0,0,1,-0.000125\n3,a,V,0,0,0,0,NaN\n"
+                + "4,a,V,0,0,0,1,0.12345678901234567890\n5,b,C,42");
+        MetricsFileParser parser = new MetricsFileParser(metricsFile, "", 8);
+
+        Iterator<MetricValue> metricValues = parser.parseFile();
+        assertEquals(1.2345678E7f, metricValues.next().getValue(), 0);
+        assertEquals(-0.000125f, metricValues.next().getValue(), 0);
+        assertTrue(Float.isNaN(metricValues.next().getValue()));
+        assertEquals(0.12345678901234567890f, metricValues.next().getValue(), 0);
+        MetricValue counterValue = metricValues.next();
+        assertEquals(new MetricType("b", MetricType.TYPE_COUNTER), counterValue.getMetricType());
+        assertEquals(42, counterValue.getValue(), 0);
+        assertFalse(metricValues.hasNext());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUnknownMetricType() throws IOException {
+        File metricsFile = directoryRule.directory().resolve("metrics.txt").toFile();
+        Files.writeString(metricsFile.toPath(), "1,a,X,0\n");
+        new MetricsFileParser(metricsFile).types();
+    }
+
     static void assertMetricValue(MetricValue expected, MetricValue actual) {
         assertEquals(expected.getMetricType(), actual.getMetricType());
         assertEquals(expected.getSource(), actual.getSource());